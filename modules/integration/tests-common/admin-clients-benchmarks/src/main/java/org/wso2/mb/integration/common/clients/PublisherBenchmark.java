@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSMessageType;
+
+import javax.jms.Connection;
+import javax.jms.MapMessage;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the publishing loop of {@link AndesJMSPublisher} in messages per second. The publisher sends to a session
+ * whose messages and producer do nothing, so that the figures are the cost of the publisher itself: creating message
+ * content, setting properties and writing statistics.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublisherBenchmark {
+
+    /**
+     * Number of messages published by each invocation of a benchmark.
+     */
+    private static final int MESSAGE_COUNT = 10000;
+
+    /**
+     * Number of lines of the message file, each a value of a map message.
+     */
+    private static final int MESSAGE_FILE_LINE_COUNT = 10;
+
+    /**
+     * The no-op JMS objects a scenario publishes to, along with its message file and statistics file.
+     */
+    @State(Scope.Thread)
+    public static class PublishingState {
+
+        /**
+         * "text" publishes inbuilt text messages, "textWithStatistics" also writes a statistics line for every
+         * message and "mapFromFileWithStatistics" publishes map messages read from a file, writing statistics.
+         */
+        @Param({"text", "textWithStatistics", "mapFromFileWithStatistics"})
+        private String scenario;
+
+        private File messageFile;
+
+        private File statisticsFile;
+
+        private Connection connection;
+
+        private Session session;
+
+        private MessageProducer sender;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            messageFile = File.createTempFile("publisher-benchmark", ".txt");
+            Writer writer = new FileWriter(messageFile);
+            try {
+                for (int i = 0; i < MESSAGE_FILE_LINE_COUNT; i++) {
+                    writer.write("value of map message entry " + i + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+            statisticsFile = File.createTempFile("publisher-benchmark", ".csv");
+            // Held open for the whole trial, as by a client writing statistics to the file
+            AndesClientUtils.acquireStatisticsFileWriter(statisticsFile.getAbsolutePath());
+
+            // One message of each type is reused for every send, as the session does not count in the figures
+            TextMessage textMessage = createNoOpProxy(TextMessage.class, null);
+            MapMessage mapMessage = createNoOpProxy(MapMessage.class, null);
+            session = createNoOpProxy(Session.class, new Object[]{textMessage, mapMessage});
+            connection = createNoOpProxy(Connection.class, new Object[]{session});
+            sender = createNoOpProxy(MessageProducer.class, null);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            AndesClientUtils.releaseFileWriter(statisticsFile.getAbsolutePath());
+            if (!messageFile.delete()) {
+                messageFile.deleteOnExit();
+            }
+            if (!statisticsFile.delete()) {
+                statisticsFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Publishes {@link #MESSAGE_COUNT} messages with a publisher of the scenario of the state.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGE_COUNT)
+    public long publish(PublishingState state) throws Exception {
+        AndesJMSPublisherClientConfiguration config =
+                new AndesJMSPublisherClientConfiguration(ExchangeType.QUEUE, "benchmarkQueue");
+        config.setNumberOfMessagesToSend(MESSAGE_COUNT);
+        config.setPrintsPerMessageCount(Long.MAX_VALUE);
+        if (!"text".equals(state.scenario)) {
+            config.setFilePathToWriteStatistics(state.statisticsFile.getAbsolutePath());
+        }
+        if ("mapFromFileWithStatistics".equals(state.scenario)) {
+            config.setJMSMessageType(JMSMessageType.MAP);
+            config.setReadMessagesFromFilePath(state.messageFile.getAbsolutePath());
+        }
+
+        AndesJMSPublisher publisher = new AndesJMSPublisher(config, false);
+        publisher.setConnection(state.connection);
+        publisher.setSession(state.session);
+        publisher.setSender(state.sender);
+        if (null != config.getReadMessagesFromFilePath()) {
+            publisher.getMessageContentFromFile();
+        }
+        publisher.run();
+        return publisher.getSentMessageCount();
+    }
+
+    /**
+     * Formats inbuilt message content with {@link MessageFormat} for every message as the publisher did before
+     * reusing a buffer, as a baseline for the "text" scenario of {@link #publish(PublishingState)}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGE_COUNT)
+    public void formatInbuiltMessageContent(Blackhole blackhole) {
+        long threadID = Thread.currentThread().getId();
+        for (long count = 0; count < MESSAGE_COUNT; count++) {
+            blackhole.consume(MessageFormat.format(AndesClientConstants.PUBLISH_MESSAGE_FORMAT, count, threadID));
+        }
+    }
+
+    /**
+     * Creates a JMS object which does nothing, returning the default value of primitive return types and null for
+     * other return types unless one of the given results is of the return type.
+     *
+     * @param type    the JMS interface
+     * @param results objects returned by the methods of the matching return types, or null
+     * @return the proxy
+     */
+    private static <T> T createNoOpProxy(Class<T> type, final Object[] results) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                Class<?> returnType = method.getReturnType();
+                if (null != results) {
+                    for (Object result : results) {
+                        if (returnType.isInstance(result)) {
+                            return result;
+                        }
+                    }
+                }
+                if (boolean.class == returnType) {
+                    return Boolean.FALSE;
+                } else if (int.class == returnType) {
+                    return 0;
+                } else if (long.class == returnType) {
+                    return 0L;
+                } else if (returnType.isPrimitive() && void.class != returnType) {
+                    throw new UnsupportedOperationException(method.toString());
+                }
+                return null;
+            }
+        }));
+    }
+}
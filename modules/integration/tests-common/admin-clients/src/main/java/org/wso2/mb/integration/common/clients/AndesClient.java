@@ -26,6 +26,11 @@ import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherCl
 import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientOutputParser;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSConnectionPool;
+import org.wso2.mb.integration.common.clients.operations.utils.LatencyHistogram;
+import org.wso2.mb.integration.common.clients.operations.utils.LatencyHistogramLogWriter;
+import org.wso2.mb.integration.common.clients.operations.utils.MessageSequenceTracker;
+import org.wso2.mb.integration.common.clients.operations.utils.ReceivedMessageStore;
 
 import javax.jms.JMSException;
 import javax.naming.NamingException;
@@ -61,6 +66,12 @@ public class AndesClient {
      */
     List<AndesJMSPublisher> publishers = new ArrayList<>();
 
+    /**
+     * The tracker verifying the sequences of the messages received by the consumers, null if sequences are not
+     * verified.
+     */
+    private MessageSequenceTracker sequenceTracker;
+
     /**
      * Creates a single consumer or publisher based on the configuration passed
      *
@@ -105,13 +116,29 @@ public class AndesClient {
                 AndesClientUtils.initializePublishedPrintWriter(((AndesJMSPublisherClientConfiguration) config).getFilePathToWritePublishedMessages());
             }
 
+            // Publishers or consumers take turns on the shared connections, if any
+            JMSConnectionPool connectionPool = null;
+            if (0 < config.getSharedConnectionCount()) {
+                connectionPool = new JMSConnectionPool(Math.min(config.getSharedConnectionCount(), numberOfThreads),
+                                                       config.getExchangeType());
+            }
+
+            // Consumers verify sequences of the messages of all publishers together
+            if ((config instanceof AndesJMSConsumerClientConfiguration) &&
+                ((AndesJMSConsumerClientConfiguration) config).isVerifySequences()) {
+                sequenceTracker = new MessageSequenceTracker();
+            }
+
             for (int i = 0; i < numberOfThreads; i++) {
                 if (config instanceof AndesJMSConsumerClientConfiguration) {
-                    consumers
-                            .add(new AndesJMSConsumer((AndesJMSConsumerClientConfiguration) config, createConsumersAndProducers));
+                    AndesJMSConsumer consumer = new AndesJMSConsumer((AndesJMSConsumerClientConfiguration) config,
+                                                                     createConsumersAndProducers, connectionPool);
+                    consumer.setSequenceTracker(sequenceTracker);
+                    consumers.add(consumer);
                 } else if (config instanceof AndesJMSPublisherClientConfiguration) {
                     publishers
-                            .add(new AndesJMSPublisher((AndesJMSPublisherClientConfiguration) config, createConsumersAndProducers));
+                            .add(new AndesJMSPublisher((AndesJMSPublisherClientConfiguration) config,
+                                                       createConsumersAndProducers, connectionPool));
                 }
             }
         } else {
@@ -155,6 +182,13 @@ public class AndesClient {
         for (AndesJMSPublisher publisher : publishers) {
             publisher.stopClient();
         }
+        if (!consumers.isEmpty()) {
+            try {
+                consumers.get(0).getConfig().getReceivedMessageStore().close();
+            } catch (IOException e) {
+                log.error("Error closing the received message store", e);
+            }
+        }
 
         log.info("TPS:" + this.getConsumerTPS() + " AverageLatency:" + this.getAverageLatency());
     }
@@ -198,6 +232,92 @@ public class AndesClient {
         return averageLatency / consumers.size();
     }
 
+    /**
+     * Gets the latencies of the messages received by all consumers, merged into a single histogram which gives
+     * percentiles such as the median, 99th and 99.9th percentile and the maximum latency.
+     *
+     * @return The latency histogram in nanoseconds.
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (AndesJMSConsumer consumer : consumers) {
+            histogram.add(consumer.getLatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Gets the latencies of the messages received by all consumers corrected for coordinated omission, merged into a
+     * single histogram. Same as {@link #getLatencyHistogram()} unless the consumers are configured with an expected
+     * message interval.
+     *
+     * @return The corrected latency histogram in nanoseconds.
+     */
+    public LatencyHistogram getCorrectedLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (AndesJMSConsumer consumer : consumers) {
+            histogram.add(consumer.getCorrectedLatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Gets the delays between the intended and actual send times of messages of all publishers sending at a
+     * configured rate, merged into a single histogram.
+     *
+     * @return The send delay histogram in nanoseconds.
+     */
+    public LatencyHistogram getSendDelayHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (AndesJMSPublisher publisher : publishers) {
+            histogram.add(publisher.getSendDelayHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Gets the durations of the transaction commits of all transactional publishers, merged into a single histogram.
+     *
+     * @return The commit latency histogram in nanoseconds.
+     */
+    public LatencyHistogram getCommitLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (AndesJMSPublisher publisher : publishers) {
+            histogram.add(publisher.getCommitLatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Gets the tracker verifying the sequences of the messages received by all consumers while they are received,
+     * which reports duplicates, gaps and reorderings without writing received messages to a file.
+     *
+     * @return The sequence tracker, null if the consumers are not configured to verify sequences.
+     */
+    public MessageSequenceTracker getSequenceTracker() {
+        return sequenceTracker;
+    }
+
+    /**
+     * Writes the latencies of the messages received by all consumers to a file in HdrHistogram log format, as an
+     * interval tagged "raw" and an interval tagged "corrected" for the corrected latencies, so that the latencies of
+     * different runs can be compared with the HdrHistogram tools.
+     *
+     * @param filePath The file path to write to.
+     * @throws IOException Thrown when the file cannot be written.
+     */
+    public void writeLatencyHistogramLog(String filePath) throws IOException {
+        LatencyHistogram histogram = getLatencyHistogram();
+        LatencyHistogramLogWriter logWriter = new LatencyHistogramLogWriter(filePath,
+                (0 == histogram.getStartTimeStamp()) ? System.currentTimeMillis() : histogram.getStartTimeStamp());
+        try {
+            logWriter.writeInterval("raw", histogram);
+            logWriter.writeInterval("corrected", getCorrectedLatencyHistogram());
+        } finally {
+            logWriter.close();
+        }
+    }
+
     /**
      * Gets the number of messages sent by the publisher(s).
      *
@@ -259,6 +379,7 @@ public class AndesClient {
     public boolean checkIfMessagesAreInOrder()
             throws IOException {
         if (!consumers.isEmpty()) {
+            AndesClientUtils.flushPrintWriters();
             AndesClientOutputParser andesClientOutputParser =
                     new AndesClientOutputParser(consumers.get(0).getConfig()
                                                         .getFilePathToWriteReceivedMessages());
@@ -278,6 +399,7 @@ public class AndesClient {
     public boolean transactedOperation(long operationOccurredIndex)
             throws IOException {
         if (0 < consumers.size()) {
+            AndesClientUtils.flushPrintWriters();
             AndesClientOutputParser andesClientOutputParser =
                     new AndesClientOutputParser(consumers.get(0).getConfig()
                                                         .getFilePathToWriteReceivedMessages());
@@ -298,9 +420,11 @@ public class AndesClient {
     public boolean checkIfTransactedRollbackPreservesOrder(long messagesPerRollback)
             throws IOException {
         if (0 < consumers.size()) {
+            AndesClientUtils.flushPrintWriters();
             AndesClientOutputParser andesClientOutputParser =
                     new AndesClientOutputParser(consumers.get(0).getConfig()
-                                                        .getFilePathToWriteReceivedMessages());
+                                                        .getFilePathToWriteReceivedMessages(),
+                                                messagesPerRollback);
             return andesClientOutputParser.checkIfTransactedRollbackPreservesOrder(messagesPerRollback);
         } else {
             return false;
@@ -316,6 +440,7 @@ public class AndesClient {
     public long getTotalNumberOfDuplicates()
             throws IOException {
         if (0 < consumers.size()) {
+            AndesClientUtils.flushPrintWriters();
             AndesClientOutputParser andesClientOutputParser =
                     new AndesClientOutputParser(consumers.get(0).getConfig()
                                                         .getFilePathToWriteReceivedMessages());
@@ -356,9 +481,19 @@ public class AndesClient {
      * This method returns received messages for a single consumer. This is not valid when it comes to multiple
      * consumers and, not valid when writing to files before compare message contents.
      *
-     * @return Received message contents.
+     * @return Received message contents, or their digests unless the consumer keeps contents.
      */
     public List<String> getReceivedMessages() {
         return consumers.get(0).getConfig().getReceivedMessages();
     }
+
+    /**
+     * Gets the store of the messages received by the consumers, which reads spilled messages lazily while it is
+     * iterated. This is not valid when writing to files before compare message contents.
+     *
+     * @return The received message store.
+     */
+    public ReceivedMessageStore getReceivedMessageStore() {
+        return consumers.get(0).getConfig().getReceivedMessageStore();
+    }
 }
@@ -20,12 +20,19 @@ package org.wso2.mb.integration.common.clients;
 import org.wso2.mb.integration.common.clients.configurations.AndesJMSClientConfiguration;
 import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSConnectionPool;
 
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -39,10 +46,30 @@ public abstract class AndesJMSBase {
     protected final AndesJMSClientConfiguration jmsConfig;
 
     /**
-     * The initial context used for creating the publishers and consumers.
+     * The environment of the initial context.
+     */
+    private final Properties properties = new Properties();
+
+    /**
+     * The initial context used for creating the publishers and consumers, created when first needed.
      */
     private InitialContext initialContext;
 
+    /**
+     * The pool of connections shared with other publishers or consumers, null if the connection is not shared.
+     */
+    private final JMSConnectionPool connectionPool;
+
+    /**
+     * The connection taken from the connection pool, null if none is taken.
+     */
+    private Connection pooledConnection;
+
+    /**
+     * Paths of the files whose writers are acquired by the client, released when it stops.
+     */
+    private final List<String> acquiredFilePaths = new ArrayList<String>();
+
     /**
      * Creates the initial context.
      *
@@ -50,25 +77,143 @@ public abstract class AndesJMSBase {
      * @throws NamingException
      */
     protected AndesJMSBase(AndesJMSClientConfiguration config) throws NamingException {
+        this(config, null);
+    }
+
+    /**
+     * Prepares the environment of the initial context. If connections are shared, the connection factory and the
+     * destination are looked up once for all clients sharing them, as they share the same configuration.
+     *
+     * @param config         The configuration.
+     * @param connectionPool The pool of connections shared with other publishers or consumers, null to use a
+     *                       connection of its own.
+     * @throws NamingException
+     */
+    protected AndesJMSBase(AndesJMSClientConfiguration config, JMSConnectionPool connectionPool)
+            throws NamingException {
         this.jmsConfig = config;
+        this.connectionPool = connectionPool;
 
-        Properties properties = new Properties();
         properties.put(Context.INITIAL_CONTEXT_FACTORY, AndesClientConstants.ANDES_ICF);
         properties.put(AndesClientConstants.CF_NAME_PREFIX + AndesClientConstants.CF_NAME, jmsConfig.getConnectionString());
         properties.put(jmsConfig.getExchangeType().getType() + "." + jmsConfig.getDestinationName(), jmsConfig.getDestinationName());
-
-        initialContext = new InitialContext(properties);
     }
 
     /**
-     * Gets the initial context.
+     * Gets the initial context of the client, creating it if it is not created yet.
      *
      * @return The initial context.
+     * @throws NamingException
      */
-    public InitialContext getInitialContext() {
+    protected InitialContext getInitialContext() throws NamingException {
+        if (null == initialContext) {
+            initialContext = new InitialContext(properties);
+        }
         return initialContext;
     }
 
+    /**
+     * Looks up the connection factory, or takes the one looked up by another client sharing connections.
+     *
+     * @return The connection factory.
+     * @throws NamingException
+     */
+    protected ConnectionFactory lookupConnectionFactory() throws NamingException {
+        return (ConnectionFactory) lookup(AndesClientConstants.CF_NAME);
+    }
+
+    /**
+     * Looks up the destination, or takes the one looked up by another client sharing connections.
+     *
+     * @return The queue or topic.
+     * @throws NamingException
+     */
+    protected Destination lookupDestination() throws NamingException {
+        return (Destination) lookup(jmsConfig.getDestinationName());
+    }
+
+    private Object lookup(String name) throws NamingException {
+        if (null == connectionPool) {
+            return getInitialContext().lookup(name);
+        }
+        Object object = connectionPool.getLookedUpObject(name);
+        if (null == object) {
+            object = connectionPool.putLookedUpObjectIfAbsent(name, getInitialContext().lookup(name));
+        }
+        return object;
+    }
+
+    /**
+     * Checks whether the connection is shared with other publishers or consumers.
+     *
+     * @return true if connections are taken from a connection pool, false otherwise.
+     */
+    protected boolean isConnectionShared() {
+        return null != connectionPool;
+    }
+
+    /**
+     * Takes a started connection from the connection pool.
+     *
+     * @param connectionFactory The factory creating connections.
+     * @return The connection.
+     * @throws JMSException
+     */
+    protected Connection acquireSharedConnection(ConnectionFactory connectionFactory) throws JMSException {
+        pooledConnection = connectionPool.acquire(connectionFactory);
+        return pooledConnection;
+    }
+
+    /**
+     * Closes a connection, or gives it back to the connection pool if it is shared.
+     *
+     * @param connection The connection.
+     * @param stop       true if the connection is stopped before it is closed, false otherwise.
+     * @throws JMSException
+     */
+    protected void closeConnection(Connection connection, boolean stop) throws JMSException {
+        if (null != pooledConnection && connection == pooledConnection) {
+            pooledConnection = null;
+            connectionPool.release(connection);
+        } else {
+            if (stop) {
+                connection.stop();
+            }
+            connection.close();
+        }
+    }
+
+    /**
+     * Acquires the writers of the statistics file and of the given files the client writes to, so that they are
+     * kept open until the client stops.
+     *
+     * @param filePaths Paths of the files of received or published messages, null if not written.
+     * @throws IOException
+     */
+    protected void acquireFileWriters(String... filePaths) throws IOException {
+        String statisticsFilePath = jmsConfig.getFilePathToWriteStatistics();
+        if (null != statisticsFilePath) {
+            AndesClientUtils.acquireStatisticsFileWriter(statisticsFilePath);
+            acquiredFilePaths.add(statisticsFilePath);
+        }
+        for (String filePath : filePaths) {
+            if (null != filePath) {
+                AndesClientUtils.acquireFileWriter(filePath);
+                acquiredFilePaths.add(filePath);
+            }
+        }
+    }
+
+    /**
+     * Releases the file writers acquired by the client, closing those which no other client writes to.
+     */
+    protected void releaseFileWriters() {
+        for (String filePath : acquiredFilePaths) {
+            AndesClientUtils.releaseFileWriter(filePath);
+        }
+        acquiredFilePaths.clear();
+    }
+
     /**
      * Starts up the publisher or consumer.
      *
@@ -22,8 +22,13 @@ import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerCli
 import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ClientClock;
+import org.wso2.mb.integration.common.clients.operations.utils.ClientExecutors;
 import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSConnectionPool;
 import org.wso2.mb.integration.common.clients.operations.utils.JMSDeliveryStatus;
+import org.wso2.mb.integration.common.clients.operations.utils.LatencyHistogram;
+import org.wso2.mb.integration.common.clients.operations.utils.MessageSequenceTracker;
 
 import javax.jms.Connection;
 import javax.jms.JMSException;
@@ -83,6 +88,24 @@ public class AndesJMSConsumer extends AndesJMSBase
      */
     private long totalLatency;
 
+    /**
+     * Latencies of the received messages in nanoseconds, measured from the nano time stamp set by the publisher if
+     * it is published, from the JMS timestamp otherwise.
+     */
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    /**
+     * Latencies of the received messages corrected for coordinated omission, using the expected message interval of
+     * the configuration.
+     */
+    private final LatencyHistogram correctedLatencyHistogram = new LatencyHistogram();
+
+    /**
+     * The tracker verifying the sequences of received messages, shared by the consumers of a client. Null if
+     * sequences are not verified.
+     */
+    private MessageSequenceTracker sequenceTracker;
+
     /**
      * The JMS connection used to create the JMS sessions
      */
@@ -108,7 +131,22 @@ public class AndesJMSConsumer extends AndesJMSBase
      */
     public AndesJMSConsumer(AndesJMSConsumerClientConfiguration config, boolean createConsumer)
             throws NamingException, JMSException {
-        super(config);
+        this(config, createConsumer, null);
+    }
+
+    /**
+     * Creates a new JMS consumer with a given configuration, creating its session on a shared connection.
+     *
+     * @param config         The configuration.
+     * @param createConsumer Creates the connection, session and receiver.
+     * @param connectionPool The pool of connections shared with other consumers, null to use a connection of its
+     *                       own. Durable topic subscribers always use a connection of their own.
+     * @throws NamingException
+     * @throws JMSException
+     */
+    public AndesJMSConsumer(AndesJMSConsumerClientConfiguration config, boolean createConsumer,
+                            JMSConnectionPool connectionPool) throws NamingException, JMSException {
+        super(config, connectionPool);
         receivedMessageCount = new AtomicLong(0);
 
         // Sets the configuration
@@ -132,11 +170,16 @@ public class AndesJMSConsumer extends AndesJMSBase
      */
     private void createTopicConnection() throws NamingException, JMSException {
         // Creates a topic connection, sessions and receiver
-        TopicConnectionFactory connFactory = (TopicConnectionFactory) super.getInitialContext()
-                .lookup(AndesClientConstants.CF_NAME);
-        TopicConnection topicConnection = connFactory.createTopicConnection();
-        topicConnection.setClientID(this.consumerConfig.getSubscriptionID());
-        topicConnection.start();
+        TopicConnectionFactory connFactory = (TopicConnectionFactory) super.lookupConnectionFactory();
+        TopicConnection topicConnection;
+        // The client ID of a durable subscriber's connection identifies its subscription, so it is not shared
+        if (super.isConnectionShared() && !this.consumerConfig.isDurable()) {
+            topicConnection = (TopicConnection) super.acquireSharedConnection(connFactory);
+        } else {
+            topicConnection = connFactory.createTopicConnection();
+            topicConnection.setClientID(this.consumerConfig.getSubscriptionID());
+            topicConnection.start();
+        }
         TopicSession topicSession;
         // Sets acknowledgement mode
         if (TopicSession.SESSION_TRANSACTED == this.consumerConfig.getAcknowledgeMode().getType()) {
@@ -147,8 +190,7 @@ public class AndesJMSConsumer extends AndesJMSBase
                     .createTopicSession(false, this.consumerConfig.getAcknowledgeMode().getType());
         }
 
-        Topic topic =
-                (Topic) super.getInitialContext().lookup(this.consumerConfig.getDestinationName());
+        Topic topic = (Topic) super.lookupDestination();
 
         connection = topicConnection;
         session = topicSession;
@@ -181,10 +223,14 @@ public class AndesJMSConsumer extends AndesJMSBase
      */
     private void createQueueConnection() throws NamingException, JMSException {
         // Creates a queue connection, sessions and receiver
-        QueueConnectionFactory connFactory = (QueueConnectionFactory) super.getInitialContext()
-                .lookup(AndesClientConstants.CF_NAME);
-        QueueConnection queueConnection = connFactory.createQueueConnection();
-        queueConnection.start();
+        QueueConnectionFactory connFactory = (QueueConnectionFactory) super.lookupConnectionFactory();
+        QueueConnection queueConnection;
+        if (super.isConnectionShared()) {
+            queueConnection = (QueueConnection) super.acquireSharedConnection(connFactory);
+        } else {
+            queueConnection = connFactory.createQueueConnection();
+            queueConnection.start();
+        }
         QueueSession queueSession;
 
         // Sets acknowledgement mode
@@ -196,8 +242,7 @@ public class AndesJMSConsumer extends AndesJMSBase
                     .createQueueSession(false, this.consumerConfig.getAcknowledgeMode().getType());
         }
 
-        Queue queue =
-                (Queue) super.getInitialContext().lookup(this.consumerConfig.getDestinationName());
+        Queue queue = (Queue) super.lookupDestination();
         connection = queueConnection;
         session = queueSession;
 
@@ -216,13 +261,17 @@ public class AndesJMSConsumer extends AndesJMSBase
     public void startClient() throws AndesClientException, JMSException {
         if (null != connection && null != session && null != receiver) {
             log.info("Starting Consumer");
-            if (this.consumerConfig.isAsync()) {
-                // Use an asynchronous message listener
+            try {
+                this.acquireFileWriters(this.consumerConfig.getFilePathToWriteReceivedMessages());
+            } catch (IOException e) {
+                throw new AndesClientException("Error while opening files to write to", e);
+            }
+            if (this.consumerConfig.isAsync() || ClientExecutors.isThreadPoolShared(this.consumerConfig)) {
+                // Use an asynchronous message listener, which holds no thread of the client while waiting
                 receiver.setMessageListener(this);
             } else {
                 // Uses a thread to listen to messages
-                Thread consumerThread = new Thread(this);
-                consumerThread.start();
+                ClientExecutors.getExecutor(this.consumerConfig).execute(this);
             }
         } else {
             throw new AndesClientException("The connection, session and message receiver is not assigned.");
@@ -237,7 +286,7 @@ public class AndesJMSConsumer extends AndesJMSBase
         /**
          * Using a separate thread as stopping the consumer on "onMessage" thread is not allowed.
          */
-        Thread stopThread = new Thread(new Runnable() {
+        Runnable stopTask = new Runnable() {
             @Override
             public void run() {
                 if (null != connection && null != session && null != receiver) {
@@ -255,8 +304,7 @@ public class AndesJMSConsumer extends AndesJMSBase
                             }
 
                             if (null != connection) {
-                                TopicConnection topicConnection = (TopicConnection) connection;
-                                topicConnection.close();
+                                closeConnection(connection, false);
                             }
                         } else if (ExchangeType.QUEUE == consumerConfig.getExchangeType()) {
                             if (null != receiver) {
@@ -270,15 +318,14 @@ public class AndesJMSConsumer extends AndesJMSBase
                             }
 
                             if (null != connection) {
-                                QueueConnection queueConnection = (QueueConnection) connection;
-                                queueConnection.stop();
-                                queueConnection.close();
+                                closeConnection(connection, true);
                             }
                         }
 
                         receiver = null;
                         session = null;
                         connection = null;
+                        releaseFileWriters();
 
                         log.info("Consumer Closed");
 
@@ -288,12 +335,10 @@ public class AndesJMSConsumer extends AndesJMSBase
                     }
                 }
             }
-        });
-
-        stopThread.start();
+        };
 
         try {
-            stopThread.join();
+            ClientExecutors.runAndWait(stopTask);
         } catch (InterruptedException e) {
             throw new RuntimeException("Error waiting for subscriber to stop", e);
         }
@@ -315,8 +360,7 @@ public class AndesJMSConsumer extends AndesJMSBase
                     }
 
                     if (null != connection) {
-                        TopicConnection topicConnection = (TopicConnection) connection;
-                        topicConnection.close();
+                        closeConnection(connection, false);
                     }
                 } else if (ExchangeType.QUEUE == consumerConfig.getExchangeType()) {
                     if (null != receiver) {
@@ -330,15 +374,14 @@ public class AndesJMSConsumer extends AndesJMSBase
                     }
 
                     if (null != connection) {
-                        QueueConnection queueConnection = (QueueConnection) connection;
-                        queueConnection.stop();
-                        queueConnection.close();
+                        closeConnection(connection, true);
                     }
                 }
 
                 receiver = null;
                 session = null;
                 connection = null;
+                releaseFileWriters();
 
                 log.info("Consumer Closed");
 
@@ -359,7 +402,7 @@ public class AndesJMSConsumer extends AndesJMSBase
         /**
          * Using a separate thread as un-subscribing the consumer on "onMessage" thread is not allowed.
          */
-        Thread unsubscribeThread = new Thread(new Runnable() {
+        Runnable unsubscribeTask = new Runnable() {
             @Override
             public void run() {
                 if (null != connection && null != session && null != receiver) {
@@ -382,12 +425,10 @@ public class AndesJMSConsumer extends AndesJMSBase
                     throw new RuntimeException("The connection, session and message receiver is not assigned.", andesClientException);
                 }
             }
-        });
-
-        unsubscribeThread.start();
+        };
 
         try {
-            unsubscribeThread.join();
+            ClientExecutors.runAndWait(unsubscribeTask);
         } catch (InterruptedException e) {
             throw new RuntimeException("Error waiting for consumer to unsubscribe", e);
         }
@@ -460,6 +501,10 @@ public class AndesJMSConsumer extends AndesJMSBase
             // Calculating total latency
             long currentTimeStamp = System.currentTimeMillis();
             this.totalLatency = this.totalLatency + (currentTimeStamp - message.getJMSTimestamp());
+            long latency = ClientClock.getLatencyInNanos(message, currentTimeStamp);
+            this.latencyHistogram.recordValue(latency);
+            this.correctedLatencyHistogram.recordValueWithExpectedInterval(latency,
+                    this.consumerConfig.getExpectedMessageIntervalInNanos());
             // Setting timestamps for TPS calculation
             if (0 == this.firstMessageConsumedTimestamp) {
                 this.firstMessageConsumedTimestamp = currentTimeStamp;
@@ -475,6 +520,14 @@ public class AndesJMSConsumer extends AndesJMSBase
             } else {
                 deliveryStatus = JMSDeliveryStatus.ORIGINAL;
             }
+            // Verifies the sequence of the message among the messages of its publisher
+            if (null != this.sequenceTracker
+                && message.propertyExists(AndesClientConstants.ANDES_CLIENT_SEQUENCE_PROPERTY)) {
+                this.sequenceTracker.recordMessage(
+                        message.getLongProperty(AndesClientConstants.ANDES_CLIENT_PUBLISHER_ID_PROPERTY),
+                        message.getLongProperty(AndesClientConstants.ANDES_CLIENT_SEQUENCE_PROPERTY),
+                        message.getJMSRedelivered());
+            }
             // Logging the received message
             if (0 == this.receivedMessageCount.get() % this.consumerConfig
                     .getPrintsPerMessageCount()) {
@@ -484,7 +537,7 @@ public class AndesJMSConsumer extends AndesJMSBase
                          this.receivedMessageCount + " MessageToReceive:" +
                          this.consumerConfig
                                  .getMaximumMessagesToReceived() + " Original/Redelivered:" + deliveryStatus
-                                 .getStatus());
+                                 .getStatus() + ((null != this.sequenceTracker) ? " " + this.sequenceTracker : ""));
 
             }
             // Writes the statistics
@@ -558,6 +611,15 @@ public class AndesJMSConsumer extends AndesJMSBase
         return false;
     }
 
+    /**
+     * Sets the tracker verifying the sequences of the messages received by the consumer, before it is started.
+     *
+     * @param sequenceTracker The tracker, shared by the consumers of a client.
+     */
+    void setSequenceTracker(MessageSequenceTracker sequenceTracker) {
+        this.sequenceTracker = sequenceTracker;
+    }
+
     /**
      * Gets the received message count for the consumer.
      *
@@ -595,6 +657,29 @@ public class AndesJMSConsumer extends AndesJMSBase
         }
     }
 
+    /**
+     * Gets the latencies of the messages received by the consumer.
+     *
+     * @return A copy of the latency histogram, spanning the time messages were received.
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        LatencyHistogram histogram = this.latencyHistogram.copy();
+        histogram.setTimeStamps(this.firstMessageConsumedTimestamp, this.lastMessageConsumedTimestamp);
+        return histogram;
+    }
+
+    /**
+     * Gets the latencies of the messages received by the consumer, corrected for coordinated omission using the
+     * expected message interval of the configuration.
+     *
+     * @return A copy of the corrected latency histogram, spanning the time messages were received.
+     */
+    public LatencyHistogram getCorrectedLatencyHistogram() {
+        LatencyHistogram histogram = this.correctedLatencyHistogram.copy();
+        histogram.setTimeStamps(this.firstMessageConsumedTimestamp, this.lastMessageConsumedTimestamp);
+        return histogram;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -24,8 +24,15 @@ import org.wso2.mb.integration.common.clients.configurations.JMSHeaderPropertyTy
 import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.ClientClock;
+import org.wso2.mb.integration.common.clients.operations.utils.ClientExecutors;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSConnectionPool;
 import org.wso2.mb.integration.common.clients.operations.utils.JMSMessageType;
+import org.wso2.mb.integration.common.clients.operations.utils.LatencyHistogram;
+import org.wso2.mb.integration.common.clients.operations.utils.OpenLoopScheduler;
+import org.wso2.mb.integration.common.clients.operations.utils.PayloadProvider;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.DeliveryMode;
@@ -40,8 +47,11 @@ import javax.naming.NamingException;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.text.MessageFormat;
 import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * The JMS message publisher used for creating a publisher and for publishing JMS messages.
@@ -52,6 +62,11 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
      */
     private static Logger log = Logger.getLogger(AndesJMSPublisher.class);
 
+    /**
+     * Size of the buffer through which payloads are written to bytes messages.
+     */
+    private static final int PAYLOAD_TRANSFER_BUFFER_SIZE = 64 * 1024;
+
     /**
      * The configuration for the publisher
      */
@@ -72,6 +87,34 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
      */
     private long lastMessagePublishTimestamp;
 
+    /**
+     * Delays between the intended and actual send times of messages in open-loop mode, in nanoseconds. Large delays
+     * mean that the publisher could not keep up with the configured rate.
+     */
+    private final LatencyHistogram sendDelayHistogram = new LatencyHistogram();
+
+    /**
+     * Durations of transaction commits in nanoseconds, which are the times the broker took to confirm batches of
+     * messages.
+     */
+    private final LatencyHistogram commitLatencyHistogram = new LatencyHistogram();
+
+    /**
+     * Guards the session while messages are sent or committed, as the open transaction is committed when the client
+     * stops, which may happen on another thread than the one publishing.
+     */
+    private final Object sessionLock = new Object();
+
+    /**
+     * The number of messages sent in the open transaction of a transactional session
+     */
+    private int uncommittedMessageCount;
+
+    /**
+     * The {@link System#nanoTime()} at which the first message of the open transaction was sent
+     */
+    private long transactionStartTime;
+
     /**
      * The connection which is used to create the JMS session
      */
@@ -92,6 +135,60 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
      */
     private String messageContent = null;
 
+    /**
+     * Builder of inbuilt message content, reused for every message. Holds the constant prefix of
+     * {@link AndesClientConstants#PUBLISH_MESSAGE_FORMAT} followed by the message count and the suffix of the last
+     * message.
+     */
+    private StringBuilder inbuiltMessageBuilder;
+
+    /**
+     * Length of the constant prefix in {@link #inbuiltMessageBuilder}.
+     */
+    private int inbuiltMessagePrefixLength;
+
+    /**
+     * The part of inbuilt message content following the message count, which includes the thread ID.
+     */
+    private String inbuiltMessageSuffix;
+
+    /**
+     * Map message entries split from the message content, along with their keys. Split once before publishing.
+     */
+    private String[] mapMessageKeys;
+    private String[] mapMessageValues;
+
+    /**
+     * JMS header properties set to every message, copied from the configuration before publishing.
+     */
+    private JMSHeaderProperty[] headerProperties;
+
+    /**
+     * Buffers reused for every statistics line.
+     */
+    private final StringBuilder statisticsBuilder = new StringBuilder();
+    private char[] statisticsChars = new char[64];
+
+    /**
+     * Provider of the payloads of bytes messages, null if bytes messages have no payload.
+     */
+    private PayloadProvider payloadProvider;
+
+    /**
+     * Buffer through which payloads are written to bytes messages, created when payloads are provided.
+     */
+    private byte[] payloadTransferBuffer;
+
+    /**
+     * Random number generator of payload sizes.
+     */
+    private final Random payloadSizeRandom = new Random();
+
+    /**
+     * Random ID of the publisher in the sequence headers of its messages, unique among publishers of any JVM.
+     */
+    private final long publisherID = UUID.randomUUID().getMostSignificantBits();
+
     /**
      * Creates a new JMS publisher with a given configuration.
      *
@@ -102,7 +199,22 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
      */
     public AndesJMSPublisher(AndesJMSPublisherClientConfiguration config, boolean createPublisher)
             throws NamingException, JMSException {
-        super(config);
+        this(config, createPublisher, null);
+    }
+
+    /**
+     * Creates a new JMS publisher with a given configuration, creating its session on a shared connection.
+     *
+     * @param config          The configuration
+     * @param createPublisher Creates connection, session and sender.
+     * @param connectionPool  The pool of connections shared with other publishers, null to use a connection of its
+     *                        own.
+     * @throws NamingException
+     * @throws JMSException
+     */
+    public AndesJMSPublisher(AndesJMSPublisherClientConfiguration config, boolean createPublisher,
+                             JMSConnectionPool connectionPool) throws NamingException, JMSException {
+        super(config, connectionPool);
 
         // Sets the configuration
         this.publisherConfig = config;
@@ -113,18 +225,20 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
 
         // Creates a JMS connection, sessions and sender
         if (createPublisher) {
-            ConnectionFactory connFactory = (ConnectionFactory) super.getInitialContext()
-                    .lookup(AndesClientConstants.CF_NAME);
-            connection = connFactory.createConnection();
-            connection.start();
+            ConnectionFactory connFactory = super.lookupConnectionFactory();
+            if (super.isConnectionShared()) {
+                connection = super.acquireSharedConnection(connFactory);
+            } else {
+                connection = connFactory.createConnection();
+                connection.start();
+            }
             if(config.isTransactionalSession()) {
                 this.session = connection.createSession(true, 0);
             } else {
                 this.session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
             }
 
-            Destination destination = (Destination) super.getInitialContext()
-                    .lookup(this.publisherConfig.getDestinationName());
+            Destination destination = super.lookupDestination();
             this.sender = this.session.createProducer(destination);
         }
     }
@@ -137,11 +251,17 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
         if (null != connection && null != session && null != sender) {
             //reading message content from file
             if (null != this.publisherConfig.getReadMessagesFromFilePath()) {
-                this.getMessageContentFromFile();
+                if (JMSMessageType.BYTE == this.publisherConfig.getJMSMessageType()) {
+                    this.payloadProvider =
+                            PayloadProvider.getPayloadProvider(this.publisherConfig.getReadMessagesFromFilePath());
+                    this.payloadTransferBuffer = new byte[PAYLOAD_TRANSFER_BUFFER_SIZE];
+                } else {
+                    this.getMessageContentFromFile();
+                }
             }
 
-            Thread subscriberThread = new Thread(this);
-            subscriberThread.start();
+            this.acquireFileWriters(this.publisherConfig.getFilePathToWritePublishedMessages());
+            ClientExecutors.getExecutor(this.publisherConfig).execute(this);
         } else {
             throw new AndesClientException("The connection, session and message sender is not assigned.");
         }
@@ -155,12 +275,19 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
         if (null != connection && null != session && null != sender) {
             long threadID = Thread.currentThread().getId();
             log.info("Closing publisher | ThreadID : " + threadID);
-            this.sender.close();
-            this.session.close();
-            this.connection.close();
-            this.sender = null;
-            this.session = null;
-            this.connection = null;
+            synchronized (this.sessionLock) {
+                // Committing the messages of the open transaction, which closing the session would roll back
+                if (0 < this.uncommittedMessageCount) {
+                    this.commitTransaction();
+                }
+                this.sender.close();
+                this.session.close();
+                closeConnection(this.connection, false);
+                this.sender = null;
+                this.session = null;
+                this.connection = null;
+            }
+            this.releaseFileWriters();
             log.info("Publisher closed | ThreadID : " + threadID);
         }
     }
@@ -202,23 +329,53 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
         try {
             Message message = null;
             long threadID = Thread.currentThread().getId();
+            this.preparePublishing(threadID);
+            String sendLogPrefix = "[SEND]" + ((null != this.publisherConfig.getReadMessagesFromFilePath()) ?
+                                               " (FROM FILE)" : " (INBUILT MESSAGE)") + " ThreadID:" + threadID
+                                   + " Destination(" + this.publisherConfig.getExchangeType().getType() + "):"
+                                   + this.publisherConfig.getDestinationName() + " SentMessageCount:";
+            String sendLogSuffix = " CountToSend:" + this.publisherConfig.getNumberOfMessagesToSend();
+            OpenLoopScheduler scheduler = null;
+            if (0D < this.publisherConfig.getPublishRatePerSecond()) {
+                scheduler = new OpenLoopScheduler(this.publisherConfig.getPublishRatePerSecond());
+                scheduler.start();
+            }
+            boolean transactional = this.publisherConfig.isTransactionalSession();
+            int transactionBatchSize = this.publisherConfig.getTransactionBatchSize();
+            long transactionIntervalInNanos =
+                    TimeUnit.MILLISECONDS.toNanos(this.publisherConfig.getTransactionIntervalInMillis());
+            long runningDelayInNanos = TimeUnit.MILLISECONDS.toNanos(this.publisherConfig.getRunningDelay());
             while (this.sentMessageCount < this.publisherConfig.getNumberOfMessagesToSend()) {
+                // Waiting for the intended send time in open-loop mode
+                long intendedSendTime;
+                if (null != scheduler) {
+                    if (transactional) {
+                        this.commitIdleTransaction(scheduler.getNextSendTime(), transactionIntervalInNanos);
+                    }
+                    intendedSendTime = scheduler.awaitNextSendTime();
+                } else {
+                    intendedSendTime = System.nanoTime();
+                }
+
                 // Creating a JMS message
                 if (JMSMessageType.TEXT == this.publisherConfig.getJMSMessageType()) {
                     if ((null != this.publisherConfig.getReadMessagesFromFilePath()) || (null != this.messageContent)) {
                         message = this.session.createTextMessage(this.messageContent);
                     } else {
-                        message = this.session.createTextMessage(MessageFormat
-                                .format(AndesClientConstants.PUBLISH_MESSAGE_FORMAT, this.sentMessageCount, threadID));
+                        message = this.session.createTextMessage(this.createInbuiltMessageContent());
                     }
                 } else if (JMSMessageType.BYTE == this.publisherConfig.getJMSMessageType()) {
-                    message = this.session.createBytesMessage();
+                    BytesMessage bytesMessage = this.session.createBytesMessage();
+                    if (null != this.payloadProvider) {
+                        this.payloadProvider.writePayload(bytesMessage, this.nextPayloadSize(),
+                                                          this.payloadTransferBuffer);
+                    }
+                    message = bytesMessage;
                 } else if (JMSMessageType.MAP == this.publisherConfig.getJMSMessageType()) {
                     MapMessage mapMessage = this.session.createMapMessage();
-                    if (null != this.publisherConfig.getReadMessagesFromFilePath()) {
-                        String[] entries = this.messageContent.split(System.getProperty("line.separator"));
-                        for (int i = 0; i < entries.length; i++) {
-                            mapMessage.setString("key" + i, entries[i]);
+                    if (null != this.mapMessageValues) {
+                        for (int i = 0; i < this.mapMessageValues.length; i++) {
+                            mapMessage.setString(this.mapMessageKeys[i], this.mapMessageValues[i]);
                         }
                     }
                     message = mapMessage;
@@ -238,11 +395,42 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
                 setMessageProperties(message);
 
                 if (null != message) {
-                    this.sender.send(message, DeliveryMode.PERSISTENT, 0, this.publisherConfig
-                            .getJMSMessageExpiryTime());
-                    // need to commit if transactional
-                    if(getConfig().isTransactionalSession()) {
-                        session.commit();
+                    if (this.publisherConfig.isPublishNanoTimeStamp()) {
+                        long nanoTime = System.nanoTime();
+                        long sendNanoTime = (null != scheduler) ? intendedSendTime : nanoTime;
+                        message.setLongProperty(AndesClientConstants.ANDES_CLIENT_SEND_NANO_TIME_PROPERTY,
+                                                sendNanoTime);
+                        message.setLongProperty(AndesClientConstants.ANDES_CLIENT_SEND_JVM_ID_PROPERTY,
+                                                ClientClock.JVM_ID);
+                        // The wall clock time of the intended send time, for consumers in other JVMs
+                        message.setLongProperty(AndesClientConstants.ANDES_CLIENT_SEND_TIME_PROPERTY,
+                                                ClientClock.currentTimeMillis()
+                                                - TimeUnit.NANOSECONDS.toMillis(nanoTime - sendNanoTime));
+                    }
+                    if (this.publisherConfig.isPublishSequenceHeader()) {
+                        message.setLongProperty(AndesClientConstants.ANDES_CLIENT_PUBLISHER_ID_PROPERTY,
+                                                this.publisherID);
+                        message.setLongProperty(AndesClientConstants.ANDES_CLIENT_SEQUENCE_PROPERTY,
+                                                this.sentMessageCount);
+                    }
+                    synchronized (this.sessionLock) {
+                        this.sender.send(message, DeliveryMode.PERSISTENT, 0, this.publisherConfig
+                                .getJMSMessageExpiryTime());
+                        if (null != scheduler) {
+                            this.sendDelayHistogram.recordValue(System.nanoTime() - intendedSendTime);
+                        }
+                        // Committing when the transaction is full or has been open for the configured interval
+                        if (transactional) {
+                            if (0 == this.uncommittedMessageCount) {
+                                this.transactionStartTime = System.nanoTime();
+                            }
+                            this.uncommittedMessageCount++;
+                            if (transactionBatchSize <= this.uncommittedMessageCount ||
+                                (0L < transactionIntervalInNanos &&
+                                 transactionIntervalInNanos <= System.nanoTime() - this.transactionStartTime)) {
+                                this.commitTransaction();
+                            }
+                        }
                     }
                     if (message instanceof TextMessage && null != this.publisherConfig.getFilePathToWritePublishedMessages()){
                         AndesClientUtils.writePublishedMessagesToFile(((TextMessage) message)
@@ -260,36 +448,19 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
                     this.lastMessagePublishTimestamp = currentTimeStamp;
                     if (0 == this.sentMessageCount % this.publisherConfig.getPrintsPerMessageCount()) {
                         // Logging the sent message details.
-                        if (null != this.publisherConfig.getReadMessagesFromFilePath()) {
-                            log.info("[SEND]" + " (FROM FILE) ThreadID:" +
-                                     threadID + " Destination(" + this.publisherConfig
-                                    .getExchangeType().getType() + "):" +
-                                     this.publisherConfig
-                                             .getDestinationName() + " SentMessageCount:" +
-                                     this.sentMessageCount + " CountToSend:" +
-                                     this.publisherConfig.getNumberOfMessagesToSend());
-                        } else {
-                            log.info("[SEND]" + " (INBUILT MESSAGE) ThreadID:" +
-                                     threadID + " Destination(" + this.publisherConfig
-                                    .getExchangeType().getType() + "):" +
-                                     this.publisherConfig
-                                             .getDestinationName() + " SentMessageCount:" +
-                                     this.sentMessageCount + " CountToSend:" +
-                                     this.publisherConfig.getNumberOfMessagesToSend());
-                        }
+                        log.info(sendLogPrefix + this.sentMessageCount + sendLogSuffix);
                     }
                     // Writing statistics
                     if (null != this.publisherConfig.getFilePathToWriteStatistics()) {
-                        String statisticsString =
-                                ",,,," + Long.toString(currentTimeStamp) + "," + Double
-                                        .toString(this.getPublisherTPS());
-                        AndesClientUtils
-                                .writeStatisticsToFile(statisticsString, this.publisherConfig
-                                        .getFilePathToWriteStatistics());
+                        this.writeStatistics(currentTimeStamp);
                     }
 
-                    // Delaying the publishing of messages
-                    if (0 < this.publisherConfig.getRunningDelay()) {
+                    // Delaying the publishing of messages when not sending at a rate
+                    if (null == scheduler && 0 < this.publisherConfig.getRunningDelay()) {
+                        if (transactional) {
+                            this.commitIdleTransaction(System.nanoTime() + runningDelayInNanos,
+                                                       transactionIntervalInNanos);
+                        }
                         try {
                             Thread.sleep(this.publisherConfig.getRunningDelay());
                         } catch (InterruptedException e) {
@@ -299,6 +470,7 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
                 }
             }
 
+            // Stopping commits the messages of the last transaction
             this.stopClient();
         } catch (JMSException e) {
             throw new RuntimeException("Error while publishing messages", e);
@@ -307,6 +479,121 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
         }
     }
 
+    /**
+     * Commits the transaction of the session, recording the time taken by the broker to confirm its messages. Must be
+     * called holding {@link #sessionLock}.
+     *
+     * @throws JMSException
+     */
+    private void commitTransaction() throws JMSException {
+        long commitStartTime = System.nanoTime();
+        this.session.commit();
+        this.commitLatencyHistogram.recordValue(System.nanoTime() - commitStartTime);
+        this.uncommittedMessageCount = 0;
+    }
+
+    /**
+     * Commits the open transaction when its interval elapses before the next message is due, waiting for the interval
+     * to elapse first. Otherwise the interval is only checked after a message is sent, and an idle publisher would
+     * hold its messages uncommitted until then.
+     *
+     * @param nextSendTime               The {@link System#nanoTime()} at which the next message is due.
+     * @param transactionIntervalInNanos The maximum time a transaction is kept open, or 0 if not limited.
+     * @throws JMSException
+     */
+    private void commitIdleTransaction(long nextSendTime, long transactionIntervalInNanos) throws JMSException {
+        if (0L >= transactionIntervalInNanos || 0 == this.uncommittedMessageCount) {
+            return;
+        }
+        long transactionEndTime = this.transactionStartTime + transactionIntervalInNanos;
+        if (0L <= transactionEndTime - nextSendTime) {
+            return;
+        }
+        long remaining = transactionEndTime - System.nanoTime();
+        while (0L < remaining && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+            remaining = transactionEndTime - System.nanoTime();
+        }
+        synchronized (this.sessionLock) {
+            // The client may have been stopped in the meantime, committing the transaction
+            if (0 < this.uncommittedMessageCount) {
+                this.commitTransaction();
+            }
+        }
+    }
+
+    /**
+     * Gets the size of the next payload of a bytes message.
+     *
+     * @return The size sampled from the configured distribution, or the size of the message file.
+     */
+    private int nextPayloadSize() {
+        if (0 < this.publisherConfig.getPayloadMedianSize()) {
+            return PayloadProvider.sampleLogNormalSize(this.payloadSizeRandom,
+                    this.publisherConfig.getPayloadMedianSize(), this.publisherConfig.getPayloadSizeSigma(),
+                    this.publisherConfig.getPayloadMinimumSize(), this.publisherConfig.getPayloadMaximumSize());
+        }
+        return this.payloadProvider.getSize();
+    }
+
+    /**
+     * Prepares the content reused for every message, so that the publishing loop does not format or split content
+     * per message.
+     *
+     * @param threadID The ID of the publishing thread.
+     */
+    private void preparePublishing(long threadID) {
+        String format = AndesClientConstants.PUBLISH_MESSAGE_FORMAT;
+        this.inbuiltMessagePrefixLength = format.indexOf("{0}");
+        this.inbuiltMessageSuffix = format.substring(this.inbuiltMessagePrefixLength + "{0}".length(),
+                                                     format.indexOf("{1}")) + threadID;
+        this.inbuiltMessageBuilder = new StringBuilder(format.length() + 40);
+        this.inbuiltMessageBuilder.append(format, 0, this.inbuiltMessagePrefixLength);
+
+        if (null != this.publisherConfig.getReadMessagesFromFilePath() && null != this.messageContent) {
+            this.mapMessageValues = this.messageContent.split(System.getProperty("line.separator"));
+            this.mapMessageKeys = new String[this.mapMessageValues.length];
+            for (int i = 0; i < this.mapMessageKeys.length; i++) {
+                this.mapMessageKeys[i] = "key" + i;
+            }
+        }
+
+        List<JMSHeaderProperty> headerPropertyList = this.publisherConfig.getJMSHeaderProperties();
+        this.headerProperties = headerPropertyList.toArray(new JMSHeaderProperty[headerPropertyList.size()]);
+    }
+
+    /**
+     * Creates the content of an inbuilt message in the format of {@link AndesClientConstants#PUBLISH_MESSAGE_FORMAT}
+     * with the current message count, reusing the same builder for every message. Numbers are written without
+     * grouping separators so that {@link org.wso2.mb.integration.common.clients.operations.utils
+     * .AndesClientOutputParser} can read them back.
+     *
+     * @return The message content.
+     */
+    private String createInbuiltMessageContent() {
+        this.inbuiltMessageBuilder.setLength(this.inbuiltMessagePrefixLength);
+        this.inbuiltMessageBuilder.append(this.sentMessageCount).append(this.inbuiltMessageSuffix);
+        return this.inbuiltMessageBuilder.toString();
+    }
+
+    /**
+     * Writes a statistics line of the publisher, reusing the same buffers for every line.
+     *
+     * @param currentTimeStamp The timestamp of the last published message.
+     * @throws IOException
+     */
+    private void writeStatistics(long currentTimeStamp) throws IOException {
+        this.statisticsBuilder.setLength(0);
+        this.statisticsBuilder.append(",,,,").append(currentTimeStamp).append(',').append(this.getPublisherTPS());
+        int length = this.statisticsBuilder.length();
+        if (length > this.statisticsChars.length) {
+            this.statisticsChars = new char[length * 2];
+        }
+        this.statisticsBuilder.getChars(0, length, this.statisticsChars, 0);
+        AndesClientUtils.writeStatisticsToFile(this.statisticsChars, length,
+                                               this.publisherConfig.getFilePathToWriteStatistics());
+    }
+
     /**
      * Set JMS Headers to the message according to publisher configuration
      *
@@ -314,9 +601,7 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
      */
     private void setMessageProperties(Message message) throws JMSException {
 
-        List<JMSHeaderProperty> headerPropertyList = publisherConfig.getJMSHeaderProperties();
-
-        for (JMSHeaderProperty jmsHeaderProperty : headerPropertyList) {
+        for (JMSHeaderProperty jmsHeaderProperty : this.headerProperties) {
             JMSHeaderPropertyType type = jmsHeaderProperty.getType();
             String propertyKey = jmsHeaderProperty.getKey();
             Object propertyValue = jmsHeaderProperty.getValue();
@@ -352,6 +637,28 @@ public class AndesJMSPublisher extends AndesJMSBase implements Runnable {
         }
     }
 
+    /**
+     * Gets the delays between the intended and actual send times of messages in open-loop mode.
+     *
+     * @return A copy of the send delay histogram in nanoseconds, empty unless a publish rate is configured.
+     */
+    public LatencyHistogram getSendDelayHistogram() {
+        LatencyHistogram histogram = this.sendDelayHistogram.copy();
+        histogram.setTimeStamps(this.firstMessagePublishTimestamp, this.lastMessagePublishTimestamp);
+        return histogram;
+    }
+
+    /**
+     * Gets the durations of the transaction commits of a transactional publisher.
+     *
+     * @return A copy of the commit latency histogram in nanoseconds, empty unless the session is transactional.
+     */
+    public LatencyHistogram getCommitLatencyHistogram() {
+        LatencyHistogram histogram = this.commitLatencyHistogram.copy();
+        histogram.setTimeStamps(this.firstMessagePublishTimestamp, this.lastMessagePublishTimestamp);
+        return histogram;
+    }
+
     /**
      * Gets the published message count.
      *
@@ -28,15 +28,20 @@ import org.wso2.mb.integration.common.clients.operations.mqtt.async.MQTTAsyncPub
 import org.wso2.mb.integration.common.clients.operations.mqtt.async.MQTTAsyncSubscriberClient;
 import org.wso2.mb.integration.common.clients.operations.mqtt.blocking.MQTTBlockingPublisherClient;
 import org.wso2.mb.integration.common.clients.operations.mqtt.blocking.MQTTBlockingSubscriberClient;
+import org.wso2.mb.integration.common.clients.operations.mqtt.callback.ReceivedMessageTracker;
 
 import javax.xml.xpath.XPathExpressionException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Handle all MQTT operations for MQTT tests.
@@ -45,14 +50,16 @@ import java.util.concurrent.TimeUnit;
 public class MQTTClientEngine {
 
     /**
-     * Keeps all the publishers created through the engine
+     * Keeps all the publishers created through the engine. Iterated over a snapshot, so that counts can be read
+     * while publishers are added.
      */
-    private final List<AndesMQTTClient> publisherList = new ArrayList<AndesMQTTClient>();
+    private final List<AndesMQTTClient> publisherList = new CopyOnWriteArrayList<AndesMQTTClient>();
 
     /**
-     * Keep all the subscribers created through the engine
+     * Keep all the subscribers created through the engine. Iterated over a snapshot, so that counts can be read
+     * while subscribers are added.
      */
-    private final List<AndesMQTTClient> subscriberList = new ArrayList<AndesMQTTClient>();
+    private final List<AndesMQTTClient> subscriberList = new CopyOnWriteArrayList<AndesMQTTClient>();
 
     /**
      * Subscriber client thread executor, executes runnable subscribers
@@ -64,6 +71,12 @@ public class MQTTClientEngine {
      */
     private final ExecutorService clientControlPublisherThreads = Executors.newFixedThreadPool(10);
 
+    /**
+     * Tracks the messages received by all the subscribers created through the engine, so that waiting for messages
+     * returns as soon as they are received.
+     */
+    private final ReceivedMessageTracker receivedMessageTracker = new ReceivedMessageTracker();
+
     private final Log log = LogFactory.getLog(MQTTClientEngine.class);
 
     private static final int MILLISECONDS_TO_A_SECOND = 1000;
@@ -134,26 +147,7 @@ public class MQTTClientEngine {
     public void createSubscriberConnection(MQTTClientConnectionConfiguration configuration,
                                            String topicName, QualityOfService qos,
                                            boolean saveMessages, ClientMode clientMode) throws MqttException {
-
-        AndesMQTTClient mqttClient;
-
-        if (ClientMode.ASYNC == clientMode) {
-            mqttClient = new MQTTAsyncSubscriberClient(configuration, generateClientID(), topicName, qos, saveMessages);
-            subscriberList.add(mqttClient);
-            clientControlSubscriptionThreads.execute(mqttClient);
-        } else if (ClientMode.BLOCKING == clientMode) {
-            mqttClient = new MQTTBlockingSubscriberClient(configuration, generateClientID(), topicName, qos,
-                    saveMessages);
-            subscriberList.add(mqttClient);
-            mqttClient.run();
-        } else {
-            // Using else since only the above two scenarios are handled. If a new client mode is included,
-            // handle it before this
-            throw new MqttException(new Throwable("Unidentified clientMode : " + clientMode));
-        }
-
-
-        waitForSubscribersToSubscribe();
+        createSubscriberConnection(configuration, topicName, qos, saveMessages, clientMode, generateClientID());
     }
 
     /**
@@ -175,21 +169,21 @@ public class MQTTClientEngine {
 
         if (ClientMode.ASYNC == clientMode) {
             mqttClient = new MQTTAsyncSubscriberClient(configuration, clientID, topicName, qos, saveMessages);
+            mqttClient.getCallbackHandler().setReceivedMessageTracker(receivedMessageTracker);
             subscriberList.add(mqttClient);
-            clientControlSubscriptionThreads.execute(mqttClient);
+            waitForSubscriberToSubscribe(mqttClient, clientControlSubscriptionThreads.submit(mqttClient));
         } else if (ClientMode.BLOCKING == clientMode) {
             mqttClient = new MQTTBlockingSubscriberClient(configuration, clientID, topicName, qos,
                     saveMessages);
+            mqttClient.getCallbackHandler().setReceivedMessageTracker(receivedMessageTracker);
             subscriberList.add(mqttClient);
             mqttClient.run();
+            waitForSubscriberToSubscribe(mqttClient, null);
         } else {
             // Using else since only the above two scenarios are handled. If a new client mode is included,
             // handle it before this
             throw new MqttException(new Throwable("Unidentified clientMode : " + clientMode));
         }
-
-
-        waitForSubscribersToSubscribe();
     }
 
     /**
@@ -235,36 +229,34 @@ public class MQTTClientEngine {
     
     
     /**
-     * Wait until all the subscriber are subscribed to the topics and ready to receive messages.
+     * Wait until a subscriber is subscribed to its topic and ready to receive messages.
      * Before creating publishers, this should be called otherwise while subscribers are being subscribed publishers
      * will start to publish and those messages will be lost.
+     *
+     * @param subscriberClient The subscriber
+     * @param subscription     The subscription task of the subscriber, null if it has subscribed in this thread
+     * @throws MqttException Thrown when the subscriber did not subscribe
      */
-    private void waitForSubscribersToSubscribe() {
-        while (!isAllSubscribersSubscribed()) {
+    private void waitForSubscriberToSubscribe(AndesMQTTClient subscriberClient, Future<?> subscription)
+            throws MqttException {
+        if (null != subscription) {
             try {
-                TimeUnit.SECONDS.sleep(1L);
+                subscription.get(MQTTConstants.SUBSCRIBE_TIMEOUT, TimeUnit.MILLISECONDS);
             } catch (InterruptedException e) {
                 log.error("Error waiting until subscribers subscribe to topics.", e);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.error("Error subscribing client " + subscriberClient.getMqttClientID(), e);
+            } catch (TimeoutException e) {
+                log.error("Client " + subscriberClient.getMqttClientID() + " did not subscribe within "
+                          + MQTTConstants.SUBSCRIBE_TIMEOUT + " milliseconds.", e);
             }
-            log.info("Waiting for subscribers to create connection");
         }
-    }
 
-    /**
-     * Check if all the subscribers are subscribed to the topics and ready to receive messages.
-     *
-     * @return Is all subscribers subscribed to their topics
-     */
-    private boolean isAllSubscribersSubscribed() {
-        boolean subscribed = true;
-        for (AndesMQTTClient subscriberClient : subscriberList) {
-            if (!subscriberClient.isSubscribed()) {
-                subscribed = false;
-                break;
-            }
+        if (!subscriberClient.isSubscribed()) {
+            throw new MqttException(new Throwable("Client " + subscriberClient.getMqttClientID()
+                                                  + " could not subscribe to topic " + subscriberClient.getTopic()));
         }
-
-        return subscribed;
     }
 
     /**
@@ -470,26 +462,29 @@ public class MQTTClientEngine {
      * Use in test cases before doing assertions so message send/receive will be completed before assertions
      * but needs the clients to be connected for further cases.
      * <p/>
-     * Detect all the messages are received by checking message count in each 10 second iterations.
-     * If message count doesn't change in two consecutive rounds it will be decided that all the messages that the
-     * server has sent is received.
+     * Detect all the messages are received when no message is received for
+     * {@link MQTTConstants#MESSAGE_RECEIVE_IDLE_TIME} milliseconds after the last received message.
      * <p/>
-     * If no messages are received, will lookout for 20 seconds for message and return.
+     * If no messages are received, will lookout for the same time for messages and return.
      */
     public void waitUntilAllMessageReceived() {
-        int previousMessageCount = 0;
-        int currentMessageCount = -1;
+        waitUntilAllMessageReceived(MQTTConstants.MESSAGE_RECEIVE_IDLE_TIME);
+    }
 
-        // Check each 10 second if new messages have been received, if not disconnect clients.
-        // If no message are received this will wait for 20 seconds before shutting down clients.
-        while (currentMessageCount != previousMessageCount) {
-            try {
-                TimeUnit.SECONDS.sleep(10);
-            } catch (InterruptedException e) {
-                log.error("Error waiting for receiving messages.", e);
-            }
-            previousMessageCount = currentMessageCount;
-            currentMessageCount = getReceivedMessageCount();
+    /**
+     * Wait for subscribers to receive all the messages that have been sent, detected when no message is received
+     * for a given time after the last received message or after this is called.
+     * <p/>
+     * The time the last message was received is recorded as the completion time.
+     *
+     * @param idleTime Time in milliseconds without received messages after which all messages are considered received
+     */
+    public void waitUntilAllMessageReceived(long idleTime) {
+        try {
+            receivedMessageTracker.awaitIdle(idleTime);
+        } catch (InterruptedException e) {
+            log.error("Error waiting for receiving messages.", e);
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -498,38 +493,54 @@ public class MQTTClientEngine {
      * Use in test cases before doing assertions so message send/receive will be completed before
      * assertions.
      * <p/>
-     * This method will exit regardless of the number of messages received if maximum wait time
-     * is reached.
+     * Returns as soon as the expected number of messages is received, recording the time the last of them was
+     * received as the completion time. This method will exit regardless of the number of messages received if
+     * maximum wait time is reached.
      *
      * @param expectedNumberOfMessages expected number of messages to be received by subscriber.
      * @param maxWaitTime              maximum wait time in milliseconds before stop waiting for messages.
+     * @return true if the expected number of messages is received, false if maximum wait time is reached.
      * @throws org.eclipse.paho.client.mqttv3.MqttException
      */
-    public void waitUntilExpectedNumberOfMessagesReceived(int expectedNumberOfMessages,
-                                                          long maxWaitTime) throws MqttException {
-
-        // max system wait time
-        long maxWaitSystemTime = System.currentTimeMillis() + maxWaitTime;
-
-        // this loop will exit if system time is larger or equal than maximum system wait time.
-        while (System.currentTimeMillis() <= maxWaitSystemTime) {
-            try {
-
-                TimeUnit.MILLISECONDS.sleep(2000L);
-
-            } catch (InterruptedException e) {
-                log.error("Error waiting for receiving messages.", e);
-            }
-
-            // if expected number of messages received by the subscriber it will break the loop.
-            // without waiting further.
-            if (expectedNumberOfMessages <= getReceivedMessageCount()) {
+    public boolean waitUntilExpectedNumberOfMessagesReceived(int expectedNumberOfMessages,
+                                                             long maxWaitTime) throws MqttException {
+        try {
+            if (receivedMessageTracker.awaitMessageCount(expectedNumberOfMessages, maxWaitTime,
+                                                         TimeUnit.MILLISECONDS)) {
                 log.info("Expected message count received by subscriber.");
-                break;
+                return true;
             }
-
+            log.warn("Received " + receivedMessageTracker.getReceivedMessageCount() + " of "
+                     + expectedNumberOfMessages + " expected messages within " + maxWaitTime + " milliseconds.");
+        } catch (InterruptedException e) {
+            log.error("Error waiting for receiving messages.", e);
+            Thread.currentThread().interrupt();
         }
+        return false;
+    }
 
+    /**
+     * Get the time the messages awaited by the last completed wait were received.
+     *
+     * @return The time in milliseconds, -1 if no wait completed or no message is received
+     */
+    public long getMessageReceiveCompletionTime() {
+        return receivedMessageTracker.getCompletionTime();
+    }
+
+    /**
+     * Calculate the receiving TPS from the first received message to the messages awaited by the last completed
+     * wait, excluding the time spent detecting that they were received.
+     *
+     * @return Receiving Transactions Per Second, 0 if it cannot be calculated
+     */
+    public double getReceiveTPS() {
+        long timeDiffMillis = receivedMessageTracker.getCompletionTime()
+                              - receivedMessageTracker.getFirstMessageReceivedTime();
+        if (0L >= timeDiffMillis) {
+            return 0D;
+        }
+        return calculateTPS(timeDiffMillis, receivedMessageTracker.getCompletedMessageCount());
     }
 
     /**
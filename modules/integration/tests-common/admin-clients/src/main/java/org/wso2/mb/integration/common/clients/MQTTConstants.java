@@ -40,8 +40,25 @@ public class MQTTConstants {
     // Print message send/receive details on each 1000 messages
     public static final int MESSAGE_PRINT_LIMIT = 1000;
 
+    /**
+     * Maximum number of received messages saved by a subscriber which saves messages. Further messages are counted
+     * but not saved, and getting the saved messages of the subscriber then fails.
+     */
+    public static final int MESSAGE_CAPTURE_CAPACITY = 10000;
+
     /***
      * Timeout for an MQTT client to connect to the broker.
      */
     public static final long CLIENT_CONNECT_TIMEOUT = 1000;
+
+    /**
+     * Maximum time in milliseconds to wait for an MQTT subscriber to subscribe to its topic.
+     */
+    public static final long SUBSCRIBE_TIMEOUT = 60000;
+
+    /**
+     * Time in milliseconds without received messages after which all sent messages are considered received, when
+     * the number of messages to receive is not known.
+     */
+    public static final long MESSAGE_RECEIVE_IDLE_TIME = 10000;
 }
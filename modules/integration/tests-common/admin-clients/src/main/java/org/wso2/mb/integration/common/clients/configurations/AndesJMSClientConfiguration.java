@@ -24,12 +24,16 @@ import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConsta
 import org.wso2.mb.integration.common.clients.exceptions.AndesClientConfigurationException;
 import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
 
+import java.io.Serializable;
+import java.util.concurrent.Executor;
+
 /**
  * This class acts as a configuration class for the Andes Client. The class contains configuration
  * that is common for both JMS publishers and consumer. The configuration mentioned are related to
  * JMS only.
  */
-public class AndesJMSClientConfiguration implements Cloneable {
+public class AndesJMSClientConfiguration implements Cloneable, Serializable {
+    private static final long serialVersionUID = 1L;
 
     /**
      * The destination name to be used when a configuration is not passed to the client.
@@ -92,6 +96,23 @@ public class AndesJMSClientConfiguration implements Cloneable {
      */
     private String queryStringForConnection = "";
 
+    /**
+     * Number of threads of a pool shared by publishers, 0 to run each publisher and consumer on its own thread.
+     */
+    private int clientThreadPoolSize = 0;
+
+    /**
+     * Executor running publishers and synchronous consumers, null to use the thread pool size. Not sent to other
+     * JVMs.
+     */
+    private transient Executor clientExecutor;
+
+    /**
+     * Number of connections shared by the publishers or consumers of a client, 0 for a connection per publisher or
+     * consumer.
+     */
+    private int sharedConnectionCount = 0;
+
     /**
      * The empty constructor which will create a queue related test case.
      */
@@ -230,6 +251,8 @@ public class AndesJMSClientConfiguration implements Cloneable {
             // Setting default values
             this.printsPerMessageCount = config.getLong("base.printsPerMessageCount", 1L);
             this.runningDelay = config.getLong("base.runningDelay", 0L);
+            this.clientThreadPoolSize = config.getInt("base.clientThreadPoolSize", 0);
+            this.sharedConnectionCount = config.getInt("base.sharedConnectionCount", 0);
         } catch (ConfigurationException e) {
             throw new AndesClientConfigurationException("Error in reading xml configuration file. Make sure the file exists.", e);
         } catch (IllegalArgumentException e) {
@@ -249,6 +272,9 @@ public class AndesJMSClientConfiguration implements Cloneable {
         this.destinationName = config.getDestinationName();
         this.printsPerMessageCount = config.getPrintsPerMessageCount();
         this.runningDelay = config.getRunningDelay();
+        this.clientThreadPoolSize = config.getClientThreadPoolSize();
+        this.clientExecutor = config.getClientExecutor();
+        this.sharedConnectionCount = config.getSharedConnectionCount();
     }
 
     /**
@@ -513,6 +539,78 @@ public class AndesJMSClientConfiguration implements Cloneable {
         this.filePathToWriteStatistics = filePathToPrintStatistics;
     }
 
+    /**
+     * Gets the number of threads of the pool shared by publishers.
+     *
+     * @return The number of threads, 0 if each publisher and consumer runs on its own thread.
+     */
+    public int getClientThreadPoolSize() {
+        return clientThreadPoolSize;
+    }
+
+    /**
+     * Sets the number of threads of a pool shared by all publishers using the same size, so that a test can run more
+     * clients than it can start threads. Publishers run one after another once the pool threads are taken. Consumers
+     * configured with a thread pool size receive messages through message listeners, as asynchronous consumers do,
+     * so that they do not use threads of the client.
+     *
+     * @param clientThreadPoolSize The number of threads, 0 to run each publisher and consumer on its own thread.
+     * @throws AndesClientConfigurationException
+     */
+    public void setClientThreadPoolSize(int clientThreadPoolSize) throws AndesClientConfigurationException {
+        if (0 <= clientThreadPoolSize) {
+            this.clientThreadPoolSize = clientThreadPoolSize;
+        } else {
+            throw new AndesClientConfigurationException("Client thread pool size cannot be less than 0");
+        }
+    }
+
+    /**
+     * Gets the executor running publishers and synchronous consumers.
+     *
+     * @return The executor, null if the thread pool size decides how they run.
+     */
+    public Executor getClientExecutor() {
+        return clientExecutor;
+    }
+
+    /**
+     * Sets the executor running publishers and synchronous consumers, each of them as a single task blocking until
+     * the client stops. The executor must be able to run all of them at the same time, as with a virtual thread per
+     * task executor on JVMs providing one. Takes precedence over the thread pool size.
+     *
+     * @param clientExecutor The executor, null if the thread pool size decides how they run.
+     */
+    public void setClientExecutor(Executor clientExecutor) {
+        this.clientExecutor = clientExecutor;
+    }
+
+    /**
+     * Gets the number of connections shared by the publishers or consumers of a client.
+     *
+     * @return The number of connections, 0 if each publisher or consumer has a connection of its own.
+     */
+    public int getSharedConnectionCount() {
+        return sharedConnectionCount;
+    }
+
+    /**
+     * Sets the number of connections shared by the publishers or consumers created by an
+     * {@link org.wso2.mb.integration.common.clients.AndesClient}, each of which still has a session of its own. The
+     * initial context is then created once for all of them. Durable topic subscribers always have a connection of
+     * their own, as the client ID of a connection is their subscription ID.
+     *
+     * @param sharedConnectionCount The number of connections, 0 for a connection per publisher or consumer.
+     * @throws AndesClientConfigurationException
+     */
+    public void setSharedConnectionCount(int sharedConnectionCount) throws AndesClientConfigurationException {
+        if (0 <= sharedConnectionCount) {
+            this.sharedConnectionCount = sharedConnectionCount;
+        } else {
+            throw new AndesClientConfigurationException("Shared connection count cannot be less than 0");
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -521,6 +619,8 @@ public class AndesJMSClientConfiguration implements Cloneable {
         return "ConnectionString=" + this.connectionString + "\n" + "ExchangeType=" +
                this.exchangeType + "\n" + "PrintsPerMessageCount=" + this.printsPerMessageCount
                +"\n" + "DestinationName=" + this.destinationName +
-               "\n" + "RunningDelay=" + this.runningDelay + "\n";
+               "\n" + "RunningDelay=" + this.runningDelay + "\n" +
+               "ClientThreadPoolSize=" + this.clientThreadPoolSize + "\n" +
+               "SharedConnectionCount=" + this.sharedConnectionCount + "\n";
     }
 }
@@ -24,8 +24,9 @@ import org.apache.log4j.Logger;
 import org.wso2.mb.integration.common.clients.exceptions.AndesClientConfigurationException;
 import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
 import org.wso2.mb.integration.common.clients.operations.utils.JMSAcknowledgeMode;
+import org.wso2.mb.integration.common.clients.operations.utils.ReceivedMessageStore;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -33,6 +34,8 @@ import java.util.List;
  * related to JMS message consuming.
  */
 public class AndesJMSConsumerClientConfiguration extends AndesJMSClientConfiguration {
+    private static final long serialVersionUID = 1L;
+
     /**
      * The logger used in logging information, warnings, errors and etc.
      */
@@ -101,9 +104,31 @@ public class AndesJMSConsumerClientConfiguration extends AndesJMSClientConfigura
     private String selectors = null;
 
     /**
-     * Message contents of received messages, as strings.
+     * Whether the contents of received messages are stored instead of their digests, when they are not written to a
+     * file.
      */
-    private List<String> receivedMessages = new ArrayList<>();
+    private boolean keepReceivedMessageContents = false;
+
+    /**
+     * Number of received messages stored in memory before further messages are spilled to a file.
+     */
+    private int maximumReceivedMessagesInMemory = 1000;
+
+    /**
+     * Store of the received messages, as strings, created when the first message is stored. Not sent to other JVMs.
+     */
+    private transient ReceivedMessageStore receivedMessageStore;
+
+    /**
+     * Expected interval between messages in nanoseconds, used to correct latencies for coordinated omission. 0 if
+     * latencies are not corrected.
+     */
+    private long expectedMessageIntervalInNanos = 0L;
+
+    /**
+     * Whether the sequences of received messages are verified while they are received.
+     */
+    private boolean verifySequences = false;
 
     /**
      * Creates a consumer configuration with default values.
@@ -225,6 +250,11 @@ public class AndesJMSConsumerClientConfiguration extends AndesJMSClientConfigura
             this.durable = config.getBoolean("base.consumer.durable", false);
             this.async = config.getBoolean("base.consumer.async", true);
             this.selectors = config.getString("base.consumer.selectors", null);
+            this.expectedMessageIntervalInNanos = config.getLong("base.consumer.expectedMessageIntervalInNanos", 0L);
+            this.verifySequences = config.getBoolean("base.consumer.verifySequences", false);
+            this.keepReceivedMessageContents = config.getBoolean("base.consumer.keepReceivedMessageContents", false);
+            this.maximumReceivedMessagesInMemory =
+                    config.getInt("base.consumer.maximumReceivedMessagesInMemory", 1000);
             this.acknowledgeMode = JMSAcknowledgeMode.valueOf(config.getString("base.consumer.acknowledgeMode", "AUTO_ACKNOWLEDGE"));
         } catch (ConfigurationException e) {
             throw new AndesClientConfigurationException("Error in reading xml configuration file. Make sure the file exists.", e);
@@ -561,21 +591,130 @@ public class AndesJMSConsumerClientConfiguration extends AndesJMSClientConfigura
     }
 
     /**
-     * This method returns received messages for this consumer. This is not valid when write to files before
-     * compare message contents.
+     * Gets the expected interval between messages, used to correct latencies for coordinated omission.
+     *
+     * @return The expected interval in nanoseconds, 0 if latencies are not corrected.
+     */
+    public long getExpectedMessageIntervalInNanos() {
+        return expectedMessageIntervalInNanos;
+    }
+
+    /**
+     * Sets the expected interval between messages, usually the interval at which the publisher is meant to send
+     * them. A latency larger than the interval means that the publisher was held back, and the messages it would have
+     * sent meanwhile are recorded in the corrected latency histogram of the consumer as well.
+     *
+     * @param expectedMessageIntervalInNanos The expected interval in nanoseconds, 0 if latencies are not corrected.
+     * @throws AndesClientConfigurationException
+     */
+    public void setExpectedMessageIntervalInNanos(long expectedMessageIntervalInNanos)
+            throws AndesClientConfigurationException {
+        if (0 <= expectedMessageIntervalInNanos) {
+            this.expectedMessageIntervalInNanos = expectedMessageIntervalInNanos;
+        } else {
+            throw new AndesClientConfigurationException("Expected message interval cannot be less than 0");
+        }
+    }
+
+    /**
+     * Gets whether the sequences of received messages are verified while they are received.
+     *
+     * @return true if sequences are verified, false otherwise.
+     */
+    public boolean isVerifySequences() {
+        return verifySequences;
+    }
+
+    /**
+     * Sets whether the consumers of a client verify the sequences of the messages they receive from publishers
+     * configured to publish sequence headers, through a
+     * {@link org.wso2.mb.integration.common.clients.operations.utils.MessageSequenceTracker} shared by the
+     * consumers. Messages without sequence headers are not verified.
+     *
+     * @param verifySequences true if sequences are verified, false otherwise.
+     */
+    public void setVerifySequences(boolean verifySequences) {
+        this.verifySequences = verifySequences;
+    }
+
+    /**
+     * Gets whether the contents of received messages are stored instead of their digests.
+     *
+     * @return true if contents are stored, false if digests are stored.
+     */
+    public boolean isKeepReceivedMessageContents() {
+        return keepReceivedMessageContents;
+    }
+
+    /**
+     * Sets whether the contents of received messages which are not written to a file are stored, instead of their
+     * digests computed by {@link ReceivedMessageStore#digest(String)}. Must be set before messages are received.
+     *
+     * @param keepReceivedMessageContents true to store contents, false to store digests.
+     */
+    public void setKeepReceivedMessageContents(boolean keepReceivedMessageContents) {
+        this.keepReceivedMessageContents = keepReceivedMessageContents;
+    }
+
+    /**
+     * Gets the number of received messages stored in memory before further messages are spilled to a file.
+     *
+     * @return The number of messages.
+     */
+    public int getMaximumReceivedMessagesInMemory() {
+        return maximumReceivedMessagesInMemory;
+    }
+
+    /**
+     * Sets the number of received messages stored in memory before further messages are appended to a temporary
+     * file. Must be set before messages are received.
      *
-     * @return Received message contents.
+     * @param maximumReceivedMessagesInMemory The number of messages.
+     * @throws AndesClientConfigurationException
+     */
+    public void setMaximumReceivedMessagesInMemory(int maximumReceivedMessagesInMemory)
+            throws AndesClientConfigurationException {
+        if (0 <= maximumReceivedMessagesInMemory) {
+            this.maximumReceivedMessagesInMemory = maximumReceivedMessagesInMemory;
+        } else {
+            throw new AndesClientConfigurationException("Maximum received messages in memory cannot be less than 0");
+        }
+    }
+
+    /**
+     * Gets the store of the messages received by the consumers of this configuration, which can be iterated lazily.
+     * This is not valid when write to files before compare message contents.
+     *
+     * @return The received message store.
+     */
+    public synchronized ReceivedMessageStore getReceivedMessageStore() {
+        if (null == receivedMessageStore) {
+            receivedMessageStore = new ReceivedMessageStore(keepReceivedMessageContents,
+                                                            maximumReceivedMessagesInMemory);
+        }
+        return receivedMessageStore;
+    }
+
+    /**
+     * This method returns received messages for this consumer, as contents or digests depending on
+     * {@link #isKeepReceivedMessageContents()}, reading spilled messages back into memory. This is not valid when
+     * write to files before compare message contents.
+     *
+     * @return Received message contents or digests.
      */
     public List<String> getReceivedMessages() {
-        return receivedMessages;
+        return getReceivedMessageStore().toList();
     }
 
     /**
-     * Adding the message content to the received messages list, after receiving the message, for this consumer. This
-     * is not valid when write to files before compare message contents.
+     * Adding the message content to the received messages store, after receiving the message, for this consumer.
+     * This is not valid when write to files before compare message contents.
+     *
+     * @param receivedMessage The message content.
+     * @throws IOException Thrown when the message cannot be spilled to a file.
      */
-    public void addReceivedMessage(String receivedMessages) {
-        this.receivedMessages.add(receivedMessages);
+    public void addReceivedMessage(String receivedMessage) throws IOException {
+        getReceivedMessageStore().add(receivedMessage);
     }
 
     /**
@@ -590,13 +729,16 @@ public class AndesJMSConsumerClientConfiguration extends AndesJMSClientConfigura
                "CommitAfterEachMessageCount=" + this.commitAfterEachMessageCount + "\n" +
                "AcknowledgeAfterEachMessageCount=" + this.acknowledgeAfterEachMessageCount + "\n" +
                "FilePathToWriteReceivedMessages=" + this.filePathToWriteReceivedMessages + "\n" +
-               "ReceivedMessages=" + this.receivedMessages + "\n" +
+               "KeepReceivedMessageContents=" + this.keepReceivedMessageContents + "\n" +
+               "MaximumReceivedMessagesInMemory=" + this.maximumReceivedMessagesInMemory + "\n" +
                "MaximumMessagesToReceived=" + this.maximumMessagesToReceived + "\n" +
                "SubscriptionID=" + this.subscriptionID + "\n" +
                "Durable=" + this.durable + "\n" +
                "AcknowledgeMode=" + this.acknowledgeMode + "\n" +
                "Async=" + this.async + "\n" +
-               "Selectors=" + this.selectors + "\n";
+               "Selectors=" + this.selectors + "\n" +
+               "ExpectedMessageIntervalInNanos=" + this.expectedMessageIntervalInNanos + "\n" +
+               "VerifySequences=" + this.verifySequences + "\n";
     }
 
     /**
@@ -33,6 +33,7 @@ import java.util.List;
  * related to JMS message publishing/sending.
  */
 public class AndesJMSPublisherClientConfiguration extends AndesJMSClientConfiguration {
+    private static final long serialVersionUID = 1L;
 
     /**
      * File path to read a string content which would be used to as message content when publishing.
@@ -79,6 +80,51 @@ public class AndesJMSPublisherClientConfiguration extends AndesJMSClientConfigur
      */
     private String JMSType;
 
+    /**
+     * Whether the {@link System#nanoTime()} at which each message is sent is set as a message property.
+     */
+    private boolean publishNanoTimeStamp = false;
+
+    /**
+     * Whether the publisher ID and the sequence of each message are set as message properties.
+     */
+    private boolean publishSequenceHeader = false;
+
+    /**
+     * Number of messages to send per second in open-loop mode, 0 to send as fast as possible.
+     */
+    private double publishRatePerSecond = 0D;
+
+    /**
+     * Number of messages sent in a transaction before it is committed, when the session is transactional.
+     */
+    private int transactionBatchSize = 1;
+
+    /**
+     * Milliseconds after which a transaction is committed regardless of its size, 0 to commit by size only.
+     */
+    private long transactionIntervalInMillis = 0L;
+
+    /**
+     * Median size in bytes of the payloads of bytes messages, 0 for payloads of the size of the message file.
+     */
+    private int payloadMedianSize = 0;
+
+    /**
+     * Standard deviation of the logarithm of payload sizes, 0 for payloads of the median size.
+     */
+    private double payloadSizeSigma = 0D;
+
+    /**
+     * Smallest size in bytes of the payloads of bytes messages.
+     */
+    private int payloadMinimumSize = 1;
+
+    /**
+     * Largest size in bytes of the payloads of bytes messages.
+     */
+    private int payloadMaximumSize = Integer.MAX_VALUE;
+
     /**
      * Creates a connection string with default properties.
      */
@@ -199,6 +245,15 @@ public class AndesJMSPublisherClientConfiguration extends AndesJMSClientConfigur
             messagesContentToSet = config.getString("base.publisher.messagesContentToSet", null);
             jmsMessageType = JMSMessageType.valueOf(config.getString("base.publisher.jmsMessageType", "TEXT"));
             filePathToWritePublishedMessages = config.getString("base.publisher.filePathToWritePublishedMessages", null);
+            publishNanoTimeStamp = config.getBoolean("base.publisher.publishNanoTimeStamp", false);
+            publishSequenceHeader = config.getBoolean("base.publisher.publishSequenceHeader", false);
+            publishRatePerSecond = config.getDouble("base.publisher.publishRatePerSecond", 0D);
+            transactionBatchSize = config.getInt("base.publisher.transactionBatchSize", 1);
+            transactionIntervalInMillis = config.getLong("base.publisher.transactionIntervalInMillis", 0L);
+            payloadMedianSize = config.getInt("base.publisher.payloadMedianSize", 0);
+            payloadSizeSigma = config.getDouble("base.publisher.payloadSizeSigma", 0D);
+            payloadMinimumSize = config.getInt("base.publisher.payloadMinimumSize", 1);
+            payloadMaximumSize = config.getInt("base.publisher.payloadMaximumSize", Integer.MAX_VALUE);
             JMSHeaderProperties = new ArrayList<JMSHeaderProperty>(5);
         } catch (ConfigurationException e) {
             throw new AndesClientConfigurationException("Error in reading xml configuration file. Make sure the file exists.", e);
@@ -401,7 +456,16 @@ public class AndesJMSPublisherClientConfiguration extends AndesJMSClientConfigur
                "ReadMessagesFromFilePath=" + this.readMessagesFromFilePath + "\n" +
                "JmsMessageType=" + this.jmsMessageType + "\n" +
                "NumberOfMessagesToSend=" + this.numberOfMessagesToSend + "\n" +
-               "JmsMessageExpiryTime=" + this.jmsMessageExpiryTime + "\n";
+               "JmsMessageExpiryTime=" + this.jmsMessageExpiryTime + "\n" +
+               "PublishNanoTimeStamp=" + this.publishNanoTimeStamp + "\n" +
+               "PublishSequenceHeader=" + this.publishSequenceHeader + "\n" +
+               "PublishRatePerSecond=" + this.publishRatePerSecond + "\n" +
+               "TransactionBatchSize=" + this.transactionBatchSize + "\n" +
+               "TransactionIntervalInMillis=" + this.transactionIntervalInMillis + "\n" +
+               "PayloadMedianSize=" + this.payloadMedianSize + "\n" +
+               "PayloadSizeSigma=" + this.payloadSizeSigma + "\n" +
+               "PayloadMinimumSize=" + this.payloadMinimumSize + "\n" +
+               "PayloadMaximumSize=" + this.payloadMaximumSize + "\n";
     }
 
     /**
@@ -448,4 +512,187 @@ public class AndesJMSPublisherClientConfiguration extends AndesJMSClientConfigur
     public void setMessagesContentOfConfiguration(String messagesContentToSet) {
         this.messagesContentToSet = messagesContentToSet;
     }
+
+    /**
+     * Whether the {@link System#nanoTime()} at which each message is sent is set as a message property.
+     *
+     * @return true if the nano time stamp is published, false otherwise.
+     */
+    public boolean isPublishNanoTimeStamp() {
+        return publishNanoTimeStamp;
+    }
+
+    /**
+     * Sets whether the {@link System#nanoTime()} at which each message is sent is set as the message property
+     * {@link org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants#ANDES_CLIENT_SEND_NANO_TIME_PROPERTY}.
+     * Consumers in the same JVM then measure latencies in nanoseconds instead of milliseconds. As nano times of
+     * different JVMs cannot be compared, the ID of the JVM and the wall clock send time are set as well, by which
+     * consumers in other JVMs measure latencies in milliseconds.
+     *
+     * @param publishNanoTimeStamp true if the nano time stamp is published, false otherwise.
+     */
+    public void setPublishNanoTimeStamp(boolean publishNanoTimeStamp) {
+        this.publishNanoTimeStamp = publishNanoTimeStamp;
+    }
+
+    /**
+     * Gets whether the publisher ID and the sequence of each message are set as message properties.
+     *
+     * @return true if the sequence header is published, false otherwise.
+     */
+    public boolean isPublishSequenceHeader() {
+        return publishSequenceHeader;
+    }
+
+    /**
+     * Sets whether each publisher sets a random publisher ID and the sequence of each message as the message
+     * properties {@link org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants
+     * #ANDES_CLIENT_PUBLISHER_ID_PROPERTY} and {@link org.wso2.mb.integration.common.clients.operations.utils
+     * .AndesClientConstants#ANDES_CLIENT_SEQUENCE_PROPERTY}, by which consumers configured to verify sequences detect
+     * duplicates, gaps and reorderings while messages are received.
+     *
+     * @param publishSequenceHeader true if the sequence header is published, false otherwise.
+     */
+    public void setPublishSequenceHeader(boolean publishSequenceHeader) {
+        this.publishSequenceHeader = publishSequenceHeader;
+    }
+
+    /**
+     * Gets the number of messages to send per second in open-loop mode.
+     *
+     * @return The number of messages per second, 0 if messages are sent as fast as possible.
+     */
+    public double getPublishRatePerSecond() {
+        return publishRatePerSecond;
+    }
+
+    /**
+     * Sets the number of messages to send per second, which makes the publisher send in open-loop mode. Messages are
+     * sent at fixed intended send times regardless of how long previous sends took, and the running delay is not
+     * used. If the nano time stamp is published, it is the intended send time of each message, so that consumer
+     * latencies include the time messages waited behind slow sends.
+     *
+     * @param publishRatePerSecond The number of messages per second, 0 to send as fast as possible.
+     * @throws AndesClientConfigurationException
+     */
+    public void setPublishRatePerSecond(double publishRatePerSecond) throws AndesClientConfigurationException {
+        if (0D <= publishRatePerSecond) {
+            this.publishRatePerSecond = publishRatePerSecond;
+        } else {
+            throw new AndesClientConfigurationException("Publish rate cannot be less than 0");
+        }
+    }
+
+    /**
+     * Gets the number of messages sent in a transaction before it is committed.
+     *
+     * @return The number of messages per transaction.
+     */
+    public int getTransactionBatchSize() {
+        return transactionBatchSize;
+    }
+
+    /**
+     * Sets the number of messages sent in a transaction before it is committed, when the session is transactional.
+     * Messages of a transaction are sent back to back without waiting for the broker, which confirms all of them when
+     * the transaction is committed, so that the batch size is the window of unconfirmed messages.
+     *
+     * @param transactionBatchSize The number of messages per transaction, 1 to commit every message.
+     * @throws AndesClientConfigurationException
+     */
+    public void setTransactionBatchSize(int transactionBatchSize) throws AndesClientConfigurationException {
+        if (0 < transactionBatchSize) {
+            this.transactionBatchSize = transactionBatchSize;
+        } else {
+            throw new AndesClientConfigurationException("Transaction batch size must be greater than 0");
+        }
+    }
+
+    /**
+     * Gets the milliseconds after which a transaction is committed regardless of its size.
+     *
+     * @return The milliseconds, 0 if transactions are committed by size only.
+     */
+    public long getTransactionIntervalInMillis() {
+        return transactionIntervalInMillis;
+    }
+
+    /**
+     * Sets the milliseconds after which a transaction is committed even if it has less messages than the batch size,
+     * so that slow publishers do not hold messages unconfirmed. The interval is checked as messages are sent.
+     *
+     * @param transactionIntervalInMillis The milliseconds, 0 to commit by size only.
+     * @throws AndesClientConfigurationException
+     */
+    public void setTransactionIntervalInMillis(long transactionIntervalInMillis)
+            throws AndesClientConfigurationException {
+        if (0L <= transactionIntervalInMillis) {
+            this.transactionIntervalInMillis = transactionIntervalInMillis;
+        } else {
+            throw new AndesClientConfigurationException("Transaction interval cannot be less than 0");
+        }
+    }
+
+    /**
+     * Gets the median size of the payloads of bytes messages.
+     *
+     * @return The median size in bytes, 0 if payloads have the size of the message file.
+     */
+    public int getPayloadMedianSize() {
+        return payloadMedianSize;
+    }
+
+    /**
+     * Gets the standard deviation of the logarithm of payload sizes.
+     *
+     * @return The standard deviation, 0 if payloads have the median size.
+     */
+    public double getPayloadSizeSigma() {
+        return payloadSizeSigma;
+    }
+
+    /**
+     * Gets the smallest size of the payloads of bytes messages.
+     *
+     * @return The smallest size in bytes.
+     */
+    public int getPayloadMinimumSize() {
+        return payloadMinimumSize;
+    }
+
+    /**
+     * Gets the largest size of the payloads of bytes messages.
+     *
+     * @return The largest size in bytes.
+     */
+    public int getPayloadMaximumSize() {
+        return payloadMaximumSize;
+    }
+
+    /**
+     * Sets the distribution of the sizes of the payloads of bytes messages, which are cut from the message file set
+     * by {@link #setReadMessagesFromFilePath(String)}. Sizes are sampled from a lognormal distribution around the
+     * median and bounded by the smallest and largest size, so that for example a median of 64KB with a sigma of 1.5
+     * bounded by 1KB and 10MB sends mostly small messages and some very large ones.
+     *
+     * @param medianSize  The median size in bytes, 0 for payloads of the size of the message file.
+     * @param sigma       The standard deviation of the logarithm of the size, 0 for payloads of the median size.
+     * @param minimumSize The smallest size in bytes.
+     * @param maximumSize The largest size in bytes.
+     * @throws AndesClientConfigurationException
+     */
+    public void setPayloadSizeDistribution(int medianSize, double sigma, int minimumSize, int maximumSize)
+            throws AndesClientConfigurationException {
+        if (0 > medianSize || 0D > sigma) {
+            throw new AndesClientConfigurationException("Payload median size and sigma cannot be less than 0");
+        }
+        if (0 >= minimumSize || minimumSize > maximumSize) {
+            throw new AndesClientConfigurationException("Payload minimum size must be greater than 0 and not " +
+                                                        "greater than the maximum size");
+        }
+        this.payloadMedianSize = medianSize;
+        this.payloadSizeSigma = sigma;
+        this.payloadMinimumSize = minimumSize;
+        this.payloadMaximumSize = maximumSize;
+    }
 }
@@ -21,6 +21,7 @@ package org.wso2.mb.integration.common.clients.exceptions;
  * Exception class for andes client configuration.
  */
 public class AndesClientConfigurationException extends Exception {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Error message for exception
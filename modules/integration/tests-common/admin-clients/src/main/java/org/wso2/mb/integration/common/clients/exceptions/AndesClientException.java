@@ -4,6 +4,8 @@ package org.wso2.mb.integration.common.clients.exceptions;
  * Exception class for andes client.
  */
 public class AndesClientException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Error message for exception
      */
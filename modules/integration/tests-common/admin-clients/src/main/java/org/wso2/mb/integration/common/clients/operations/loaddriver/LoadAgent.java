@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.loaddriver;
+
+import org.apache.log4j.Logger;
+import org.wso2.mb.integration.common.clients.operations.utils.ClientClock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * An agent process running the load scenarios of a {@link LoadCoordinator}. The agent listens on a port of the loopback
+ * address, or of an address it is given when the coordinator runs on another host, and serves one coordinator
+ * connection at a time. Agents do not authenticate coordinators, so bind them to other addresses only on trusted
+ * networks. The coordinator sends commands as an int followed by their arguments over object streams, which only
+ * deserialize the classes of the clients (see {@link LoadObjectInputStream}):
+ * <ul>
+ * <li>{@link #CLOCK_COMMAND} is answered with the current time of the agent, by which the coordinator computes the
+ * offset of the agent clock to its own.</li>
+ * <li>{@link #PREPARE_COMMAND} with a {@link LoadScenario} creates the clients of the scenario, so that connections
+ * are established before the load starts.</li>
+ * <li>{@link #START_COMMAND} with a start time in terms of the agent clock and the offset of the agent clock starts
+ * the clients at that time, waits until they are done and is answered with a {@link LoadReport}. The offset
+ * corrects the send times of messages, by which consumers measure the latency of messages of other agents.</li>
+ * <li>{@link #SHUTDOWN_COMMAND} stops the agent.</li>
+ * </ul>
+ * Commands other than the clock command are answered with {@link #OK_RESPONSE}, or {@link #ERROR_RESPONSE} followed by
+ * an error message.
+ */
+public class LoadAgent implements Closeable {
+    /**
+     * The logger used in logging information, warnings, errors and etc.
+     */
+    private static Logger log = Logger.getLogger(LoadAgent.class);
+
+    static final int CLOCK_COMMAND = 1;
+    static final int PREPARE_COMMAND = 2;
+    static final int START_COMMAND = 3;
+    static final int SHUTDOWN_COMMAND = 4;
+
+    static final int OK_RESPONSE = 0;
+    static final int ERROR_RESPONSE = 1;
+
+    private final ServerSocket serverSocket;
+
+    /**
+     * The executor of the prepared scenario, null if no scenario is prepared.
+     */
+    private LoadScenarioExecutor executor;
+
+    /**
+     * Creates an agent listening on a port of the loopback address.
+     *
+     * @param port The port, 0 for any free port.
+     * @throws IOException
+     */
+    public LoadAgent(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Creates an agent listening on a port of an address.
+     *
+     * @param bindAddress The address to listen on.
+     * @param port        The port, 0 for any free port.
+     * @throws IOException
+     */
+    public LoadAgent(InetAddress bindAddress, int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 0, bindAddress);
+    }
+
+    /**
+     * Gets the port the agent listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Serves coordinator connections until a coordinator shuts the agent down.
+     *
+     * @throws IOException Thrown when the server socket fails.
+     */
+    public void serve() throws IOException {
+        log.info("Load agent listening on " + serverSocket.getLocalSocketAddress());
+        boolean shutdown = false;
+        while (!shutdown) {
+            Socket socket = serverSocket.accept();
+            try {
+                shutdown = serveConnection(socket);
+            } catch (IOException e) {
+                log.error("Error serving coordinator " + socket.getRemoteSocketAddress(), e);
+            } finally {
+                socket.close();
+            }
+        }
+        close();
+    }
+
+    /**
+     * Serves the commands of a coordinator connection.
+     *
+     * @param socket The coordinator connection.
+     * @return true if the coordinator shut the agent down, false if it disconnected.
+     * @throws IOException
+     */
+    private boolean serveConnection(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.flush();
+        ObjectInputStream in = new LoadObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+        while (true) {
+            int command;
+            try {
+                command = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+
+            if (CLOCK_COMMAND == command) {
+                out.writeLong(System.currentTimeMillis());
+            } else if (PREPARE_COMMAND == command) {
+                try {
+                    stopScenario();
+                    executor = new LoadScenarioExecutor((LoadScenario) in.readObject());
+                    executor.prepare();
+                    out.writeInt(OK_RESPONSE);
+                } catch (Exception e) {
+                    log.error("Error preparing load scenario", e);
+                    writeError(out, e);
+                }
+            } else if (START_COMMAND == command) {
+                long startTime = in.readLong();
+                ClientClock.setClockOffsetInMillis(in.readLong());
+                try {
+                    if (null == executor) {
+                        throw new IllegalStateException("No load scenario is prepared");
+                    }
+                    // An executor runs once, so that the next run starts from new connections
+                    LoadScenarioExecutor preparedExecutor = executor;
+                    executor = null;
+                    LoadReport report = preparedExecutor.run(startTime);
+                    out.writeInt(OK_RESPONSE);
+                    out.reset();
+                    out.writeObject(report);
+                } catch (Exception e) {
+                    log.error("Error running load scenario", e);
+                    writeError(out, e);
+                }
+            } else if (SHUTDOWN_COMMAND == command) {
+                stopScenario();
+                out.writeInt(OK_RESPONSE);
+                out.flush();
+                return true;
+            } else {
+                throw new IOException("Unknown command " + command);
+            }
+            out.flush();
+        }
+    }
+
+    private void writeError(ObjectOutputStream out, Exception e) throws IOException {
+        out.writeInt(ERROR_RESPONSE);
+        out.writeUTF(String.valueOf(e));
+    }
+
+    /**
+     * Stops the clients of the prepared scenario, if any.
+     */
+    private void stopScenario() {
+        if (null != executor) {
+            executor.stop();
+            executor = null;
+        }
+    }
+
+    /**
+     * Stops the clients and the server socket.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        stopScenario();
+        serverSocket.close();
+    }
+
+    /**
+     * Runs an agent until a coordinator shuts it down.
+     *
+     * @param args The port to listen on, optionally followed by the address to listen on, the loopback address if not
+     *             given.
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (1 != args.length && 2 != args.length) {
+            System.err.println("Usage: LoadAgent <port> [bindAddress]");
+            System.exit(1);
+        }
+        InetAddress bindAddress =
+                (2 == args.length) ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        new LoadAgent(bindAddress, Integer.parseInt(args[0])).serve();
+    }
+}
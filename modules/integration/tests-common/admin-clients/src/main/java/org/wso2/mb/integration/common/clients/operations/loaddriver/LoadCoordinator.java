@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.loaddriver;
+
+import org.apache.log4j.Logger;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives load from several JVMs by running a {@link LoadScenario} on a number of {@link LoadAgent}s, so that a
+ * cluster can be loaded beyond what one JVM can publish or consume. The coordinator has every agent create the clients
+ * of the scenario, synchronizes the clocks of the agents to its own, starts all of them at the same time and merges
+ * their counters and latency histograms into one {@link LoadReport}.
+ * <p>
+ * Agents are either started elsewhere and connected to by their addresses, or started as local processes by
+ * {@link #startLocalAgents(int, int)}, with the class path of the coordinator.
+ */
+public class LoadCoordinator implements Closeable {
+    /**
+     * The logger used in logging information, warnings, errors and etc.
+     */
+    private static Logger log = Logger.getLogger(LoadCoordinator.class);
+
+    /**
+     * Number of clock readings per agent, of which the one with the shortest round trip gives the clock offset.
+     */
+    private static final int CLOCK_SYNC_ROUNDS = 8;
+
+    /**
+     * Milliseconds to wait for local agent processes to accept connections.
+     */
+    private static final long AGENT_START_TIMEOUT_IN_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * The port of the first local agent, followed by those of the others.
+     */
+    public static final int DEFAULT_AGENT_BASE_PORT = 9700;
+
+    private final List<AgentConnection> agents = new ArrayList<AgentConnection>();
+
+    /**
+     * Agent processes started by the coordinator, which are shut down when it is closed.
+     */
+    private final List<Process> agentProcesses = new ArrayList<Process>();
+
+    /**
+     * Connects to running agents.
+     *
+     * @param agentAddresses The addresses of the agents.
+     * @throws IOException Thrown when an agent cannot be connected to.
+     */
+    public LoadCoordinator(List<InetSocketAddress> agentAddresses) throws IOException {
+        for (InetSocketAddress agentAddress : agentAddresses) {
+            agents.add(new AgentConnection(agentAddress, 0L));
+        }
+    }
+
+    private LoadCoordinator() {
+    }
+
+    /**
+     * Starts agents as processes on the local host and connects to them.
+     *
+     * @param agentCount The number of agents.
+     * @param basePort   The port of the first agent, followed by those of the others.
+     * @return The coordinator of the agents, which shuts them down when it is closed.
+     * @throws IOException Thrown when an agent cannot be started or connected to.
+     */
+    public static LoadCoordinator startLocalAgents(int agentCount, int basePort) throws IOException {
+        LoadCoordinator coordinator = new LoadCoordinator();
+        try {
+            String javaPath = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            for (int i = 0; i < agentCount; i++) {
+                ProcessBuilder processBuilder = new ProcessBuilder(javaPath, "-cp",
+                        System.getProperty("java.class.path"), LoadAgent.class.getName(),
+                        Integer.toString(basePort + i));
+                processBuilder.inheritIO();
+                coordinator.agentProcesses.add(processBuilder.start());
+            }
+            for (int i = 0; i < agentCount; i++) {
+                coordinator.agents.add(new AgentConnection(new InetSocketAddress("localhost", basePort + i),
+                                                           AGENT_START_TIMEOUT_IN_MILLIS));
+            }
+        } catch (IOException e) {
+            // Agents which could not be connected to cannot be shut down by a command
+            for (Process agentProcess : coordinator.agentProcesses) {
+                agentProcess.destroy();
+            }
+            coordinator.close();
+            throw e;
+        }
+        return coordinator;
+    }
+
+    /**
+     * Runs a scenario on all agents and waits until all of them report. When an agent fails to run the scenario, the
+     * responses of all other agents are still read, so that the coordinator can run scenarios further. When an agent
+     * connection fails, the connections to all agents are closed, as their responses are left unread, and agents
+     * started by the coordinator are destroyed.
+     *
+     * @param scenario The scenario.
+     * @return The report merged from the reports of all agents.
+     * @throws IOException          Thrown when an agent connection fails.
+     * @throws AndesClientException Thrown when an agent fails to run the scenario.
+     */
+    public LoadReport run(LoadScenario scenario) throws IOException, AndesClientException {
+        try {
+            // Agents create their clients in parallel
+            for (AgentConnection agent : agents) {
+                agent.out.writeInt(LoadAgent.PREPARE_COMMAND);
+                agent.out.reset();
+                agent.out.writeObject(scenario);
+                agent.out.flush();
+            }
+            AndesClientException agentError = null;
+            for (AgentConnection agent : agents) {
+                try {
+                    agent.readResponse();
+                } catch (AndesClientException e) {
+                    agentError = (null == agentError) ? e : agentError;
+                }
+            }
+            if (null != agentError) {
+                throw agentError;
+            }
+
+            for (AgentConnection agent : agents) {
+                agent.synchronizeClock();
+            }
+            long startTime = System.currentTimeMillis() + scenario.getStartDelayInMillis();
+            for (AgentConnection agent : agents) {
+                agent.out.writeInt(LoadAgent.START_COMMAND);
+                agent.out.writeLong(startTime + agent.clockOffset);
+                agent.out.writeLong(agent.clockOffset);
+                agent.out.flush();
+            }
+            log.info("Starting " + agents.size() + " agents at " + startTime);
+
+            LoadReport report = new LoadReport();
+            for (AgentConnection agent : agents) {
+                try {
+                    agent.readResponse();
+                    report.add(agent.readReport());
+                } catch (AndesClientException e) {
+                    agentError = (null == agentError) ? e : agentError;
+                }
+            }
+            if (null != agentError) {
+                throw agentError;
+            }
+            return report;
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the connections to all agents after a connection failed, which left the responses of other agents unread.
+     * Agents started by the coordinator are destroyed, as they can no longer be shut down by a command.
+     */
+    private void disconnect() {
+        for (AgentConnection agent : agents) {
+            agent.close();
+        }
+        agents.clear();
+        for (Process agentProcess : agentProcesses) {
+            agentProcess.destroy();
+        }
+    }
+
+    /**
+     * Disconnects from the agents, shutting down those started by the coordinator.
+     */
+    @Override
+    public void close() {
+        for (AgentConnection agent : agents) {
+            try {
+                if (!agentProcesses.isEmpty()) {
+                    agent.out.writeInt(LoadAgent.SHUTDOWN_COMMAND);
+                    agent.out.flush();
+                    agent.readResponse();
+                }
+            } catch (IOException e) {
+                log.error("Error shutting down agent " + agent.address, e);
+            } catch (AndesClientException e) {
+                log.error("Error shutting down agent " + agent.address, e);
+            } finally {
+                agent.close();
+            }
+        }
+        agents.clear();
+        for (Process agentProcess : agentProcesses) {
+            try {
+                agentProcess.waitFor();
+            } catch (InterruptedException e) {
+                agentProcess.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+        agentProcesses.clear();
+    }
+
+    /**
+     * Runs a scenario of consumers and publishers read from xml configuration files on local agents and prints the
+     * report.
+     *
+     * @param args The number of agents, the consumer configuration file, the number of consumers per agent, the
+     *             publisher configuration file and the number of publishers per agent.
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        if (5 != args.length) {
+            System.err.println("Usage: LoadCoordinator <agentCount> <consumerConfigXml> <consumersPerAgent> " +
+                               "<publisherConfigXml> <publishersPerAgent>");
+            System.exit(1);
+        }
+        LoadScenario scenario = new LoadScenario();
+        scenario.addConsumers(new AndesJMSConsumerClientConfiguration(args[1]), Integer.parseInt(args[2]));
+        scenario.addPublishers(new AndesJMSPublisherClientConfiguration(args[3]), Integer.parseInt(args[4]));
+
+        LoadCoordinator coordinator = startLocalAgents(Integer.parseInt(args[0]), DEFAULT_AGENT_BASE_PORT);
+        try {
+            System.out.print(coordinator.run(scenario));
+        } finally {
+            coordinator.close();
+        }
+    }
+
+    /**
+     * The connection to an agent.
+     */
+    private static class AgentConnection {
+        private final InetSocketAddress address;
+
+        private final Socket socket;
+
+        private final ObjectOutputStream out;
+
+        private final ObjectInputStream in;
+
+        /**
+         * Milliseconds by which the agent clock is ahead of the coordinator clock.
+         */
+        private long clockOffset;
+
+        /**
+         * Connects to an agent.
+         *
+         * @param address         The address of the agent.
+         * @param timeoutInMillis The milliseconds to retry connecting while the agent is starting, 0 to try once.
+         * @throws IOException
+         */
+        private AgentConnection(InetSocketAddress address, long timeoutInMillis) throws IOException {
+            this.address = address;
+            this.socket = connect(address, timeoutInMillis);
+            socket.setTcpNoDelay(true);
+            this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            this.in = new LoadObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        private static Socket connect(InetSocketAddress address, long timeoutInMillis) throws IOException {
+            long deadline = System.currentTimeMillis() + timeoutInMillis;
+            while (true) {
+                try {
+                    return new Socket(address.getAddress(), address.getPort());
+                } catch (IOException e) {
+                    if (deadline <= System.currentTimeMillis()) {
+                        throw e;
+                    }
+                }
+                try {
+                    Thread.sleep(100L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting to agent " + address, e);
+                }
+            }
+        }
+
+        /**
+         * Computes the offset of the agent clock from the reading with the shortest round trip, assuming that the
+         * agent read its clock half way through it.
+         *
+         * @throws IOException
+         */
+        private void synchronizeClock() throws IOException {
+            long shortestRoundTrip = Long.MAX_VALUE;
+            for (int i = 0; i < CLOCK_SYNC_ROUNDS; i++) {
+                long requestTime = System.currentTimeMillis();
+                out.writeInt(LoadAgent.CLOCK_COMMAND);
+                out.flush();
+                long agentTime = in.readLong();
+                long responseTime = System.currentTimeMillis();
+                if (responseTime - requestTime < shortestRoundTrip) {
+                    shortestRoundTrip = responseTime - requestTime;
+                    clockOffset = agentTime - (requestTime + responseTime) / 2;
+                }
+            }
+        }
+
+        /**
+         * Reads the response to a command.
+         *
+         * @throws IOException
+         * @throws AndesClientException Thrown when the agent failed to run the command.
+         */
+        private void readResponse() throws IOException, AndesClientException {
+            if (LoadAgent.ERROR_RESPONSE == in.readInt()) {
+                throw new AndesClientException("Agent " + address + " failed : " + in.readUTF());
+            }
+        }
+
+        /**
+         * Reads the report of an agent which ran a scenario.
+         *
+         * @return The report.
+         * @throws IOException
+         */
+        private LoadReport readReport() throws IOException {
+            try {
+                return (LoadReport) in.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Invalid report from agent " + address, e);
+            } catch (ClassCastException e) {
+                throw new IOException("Invalid report from agent " + address, e);
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.error("Error closing connection to agent " + address, e);
+            }
+        }
+    }
+}
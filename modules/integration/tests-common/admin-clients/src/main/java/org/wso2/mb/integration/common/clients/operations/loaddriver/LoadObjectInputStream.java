@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.loaddriver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The object input stream of the connections between a {@link LoadCoordinator} and its {@link LoadAgent}s. Only the
+ * classes of the clients, such as load scenarios, configurations and load reports, and the classes of the values they
+ * hold are resolved, so that a peer cannot have other classes deserialized.
+ */
+class LoadObjectInputStream extends ObjectInputStream {
+    /**
+     * The package prefix of the classes of the clients.
+     */
+    private static final String CLIENTS_PACKAGE_PREFIX = "org.wso2.mb.integration.common.clients.";
+
+    /**
+     * Classes other than those of the clients which are resolved. The values of JMS header properties are strings or
+     * boxed primitives and latency histograms hold arrays of counts.
+     */
+    private static final Set<String> ALLOWED_CLASS_NAMES = new HashSet<String>(Arrays.asList(
+            String.class.getName(), Number.class.getName(), Boolean.class.getName(), Byte.class.getName(),
+            Character.class.getName(), Short.class.getName(), Integer.class.getName(), Long.class.getName(),
+            Float.class.getName(), Double.class.getName(), Enum.class.getName(), ArrayList.class.getName(),
+            long[].class.getName(), long[][].class.getName()));
+
+    /**
+     * Creates an object input stream reading from a stream.
+     *
+     * @param in The stream.
+     * @throws IOException
+     */
+    LoadObjectInputStream(InputStream in) throws IOException {
+        super(in);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        String className = desc.getName();
+        if (!className.startsWith(CLIENTS_PACKAGE_PREFIX) && !ALLOWED_CLASS_NAMES.contains(className)) {
+            throw new InvalidClassException(className, "Class is not allowed on load driver connections");
+        }
+        return super.resolveClass(desc);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+        throw new InvalidClassException("Proxy classes are not allowed on load driver connections");
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.loaddriver;
+
+import org.wso2.mb.integration.common.clients.operations.utils.LatencyHistogram;
+
+import java.io.Serializable;
+
+/**
+ * The counters and latency histograms of a load scenario run by one agent, or merged for all agents of a
+ * {@link LoadCoordinator}.
+ */
+public class LoadReport implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int agentCount;
+
+    private long sentMessageCount;
+
+    private long receivedMessageCount;
+
+    /**
+     * Milliseconds from the start of the scenario until the clients were done, the longest of all agents.
+     */
+    private long durationInMillis;
+
+    private final LatencyHistogram latencyHistogram;
+
+    private final LatencyHistogram correctedLatencyHistogram;
+
+    private final LatencyHistogram sendDelayHistogram;
+
+    private final LatencyHistogram commitLatencyHistogram;
+
+    /**
+     * Creates an empty report, to which agent reports are added.
+     */
+    public LoadReport() {
+        this(0, 0L, 0L, 0L, new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram(),
+             new LatencyHistogram());
+    }
+
+    /**
+     * Creates the report of an agent.
+     *
+     * @param agentCount                The number of agents of the report.
+     * @param sentMessageCount          The number of messages sent by publishers.
+     * @param receivedMessageCount      The number of messages received by consumers.
+     * @param durationInMillis          The milliseconds from the start until the clients were done.
+     * @param latencyHistogram          The latencies of received messages.
+     * @param correctedLatencyHistogram The latencies of received messages corrected for coordinated omission.
+     * @param sendDelayHistogram        The delays of sends in open-loop mode.
+     * @param commitLatencyHistogram    The durations of publisher transaction commits.
+     */
+    public LoadReport(int agentCount, long sentMessageCount, long receivedMessageCount, long durationInMillis,
+                      LatencyHistogram latencyHistogram, LatencyHistogram correctedLatencyHistogram,
+                      LatencyHistogram sendDelayHistogram, LatencyHistogram commitLatencyHistogram) {
+        this.agentCount = agentCount;
+        this.sentMessageCount = sentMessageCount;
+        this.receivedMessageCount = receivedMessageCount;
+        this.durationInMillis = durationInMillis;
+        this.latencyHistogram = latencyHistogram;
+        this.correctedLatencyHistogram = correctedLatencyHistogram;
+        this.sendDelayHistogram = sendDelayHistogram;
+        this.commitLatencyHistogram = commitLatencyHistogram;
+    }
+
+    /**
+     * Merges the report of another agent into this report.
+     *
+     * @param other The report of the other agent.
+     */
+    public void add(LoadReport other) {
+        agentCount += other.agentCount;
+        sentMessageCount += other.sentMessageCount;
+        receivedMessageCount += other.receivedMessageCount;
+        durationInMillis = Math.max(durationInMillis, other.durationInMillis);
+        latencyHistogram.add(other.latencyHistogram);
+        correctedLatencyHistogram.add(other.correctedLatencyHistogram);
+        sendDelayHistogram.add(other.sendDelayHistogram);
+        commitLatencyHistogram.add(other.commitLatencyHistogram);
+    }
+
+    public int getAgentCount() {
+        return agentCount;
+    }
+
+    public long getSentMessageCount() {
+        return sentMessageCount;
+    }
+
+    public long getReceivedMessageCount() {
+        return receivedMessageCount;
+    }
+
+    public long getDurationInMillis() {
+        return durationInMillis;
+    }
+
+    /**
+     * Gets the number of messages sent per second by all publishers over the duration of the scenario.
+     *
+     * @return The send rate.
+     */
+    public double getSendRate() {
+        return (0L < durationInMillis) ? sentMessageCount * 1000D / durationInMillis : 0D;
+    }
+
+    /**
+     * Gets the number of messages received per second by all consumers over the duration of the scenario.
+     *
+     * @return The receive rate.
+     */
+    public double getReceiveRate() {
+        return (0L < durationInMillis) ? receivedMessageCount * 1000D / durationInMillis : 0D;
+    }
+
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    public LatencyHistogram getCorrectedLatencyHistogram() {
+        return correctedLatencyHistogram;
+    }
+
+    public LatencyHistogram getSendDelayHistogram() {
+        return sendDelayHistogram;
+    }
+
+    public LatencyHistogram getCommitLatencyHistogram() {
+        return commitLatencyHistogram;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "Agents=" + agentCount + "\n" +
+               "DurationInMillis=" + durationInMillis + "\n" +
+               "SentMessageCount=" + sentMessageCount + "\n" +
+               "ReceivedMessageCount=" + receivedMessageCount + "\n" +
+               "SendRate=" + getSendRate() + "\n" +
+               "ReceiveRate=" + getReceiveRate() + "\n" +
+               "Latency=" + summarize(latencyHistogram) + "\n" +
+               "CorrectedLatency=" + summarize(correctedLatencyHistogram) + "\n" +
+               "SendDelay=" + summarize(sendDelayHistogram) + "\n" +
+               "CommitLatency=" + summarize(commitLatencyHistogram) + "\n";
+    }
+
+    /**
+     * Summarizes a histogram by its percentiles in milliseconds.
+     *
+     * @param histogram The histogram in nanoseconds.
+     * @return The summary.
+     */
+    private static String summarize(LatencyHistogram histogram) {
+        if (0L == histogram.getTotalCount()) {
+            return "none";
+        }
+        return "count:" + histogram.getTotalCount() +
+               " p50(ms):" + toMillis(histogram.getValueAtPercentile(50D)) +
+               " p99(ms):" + toMillis(histogram.getValueAtPercentile(99D)) +
+               " p99.9(ms):" + toMillis(histogram.getValueAtPercentile(99.9D)) +
+               " max(ms):" + toMillis(histogram.getMaxValue());
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000D;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.loaddriver;
+
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientConfigurationException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A load scenario run by every agent of a {@link LoadCoordinator}. Each agent creates an
+ * {@link org.wso2.mb.integration.common.clients.AndesClient} per configuration with the given number of publishers or
+ * consumers, so that the load of the scenario is multiplied by the number of agents. Consumers are started before
+ * publishers.
+ */
+public class LoadScenario implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the scenario in reports.
+     */
+    private String name = "scenario";
+
+    /**
+     * Configurations of the consumers, followed by those of the publishers.
+     */
+    private final List<AndesJMSClientConfiguration> clientConfigurations =
+            new ArrayList<AndesJMSClientConfiguration>();
+
+    /**
+     * Number of publishers or consumers of each configuration.
+     */
+    private final List<Integer> threadCounts = new ArrayList<Integer>();
+
+    /**
+     * Number of consumer configurations at the start of the configuration list.
+     */
+    private int consumerConfigurationCount = 0;
+
+    /**
+     * Milliseconds between the clock synchronization and the start of the agents, in which the start command reaches
+     * every agent.
+     */
+    private long startDelayInMillis = 2000L;
+
+    /**
+     * Milliseconds after which consumers which stopped receiving messages are considered done.
+     */
+    private long messageCounterWaitTimeInMillis = 10000L;
+
+    /**
+     * Milliseconds after which an agent stops its clients and reports, even if they are not done.
+     */
+    private long timeoutInMillis = 600000L;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds consumers to the scenario.
+     *
+     * @param config          The consumer configuration.
+     * @param numberOfThreads The number of consumers per agent.
+     * @throws AndesClientConfigurationException
+     */
+    public void addConsumers(AndesJMSConsumerClientConfiguration config, int numberOfThreads)
+            throws AndesClientConfigurationException {
+        validateThreadCount(numberOfThreads);
+        clientConfigurations.add(consumerConfigurationCount, config);
+        threadCounts.add(consumerConfigurationCount, numberOfThreads);
+        consumerConfigurationCount++;
+    }
+
+    /**
+     * Adds publishers to the scenario.
+     *
+     * @param config          The publisher configuration.
+     * @param numberOfThreads The number of publishers per agent.
+     * @throws AndesClientConfigurationException
+     */
+    public void addPublishers(AndesJMSPublisherClientConfiguration config, int numberOfThreads)
+            throws AndesClientConfigurationException {
+        validateThreadCount(numberOfThreads);
+        clientConfigurations.add(config);
+        threadCounts.add(numberOfThreads);
+    }
+
+    private void validateThreadCount(int numberOfThreads) throws AndesClientConfigurationException {
+        if (0 >= numberOfThreads) {
+            throw new AndesClientConfigurationException("Number of threads must be greater than 0");
+        }
+    }
+
+    /**
+     * Gets the configurations of the scenario, consumers first.
+     *
+     * @return The configurations.
+     */
+    public List<AndesJMSClientConfiguration> getClientConfigurations() {
+        return clientConfigurations;
+    }
+
+    /**
+     * Gets the number of publishers or consumers per agent of each configuration.
+     *
+     * @return The thread counts, in the order of {@link #getClientConfigurations()}.
+     */
+    public List<Integer> getThreadCounts() {
+        return threadCounts;
+    }
+
+    public long getStartDelayInMillis() {
+        return startDelayInMillis;
+    }
+
+    /**
+     * Sets the milliseconds between the clock synchronization of the agents and their start, which must be enough
+     * for the start command to reach every agent.
+     *
+     * @param startDelayInMillis The milliseconds.
+     * @throws AndesClientConfigurationException
+     */
+    public void setStartDelayInMillis(long startDelayInMillis) throws AndesClientConfigurationException {
+        if (0L <= startDelayInMillis) {
+            this.startDelayInMillis = startDelayInMillis;
+        } else {
+            throw new AndesClientConfigurationException("Start delay cannot be less than 0");
+        }
+    }
+
+    public long getMessageCounterWaitTimeInMillis() {
+        return messageCounterWaitTimeInMillis;
+    }
+
+    /**
+     * Sets the milliseconds after which consumers which have not received their maximum number of messages are
+     * considered done, once their message count stops changing and the publishers of the agent are done.
+     *
+     * @param messageCounterWaitTimeInMillis The milliseconds.
+     * @throws AndesClientConfigurationException
+     */
+    public void setMessageCounterWaitTimeInMillis(long messageCounterWaitTimeInMillis)
+            throws AndesClientConfigurationException {
+        if (0L < messageCounterWaitTimeInMillis) {
+            this.messageCounterWaitTimeInMillis = messageCounterWaitTimeInMillis;
+        } else {
+            throw new AndesClientConfigurationException("Message counter wait time must be greater than 0");
+        }
+    }
+
+    public long getTimeoutInMillis() {
+        return timeoutInMillis;
+    }
+
+    /**
+     * Sets the milliseconds after which an agent stops its clients and reports, whether they are done or not.
+     *
+     * @param timeoutInMillis The milliseconds.
+     * @throws AndesClientConfigurationException
+     */
+    public void setTimeoutInMillis(long timeoutInMillis) throws AndesClientConfigurationException {
+        if (0L < timeoutInMillis) {
+            this.timeoutInMillis = timeoutInMillis;
+        } else {
+            throw new AndesClientConfigurationException("Timeout must be greater than 0");
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.loaddriver;
+
+import org.apache.log4j.Logger;
+import org.wso2.mb.integration.common.clients.AndesClient;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
+import org.wso2.mb.integration.common.clients.operations.utils.LatencyHistogram;
+
+import javax.jms.JMSException;
+import javax.naming.NamingException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a {@link LoadScenario} in the current JVM, as an agent of a {@link LoadCoordinator} or on its own. The clients
+ * of the scenario are created by {@link #prepare()}, started by {@link #run(long)} and stopped once they are done, so
+ * an executor runs its scenario once.
+ */
+public class LoadScenarioExecutor {
+    /**
+     * The logger used in logging information, warnings, errors and etc.
+     */
+    private static Logger log = Logger.getLogger(LoadScenarioExecutor.class);
+
+    /**
+     * Milliseconds between checks of whether the clients are done.
+     */
+    private static final long POLL_INTERVAL_IN_MILLIS = 100L;
+
+    private final LoadScenario scenario;
+
+    private final List<AndesClient> clients = new ArrayList<AndesClient>();
+
+    /**
+     * Creates an executor of a scenario.
+     *
+     * @param scenario The scenario.
+     */
+    public LoadScenarioExecutor(LoadScenario scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * Creates the clients of the scenario, establishing their connections.
+     *
+     * @throws IOException          Thrown when output files cannot be opened.
+     * @throws JMSException         Thrown when connections cannot be established.
+     * @throws NamingException      Thrown when the initial context cannot be created.
+     * @throws AndesClientException Thrown when a configuration is invalid.
+     */
+    public void prepare() throws IOException, JMSException, NamingException, AndesClientException {
+        List<AndesJMSClientConfiguration> configurations = scenario.getClientConfigurations();
+        for (int i = 0; i < configurations.size(); i++) {
+            clients.add(new AndesClient(configurations.get(i), scenario.getThreadCounts().get(i), true));
+        }
+        log.info("Prepared " + clients.size() + " clients");
+    }
+
+    /**
+     * Starts the clients at a time, waits until they are done and reports.
+     *
+     * @param startTime The time to start at, in terms of {@link System#currentTimeMillis()}.
+     * @return The report of the scenario.
+     * @throws IOException          Thrown when output files cannot be written.
+     * @throws JMSException         Thrown when clients cannot be started.
+     * @throws AndesClientException Thrown when clients cannot be started.
+     * @throws InterruptedException Thrown when interrupted while waiting.
+     */
+    public LoadReport run(long startTime)
+            throws IOException, JMSException, AndesClientException, InterruptedException {
+        long delay = startTime - System.currentTimeMillis();
+        if (0L < delay) {
+            Thread.sleep(delay);
+        }
+        long actualStartTime = System.currentTimeMillis();
+        for (AndesClient client : clients) {
+            client.startClient();
+        }
+        log.info("Started " + clients.size() + " clients " + (actualStartTime - startTime) + "ms after start time");
+
+        long doneTime = waitUntilDone(actualStartTime);
+
+        long sentMessageCount = 0L;
+        long receivedMessageCount = 0L;
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        LatencyHistogram correctedLatencyHistogram = new LatencyHistogram();
+        LatencyHistogram sendDelayHistogram = new LatencyHistogram();
+        LatencyHistogram commitLatencyHistogram = new LatencyHistogram();
+        for (AndesClient client : clients) {
+            sentMessageCount += client.getSentMessageCount();
+            receivedMessageCount += client.getReceivedMessageCount();
+            latencyHistogram.add(client.getLatencyHistogram());
+            correctedLatencyHistogram.add(client.getCorrectedLatencyHistogram());
+            sendDelayHistogram.add(client.getSendDelayHistogram());
+            commitLatencyHistogram.add(client.getCommitLatencyHistogram());
+        }
+        stop();
+
+        return new LoadReport(1, sentMessageCount, receivedMessageCount, doneTime - actualStartTime,
+                              latencyHistogram, correctedLatencyHistogram, sendDelayHistogram,
+                              commitLatencyHistogram);
+    }
+
+    /**
+     * Waits until publishers have sent all their messages and consumers have received their maximum number of
+     * messages or stopped receiving, or until the scenario times out.
+     *
+     * @param startTime The time the clients were started.
+     * @return The time the clients were done.
+     * @throws InterruptedException
+     */
+    private long waitUntilDone(long startTime) throws InterruptedException {
+        long messageCountToSend = 0L;
+        long messageCountToReceive = 0L;
+        List<AndesJMSClientConfiguration> configurations = scenario.getClientConfigurations();
+        for (int i = 0; i < configurations.size(); i++) {
+            AndesJMSClientConfiguration config = configurations.get(i);
+            long threadCount = scenario.getThreadCounts().get(i);
+            if (config instanceof AndesJMSPublisherClientConfiguration) {
+                messageCountToSend = addCounts(messageCountToSend, threadCount *
+                        ((AndesJMSPublisherClientConfiguration) config).getNumberOfMessagesToSend());
+            } else if (config instanceof AndesJMSConsumerClientConfiguration) {
+                long maximumMessagesToReceive =
+                        ((AndesJMSConsumerClientConfiguration) config).getMaximumMessagesToReceived();
+                messageCountToReceive = (Long.MAX_VALUE / threadCount < maximumMessagesToReceive) ? Long.MAX_VALUE
+                        : addCounts(messageCountToReceive, threadCount * maximumMessagesToReceive);
+            }
+        }
+
+        long deadline = startTime + scenario.getTimeoutInMillis();
+        long lastReceivedMessageCount = -1L;
+        long lastReceiveTime = startTime;
+        while (true) {
+            long currentTime = System.currentTimeMillis();
+            long sentMessageCount = 0L;
+            long receivedMessageCount = 0L;
+            for (AndesClient client : clients) {
+                sentMessageCount += client.getSentMessageCount();
+                receivedMessageCount += client.getReceivedMessageCount();
+            }
+            if (receivedMessageCount != lastReceivedMessageCount) {
+                lastReceivedMessageCount = receivedMessageCount;
+                lastReceiveTime = currentTime;
+            }
+
+            if (messageCountToSend <= sentMessageCount) {
+                if (messageCountToReceive <= receivedMessageCount) {
+                    return currentTime;
+                } else if (scenario.getMessageCounterWaitTimeInMillis() <= currentTime - lastReceiveTime) {
+                    return (0L < receivedMessageCount) ? lastReceiveTime : currentTime;
+                }
+            }
+            if (deadline <= currentTime) {
+                log.warn("Load scenario timed out with " + sentMessageCount + " of " + messageCountToSend
+                         + " messages sent and " + receivedMessageCount + " messages received");
+                return currentTime;
+            }
+            Thread.sleep(POLL_INTERVAL_IN_MILLIS);
+        }
+    }
+
+    private static long addCounts(long count, long other) {
+        return (Long.MAX_VALUE - count < other) ? Long.MAX_VALUE : count + other;
+    }
+
+    /**
+     * Stops the clients of the scenario and writes their output files.
+     */
+    public void stop() {
+        for (AndesClient client : clients) {
+            try {
+                client.stopClient();
+            } catch (JMSException e) {
+                log.error("Error stopping client", e);
+            }
+        }
+        clients.clear();
+        AndesClientUtils.flushPrintWriters();
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.loaddriver;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientConfigurationException;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
+import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSAcknowledgeMode;
+import org.wso2.mb.integration.common.clients.operations.utils.JMSMessageType;
+
+import javax.jms.JMSException;
+import javax.naming.NamingException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A scenario file describing load scenarios in xml, which are run one after the other in the current JVM or on
+ * {@link LoadAgent}s. A file has one or more phases, each of which has groups of consumers and publishers:
+ * <pre>
+ * &lt;scenario&gt;
+ *     &lt;hostName&gt;127.0.0.1&lt;/hostName&gt;
+ *     &lt;port&gt;5672&lt;/port&gt;
+ *     &lt;agents&gt;2&lt;/agents&gt;
+ *     &lt;phase&gt;
+ *         &lt;name&gt;queue-ramp&lt;/name&gt;
+ *         &lt;steps&gt;5&lt;/steps&gt;
+ *         &lt;consumers&gt;
+ *             &lt;destinationName&gt;loadQueue&lt;/destinationName&gt;
+ *             &lt;count&gt;10&lt;/count&gt;
+ *             &lt;acknowledgeMode&gt;CLIENT_ACKNOWLEDGE&lt;/acknowledgeMode&gt;
+ *         &lt;/consumers&gt;
+ *         &lt;publishers&gt;
+ *             &lt;destinationName&gt;loadQueue&lt;/destinationName&gt;
+ *             &lt;count&gt;5&lt;/count&gt;
+ *             &lt;numberOfMessagesToSend&gt;10000&lt;/numberOfMessagesToSend&gt;
+ *             &lt;messageSize&gt;1KB&lt;/messageSize&gt;
+ *             &lt;ratePerSecond&gt;1000&lt;/ratePerSecond&gt;
+ *             &lt;rampToRatePerSecond&gt;5000&lt;/rampToRatePerSecond&gt;
+ *         &lt;/publishers&gt;
+ *     &lt;/phase&gt;
+ * &lt;/scenario&gt;
+ * </pre>
+ * A phase of several steps is run once per step, with the rate of each publisher group ramped linearly from its
+ * {@code ratePerSecond} to its {@code rampToRatePerSecond}. Message sizes name the payload files of the
+ * {@code payloadDirectory}, which defaults to the data directory of the test automation scripts. Agents are started as
+ * local processes when {@code agents} is set, connected to when {@code agentAddress} lists host:port addresses, and
+ * not used otherwise.
+ * <p>
+ * Elements of consumer and publisher groups, in addition to {@code count}, {@code exchangeType} (queue or topic),
+ * {@code destinationName} and the connection elements {@code hostName}, {@code port}, {@code userName} and
+ * {@code password} which default to those of the scenario:
+ * <ul>
+ * <li>Consumers : acknowledgeMode, async, durable, subscriptionID, selectors, maximumMessagesToReceive,
+ * expectedMessageIntervalInNanos, verifySequences.</li>
+ * <li>Publishers : numberOfMessagesToSend, messageType, messageSize, messageFile, ratePerSecond,
+ * rampToRatePerSecond, transactional, transactionBatchSize, transactionIntervalInMillis, publishNanoTimeStamp,
+ * publishSequenceHeader, jmsMessageExpiryTime, and for BYTE messages payloadMedianSize, payloadSizeSigma, payloadMinimumSize and
+ * payloadMaximumSize.</li>
+ * <li>Both : printsPerMessageCount, runningDelay, clientThreadPoolSize, sharedConnectionCount.</li>
+ * </ul>
+ * Phases may override the {@code startDelayInMillis}, {@code messageCounterWaitTimeInMillis} and
+ * {@code timeoutInMillis} of the scenario.
+ */
+public class LoadScenarioFile {
+    /**
+     * The directory of the payload files of the test automation scripts, relative to the product root.
+     */
+    private static final String DEFAULT_PAYLOAD_DIRECTORY = "modules/tools/test_automation/data";
+
+    private final List<LoadScenario> scenarios = new ArrayList<LoadScenario>();
+
+    private final int agentCount;
+
+    private final int agentBasePort;
+
+    private final List<InetSocketAddress> agentAddresses = new ArrayList<InetSocketAddress>();
+
+    /**
+     * Reads a scenario file.
+     *
+     * @param filePath The path of the scenario file.
+     * @throws AndesClientConfigurationException Thrown when the file cannot be read or has invalid values.
+     */
+    public LoadScenarioFile(String filePath) throws AndesClientConfigurationException {
+        try {
+            XMLConfiguration config = new XMLConfiguration(filePath);
+            agentCount = config.getInt("agents", 0);
+            agentBasePort = config.getInt("agentBasePort", LoadCoordinator.DEFAULT_AGENT_BASE_PORT);
+            for (String agentAddress : config.getStringArray("agentAddress")) {
+                int separatorIndex = agentAddress.lastIndexOf(':');
+                if (0 > separatorIndex) {
+                    throw new AndesClientConfigurationException("Agent address must be host:port, but was "
+                                                                + agentAddress);
+                }
+                agentAddresses.add(new InetSocketAddress(agentAddress.substring(0, separatorIndex).trim(),
+                        Integer.parseInt(agentAddress.substring(separatorIndex + 1).trim())));
+            }
+
+            int phaseCount = config.getMaxIndex("phase") + 1;
+            if (0 == phaseCount) {
+                throw new AndesClientConfigurationException("Scenario file has no phases : " + filePath);
+            }
+            for (int i = 0; i < phaseCount; i++) {
+                readPhase(config, config.configurationAt("phase(" + i + ")"), i);
+            }
+        } catch (ConfigurationException e) {
+            throw new AndesClientConfigurationException("Error in reading scenario file. Make sure the file exists.",
+                                                        e);
+        } catch (IllegalArgumentException e) {
+            throw new AndesClientConfigurationException("Invalid value in scenario file : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a phase into a scenario per step.
+     *
+     * @param config     The scenario file.
+     * @param phase      The phase.
+     * @param phaseIndex The index of the phase.
+     * @throws AndesClientConfigurationException
+     */
+    private void readPhase(XMLConfiguration config, HierarchicalConfiguration phase, int phaseIndex)
+            throws AndesClientConfigurationException {
+        String name = phase.getString("name", "phase" + (phaseIndex + 1));
+        int steps = phase.getInt("steps", 1);
+        if (0 >= steps) {
+            throw new AndesClientConfigurationException("Steps of phase " + name + " must be greater than 0");
+        }
+
+        for (int step = 0; step < steps; step++) {
+            LoadScenario scenario = new LoadScenario();
+            scenario.setName((1 < steps) ? name + "-" + (step + 1) : name);
+            scenario.setStartDelayInMillis(phase.getLong("startDelayInMillis",
+                    config.getLong("startDelayInMillis", scenario.getStartDelayInMillis())));
+            scenario.setMessageCounterWaitTimeInMillis(phase.getLong("messageCounterWaitTimeInMillis",
+                    config.getLong("messageCounterWaitTimeInMillis", scenario.getMessageCounterWaitTimeInMillis())));
+            scenario.setTimeoutInMillis(phase.getLong("timeoutInMillis",
+                    config.getLong("timeoutInMillis", scenario.getTimeoutInMillis())));
+
+            for (int i = 0; i <= phase.getMaxIndex("consumers"); i++) {
+                HierarchicalConfiguration group = phase.configurationAt("consumers(" + i + ")");
+                scenario.addConsumers(createConsumerConfiguration(config, group), group.getInt("count", 1));
+            }
+            for (int i = 0; i <= phase.getMaxIndex("publishers"); i++) {
+                HierarchicalConfiguration group = phase.configurationAt("publishers(" + i + ")");
+                scenario.addPublishers(createPublisherConfiguration(config, group, step, steps),
+                                       group.getInt("count", 1));
+            }
+            scenarios.add(scenario);
+        }
+    }
+
+    /**
+     * Creates the configuration of a consumer group.
+     *
+     * @param config The scenario file.
+     * @param group  The consumer group.
+     * @return The consumer configuration.
+     * @throws AndesClientConfigurationException
+     */
+    private AndesJMSConsumerClientConfiguration createConsumerConfiguration(XMLConfiguration config,
+                                                                            HierarchicalConfiguration group)
+            throws AndesClientConfigurationException {
+        AndesJMSConsumerClientConfiguration consumerConfig = new AndesJMSConsumerClientConfiguration(
+                getString(config, group, "userName", AndesClientConstants.DEFAULT_USERNAME),
+                getString(config, group, "password", AndesClientConstants.DEFAULT_PASSWORD),
+                getString(config, group, "hostName", AndesClientConstants.DEFAULT_HOST_NAME),
+                group.getInt("port", config.getInt("port", AndesClientConstants.DEFAULT_PORT)),
+                getExchangeType(group), getDestinationName(group));
+        applyClientConfiguration(group, consumerConfig);
+
+        consumerConfig.setAcknowledgeMode(JMSAcknowledgeMode.valueOf(
+                group.getString("acknowledgeMode", consumerConfig.getAcknowledgeMode().name())));
+        consumerConfig.setAsync(group.getBoolean("async", consumerConfig.isAsync()));
+        if (group.getBoolean("durable", false)) {
+            consumerConfig.setDurable(true, group.getString("subscriptionID"));
+        }
+        consumerConfig.setSelectors(group.getString("selectors", consumerConfig.getSelectors()));
+        consumerConfig.setMaximumMessagesToReceived(
+                group.getLong("maximumMessagesToReceive", consumerConfig.getMaximumMessagesToReceived()));
+        consumerConfig.setExpectedMessageIntervalInNanos(group.getLong("expectedMessageIntervalInNanos",
+                consumerConfig.getExpectedMessageIntervalInNanos()));
+        consumerConfig.setVerifySequences(group.getBoolean("verifySequences", consumerConfig.isVerifySequences()));
+        return consumerConfig;
+    }
+
+    /**
+     * Creates the configuration of a publisher group for a step of its phase.
+     *
+     * @param config The scenario file.
+     * @param group  The publisher group.
+     * @param step   The step of the phase, from 0.
+     * @param steps  The number of steps of the phase.
+     * @return The publisher configuration.
+     * @throws AndesClientConfigurationException
+     */
+    private AndesJMSPublisherClientConfiguration createPublisherConfiguration(XMLConfiguration config,
+                                                                              HierarchicalConfiguration group,
+                                                                              int step, int steps)
+            throws AndesClientConfigurationException {
+        AndesJMSPublisherClientConfiguration publisherConfig = new AndesJMSPublisherClientConfiguration(
+                getString(config, group, "userName", AndesClientConstants.DEFAULT_USERNAME),
+                getString(config, group, "password", AndesClientConstants.DEFAULT_PASSWORD),
+                getString(config, group, "hostName", AndesClientConstants.DEFAULT_HOST_NAME),
+                group.getInt("port", config.getInt("port", AndesClientConstants.DEFAULT_PORT)),
+                getExchangeType(group), getDestinationName(group));
+        applyClientConfiguration(group, publisherConfig);
+
+        publisherConfig.setNumberOfMessagesToSend(
+                group.getLong("numberOfMessagesToSend", publisherConfig.getNumberOfMessagesToSend()));
+        publisherConfig.setJMSMessageType(JMSMessageType.valueOf(
+                group.getString("messageType", publisherConfig.getJMSMessageType().name())));
+        String messageFile = group.getString("messageFile");
+        if (null == messageFile && null != group.getString("messageSize")) {
+            messageFile = config.getString("payloadDirectory", DEFAULT_PAYLOAD_DIRECTORY) + File.separator
+                          + group.getString("messageSize") + ".txt";
+        }
+        if (null != messageFile) {
+            try {
+                publisherConfig.setReadMessagesFromFilePath(messageFile);
+            } catch (FileNotFoundException e) {
+                throw new AndesClientConfigurationException("Message file is missing : " + messageFile, e);
+            }
+        }
+
+        double ratePerSecond = group.getDouble("ratePerSecond", publisherConfig.getPublishRatePerSecond());
+        if (1 < steps) {
+            double rampToRatePerSecond = group.getDouble("rampToRatePerSecond", ratePerSecond);
+            ratePerSecond = ratePerSecond + (rampToRatePerSecond - ratePerSecond) * step / (steps - 1);
+        }
+        publisherConfig.setPublishRatePerSecond(ratePerSecond);
+
+        publisherConfig.setTransactionalSession(
+                group.getBoolean("transactional", publisherConfig.isTransactionalSession()));
+        publisherConfig.setTransactionBatchSize(
+                group.getInt("transactionBatchSize", publisherConfig.getTransactionBatchSize()));
+        publisherConfig.setTransactionIntervalInMillis(
+                group.getLong("transactionIntervalInMillis", publisherConfig.getTransactionIntervalInMillis()));
+        publisherConfig.setPublishNanoTimeStamp(
+                group.getBoolean("publishNanoTimeStamp", publisherConfig.isPublishNanoTimeStamp()));
+        publisherConfig.setPublishSequenceHeader(
+                group.getBoolean("publishSequenceHeader", publisherConfig.isPublishSequenceHeader()));
+        publisherConfig.setJMSMessageExpiryTime(
+                group.getLong("jmsMessageExpiryTime", publisherConfig.getJMSMessageExpiryTime()));
+        publisherConfig.setPayloadSizeDistribution(
+                group.getInt("payloadMedianSize", publisherConfig.getPayloadMedianSize()),
+                group.getDouble("payloadSizeSigma", publisherConfig.getPayloadSizeSigma()),
+                group.getInt("payloadMinimumSize", publisherConfig.getPayloadMinimumSize()),
+                group.getInt("payloadMaximumSize", publisherConfig.getPayloadMaximumSize()));
+        return publisherConfig;
+    }
+
+    /**
+     * Applies the elements common to consumer and publisher groups.
+     *
+     * @param group        The consumer or publisher group.
+     * @param clientConfig The configuration of the group.
+     * @throws AndesClientConfigurationException
+     */
+    private void applyClientConfiguration(HierarchicalConfiguration group, AndesJMSClientConfiguration clientConfig)
+            throws AndesClientConfigurationException {
+        clientConfig.setPrintsPerMessageCount(
+                group.getLong("printsPerMessageCount", clientConfig.getPrintsPerMessageCount()));
+        clientConfig.setRunningDelay(group.getLong("runningDelay", clientConfig.getRunningDelay()));
+        clientConfig.setClientThreadPoolSize(
+                group.getInt("clientThreadPoolSize", clientConfig.getClientThreadPoolSize()));
+        clientConfig.setSharedConnectionCount(
+                group.getInt("sharedConnectionCount", clientConfig.getSharedConnectionCount()));
+    }
+
+    private String getString(XMLConfiguration config, HierarchicalConfiguration group, String key,
+                             String defaultValue) {
+        return group.getString(key, config.getString(key, defaultValue));
+    }
+
+    private ExchangeType getExchangeType(HierarchicalConfiguration group) {
+        return ExchangeType.valueOf(group.getString("exchangeType", "queue").toUpperCase(Locale.ENGLISH));
+    }
+
+    private String getDestinationName(HierarchicalConfiguration group) throws AndesClientConfigurationException {
+        String destinationName = group.getString("destinationName");
+        if (null == destinationName) {
+            throw new AndesClientConfigurationException("Destination name is missing in a client group");
+        }
+        return destinationName;
+    }
+
+    /**
+     * Gets the scenarios of the file, a scenario per step of each phase.
+     *
+     * @return The scenarios in the order they are run.
+     */
+    public List<LoadScenario> getScenarios() {
+        return scenarios;
+    }
+
+    /**
+     * Runs the scenarios of the file one after the other, on agents if the file configures any.
+     *
+     * @return The reports of the scenarios by their names, in the order they were run.
+     * @throws IOException          Thrown when agents or output files fail.
+     * @throws JMSException         Thrown when clients fail in the current JVM.
+     * @throws NamingException      Thrown when clients fail in the current JVM.
+     * @throws AndesClientException Thrown when clients fail.
+     * @throws InterruptedException Thrown when interrupted while waiting for clients.
+     */
+    public Map<String, LoadReport> run()
+            throws IOException, JMSException, NamingException, AndesClientException, InterruptedException {
+        Map<String, LoadReport> reports = new LinkedHashMap<String, LoadReport>();
+        if (!agentAddresses.isEmpty() || 0 < agentCount) {
+            LoadCoordinator coordinator = agentAddresses.isEmpty() ?
+                                          LoadCoordinator.startLocalAgents(agentCount, agentBasePort) :
+                                          new LoadCoordinator(agentAddresses);
+            try {
+                for (LoadScenario scenario : scenarios) {
+                    reports.put(scenario.getName(), coordinator.run(scenario));
+                }
+            } finally {
+                coordinator.close();
+            }
+        } else {
+            for (LoadScenario scenario : scenarios) {
+                LoadScenarioExecutor executor = new LoadScenarioExecutor(scenario);
+                try {
+                    executor.prepare();
+                    reports.put(scenario.getName(), executor.run(System.currentTimeMillis()));
+                } finally {
+                    executor.stop();
+                }
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Runs a scenario file and prints the report of each scenario.
+     *
+     * @param args The path of the scenario file.
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        if (1 != args.length) {
+            System.err.println("Usage: LoadScenarioFile <scenarioFile>");
+            System.exit(1);
+        }
+        for (Map.Entry<String, LoadReport> report : new LoadScenarioFile(args[0]).run().entrySet()) {
+            System.out.print("Scenario=" + report.getKey() + "\n" + report.getValue());
+        }
+    }
+}
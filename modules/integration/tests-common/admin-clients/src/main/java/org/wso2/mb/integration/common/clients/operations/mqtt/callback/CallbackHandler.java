@@ -27,10 +27,16 @@ import org.wso2.mb.integration.common.clients.MQTTConstants;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Callback handler to handle message arrival, delivery complete and connection lost.
  * Keeps track of sent/received message counts.
+ * <p/>
+ * Counts are updated atomically by the client callback threads, so that they can be read by other threads at any
+ * time. Saved messages are kept in a bounded buffer, in which each message claims its slot atomically without
+ * locking.
  */
 public class CallbackHandler implements MqttCallback {
 
@@ -38,20 +44,34 @@ public class CallbackHandler implements MqttCallback {
 
     private boolean saveMessages = false;
 
-    private final List<MqttMessage> receivedMessages = new ArrayList<MqttMessage>();
-    private int receivedMessageCount;
-    private int sentMessageCount;
+    /**
+     * Saved received messages, in the order their slots were claimed. Null if messages are not saved.
+     */
+    private final AtomicReferenceArray<MqttMessage> receivedMessages;
+
+    /**
+     * Number of slots of the saved messages buffer claimed, including those claimed after it was full.
+     */
+    private final AtomicInteger claimedMessageSlotCount = new AtomicInteger(0);
+
+    private final AtomicInteger receivedMessageCount = new AtomicInteger(0);
+    private final AtomicInteger sentMessageCount = new AtomicInteger(0);
 
     /**
      * Saves the topic name for which the last message received if saveMessages is set to true.
      */
-    String lastTopicReceived;
+    volatile String lastTopicReceived;
+
+    /**
+     * Tracker notified of received messages, null if received messages are not tracked.
+     */
+    private volatile ReceivedMessageTracker receivedMessageTracker;
 
     /**
      * Default constructor. Use this if you do not care about receiving message are saved or not.
      */
     public CallbackHandler() {
-
+        this(false);
     }
 
     /**
@@ -63,7 +83,20 @@ public class CallbackHandler implements MqttCallback {
      * @param saveReceivingMessages Save receiving message
      */
     public CallbackHandler(boolean saveReceivingMessages) {
+        this(saveReceivingMessages, MQTTConstants.MESSAGE_CAPTURE_CAPACITY);
+    }
+
+    /**
+     * Set saveMessages and the maximum number of messages to save while initializing. Messages received after the
+     * maximum number of messages is saved are counted but not saved, and {@link #getReceivedMessages()} then fails
+     * instead of returning only a part of the received messages.
+     *
+     * @param saveReceivingMessages Save receiving message
+     * @param captureCapacity       Maximum number of messages to save
+     */
+    public CallbackHandler(boolean saveReceivingMessages, int captureCapacity) {
         this.saveMessages = saveReceivingMessages;
+        this.receivedMessages = saveReceivingMessages ? new AtomicReferenceArray<MqttMessage>(captureCapacity) : null;
     }
 
     /**
@@ -72,7 +105,7 @@ public class CallbackHandler implements MqttCallback {
      * @return Received message count
      */
     public int getReceivedMessageCount() {
-        return receivedMessageCount;
+        return receivedMessageCount.get();
     }
 
     /**
@@ -98,13 +131,18 @@ public class CallbackHandler implements MqttCallback {
     public void messageArrived(String topic, MqttMessage mqttMessage) throws Exception {
         if (null != mqttMessage) {
             if (saveMessages) {
-                receivedMessages.add(mqttMessage);
+                saveMessage(mqttMessage);
                 lastTopicReceived = topic;
                 log.info("Message arrived on " + topic + " : " + mqttMessage.toString());
             }
 
-            incrementReceivedMessageCount();
-            int receivedMessageCount = getReceivedMessageCount();
+            int receivedMessageCount = incrementReceivedMessageCount();
+
+            // Notifying after counting, so that the count is up to date when a waiting thread is signalled
+            ReceivedMessageTracker tracker = receivedMessageTracker;
+            if (null != tracker) {
+                tracker.messageReceived();
+            }
 
             if (receivedMessageCount % MQTTConstants.MESSAGE_PRINT_LIMIT == 0) {
                 log.info(receivedMessageCount + " messages received.");
@@ -123,12 +161,25 @@ public class CallbackHandler implements MqttCallback {
      */
     @Override
     public void deliveryComplete(IMqttDeliveryToken iMqttDeliveryToken) {
-        incrementSentMessageCount();
-
-        int sentMessageCount = getSentMessageCount();
+        int sentMessageCount = incrementSentMessageCount();
 
         if (sentMessageCount % MQTTConstants.MESSAGE_PRINT_LIMIT == 0) {
-            log.info(sentMessageCount + " messages received.");
+            log.info(sentMessageCount + " messages sent.");
+        }
+    }
+
+    /**
+     * Saves a received message in the next slot of the saved messages buffer, unless the buffer is full.
+     *
+     * @param mqttMessage The received message
+     */
+    private void saveMessage(MqttMessage mqttMessage) {
+        int slot = claimedMessageSlotCount.getAndIncrement();
+        if (slot < receivedMessages.length()) {
+            receivedMessages.set(slot, mqttMessage);
+        } else if (slot == receivedMessages.length()) {
+            log.error("Saved " + slot + " messages, which is the capture capacity. Further messages are counted but "
+                      + "not saved.");
         }
     }
 
@@ -136,27 +187,50 @@ public class CallbackHandler implements MqttCallback {
      * Increment the receiving message count.
      * Use this instead of just incrementing so if threads are involved this method can be used to handle concurrency
      * issues.
+     *
+     * @return The incremented received message count
      */
-    private void incrementReceivedMessageCount() {
-        receivedMessageCount++;
+    private int incrementReceivedMessageCount() {
+        return receivedMessageCount.incrementAndGet();
     }
 
     /**
      * Increment the sent message count.
      * Use this instead of just incrementing so if threads are involved this method can be used to handle concurrency
      * issues.
+     *
+     * @return The incremented sent message count
      */
-    private void incrementSentMessageCount() {
-        sentMessageCount++;
+    private int incrementSentMessageCount() {
+        return sentMessageCount.incrementAndGet();
     }
 
     /**
-     * Retrieve the received messages. This will return a non empty value only if saveMessages flag is set.
+     * Retrieve a snapshot of the received messages. This will return a non empty value only if saveMessages flag is
+     * set.
      *
      * @return Received messages
+     * @throws IllegalStateException Thrown when more messages were received than the capture capacity, so that not
+     *                               all of them were saved.
      */
     public List<MqttMessage> getReceivedMessages() {
-        return receivedMessages;
+        List<MqttMessage> messages = new ArrayList<MqttMessage>();
+        if (null != receivedMessages) {
+            int claimedSlotCount = claimedMessageSlotCount.get();
+            if (receivedMessages.length() < claimedSlotCount) {
+                throw new IllegalStateException("Received " + claimedSlotCount + " messages to save, but only the "
+                                                + "first " + receivedMessages.length() + " were saved as the "
+                                                + "capture capacity was exceeded");
+            }
+            for (int i = 0; i < claimedSlotCount; i++) {
+                // Skipping slots claimed by messages which are not saved yet
+                MqttMessage message = receivedMessages.get(i);
+                if (null != message) {
+                    messages.add(message);
+                }
+            }
+        }
+        return messages;
     }
 
     /**
@@ -165,9 +239,18 @@ public class CallbackHandler implements MqttCallback {
      * @return Sent message count
      */
     public int getSentMessageCount() {
-        return sentMessageCount;
+        return sentMessageCount.get();
     }
 
+    /**
+     * Set the tracker to notify of received messages. Set before the client subscribes, so that all received
+     * messages are tracked.
+     *
+     * @param receivedMessageTracker The tracker
+     */
+    public void setReceivedMessageTracker(ReceivedMessageTracker receivedMessageTracker) {
+        this.receivedMessageTracker = receivedMessageTracker;
+    }
 
     public String getLastTopicReceived() {
         return lastTopicReceived;
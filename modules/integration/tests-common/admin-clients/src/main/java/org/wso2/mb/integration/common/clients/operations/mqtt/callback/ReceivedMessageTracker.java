@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.mqtt.callback;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the messages received by a group of subscribers, notified by their {@link CallbackHandler}s as messages
+ * arrive, so that a thread can wait for messages without polling the subscribers.
+ * <p/>
+ * Arrivals are counted without locking. The waiting thread is signalled only by the arrival which reaches the count
+ * it awaits, which also records the time it arrived, so that throughput can be calculated up to the exact time the
+ * messages were received rather than up to the time the waiting thread noticed. Only one thread should wait at a
+ * time.
+ */
+public class ReceivedMessageTracker {
+
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * Signalled when the awaited message count is reached.
+     */
+    private final Condition awaitedCountReached = lock.newCondition();
+
+    private final AtomicInteger receivedMessageCount = new AtomicInteger(0);
+
+    /**
+     * The message count the waiting thread waits for, {@link Integer#MAX_VALUE} while no thread waits.
+     */
+    private volatile int awaitedMessageCount = Integer.MAX_VALUE;
+
+    private volatile long firstMessageReceivedTime = -1L;
+
+    private volatile long lastMessageReceivedTime = -1L;
+
+    /**
+     * The time the message count of the last completed wait was reached, -1 if no wait completed.
+     */
+    private volatile long completionTime = -1L;
+
+    /**
+     * The message count of the last completed wait.
+     */
+    private volatile int completedMessageCount = 0;
+
+    /**
+     * Records a received message, signalling the waiting thread if it is the awaited message.
+     */
+    public void messageReceived() {
+        long receivedTime = System.currentTimeMillis();
+        lastMessageReceivedTime = receivedTime;
+        int messageCount = receivedMessageCount.incrementAndGet();
+        if (1 == messageCount) {
+            firstMessageReceivedTime = receivedTime;
+        }
+
+        if (messageCount == awaitedMessageCount) {
+            lock.lock();
+            try {
+                complete(receivedTime, messageCount);
+                awaitedCountReached.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits until a number of messages is received or the timeout elapses. If the messages are already received, the
+     * last message received so far is taken as the awaited message.
+     *
+     * @param expectedMessageCount The number of messages to wait for
+     * @param timeout              The maximum time to wait
+     * @param unit                 The unit of the timeout
+     * @return true if the messages are received, false if the timeout elapsed
+     * @throws InterruptedException Thrown when the waiting thread is interrupted
+     */
+    public boolean awaitMessageCount(int expectedMessageCount, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            awaitedMessageCount = expectedMessageCount;
+            // An arrival reaching the count before it was set does not signal, hence checking before waiting
+            if (receivedMessageCount.get() >= expectedMessageCount) {
+                complete(lastMessageReceivedTime, receivedMessageCount.get());
+                return true;
+            }
+            while (receivedMessageCount.get() < expectedMessageCount) {
+                if (0L >= remainingNanos) {
+                    return false;
+                }
+                remainingNanos = awaitedCountReached.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            awaitedMessageCount = Integer.MAX_VALUE;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until no message is received for an idle time, counted from the last message received or from the time
+     * the wait started, whichever is later. The last message received is taken as the awaited message.
+     *
+     * @param idleTimeMillis The time in milliseconds without messages after which messages are no longer awaited
+     * @throws InterruptedException Thrown when the waiting thread is interrupted
+     */
+    public void awaitIdle(long idleTimeMillis) throws InterruptedException {
+        long idleSince = System.currentTimeMillis();
+        long remainingMillis = idleTimeMillis;
+        while (0L < remainingMillis) {
+            // Sleeping until the idle time after the latest arrival elapses, without waking per message
+            TimeUnit.MILLISECONDS.sleep(remainingMillis);
+            idleSince = Math.max(idleSince, lastMessageReceivedTime);
+            remainingMillis = idleSince + idleTimeMillis - System.currentTimeMillis();
+        }
+
+        lock.lock();
+        try {
+            complete(lastMessageReceivedTime, receivedMessageCount.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void complete(long time, int messageCount) {
+        completionTime = time;
+        completedMessageCount = messageCount;
+    }
+
+    /**
+     * Get the number of received messages.
+     *
+     * @return Received message count
+     */
+    public int getReceivedMessageCount() {
+        return receivedMessageCount.get();
+    }
+
+    /**
+     * Get the time the first message was received.
+     *
+     * @return The time in milliseconds, -1 if no message is received
+     */
+    public long getFirstMessageReceivedTime() {
+        return firstMessageReceivedTime;
+    }
+
+    /**
+     * Get the time the last message was received.
+     *
+     * @return The time in milliseconds, -1 if no message is received
+     */
+    public long getLastMessageReceivedTime() {
+        return lastMessageReceivedTime;
+    }
+
+    /**
+     * Get the time the awaited message of the last completed wait was received.
+     *
+     * @return The time in milliseconds, -1 if no wait completed or no message is received
+     */
+    public long getCompletionTime() {
+        return completionTime;
+    }
+
+    /**
+     * Get the number of messages received up to the awaited message of the last completed wait.
+     *
+     * @return The message count
+     */
+    public int getCompletedMessageCount() {
+        return completedMessageCount;
+    }
+}
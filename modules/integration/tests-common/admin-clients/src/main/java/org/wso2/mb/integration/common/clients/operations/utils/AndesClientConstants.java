@@ -145,6 +145,35 @@ public class AndesClientConstants {
      */
     public static final String ANDES_SET_ROUTING_KEY = "AndesSetRoutingKey";
 
+    /**
+     * JMS property holding the {@link System#nanoTime()} at which a message was sent, set when the publisher is
+     * configured to publish nano time stamps. Consumers in the same JVM use it to measure latency in nanoseconds.
+     */
+    public static final String ANDES_CLIENT_SEND_NANO_TIME_PROPERTY = "AndesClientSendNanoTime";
+
+    /**
+     * JMS property holding the {@link ClientClock#JVM_ID} of the publisher of a message, set with
+     * {@link #ANDES_CLIENT_SEND_NANO_TIME_PROPERTY}, by which consumers tell whether the nano time is of their JVM.
+     */
+    public static final String ANDES_CLIENT_SEND_JVM_ID_PROPERTY = "AndesClientSendJVMID";
+
+    /**
+     * JMS property holding the {@link ClientClock#currentTimeMillis()} at which a message was sent, set with
+     * {@link #ANDES_CLIENT_SEND_NANO_TIME_PROPERTY}. Consumers in other JVMs use it to measure latency.
+     */
+    public static final String ANDES_CLIENT_SEND_TIME_PROPERTY = "AndesClientSendTime";
+
+    /**
+     * JMS property holding the ID of the publisher of a message, set with
+     * {@link #ANDES_CLIENT_SEQUENCE_PROPERTY} when the publisher is configured to publish sequence headers.
+     */
+    public static final String ANDES_CLIENT_PUBLISHER_ID_PROPERTY = "AndesClientPublisherID";
+
+    /**
+     * JMS property holding the sequence of a message among the messages of its publisher, starting from 0.
+     */
+    public static final String ANDES_CLIENT_SEQUENCE_PROPERTY = "AndesClientSequence";
+
     /**
      * System property name of andes acknowledgement wait timeout
      */
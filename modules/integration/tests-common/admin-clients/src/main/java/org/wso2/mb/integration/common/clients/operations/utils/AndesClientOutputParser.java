@@ -18,25 +18,25 @@
 
 package org.wso2.mb.integration.common.clients.operations.utils;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.LineIterator;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.io.BufferedReader;
-import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.InputStream;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * This class is used to get Andes Client outputs from parse file. The class provides evaluation
  * functions for testing purposes.
+ * <p>
+ * The file is read once, as bytes, and every message identifier is parsed in place into a
+ * {@link MessageIdentifierBitmap}, while duplicates, message order, redeliveries of the first
+ * message and the order of rolled back batches are evaluated on the way. Only duplicated message
+ * identifiers are kept individually, so that memory scales with the range of the identifiers
+ * rather than with the number of messages.
  */
 public class AndesClientOutputParser {
 
@@ -46,14 +46,62 @@ public class AndesClientOutputParser {
     private static Log log = LogFactory.getLog(AndesClientOutputParser.class);
 
     /**
-     * Map that stored received messages. Used to check message duplication.
+     * Offset of the message identifier in a received message line.
      */
-    private Map<Long, Integer> mapOfReceivedMessages = new HashMap<Long, Integer>();
+    private static final int MESSAGE_IDENTIFIER_OFFSET =
+            AndesClientConstants.PUBLISH_MESSAGE_FORMAT.indexOf("Sending Message:") + "Sending Message:".length();
 
     /**
-     * List of received messages.
+     * Size of the buffer the file is read through.
      */
-    private List<Long> messages = new ArrayList<Long>();
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Received message IDs.
+     */
+    private final MessageIdentifierBitmap receivedMessages = new MessageIdentifierBitmap();
+
+    /**
+     * Map of duplicated message IDs to the number of times they were received.
+     */
+    private final Map<Long, Integer> duplicatedMessages = new HashMap<Long, Integer>();
+
+    /**
+     * Line indexes at which the first received message is received again.
+     */
+    private final MessageIdentifierBitmap firstMessageRedeliveries = new MessageIdentifierBitmap();
+
+    /**
+     * Number of received messages.
+     */
+    private long messageCount = 0L;
+
+    /**
+     * Number of received messages which were received before.
+     */
+    private long duplicateCount = 0L;
+
+    private long firstMessageIdentifier = -1L;
+
+    /**
+     * The first message which is not received at its index, -1 if messages are in order.
+     */
+    private long outOfOrderMessageIdentifier = -1L;
+
+    /**
+     * Number of messages received per rollback, 0 if rolled back batches are not evaluated.
+     */
+    private final long messagesPerRollback;
+
+    /**
+     * Messages of the first batch, to which rolled back batches are compared.
+     */
+    private long[] firstMessageBatch;
+
+    /**
+     * The first line whose message breaks the order of rolled back batches, 0 if there is none.
+     */
+    private long rollbackOrderBrokenAtLine = 0L;
 
     /**
      * File path to parse received messages
@@ -67,30 +115,75 @@ public class AndesClientOutputParser {
      * @throws IOException
      */
     public AndesClientOutputParser(String filePath) throws IOException {
+        this(filePath, 0L);
+    }
+
+    /**
+     * Creates an output parse for andes with a give file path, which also evaluates whether
+     * messages are received in order when the subscriber rollbacks after certain number of
+     * messages.
+     *
+     * @param filePath            The file path for received messages.
+     * @param messagesPerRollback Number of messages received per rollback, 0 for none.
+     * @throws IOException
+     */
+    public AndesClientOutputParser(String filePath, long messagesPerRollback) throws IOException {
+        if (0L > messagesPerRollback || Integer.MAX_VALUE < messagesPerRollback) {
+            throw new IllegalArgumentException("Invalid number of messages per rollback : " + messagesPerRollback);
+        }
         this.filePath = filePath;
+        this.messagesPerRollback = messagesPerRollback;
+        if (0L < messagesPerRollback) {
+            firstMessageBatch = new long[(int) messagesPerRollback];
+        }
         parseFile();
     }
 
     /**
-     * Reads received messages from a file path and store the message ID in necessary data
-     * structures.
+     * Reads received messages from a file path in a single pass, parsing the message ID of each
+     * line from the bytes read without creating strings.
      *
      * @throws IOException
      */
     private void parseFile() throws IOException {
         try {
-            BufferedReader br = new BufferedReader(new FileReader(filePath));
+            InputStream inputStream = new FileInputStream(filePath);
             try {
-                String line = br.readLine();
-                while (line != null) {
-                    String tempSendMessageString = line.substring(AndesClientConstants.PUBLISH_MESSAGE_FORMAT.indexOf("Sending Message:") + "Sending Message:".length());
-                    long messageIdentifier = Long.valueOf(tempSendMessageString.substring(0, tempSendMessageString
-                            .indexOf(" ")).replace(",",""));
-                    this.addMessage(messageIdentifier);
-                    line = br.readLine();
+                byte[] buffer = new byte[READ_BUFFER_SIZE];
+                int column = 0;
+                long messageIdentifier = 0L;
+                boolean hasDigits = false;
+                boolean identifierParsed = false;
+                int length = inputStream.read(buffer);
+                while (-1 != length) {
+                    for (int i = 0; i < length; i++) {
+                        byte character = buffer[i];
+                        if ('\n' == character) {
+                            addLine(messageIdentifier, hasDigits);
+                            column = 0;
+                            messageIdentifier = 0L;
+                            hasDigits = false;
+                            identifierParsed = false;
+                        } else {
+                            if (MESSAGE_IDENTIFIER_OFFSET <= column && !identifierParsed) {
+                                if ('0' <= character && '9' >= character) {
+                                    messageIdentifier = messageIdentifier * 10L + (character - '0');
+                                    hasDigits = true;
+                                } else if (',' != character) {
+                                    // Identifiers are written with or without grouping separators
+                                    identifierParsed = true;
+                                }
+                            }
+                            column++;
+                        }
+                    }
+                    length = inputStream.read(buffer);
+                }
+                if (0 < column) {
+                    addLine(messageIdentifier, hasDigits);
                 }
             } finally {
-                br.close();
+                inputStream.close();
             }
         } catch (FileNotFoundException e) {
             log.error("Error " + filePath + " the file containing received messages couldn't found", e);
@@ -101,19 +194,58 @@ public class AndesClientOutputParser {
         }
     }
 
+    /**
+     * Evaluates the message ID of a line against the lines before it.
+     *
+     * @param messageIdentifier The message ID of the line.
+     * @param hasDigits         Whether a message ID was found in the line.
+     * @throws IOException Thrown when the line has no message ID.
+     */
+    private void addLine(long messageIdentifier, boolean hasDigits) throws IOException {
+        long index = messageCount;
+        if (!hasDigits) {
+            throw new IOException("Error " + filePath + " has no message ID at line " + (index + 1));
+        }
+
+        if (!receivedMessages.add(messageIdentifier)) {
+            duplicateCount++;
+            Integer count = duplicatedMessages.get(messageIdentifier);
+            duplicatedMessages.put(messageIdentifier, null == count ? 2 : count + 1);
+        }
+
+        if (-1L == outOfOrderMessageIdentifier && messageIdentifier != index) {
+            outOfOrderMessageIdentifier = messageIdentifier;
+        }
+
+        if (0L == index) {
+            firstMessageIdentifier = messageIdentifier;
+        } else if (messageIdentifier == firstMessageIdentifier) {
+            firstMessageRedeliveries.add(index);
+        }
+
+        if (null != firstMessageBatch && 0L == rollbackOrderBrokenAtLine) {
+            int batchIndex = (int) (index % messagesPerRollback);
+            if (index < messagesPerRollback) {
+                firstMessageBatch[batchIndex] = messageIdentifier;
+                if (0L < duplicateCount) {
+                    // A message is redelivered before a whole batch is received
+                    rollbackOrderBrokenAtLine = index + 1;
+                }
+            } else if (firstMessageBatch[batchIndex] != messageIdentifier) {
+                rollbackOrderBrokenAtLine = index + 1;
+            }
+        }
+
+        messageCount++;
+    }
+
     /**
      * Gets the map used for message duplication.
      *
      * @return A map of duplicated message IDs as key.
      */
     public Map<Long, Integer> getDuplicatedMessages() {
-        Map<Long, Integer> messagesDuplicated = new HashMap<Long, Integer>();
-        for (Long messageIdentifier : mapOfReceivedMessages.keySet()) {
-            if (mapOfReceivedMessages.get(messageIdentifier) > 1) {
-                messagesDuplicated.put(messageIdentifier, mapOfReceivedMessages.get(messageIdentifier));
-            }
-        }
-        return messagesDuplicated;
+        return new HashMap<Long, Integer>(duplicatedMessages);
     }
 
     /**
@@ -122,15 +254,11 @@ public class AndesClientOutputParser {
      * @return true if messages are in order, false otherwise.
      */
     public boolean checkIfMessagesAreInOrder() {
-        boolean result = true;
-        for (int count = 0; count < messages.size(); count++) {
-            if (messages.get(count) != (count)) {
-                result = false;
-                log.warn("Message order is broken at message " + messages.get(count));
-                break;
-            }
+        if (-1L != outOfOrderMessageIdentifier) {
+            log.warn("Message order is broken at message " + outOfOrderMessageIdentifier);
+            return false;
         }
-        return result;
+        return true;
     }
 
     /**
@@ -143,8 +271,8 @@ public class AndesClientOutputParser {
     public void printMissingMessages(int numberOfSentMessages) {
         log.info("Printing Missing Messages");
         for (long count = 0; count < numberOfSentMessages; count++) {
-            if (mapOfReceivedMessages.get(count) == null) {
-                log.info("Missing message id:" + count + 1 + "\n");
+            if (!receivedMessages.contains(count)) {
+                log.info("Missing message id:" + count + "\n");
             }
         }
     }
@@ -160,29 +288,21 @@ public class AndesClientOutputParser {
     }
 
     /**
-     * Prints the map that contains received messages.
+     * Prints the received message IDs with the number of times they were received.
      * Suppressing "UnusedDeclaration" as this could be used for debugging purposes
      */
     @SuppressWarnings("UnusedDeclaration")
     public void printMessagesMap() {
         log.info("Printing Received Messages");
-        log.info(mapOfReceivedMessages);
-    }
-
-    /**
-     * Adds received message IDs to a list and a map.
-     *
-     * @param messageIdentifier Received message ID.
-     */
-    private void addMessage(Long messageIdentifier) {
-        if (mapOfReceivedMessages.get(messageIdentifier) == null) {
-            mapOfReceivedMessages.put(messageIdentifier, 1);
-        } else {
-            int currentCount = mapOfReceivedMessages.get(messageIdentifier);
-            mapOfReceivedMessages.put(messageIdentifier, currentCount + 1);
+        StringBuilder messagesMap = new StringBuilder("{");
+        for (long messageIdentifier = receivedMessages.nextIdentifier(0L); -1L != messageIdentifier;
+             messageIdentifier = receivedMessages.nextIdentifier(messageIdentifier + 1L)) {
+            if (1 < messagesMap.length()) {
+                messagesMap.append(", ");
+            }
+            messagesMap.append(messageIdentifier).append('=').append(getReceivedCount(messageIdentifier));
         }
-
-        messages.add(messageIdentifier);
+        log.info(messagesMap.append('}'));
     }
 
     /**
@@ -192,10 +312,22 @@ public class AndesClientOutputParser {
     @SuppressWarnings("UnusedDeclaration")
     public void printMessagesSorted() {
         log.info("Printing Sorted Messages");
-        List<Long> cloneOfMessages = new ArrayList<Long>();
-        cloneOfMessages.addAll(messages);
-        Collections.sort(cloneOfMessages);
-        log.info(cloneOfMessages);
+        StringBuilder sortedMessages = new StringBuilder("[");
+        for (long messageIdentifier = receivedMessages.nextIdentifier(0L); -1L != messageIdentifier;
+             messageIdentifier = receivedMessages.nextIdentifier(messageIdentifier + 1L)) {
+            for (int i = getReceivedCount(messageIdentifier); i > 0; i--) {
+                if (1 < sortedMessages.length()) {
+                    sortedMessages.append(", ");
+                }
+                sortedMessages.append(messageIdentifier);
+            }
+        }
+        log.info(sortedMessages.append(']'));
+    }
+
+    private int getReceivedCount(long messageIdentifier) {
+        Integer count = duplicatedMessages.get(messageIdentifier);
+        return null == count ? 1 : count;
     }
 
     /**
@@ -205,50 +337,14 @@ public class AndesClientOutputParser {
      * @return transactedResult
      */
     public boolean transactedOperations(long operationOccurredIndex) throws FileNotFoundException {
-        boolean result = false;
-        int count = 0;
-        long firstMessageIdentifier = 0;
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(filePath));
-            //Needed try/finally to close the file
-            try {
-                String line = br.readLine();
-                while (line != null) {
-                    String tempSendMessageString = line.substring(AndesClientConstants.PUBLISH_MESSAGE_FORMAT.indexOf("Sending Message:") + "Sending Message:".length());
-                    long messageIdentifier = Long.parseLong(tempSendMessageString.substring(0, tempSendMessageString.indexOf(" ")));
-                    if (count == 0) {
-                        firstMessageIdentifier = messageIdentifier;
-                    }
-                    if (count == (operationOccurredIndex)) {
-                        if (messageIdentifier == firstMessageIdentifier) {
-                            result = true;
-                        }
-                    }
-                    line = br.readLine();
-                    count++;
-                }
-            } catch (IOException e) {
-                log.error("Error while parsing the file containing received messages", e);
-            } finally {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    log.error("Error while closing the file containing received messages", e);
-                }
-            }
-
-        } catch (FileNotFoundException e) {
-            log.error("Error " + filePath + " the file containing received messages couldn't found", e);
-            throw e;
-        }
-
-        AndesClientUtils.flushPrintWriters();
-        return result;
+        return 0L == operationOccurredIndex ? 0L < messageCount
+                                            : firstMessageRedeliveries.contains(operationOccurredIndex);
     }
 
     /**
      * Check whether all the messages are received in-order when subscriber rollbacks
-     * after certain number of messages.
+     * after certain number of messages. The file is parsed again unless the parser was created
+     * with the same number of messages per rollback.
      *
      * @param messagesPerRollback Number of messages received per rollback
      * @return Result as true if transacted rollback operation has successfully
@@ -256,127 +352,35 @@ public class AndesClientOutputParser {
      */
     public boolean checkIfTransactedRollbackPreservesOrder(long messagesPerRollback)
             throws FileNotFoundException {
-
-        boolean result = true;
-        int count = 0;
-        Long messageIdentifier;
-
-        int rollbackBatchIteration = 1;
-        boolean isFirstMessageBatch = true;
-        LineIterator iterator = null;
-
-        Map<Integer, Long> firstMessageBatch = new HashMap<Integer, Long>();
-        try {
-            iterator = FileUtils.lineIterator(new File(filePath));
-
-            String line = iterator.nextLine();
-            while (iterator.hasNext()) {
-
-                messageIdentifier = getMessageIdentifier(line);
-
-                if (firstMessageBatch.containsValue(messageIdentifier)) {
-                    isFirstMessageBatch = false;
-                    if (count != messagesPerRollback * rollbackBatchIteration) {
-                        log.error("failed to check if rollback messages are received in order" +
-                                  " to due to first duplicated message count " + count +
-                                  " not equal to messages per each rollback." +
-                                  messagesPerRollback + ".");
-                        result = false;
-                    }
-                    rollbackBatchIteration++;
-                }
-
-                if (!isFirstMessageBatch) {
-                    for (int i = 0; i < messagesPerRollback; i++) {
-                        messageIdentifier = getMessageIdentifier(line);
-                        if (null != firstMessageBatch.get(i)) {
-                            if (!firstMessageBatch.get(i).equals(messageIdentifier)) {
-                                result = false;
-                                log.error("Error in line :" + line +
-                                          ".Rollback operation failed to keep message order.");
-                            }
-                        }
-                        if (iterator.hasNext()) {
-                            line = iterator.nextLine();
-                            count++;
-                        }
-                    }
-                } else if (isFirstMessageBatch) {
-                    firstMessageBatch.put(count, messageIdentifier);
-                    line = iterator.nextLine();
-                    count++;
-                }
+        if (0L >= messagesPerRollback) {
+            throw new IllegalArgumentException("Messages per rollback must be greater than 0");
+        }
+        if (this.messagesPerRollback != messagesPerRollback) {
+            try {
+                return new AndesClientOutputParser(filePath, messagesPerRollback)
+                        .checkIfTransactedRollbackPreservesOrder(messagesPerRollback);
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException e) {
+                log.error("Error while parsing the file containing received messages", e);
+                return false;
             }
-
-        } catch (FileNotFoundException e) {
-            log.error("Error " + filePath + " the file containing received messages couldn't found", e);
-            throw e;
-        } catch (IOException e) {
-            log.error("Error while parsing the file containing received messages", e);
-        } finally {
-            iterator.close();
         }
-
-        AndesClientUtils.flushPrintWriters();
-        return result;
-    }
-
-
-    /**
-     * This method will return message identifier number extracted from given string line.
-     * sample string line "Sending Message:36 ThreadID:7,335".
-     *
-     * @param line string parameter which contains given line of a text file.
-     * @return messageIdentifier which can identify messages uniquely.
-     */
-    private Long getMessageIdentifier(String line) {
-
-        String tempSendMessageString = line.substring(AndesClientConstants.
-                PUBLISH_MESSAGE_FORMAT.indexOf("Sending Message:") + "Sending Message:".length());
-        Long messageIdentifier = Long.parseLong(tempSendMessageString.
-                substring(0, tempSendMessageString.indexOf(" ")));
-
-        return messageIdentifier;
+        // Messages which are never redelivered are not rolled back
+        if (0L < duplicateCount && 0L != rollbackOrderBrokenAtLine) {
+            log.error("Error in line " + rollbackOrderBrokenAtLine + ". Rollback operation failed to keep message " +
+                      "order of " + messagesPerRollback + " messages per each rollback.");
+            return false;
+        }
+        return true;
     }
 
-
     /**
      * Parse the file and get the number of duplicate message IDs.
      *
      * @return Duplicated message ID count.
      */
     public long numberDuplicatedMessages() {
-        long duplicateCount = 0;
-        List<Long> messagesDuplicated = new ArrayList<Long>();
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(filePath));
-            //Needed try/finally to close the file
-            try {
-                String line = br.readLine();
-                while (line != null) {
-                    String tempSendMessageString = line.substring(AndesClientConstants.PUBLISH_MESSAGE_FORMAT.indexOf("Sending Message:") + "Sending Message:".length());
-                    long messageIdentifier = Long.parseLong(tempSendMessageString.substring(0, tempSendMessageString.indexOf(" ")));
-                    if (messagesDuplicated.contains(messageIdentifier)) {
-                        duplicateCount++;
-                    } else {
-                        messagesDuplicated.add(messageIdentifier);
-                    }
-                    line = br.readLine();
-                }
-            } catch (IOException e) {
-                log.error("Error while parsing the file containing received messages", e);
-            } finally {
-
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    log.error("Error while closing the file containing received messages", e);
-                }
-
-            }
-        } catch (FileNotFoundException e) {
-            log.error("Error " + filePath + " the file containing received messages couldn't found", e);
-        }
         return duplicateCount;
     }
 }
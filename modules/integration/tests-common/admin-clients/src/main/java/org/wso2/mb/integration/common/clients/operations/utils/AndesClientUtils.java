@@ -30,6 +30,12 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -42,20 +48,37 @@ public class AndesClientUtils {
     private static Logger log = Logger.getLogger(AndesClientUtils.class);
 
     /**
-     * The print writer to print received messages to a file.
+     * Header line of statistics files.
      */
-    private static PrintWriter receivedMessagePrintWriter;
+    private static final String STATISTICS_HEADER = "TIMESTAMP,CONSUMER_TPS,AVERAGE_LATENCY,,TIMESTAMP,PUBLISHER_TPS";
 
     /**
-     * The print writer to print statistics such as TPS for consumers and producers and also the
-     * average latency to a file.
+     * The writers of received messages, published messages and statistics such as TPS for consumers and producers
+     * and the average latency, by file path. Clients writing to different files get different writers, and writing
+     * to a file only queues the content to be written to the file by a background thread. A writer is opened when
+     * the first client writing to its file starts, and closed when the last one stops.
      */
-    private static PrintWriter statisticsPrintWriter;
+    private static final ConcurrentMap<String, FileWriterReference> fileWriters =
+            new ConcurrentHashMap<String, FileWriterReference>();
 
     /**
-     * The print writer to print messages that are being sent by the publisher.
+     * Paths of the files written since they were initialized, which are appended to when opened again. Guarded by
+     * {@link #fileWriters}.
      */
-    private static PrintWriter publishedMessagePrintWriter;
+    private static final Set<String> writtenFilePaths = new HashSet<String>();
+
+    /**
+     * A writer along with the number of clients writing through it. The count is guarded by {@link #fileWriters}.
+     */
+    private static class FileWriterReference {
+        private final RingBufferFileWriter writer;
+
+        private int clientCount;
+
+        private FileWriterReference(RingBufferFileWriter writer) {
+            this.writer = writer;
+        }
+    }
 
     /**
      * Waits until no messages are received. The waiting is done by using a loop checking whether
@@ -178,12 +201,7 @@ public class AndesClientUtils {
      */
     public static void writeReceivedMessagesToFile(String content, String filePath)
             throws IOException {
-
-        if (receivedMessagePrintWriter == null) {
-            initializeReceivedMessagesPrintWriter(filePath);
-        }
-        receivedMessagePrintWriter.println(content);
-
+        writeLine(content, filePath, null);
     }
 
     /**
@@ -193,12 +211,23 @@ public class AndesClientUtils {
      * @param filePath File path where the statistics should be written.
      */
     public static void writeStatisticsToFile(String content, String filePath) throws IOException {
-        if (statisticsPrintWriter == null) {
-            initializeStatisticsPrintWriter(filePath);
-        }
-
-        statisticsPrintWriter.println(content);
+        writeLine(content, filePath, STATISTICS_HEADER);
+    }
 
+    /**
+     * Writes statistics to a file from a buffer, so that callers can reuse the buffer for every line.
+     *
+     * @param content  Buffer holding the statistic content.
+     * @param length   Number of characters of the content in the buffer.
+     * @param filePath File path where the statistics should be written.
+     */
+    public static void writeStatisticsToFile(char[] content, int length, String filePath) throws IOException {
+        FileWriterReference fileWriter = getFileWriter(filePath);
+        if (null != fileWriter) {
+            fileWriter.writer.writeLine(content, length);
+        } else {
+            appendLine(new String(content, 0, length), filePath, STATISTICS_HEADER);
+        }
     }
 
     /**
@@ -208,11 +237,7 @@ public class AndesClientUtils {
      * @param filePath File path where the statistics should be written.
      */
     public static void writePublishedMessagesToFile(String content, String filePath) throws IOException {
-        if (publishedMessagePrintWriter == null) {
-            initializePublishedPrintWriter(filePath);
-        }
-
-        publishedMessagePrintWriter.println(content);
+        writeLine(content, filePath, null);
     }
 
     /**
@@ -221,13 +246,7 @@ public class AndesClientUtils {
      * @param filePath The file path to write to.
      */
     public static void initializeReceivedMessagesPrintWriter(String filePath) throws IOException {
-        if (StringUtils.isNotEmpty(filePath)) {
-            File writerFile = new File(filePath);
-            if (writerFile.exists() || writerFile.createNewFile()) {
-                BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(filePath));
-                receivedMessagePrintWriter = new PrintWriter(bufferedWriter);
-            }
-        }
+        initializeFile(filePath, null);
     }
 
     /**
@@ -236,15 +255,7 @@ public class AndesClientUtils {
      * @param filePath The file path to write to.
      */
     public static void initializeStatisticsPrintWriter(String filePath) throws IOException {
-        if (StringUtils.isNotEmpty(filePath)) {
-            File writerFile = new File(filePath);
-            if (writerFile.exists() || writerFile.createNewFile()) {
-                BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(filePath));
-                statisticsPrintWriter = new PrintWriter(bufferedWriter);
-                statisticsPrintWriter
-                        .println("TIMESTAMP,CONSUMER_TPS,AVERAGE_LATENCY,,TIMESTAMP,PUBLISHER_TPS");
-            }
-        }
+        initializeFile(filePath, STATISTICS_HEADER);
     }
 
     /**
@@ -254,29 +265,188 @@ public class AndesClientUtils {
      * @param filePath The file path to write to.
      */
     public static void initializePublishedPrintWriter(String filePath) throws IOException {
-        if (StringUtils.isNotEmpty(filePath)) {
-            File writerFile = new File(filePath);
-            if (writerFile.exists() || writerFile.createNewFile()) {
-                BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(filePath));
-                publishedMessagePrintWriter = new PrintWriter(bufferedWriter);
+        initializeFile(filePath, null);
+    }
+
+    /**
+     * Opens the writer of a file of received or published messages for a client, or counts the client as another
+     * user of the writer if it is open. Every call must be followed by {@link #releaseFileWriter(String)} once the
+     * client stops.
+     *
+     * @param filePath The file path to write to, or null.
+     * @throws IOException Thrown when the file cannot be opened.
+     */
+    public static void acquireFileWriter(String filePath) throws IOException {
+        acquireFileWriter(filePath, null);
+    }
+
+    /**
+     * Opens the writer of a statistics file for a client, or counts the client as another user of the writer if it
+     * is open. Every call must be followed by {@link #releaseFileWriter(String)} once the client stops.
+     *
+     * @param filePath The file path to write to, or null.
+     * @throws IOException Thrown when the file cannot be opened.
+     */
+    public static void acquireStatisticsFileWriter(String filePath) throws IOException {
+        acquireFileWriter(filePath, STATISTICS_HEADER);
+    }
+
+    /**
+     * Releases the writer of a file acquired by a client, closing it if no other client writes to the file.
+     *
+     * @param filePath The file path acquired, or null.
+     */
+    public static void releaseFileWriter(String filePath) {
+        if (StringUtils.isEmpty(filePath)) {
+            return;
+        }
+        synchronized (fileWriters) {
+            FileWriterReference fileWriter = fileWriters.get(filePath);
+            if (null != fileWriter && 0 == --fileWriter.clientCount) {
+                fileWriters.remove(filePath);
+                try {
+                    fileWriter.writer.close();
+                } catch (IOException e) {
+                    log.error("Error while closing " + filePath, e);
+                }
             }
         }
     }
 
     /**
-     * Prints print writers to file paths.
+     * Checks whether the writer of a file is open.
+     *
+     * @param filePath The file path.
+     * @return true if a client holds the writer of the file, false otherwise.
      */
-    public static void flushPrintWriters() {
-        if (null != receivedMessagePrintWriter) {
-            receivedMessagePrintWriter.flush();
+    static boolean isFileWriterOpen(String filePath) {
+        return fileWriters.containsKey(filePath);
+    }
+
+    /**
+     * Opens the writer of a file for a client, appending to the file if it has been written since it was
+     * initialized, or counts the client as another user of the writer if it is open.
+     *
+     * @param filePath The file path to write to, or null.
+     * @param header   The first line of the file if it is truncated, or null.
+     * @throws IOException Thrown when the file cannot be opened.
+     */
+    private static void acquireFileWriter(String filePath, String header) throws IOException {
+        if (StringUtils.isEmpty(filePath)) {
+            return;
+        }
+        synchronized (fileWriters) {
+            FileWriterReference fileWriter = fileWriters.get(filePath);
+            if (null == fileWriter) {
+                boolean append = writtenFilePaths.contains(filePath);
+                fileWriter = new FileWriterReference(new RingBufferFileWriter(filePath, append));
+                if (!append && null != header) {
+                    fileWriter.writer.writeLine(header);
+                }
+                writtenFilePaths.add(filePath);
+                fileWriters.put(filePath, fileWriter);
+            }
+            fileWriter.clientCount++;
+        }
+    }
+
+    /**
+     * Truncates a file, unless clients are writing to it.
+     *
+     * @param filePath The file path to write to, or null.
+     * @param header   The first line of the file, or null.
+     * @throws IOException Thrown when the file cannot be written.
+     */
+    private static void initializeFile(String filePath, String header) throws IOException {
+        if (StringUtils.isEmpty(filePath)) {
+            return;
+        }
+        synchronized (fileWriters) {
+            if (fileWriters.containsKey(filePath)) {
+                log.warn("Not initializing " + filePath + " as clients are writing to it");
+                return;
+            }
+            writtenFilePaths.remove(filePath);
+            appendLine(header, filePath, null);
+        }
+    }
+
+    /**
+     * Gets the writer of a file.
+     *
+     * @param filePath The file path to write to.
+     * @return The writer, or null if no client holds a writer of the file.
+     */
+    private static FileWriterReference getFileWriter(String filePath) {
+        return StringUtils.isEmpty(filePath) ? null : fileWriters.get(filePath);
+    }
+
+    /**
+     * Writes a line to a file through its writer, or directly if no client holds a writer of the file.
+     *
+     * @param content  The line.
+     * @param filePath The file path to write to, or null.
+     * @param header   The first line of the file if it is not written yet, or null.
+     * @throws IOException Thrown when writing to the file has failed.
+     */
+    private static void writeLine(String content, String filePath, String header) throws IOException {
+        FileWriterReference fileWriter = getFileWriter(filePath);
+        if (null != fileWriter) {
+            fileWriter.writer.writeLine(content);
+        } else {
+            appendLine(content, filePath, header);
         }
+    }
 
-        if (null != statisticsPrintWriter) {
-            statisticsPrintWriter.flush();
+    /**
+     * Writes a line to a file which is not held open by a client, such as lines written by clients after they have
+     * stopped. The file is truncated if it has not been written since it was initialized.
+     *
+     * @param content  The line, or null to only truncate the file.
+     * @param filePath The file path to write to, or null.
+     * @param header   The first line of the file if it is truncated, or null.
+     * @throws IOException Thrown when writing to the file has failed.
+     */
+    private static void appendLine(String content, String filePath, String header) throws IOException {
+        if (StringUtils.isEmpty(filePath)) {
+            return;
+        }
+        synchronized (fileWriters) {
+            FileWriterReference fileWriter = fileWriters.get(filePath);
+            if (null != fileWriter) {
+                if (null != content) {
+                    fileWriter.writer.writeLine(content);
+                }
+                return;
+            }
+            boolean append = writtenFilePaths.contains(filePath);
+            Writer writer = new BufferedWriter(new FileWriter(filePath, append));
+            try {
+                if (!append && null != header) {
+                    writer.write(header);
+                    writer.write(System.getProperty("line.separator"));
+                }
+                if (null != content) {
+                    writer.write(content);
+                    writer.write(System.getProperty("line.separator"));
+                }
+            } finally {
+                writer.close();
+            }
+            writtenFilePaths.add(filePath);
         }
+    }
 
-        if (null != publishedMessagePrintWriter) {
-            publishedMessagePrintWriter.flush();
+    /**
+     * Prints print writers to file paths, waiting until all content written so far is in the files.
+     */
+    public static void flushPrintWriters() {
+        for (Map.Entry<String, FileWriterReference> fileWriter : fileWriters.entrySet()) {
+            try {
+                fileWriter.getValue().writer.flush();
+            } catch (IOException e) {
+                log.error("Error while flushing " + fileWriter.getKey(), e);
+            }
         }
     }
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The clocks by which clients time stamp messages to measure their latency. {@link System#nanoTime()} is precise but
+ * only comparable within the JVM which read it, so messages carry the ID of the publishing JVM along with the nano
+ * time. Consumers in other JVMs, such as those of other load agents, use the wall clock instead, corrected by the
+ * offset of their clock from the clock of the {@link org.wso2.mb.integration.common.clients.operations.loaddriver
+ * .LoadCoordinator} when they run on an agent.
+ */
+public final class ClientClock {
+    /**
+     * Random ID of this JVM, unique among JVMs.
+     */
+    public static final long JVM_ID = UUID.randomUUID().getMostSignificantBits();
+
+    /**
+     * Milliseconds by which the clock of this JVM is ahead of the clock of the load coordinator, 0 if not run by
+     * one.
+     */
+    private static volatile long clockOffsetInMillis;
+
+    private ClientClock() {
+    }
+
+    /**
+     * Sets the offset of the clock of this JVM from the clock of the load coordinator.
+     *
+     * @param offsetInMillis Milliseconds by which the clock of this JVM is ahead.
+     */
+    public static void setClockOffsetInMillis(long offsetInMillis) {
+        clockOffsetInMillis = offsetInMillis;
+    }
+
+    /**
+     * Gets the current time in terms of the clock of the load coordinator, or of this JVM if not run by one.
+     *
+     * @return The current time in milliseconds.
+     */
+    public static long currentTimeMillis() {
+        return System.currentTimeMillis() - clockOffsetInMillis;
+    }
+
+    /**
+     * Gets the latency of a received message, with the nano time at which it was sent if it was sent from this JVM,
+     * or else with the wall clock time at which it was sent, or its JMS timestamp.
+     *
+     * @param message          The message.
+     * @param currentTimeStamp The {@link System#currentTimeMillis()} at which the message was received.
+     * @return The latency in nanoseconds.
+     * @throws JMSException
+     */
+    public static long getLatencyInNanos(Message message, long currentTimeStamp) throws JMSException {
+        if (message.propertyExists(AndesClientConstants.ANDES_CLIENT_SEND_NANO_TIME_PROPERTY)
+            && message.propertyExists(AndesClientConstants.ANDES_CLIENT_SEND_JVM_ID_PROPERTY)
+            && JVM_ID == message.getLongProperty(AndesClientConstants.ANDES_CLIENT_SEND_JVM_ID_PROPERTY)) {
+            return System.nanoTime()
+                   - message.getLongProperty(AndesClientConstants.ANDES_CLIENT_SEND_NANO_TIME_PROPERTY);
+        } else if (message.propertyExists(AndesClientConstants.ANDES_CLIENT_SEND_TIME_PROPERTY)) {
+            return TimeUnit.MILLISECONDS.toNanos(currentTimeStamp - clockOffsetInMillis
+                    - message.getLongProperty(AndesClientConstants.ANDES_CLIENT_SEND_TIME_PROPERTY));
+        } else {
+            return TimeUnit.MILLISECONDS.toNanos(currentTimeStamp - message.getJMSTimestamp());
+        }
+    }
+}
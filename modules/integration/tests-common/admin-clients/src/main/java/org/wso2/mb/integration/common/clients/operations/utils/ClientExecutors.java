@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the executors running publishers and consumers of the andes client, as configured by
+ * {@link AndesJMSClientConfiguration#setClientExecutor(Executor)} and
+ * {@link AndesJMSClientConfiguration#setClientThreadPoolSize(int)}. Thread pools are shared by all publishers
+ * configured with the same size and live as long as the JVM, with daemon threads. Consumers configured with a thread
+ * pool size receive messages through message listeners instead, so that they neither wait for pool threads taken by
+ * publishers nor poll for messages.
+ */
+public class ClientExecutors {
+    /**
+     * Runs each task on a new thread, as clients did before executors were configurable.
+     */
+    private static final Executor THREAD_PER_TASK_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            new Thread(task).start();
+        }
+    };
+
+    /**
+     * Thread pools of publishers by number of threads.
+     */
+    private static final ConcurrentMap<Integer, ExecutorService> threadPools =
+            new ConcurrentHashMap<Integer, ExecutorService>();
+
+    /**
+     * Reused threads running short tasks which must not run on the thread requesting them, such as closing a consumer
+     * from its own message listener.
+     */
+    private static final ExecutorService controlExecutor =
+            Executors.newCachedThreadPool(new DaemonThreadFactory("AndesClientControl"));
+
+    private ClientExecutors() {
+    }
+
+    /**
+     * Gets the executor for the publishers and synchronous consumers of a configuration.
+     *
+     * @param config The configuration.
+     * @return The configured executor, a shared thread pool of the configured size for publishers, or an executor
+     * running each task on a new thread.
+     */
+    public static Executor getExecutor(AndesJMSClientConfiguration config) {
+        if (null != config.getClientExecutor()) {
+            return config.getClientExecutor();
+        }
+        int poolSize = config.getClientThreadPoolSize();
+        if (0 == poolSize || config instanceof AndesJMSConsumerClientConfiguration) {
+            // Consumers blocking on receive would keep pool threads from other consumers
+            return THREAD_PER_TASK_EXECUTOR;
+        }
+        ExecutorService threadPool = threadPools.get(poolSize);
+        if (null == threadPool) {
+            ExecutorService newThreadPool = Executors.newFixedThreadPool(poolSize,
+                    new DaemonThreadFactory("AndesClientPublisherPool" + poolSize));
+            threadPool = threadPools.putIfAbsent(poolSize, newThreadPool);
+            if (null == threadPool) {
+                threadPool = newThreadPool;
+            } else {
+                newThreadPool.shutdown();
+            }
+        }
+        return threadPool;
+    }
+
+    /**
+     * Checks whether the clients of a configuration are configured with a bounded thread pool, in which case
+     * synchronous consumers receive messages through message listeners instead of threads of their own.
+     *
+     * @param config The configuration.
+     * @return true if a thread pool size is configured without an executor, false otherwise.
+     */
+    public static boolean isThreadPoolShared(AndesJMSClientConfiguration config) {
+        return null == config.getClientExecutor() && 0 < config.getClientThreadPoolSize();
+    }
+
+    /**
+     * Runs a task on another thread and waits for it to complete. An exception thrown by the task is not propagated,
+     * as when such tasks ran on threads of their own, so tasks log their own errors.
+     *
+     * @param task The task.
+     * @throws InterruptedException Thrown when interrupted while waiting.
+     */
+    public static void runAndWait(Runnable task) throws InterruptedException {
+        Future<?> future = controlExecutor.submit(task);
+        try {
+            future.get();
+        } catch (ExecutionException ignore) {
+            // Logged by the task
+        }
+    }
+
+    /**
+     * Creates named daemon threads, so that pools do not keep the JVM running.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, namePrefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.TopicConnectionFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A fixed number of JMS connections shared by the publishers or consumers of an andes client, each of which creates
+ * its own session on a connection of the pool. Connections are handed out in turn, created when first handed out and
+ * closed when the last client using them releases them. The clients share the same configuration, so the pool also
+ * holds the connection factory and destination looked up by the first of them.
+ */
+public class JMSConnectionPool {
+    private final ExchangeType exchangeType;
+
+    private final Connection[] connections;
+
+    /**
+     * Number of clients using each connection.
+     */
+    private final int[] leaseCounts;
+
+    /**
+     * Index of the connection to hand out next.
+     */
+    private int nextIndex;
+
+    /**
+     * Objects looked up in JNDI by the clients, by name.
+     */
+    private final Map<String, Object> lookedUpObjects = new HashMap<String, Object>();
+
+    /**
+     * Creates a pool.
+     *
+     * @param connectionCount The number of connections to share.
+     * @param exchangeType    The exchange type of the clients, deciding whether queue or topic connections are
+     *                        created.
+     */
+    public JMSConnectionPool(int connectionCount, ExchangeType exchangeType) {
+        if (0 >= connectionCount) {
+            throw new IllegalArgumentException("Connection count must be greater than 0, but was " + connectionCount);
+        }
+        this.exchangeType = exchangeType;
+        this.connections = new Connection[connectionCount];
+        this.leaseCounts = new int[connectionCount];
+    }
+
+    /**
+     * Hands out the next connection of the pool, creating and starting it if it is not open.
+     *
+     * @param connectionFactory The factory creating connections.
+     * @return The started connection, which must be given back by {@link #release(Connection)}.
+     * @throws JMSException Thrown when the connection cannot be created.
+     */
+    public synchronized Connection acquire(ConnectionFactory connectionFactory) throws JMSException {
+        int index = nextIndex;
+        nextIndex = (nextIndex + 1) % connections.length;
+        if (null == connections[index]) {
+            Connection connection;
+            if (ExchangeType.TOPIC == exchangeType) {
+                connection = ((TopicConnectionFactory) connectionFactory).createTopicConnection();
+            } else {
+                connection = ((QueueConnectionFactory) connectionFactory).createQueueConnection();
+            }
+            connection.start();
+            connections[index] = connection;
+        }
+        leaseCounts[index]++;
+        return connections[index];
+    }
+
+    /**
+     * Gives back a connection handed out by the pool, closing it if no other client uses it.
+     *
+     * @param connection The connection.
+     * @throws JMSException Thrown when the connection cannot be closed.
+     */
+    public synchronized void release(Connection connection) throws JMSException {
+        for (int i = 0; i < connections.length; i++) {
+            if (connection == connections[i]) {
+                leaseCounts[i]--;
+                if (0 == leaseCounts[i]) {
+                    connections[i] = null;
+                    connection.close();
+                }
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Connection is not part of the pool");
+    }
+
+    /**
+     * Gets an object looked up in JNDI by a client of the pool.
+     *
+     * @param name The JNDI name.
+     * @return The object, or null if no client has looked it up.
+     */
+    public synchronized Object getLookedUpObject(String name) {
+        return lookedUpObjects.get(name);
+    }
+
+    /**
+     * Keeps an object looked up in JNDI for the other clients of the pool, unless another client has kept one.
+     *
+     * @param name   The JNDI name.
+     * @param object The object.
+     * @return The object kept by the pool.
+     */
+    public synchronized Object putLookedUpObjectIfAbsent(String name, Object object) {
+        Object keptObject = lookedUpObjects.get(name);
+        if (null == keptObject) {
+            lookedUpObjects.put(name, object);
+            keptObject = object;
+        }
+        return keptObject;
+    }
+
+    /**
+     * Gets the number of open connections of the pool.
+     *
+     * @return The number of open connections.
+     */
+    public synchronized int getOpenConnectionCount() {
+        int openConnectionCount = 0;
+        for (Connection connection : connections) {
+            if (null != connection) {
+                openConnectionCount++;
+            }
+        }
+        return openConnectionCount;
+    }
+}
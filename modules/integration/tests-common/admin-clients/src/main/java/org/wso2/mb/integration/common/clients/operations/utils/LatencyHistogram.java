@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * A high dynamic range histogram of latencies in nanoseconds, with the bucket layout of HdrHistogram. Values are
+ * recorded with two significant decimal digits from 1 nanosecond up to an hour, so that recording a value does not
+ * depend on how many values are recorded. Counts are allocated in chunks of half a bucket as values fall into them,
+ * which keeps the histograms of tens of thousands of consumers small, as latencies usually span a few buckets.
+ * <p>
+ * Histograms can be added to each other and encoded in the compressed format of HdrHistogram, so that they can be
+ * written to HdrHistogram interval logs by {@link LatencyHistogramLogWriter} and compared with its tools. The
+ * methods are synchronized, as a histogram is recorded by a consumer thread while it is read by the test.
+ */
+public class LatencyHistogram implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of significant decimal digits of recorded values.
+     */
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    /**
+     * Lowest value distinguished from 0.
+     */
+    private static final long LOWEST_DISCERNIBLE_VALUE = 1;
+
+    /**
+     * Highest value which can be recorded, an hour in nanoseconds. Larger values are recorded as this value.
+     */
+    private static final long HIGHEST_TRACKABLE_VALUE = 3600L * 1000 * 1000 * 1000;
+
+    /**
+     * Cookies of the HdrHistogram encodings.
+     */
+    private static final int ENCODING_COOKIE = 0x1c849303 | 0x10;
+    private static final int COMPRESSED_ENCODING_COOKIE = 0x1c849304 | 0x10;
+
+    private static final int ENCODING_HEADER_SIZE = 40;
+
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final int SUB_BUCKET_HALF_COUNT;
+    private static final long SUB_BUCKET_MASK;
+    private static final int LEADING_ZERO_COUNT_BASE;
+    private static final int COUNTS_ARRAY_LENGTH;
+    private static final int CHUNK_COUNT;
+
+    static {
+        long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, SIGNIFICANT_DIGITS);
+        int subBucketCountMagnitude = (int) Math.ceil(Math.log(largestValueWithSingleUnitResolution) / Math.log(2));
+        SUB_BUCKET_HALF_COUNT_MAGNITUDE = subBucketCountMagnitude - 1;
+        int subBucketCount = 1 << subBucketCountMagnitude;
+        SUB_BUCKET_HALF_COUNT = subBucketCount / 2;
+        SUB_BUCKET_MASK = subBucketCount - 1;
+        LEADING_ZERO_COUNT_BASE = 64 - SUB_BUCKET_HALF_COUNT_MAGNITUDE - 1;
+
+        long smallestUntrackableValue = subBucketCount;
+        int bucketCount = 1;
+        while (smallestUntrackableValue <= HIGHEST_TRACKABLE_VALUE) {
+            smallestUntrackableValue <<= 1;
+            bucketCount++;
+        }
+        COUNTS_ARRAY_LENGTH = (bucketCount + 1) * SUB_BUCKET_HALF_COUNT;
+        CHUNK_COUNT = bucketCount + 1;
+    }
+
+    /**
+     * Counts by counts array index of HdrHistogram, in chunks of {@link #SUB_BUCKET_HALF_COUNT} counts, null for
+     * chunks without values.
+     */
+    private final long[][] countChunks = new long[CHUNK_COUNT][];
+
+    private long totalCount;
+
+    private long minValue = Long.MAX_VALUE;
+
+    private long maxValue;
+
+    /**
+     * Timestamp of the first recorded value in milliseconds.
+     */
+    private long startTimeStamp;
+
+    /**
+     * Timestamp of the last recorded value in milliseconds.
+     */
+    private long endTimeStamp;
+
+    /**
+     * Records a latency.
+     *
+     * @param value The latency in nanoseconds. Negative values, caused by clocks being out of sync, are recorded as
+     *              0.
+     */
+    public synchronized void recordValue(long value) {
+        long trackedValue = Math.min(Math.max(value, 0), HIGHEST_TRACKABLE_VALUE);
+        int index = countsArrayIndex(trackedValue);
+        long[] chunk = countChunks[index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE];
+        if (null == chunk) {
+            chunk = new long[SUB_BUCKET_HALF_COUNT];
+            countChunks[index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE] = chunk;
+        }
+        chunk[index & (SUB_BUCKET_HALF_COUNT - 1)]++;
+        totalCount++;
+        minValue = Math.min(minValue, trackedValue);
+        maxValue = Math.max(maxValue, trackedValue);
+    }
+
+    /**
+     * Records a latency, correcting for coordinated omission. When a latency is larger than the expected interval
+     * between messages, the messages which would have been sent while the sender was held back are recorded as well,
+     * each with a latency smaller by the interval.
+     *
+     * @param value            The latency in nanoseconds.
+     * @param expectedInterval The expected interval between messages in nanoseconds, or 0 to record the latency only.
+     */
+    public synchronized void recordValueWithExpectedInterval(long value, long expectedInterval) {
+        recordValue(value);
+        if (0 >= expectedInterval) {
+            return;
+        }
+        for (long missingValue = value - expectedInterval; missingValue >= expectedInterval;
+             missingValue -= expectedInterval) {
+            recordValue(missingValue);
+        }
+    }
+
+    /**
+     * Sets the time span of the recorded values.
+     *
+     * @param startTimeStamp Timestamp of the first recorded value in milliseconds.
+     * @param endTimeStamp   Timestamp of the last recorded value in milliseconds.
+     */
+    public synchronized void setTimeStamps(long startTimeStamp, long endTimeStamp) {
+        this.startTimeStamp = startTimeStamp;
+        this.endTimeStamp = endTimeStamp;
+    }
+
+    /**
+     * Adds the values recorded by another histogram to this histogram.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        LatencyHistogram copy = other.copy();
+        synchronized (this) {
+            for (int i = 0; i < CHUNK_COUNT; i++) {
+                if (null == copy.countChunks[i]) {
+                    continue;
+                }
+                if (null == countChunks[i]) {
+                    countChunks[i] = copy.countChunks[i];
+                } else {
+                    for (int j = 0; j < SUB_BUCKET_HALF_COUNT; j++) {
+                        countChunks[i][j] += copy.countChunks[i][j];
+                    }
+                }
+            }
+            if (0 < copy.totalCount) {
+                minValue = Math.min(minValue, copy.minValue);
+                maxValue = Math.max(maxValue, copy.maxValue);
+            }
+            totalCount += copy.totalCount;
+            if (0 != copy.startTimeStamp && (0 == startTimeStamp || copy.startTimeStamp < startTimeStamp)) {
+                startTimeStamp = copy.startTimeStamp;
+            }
+            endTimeStamp = Math.max(endTimeStamp, copy.endTimeStamp);
+        }
+    }
+
+    /**
+     * Copies the histogram.
+     *
+     * @return A histogram with the values recorded so far.
+     */
+    public synchronized LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            if (null != countChunks[i]) {
+                copy.countChunks[i] = countChunks[i].clone();
+            }
+        }
+        copy.totalCount = totalCount;
+        copy.minValue = minValue;
+        copy.maxValue = maxValue;
+        copy.startTimeStamp = startTimeStamp;
+        copy.endTimeStamp = endTimeStamp;
+        return copy;
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public synchronized void reset() {
+        Arrays.fill(countChunks, null);
+        totalCount = 0;
+        minValue = Long.MAX_VALUE;
+        maxValue = 0;
+        startTimeStamp = 0;
+        endTimeStamp = 0;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return The number of recorded values.
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Gets the value at a percentile, as the highest value equivalent to the recorded value at the percentile.
+     *
+     * @param percentile The percentile, e.g. 99.9.
+     * @return The latency in nanoseconds, or 0 if no values are recorded.
+     */
+    public synchronized long getValueAtPercentile(double percentile) {
+        double requestedPercentile = Math.min(Math.max(percentile, 0D), 100D);
+        long countAtPercentile = Math.max((long) (((requestedPercentile / 100D) * totalCount) + 0.5D), 1);
+        long count = 0;
+        for (int i = 0; i < COUNTS_ARRAY_LENGTH; i++) {
+            count += getCount(i);
+            if (count >= countAtPercentile) {
+                long valueAtIndex = valueFromIndex(i);
+                return (0D == percentile) ? valueAtIndex : highestEquivalentValue(valueAtIndex);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the lowest recorded value.
+     *
+     * @return The latency in nanoseconds, or 0 if no values are recorded.
+     */
+    public synchronized long getMinValue() {
+        return (0 == totalCount) ? 0 : minValue;
+    }
+
+    /**
+     * Gets the highest recorded value, as the highest value equivalent to it.
+     *
+     * @return The latency in nanoseconds, or 0 if no values are recorded.
+     */
+    public synchronized long getMaxValue() {
+        return (0 == totalCount) ? 0 : highestEquivalentValue(maxValue);
+    }
+
+    /**
+     * Gets the mean of the recorded values, each value taken as the middle of its equivalent range.
+     *
+     * @return The mean latency in nanoseconds, or 0 if no values are recorded.
+     */
+    public synchronized double getMean() {
+        if (0 == totalCount) {
+            return 0D;
+        }
+        double total = 0D;
+        for (int i = 0; i < COUNTS_ARRAY_LENGTH; i++) {
+            long count = getCount(i);
+            if (0 != count) {
+                long value = valueFromIndex(i);
+                total += count * (double) (value + (sizeOfEquivalentValueRange(value) >> 1));
+            }
+        }
+        return total / totalCount;
+    }
+
+    public synchronized long getStartTimeStamp() {
+        return startTimeStamp;
+    }
+
+    public synchronized long getEndTimeStamp() {
+        return endTimeStamp;
+    }
+
+    /**
+     * Encodes the histogram in the compressed format of HdrHistogram, which is used in its interval logs.
+     *
+     * @return The compressed histogram.
+     */
+    public synchronized byte[] encodeCompressed() {
+        int countsLimit = (0 == totalCount) ? 0 : countsArrayIndex(maxValue) + 1;
+        // Each count takes at most 9 bytes in ZigZag LEB128 encoding
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODING_HEADER_SIZE + countsLimit * 9);
+        buffer.position(ENCODING_HEADER_SIZE);
+        int index = 0;
+        while (index < countsLimit) {
+            long count = getCount(index++);
+            int zerosCount = 0;
+            if (0 == count) {
+                zerosCount = 1;
+                while (index < countsLimit && 0 == getCount(index)) {
+                    zerosCount++;
+                    index++;
+                }
+            }
+            putZigZagLong(buffer, (1 < zerosCount) ? -zerosCount : count);
+        }
+        int payloadLength = buffer.position() - ENCODING_HEADER_SIZE;
+        buffer.putInt(0, ENCODING_COOKIE);
+        buffer.putInt(4, payloadLength);
+        // Normalizing index offset
+        buffer.putInt(8, 0);
+        buffer.putInt(12, SIGNIFICANT_DIGITS);
+        buffer.putLong(16, LOWEST_DISCERNIBLE_VALUE);
+        buffer.putLong(24, HIGHEST_TRACKABLE_VALUE);
+        // Integer to double value conversion ratio
+        buffer.putDouble(32, 1D);
+
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(buffer.array(), 0, buffer.position());
+            deflater.finish();
+            byte[] compressed = new byte[8 + buffer.position() + 64];
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressed.length - 8) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                compressedLength += deflater.deflate(compressed, 8 + compressedLength,
+                        compressed.length - 8 - compressedLength);
+            }
+            ByteBuffer header = ByteBuffer.wrap(compressed);
+            header.putInt(COMPRESSED_ENCODING_COOKIE);
+            header.putInt(compressedLength);
+            return Arrays.copyOf(compressed, 8 + compressedLength);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private long getCount(int index) {
+        long[] chunk = countChunks[index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE];
+        return (null == chunk) ? 0 : chunk[index & (SUB_BUCKET_HALF_COUNT - 1)];
+    }
+
+    private static void putZigZagLong(ByteBuffer buffer, long value) {
+        long zigZagValue = (value << 1) ^ (value >> 63);
+        while (0 != (zigZagValue & ~0x7FL)) {
+            buffer.put((byte) ((zigZagValue & 0x7F) | 0x80));
+            zigZagValue >>>= 7;
+        }
+        buffer.put((byte) zigZagValue);
+    }
+
+    private static int countsArrayIndex(long value) {
+        int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+
+    private static long valueFromIndex(int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (0 > bucketIndex) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex) << bucketIndex;
+    }
+
+    private static long sizeOfEquivalentValueRange(long value) {
+        int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+        return 1L << bucketIndex;
+    }
+
+    private static long highestEquivalentValue(long value) {
+        int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+        long lowestEquivalentValue = (value >>> bucketIndex) << bucketIndex;
+        return lowestEquivalentValue + sizeOfEquivalentValueRange(value) - 1;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Writes {@link LatencyHistogram}s to a file in the interval log format of HdrHistogram (version 1.3), which can be
+ * read by its HistogramLogReader and plotted or compared with its tools. Latencies are recorded in nanoseconds and
+ * the maximum of each interval is written in milliseconds, as done by HdrHistogram.
+ */
+public class LatencyHistogramLogWriter implements Closeable {
+    /**
+     * Ratio of the recorded values to the unit of the maximum value of an interval.
+     */
+    private static final double MAX_VALUE_UNIT_RATIO = 1000000D;
+
+    /**
+     * Alphabet of the base64 encoding (RFC 4648) of the compressed histograms.
+     */
+    private static final char[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private final PrintWriter printWriter;
+
+    /**
+     * Timestamp the interval start times are relative to, in milliseconds.
+     */
+    private final long baseTimeStamp;
+
+    /**
+     * Creates a log file and writes its header.
+     *
+     * @param filePath      The file path to write to.
+     * @param baseTimeStamp Timestamp the interval start times are relative to, in milliseconds, usually the time the
+     *                      test started.
+     * @throws IOException Thrown when the file cannot be written.
+     */
+    public LatencyHistogramLogWriter(String filePath, long baseTimeStamp) throws IOException {
+        this.printWriter = new PrintWriter(new FileWriter(filePath));
+        this.baseTimeStamp = baseTimeStamp;
+        printWriter.println("#[Histogram log format version 1.3]");
+        printWriter.println(String.format(Locale.US, "#[StartTime: %.3f (seconds since epoch), %s]",
+                baseTimeStamp / 1000D, new Date(baseTimeStamp)));
+        printWriter.println(String.format(Locale.US, "#[BaseTime: %.3f (seconds since epoch)]", baseTimeStamp / 1000D));
+        printWriter.println("\"StartTimestamp\",\"Interval_Length\",\"Interval_Max\","
+                            + "\"Interval_Compressed_Histogram\"");
+    }
+
+    /**
+     * Writes a histogram as an interval spanning the time stamps of the histogram.
+     *
+     * @param tag       The tag of the interval, e.g. to tell apart raw and corrected latencies, or null.
+     * @param histogram The histogram.
+     * @throws IOException Thrown when the file cannot be written.
+     */
+    public void writeInterval(String tag, LatencyHistogram histogram) throws IOException {
+        LatencyHistogram copy = histogram.copy();
+        long startTimeStamp = (0 == copy.getStartTimeStamp()) ? baseTimeStamp : copy.getStartTimeStamp();
+        long endTimeStamp = Math.max(startTimeStamp, copy.getEndTimeStamp());
+        String line = String.format(Locale.US, "%.3f,%.3f,%.3f,%s",
+                (startTimeStamp - baseTimeStamp) / 1000D, (endTimeStamp - startTimeStamp) / 1000D,
+                copy.getMaxValue() / MAX_VALUE_UNIT_RATIO,
+                encodeBase64(copy.encodeCompressed()));
+        printWriter.println((null != tag) ? "Tag=" + tag + "," + line : line);
+        if (printWriter.checkError()) {
+            throw new IOException("Error while writing latency histogram log");
+        }
+    }
+
+    /**
+     * Encodes bytes in base64 (RFC 4648) with padding and without line breaks, as read by HistogramLogReader.
+     *
+     * @param bytes The bytes to encode.
+     * @return The encoded bytes.
+     */
+    static String encodeBase64(byte[] bytes) {
+        StringBuilder encoded = new StringBuilder(((bytes.length + 2) / 3) * 4);
+        for (int i = 0; i < bytes.length; i += 3) {
+            int remaining = bytes.length - i;
+            int group = (bytes[i] & 0xFF) << 16;
+            if (remaining > 1) {
+                group |= (bytes[i + 1] & 0xFF) << 8;
+            }
+            if (remaining > 2) {
+                group |= bytes[i + 2] & 0xFF;
+            }
+            encoded.append(BASE64_ALPHABET[(group >> 18) & 0x3F]);
+            encoded.append(BASE64_ALPHABET[(group >> 12) & 0x3F]);
+            encoded.append((remaining > 1) ? BASE64_ALPHABET[(group >> 6) & 0x3F] : '=');
+            encoded.append((remaining > 2) ? BASE64_ALPHABET[group & 0x3F] : '=');
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        printWriter.close();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative message identifiers kept as one bit per identifier. The bits are held in pages of primitive
+ * longs which are allocated when the first identifier of their range is added, so that memory scales with the range
+ * of the identifiers, at an eighth of a byte per identifier, and not with the number of boxed identifiers.
+ */
+public class MessageIdentifierBitmap {
+    /**
+     * Number of bits of the identifiers within a page.
+     */
+    private static final int PAGE_SHIFT = 16;
+
+    /**
+     * Number of longs of a page.
+     */
+    private static final int PAGE_LENGTH = (1 << PAGE_SHIFT) >>> 6;
+
+    private static final long PAGE_MASK = (1L << PAGE_SHIFT) - 1L;
+
+    /**
+     * Pages by the identifier range they hold, null for ranges without identifiers.
+     */
+    private long[][] pages = new long[16][];
+
+    /**
+     * Index of the first page which has not been released.
+     */
+    private int firstPageIndex = 0;
+
+    /**
+     * Number of identifiers in the set.
+     */
+    private long cardinality = 0L;
+
+    /**
+     * The largest identifier in the set, -1 if the set is empty.
+     */
+    private long maximum = -1L;
+
+    /**
+     * Adds an identifier to the set.
+     *
+     * @param identifier The identifier.
+     * @return true if the identifier was not in the set, false otherwise.
+     */
+    public boolean add(long identifier) {
+        if (0L > identifier) {
+            throw new IllegalArgumentException("Message identifier cannot be negative : " + identifier);
+        }
+        int pageIndex = (int) (identifier >>> PAGE_SHIFT);
+        if (pageIndex >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pageIndex + 1, pages.length * 2));
+        }
+        long[] page = pages[pageIndex];
+        if (null == page) {
+            page = new long[PAGE_LENGTH];
+            pages[pageIndex] = page;
+        }
+        int wordIndex = (int) ((identifier & PAGE_MASK) >>> 6);
+        long bit = 1L << identifier;
+        if (0L != (page[wordIndex] & bit)) {
+            return false;
+        }
+        page[wordIndex] |= bit;
+        cardinality++;
+        maximum = Math.max(maximum, identifier);
+        return true;
+    }
+
+    /**
+     * Checks whether an identifier is in the set.
+     *
+     * @param identifier The identifier.
+     * @return true if the identifier is in the set, false otherwise.
+     */
+    public boolean contains(long identifier) {
+        if (0L > identifier || identifier > maximum) {
+            return false;
+        }
+        long[] page = pages[(int) (identifier >>> PAGE_SHIFT)];
+        return null != page && 0L != (page[(int) ((identifier & PAGE_MASK) >>> 6)] & (1L << identifier));
+    }
+
+    /**
+     * Gets the smallest identifier in the set which is greater than or equal to an identifier.
+     *
+     * @param fromIdentifier The identifier to start from.
+     * @return The identifier, -1 if there is none.
+     */
+    public long nextIdentifier(long fromIdentifier) {
+        long identifier = Math.max(0L, fromIdentifier);
+        while (identifier <= maximum) {
+            long[] page = pages[(int) (identifier >>> PAGE_SHIFT)];
+            if (null == page) {
+                identifier = ((identifier >>> PAGE_SHIFT) + 1L) << PAGE_SHIFT;
+                continue;
+            }
+            int wordIndex = (int) ((identifier & PAGE_MASK) >>> 6);
+            long word = page[wordIndex] & (-1L << identifier);
+            while (0L == word && ++wordIndex < PAGE_LENGTH) {
+                word = page[wordIndex];
+            }
+            long pageStart = identifier & ~PAGE_MASK;
+            if (0L != word) {
+                return pageStart + ((long) wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            identifier = pageStart + (1L << PAGE_SHIFT);
+        }
+        return -1L;
+    }
+
+    /**
+     * Releases the pages of which all identifiers are less than an identifier, removing their identifiers from the
+     * set. Identifiers of released pages must not be added again.
+     *
+     * @param identifier The identifier.
+     */
+    public void releaseBelow(long identifier) {
+        int pageIndex = (int) Math.min(identifier >>> PAGE_SHIFT, pages.length);
+        for (; firstPageIndex < pageIndex; firstPageIndex++) {
+            long[] page = pages[firstPageIndex];
+            if (null != page) {
+                for (long word : page) {
+                    cardinality -= Long.bitCount(word);
+                }
+                pages[firstPageIndex] = null;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of identifiers in the set.
+     *
+     * @return The number of identifiers.
+     */
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Gets the largest identifier in the set.
+     *
+     * @return The identifier, -1 if the set is empty.
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+}
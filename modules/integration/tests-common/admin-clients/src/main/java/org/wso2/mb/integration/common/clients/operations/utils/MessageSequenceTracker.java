@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies the sequences of the messages received by the consumers of a client while they are received, from the
+ * publisher ID and sequence number set as message properties by publishers configured to publish sequence headers.
+ * Duplicates, gaps and reorderings are logged and counted as they are detected, so that they are known without
+ * writing received messages to a file.
+ * <p>
+ * Each publisher is tracked by the sequence below which all of its messages are received and the messages received
+ * ahead of that sequence, so that memory stays constant while messages arrive in order and scales with the range of
+ * outstanding sequences otherwise. Publishers are tracked independently, so that consumers receiving from different
+ * publishers do not contend. The verification is only valid when the consumers of the client receive every message
+ * of the publishers, as with the file based checks of {@link AndesClientOutputParser}.
+ */
+public class MessageSequenceTracker {
+    /**
+     * The logger used in logging information, warnings, errors and etc.
+     */
+    private static Logger log = Logger.getLogger(MessageSequenceTracker.class);
+
+    /**
+     * Sequences of the publishers by publisher ID.
+     */
+    private final ConcurrentMap<Long, PublisherSequence> publisherSequences =
+            new ConcurrentHashMap<Long, PublisherSequence>();
+
+    /**
+     * Number of messages received more than once which were not marked as redelivered.
+     */
+    private final AtomicLong duplicateCount = new AtomicLong(0L);
+
+    /**
+     * Number of messages received more than once which were marked as redelivered.
+     */
+    private final AtomicLong redeliveryCount = new AtomicLong(0L);
+
+    /**
+     * Number of messages received after a message with a higher sequence of the same publisher.
+     */
+    private final AtomicLong reorderCount = new AtomicLong(0L);
+
+    /**
+     * Number of times messages of a publisher were skipped.
+     */
+    private final AtomicLong gapCount = new AtomicLong(0L);
+
+    /**
+     * Records a received message.
+     *
+     * @param publisherID The ID of the publisher of the message.
+     * @param sequence    The sequence of the message among the messages of the publisher, starting from 0.
+     * @param redelivered Whether the message is marked as redelivered.
+     */
+    public void recordMessage(long publisherID, long sequence, boolean redelivered) {
+        PublisherSequence publisherSequence = publisherSequences.get(publisherID);
+        if (null == publisherSequence) {
+            PublisherSequence newPublisherSequence = new PublisherSequence();
+            publisherSequence = publisherSequences.putIfAbsent(publisherID, newPublisherSequence);
+            if (null == publisherSequence) {
+                publisherSequence = newPublisherSequence;
+            }
+        }
+
+        long highestSequence = publisherSequence.record(sequence);
+        if (PublisherSequence.DUPLICATE == highestSequence) {
+            if (redelivered) {
+                redeliveryCount.incrementAndGet();
+            } else {
+                duplicateCount.incrementAndGet();
+                log.warn("Duplicate message " + sequence + " of publisher " + Long.toHexString(publisherID));
+            }
+        } else if (sequence < highestSequence) {
+            reorderCount.incrementAndGet();
+            log.warn("Message " + sequence + " of publisher " + Long.toHexString(publisherID) +
+                     " received after message " + highestSequence);
+        } else if (sequence > highestSequence + 1L) {
+            gapCount.incrementAndGet();
+            log.warn("Messages " + (highestSequence + 1L) + " to " + (sequence - 1L) + " of publisher " +
+                     Long.toHexString(publisherID) + " skipped by message " + sequence);
+        }
+    }
+
+    /**
+     * Gets the number of publishers from which messages were received.
+     *
+     * @return The number of publishers.
+     */
+    public int getPublisherCount() {
+        return publisherSequences.size();
+    }
+
+    /**
+     * Gets the number of messages received more than once without being marked as redelivered.
+     *
+     * @return The number of duplicates.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    /**
+     * Gets the number of messages received more than once which were marked as redelivered, such as after a
+     * rollback or a recovery.
+     *
+     * @return The number of redeliveries.
+     */
+    public long getRedeliveryCount() {
+        return redeliveryCount.get();
+    }
+
+    /**
+     * Gets the number of messages received after a message with a higher sequence of the same publisher.
+     *
+     * @return The number of reordered messages.
+     */
+    public long getReorderCount() {
+        return reorderCount.get();
+    }
+
+    /**
+     * Gets the number of times messages of a publisher were skipped, whether they were received later or not.
+     *
+     * @return The number of gaps.
+     */
+    public long getGapCount() {
+        return gapCount.get();
+    }
+
+    /**
+     * Gets the number of messages which are not received yet though a message with a higher sequence of the same
+     * publisher is.
+     *
+     * @return The number of missing messages.
+     */
+    public long getMissingMessageCount() {
+        long missingMessageCount = 0L;
+        for (PublisherSequence publisherSequence : publisherSequences.values()) {
+            missingMessageCount += publisherSequence.getMissingMessageCount();
+        }
+        return missingMessageCount;
+    }
+
+    /**
+     * Checks whether all messages were received once and in order so far.
+     *
+     * @return true if no duplicates, reorderings or gaps were detected, false otherwise.
+     */
+    public boolean isInSequence() {
+        return 0L == duplicateCount.get() && 0L == reorderCount.get() && 0L == gapCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Publishers=" + getPublisherCount() + " Duplicates=" + getDuplicateCount() + " Redeliveries=" +
+               getRedeliveryCount() + " Reorders=" + getReorderCount() + " Gaps=" + getGapCount() + " Missing=" +
+               getMissingMessageCount();
+    }
+
+    /**
+     * The received sequences of a publisher.
+     */
+    private static class PublisherSequence {
+        private static final long DUPLICATE = -2L;
+
+        /**
+         * The sequence below which all messages are received.
+         */
+        private long nextSequence = 0L;
+
+        /**
+         * The highest received sequence, -1 if none is received.
+         */
+        private long highestSequence = -1L;
+
+        /**
+         * Sequences above the next sequence which are received.
+         */
+        private final MessageIdentifierBitmap receivedAhead = new MessageIdentifierBitmap();
+
+        private long receivedAheadCount = 0L;
+
+        /**
+         * Records a received sequence.
+         *
+         * @param sequence The sequence.
+         * @return {@link #DUPLICATE} if the sequence was received before, otherwise the highest sequence received
+         * before it.
+         */
+        private synchronized long record(long sequence) {
+            if (sequence < nextSequence || receivedAhead.contains(sequence)) {
+                return DUPLICATE;
+            }
+            long previousHighestSequence = highestSequence;
+            highestSequence = Math.max(highestSequence, sequence);
+            if (sequence == nextSequence) {
+                nextSequence++;
+                while (0L < receivedAheadCount && receivedAhead.contains(nextSequence)) {
+                    nextSequence++;
+                    receivedAheadCount--;
+                }
+                receivedAhead.releaseBelow(nextSequence);
+            } else {
+                receivedAhead.add(sequence);
+                receivedAheadCount++;
+            }
+            return previousHighestSequence;
+        }
+
+        private synchronized long getMissingMessageCount() {
+            return highestSequence + 1L - nextSequence - receivedAheadCount;
+        }
+    }
+}
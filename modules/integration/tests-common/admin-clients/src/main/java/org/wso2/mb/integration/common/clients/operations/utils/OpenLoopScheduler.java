@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Schedules messages at a fixed rate against a timeline of intended send times, which is fixed when the schedule
+ * starts and does not shift when sending falls behind. The n-th message is intended to be sent n / rate seconds after
+ * the start, whatever the time taken to send the previous ones, so that latencies measured from the intended send
+ * times include the time messages waited behind a slow send instead of omitting it.
+ * <p>
+ * Waiting parks the thread until shortly before the intended send time and spins for the rest, which gives
+ * microsecond precision without sleeping for whole milliseconds. A message which is already late is not waited for,
+ * so that the publisher catches up by sending back to back.
+ */
+public class OpenLoopScheduler {
+    /**
+     * Remaining time below which the scheduler spins instead of parking, as parking may overshoot by tens of
+     * microseconds.
+     */
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final double nanosPerMessage;
+
+    private long startNanoTime;
+
+    private long scheduledMessageCount;
+
+    /**
+     * Creates a scheduler for a rate.
+     *
+     * @param messagesPerSecond The rate of messages per second.
+     */
+    public OpenLoopScheduler(double messagesPerSecond) {
+        if (0 >= messagesPerSecond) {
+            throw new IllegalArgumentException("Message rate must be greater than 0, but was " + messagesPerSecond);
+        }
+        this.nanosPerMessage = TimeUnit.SECONDS.toNanos(1) / messagesPerSecond;
+    }
+
+    /**
+     * Starts the timeline, intending the first message to be sent now.
+     */
+    public void start() {
+        this.startNanoTime = System.nanoTime();
+        this.scheduledMessageCount = 0;
+    }
+
+    /**
+     * Gets the intended send time of the next message without waiting for it.
+     *
+     * @return The intended send time of the next message, in terms of {@link System#nanoTime()}.
+     */
+    public long getNextSendTime() {
+        // Computed from the start rather than accumulated, so that rounding does not drift the rate
+        return startNanoTime + (long) (scheduledMessageCount * nanosPerMessage);
+    }
+
+    /**
+     * Waits until the intended send time of the next message.
+     *
+     * @return The intended send time of the next message, in terms of {@link System#nanoTime()}.
+     */
+    public long awaitNextSendTime() {
+        long intendedSendTime = getNextSendTime();
+        scheduledMessageCount++;
+        long remaining = intendedSendTime - System.nanoTime();
+        while (0 < remaining) {
+            if (SPIN_THRESHOLD_NANOS < remaining) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            }
+            remaining = intendedSendTime - System.nanoTime();
+        }
+        return intendedSendTime;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Provides the content of a payload file to bytes messages. The file is memory mapped once per JVM and shared by all
+ * publishers reading it, so that it is neither read nor decoded per publisher or per message. Payloads of any size
+ * are cut from the file, wrapping around to its start for payloads larger than the file.
+ * <p>
+ * As {@link BytesMessage} only takes byte arrays, payloads are copied from the mapped file through a transfer buffer
+ * of the publisher into the message, which is the only copy made on the client side.
+ */
+public class PayloadProvider {
+    /**
+     * Payload providers by canonical file path.
+     */
+    private static final ConcurrentMap<String, PayloadProvider> payloadProviders =
+            new ConcurrentHashMap<String, PayloadProvider>();
+
+    /**
+     * The read only memory mapped file, whose position is never changed, so that it can be duplicated concurrently.
+     */
+    private final ByteBuffer payload;
+
+    private PayloadProvider(String filePath) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filePath, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (0L == channel.size() || Integer.MAX_VALUE < channel.size()) {
+                throw new IOException("Payload file must have between 1 and " + Integer.MAX_VALUE + " bytes : "
+                                      + filePath);
+            }
+            // The mapping stays valid after the file is closed
+            payload = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()).asReadOnlyBuffer();
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Gets the payload provider of a file, mapping the file if it is not mapped yet.
+     *
+     * @param filePath The path of the payload file.
+     * @return The payload provider.
+     * @throws IOException Thrown when the file cannot be mapped.
+     */
+    public static PayloadProvider getPayloadProvider(String filePath) throws IOException {
+        String canonicalPath = new File(filePath).getCanonicalPath();
+        PayloadProvider payloadProvider = payloadProviders.get(canonicalPath);
+        if (null == payloadProvider) {
+            PayloadProvider newPayloadProvider = new PayloadProvider(canonicalPath);
+            payloadProvider = payloadProviders.putIfAbsent(canonicalPath, newPayloadProvider);
+            if (null == payloadProvider) {
+                payloadProvider = newPayloadProvider;
+            }
+        }
+        return payloadProvider;
+    }
+
+    /**
+     * Gets the size of the payload file.
+     *
+     * @return The number of bytes of the file.
+     */
+    public int getSize() {
+        return payload.capacity();
+    }
+
+    /**
+     * Gets a part of the payload file without copying it.
+     *
+     * @param offset The offset of the part in the file.
+     * @param length The number of bytes of the part.
+     * @return A read only buffer of the part.
+     */
+    public ByteBuffer getSlice(int offset, int length) {
+        ByteBuffer slice = payload.duplicate();
+        slice.limit(offset + length);
+        slice.position(offset);
+        return slice.slice();
+    }
+
+    /**
+     * Writes a payload of a size to a bytes message, cut from the start of the file and wrapping around to it.
+     *
+     * @param message        The message.
+     * @param size           The number of bytes of the payload.
+     * @param transferBuffer The buffer of the publisher through which the payload is written, in parts of its size.
+     * @throws JMSException Thrown when the message cannot be written.
+     */
+    public void writePayload(BytesMessage message, int size, byte[] transferBuffer) throws JMSException {
+        ByteBuffer source = payload.duplicate();
+        int remaining = size;
+        while (0 < remaining) {
+            if (!source.hasRemaining()) {
+                source.rewind();
+            }
+            int length = Math.min(Math.min(remaining, source.remaining()), transferBuffer.length);
+            source.get(transferBuffer, 0, length);
+            message.writeBytes(transferBuffer, 0, length);
+            remaining -= length;
+        }
+    }
+
+    /**
+     * Samples a payload size from a lognormal distribution, in which sizes are spread over orders of magnitude around
+     * the median with a long tail of large payloads, as payload sizes of real workloads usually are.
+     *
+     * @param random      The random number generator of the publisher.
+     * @param medianSize  The median size in bytes.
+     * @param sigma       The standard deviation of the logarithm of the size, 0 for the median size only.
+     * @param minimumSize The smallest size in bytes, to which smaller samples are raised.
+     * @param maximumSize The largest size in bytes, to which larger samples are lowered.
+     * @return The size in bytes.
+     */
+    public static int sampleLogNormalSize(Random random, int medianSize, double sigma, int minimumSize,
+                                          int maximumSize) {
+        double size = medianSize * Math.exp(sigma * random.nextGaussian());
+        return (int) Math.max(minimumSize, Math.min(maximumSize, Math.round(size)));
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Stores the contents of the messages received by consumers which do not write them to a file, in the order they are
+ * received. Unless contents are kept, only the SHA-256 digest of each content is stored, which is compared with
+ * {@link #digest(String)} of the expected content. A bounded number of entries is kept in memory and further entries
+ * are appended to a temporary spill file, from which they are read back lazily while iterating, so that large or
+ * many messages do not exhaust the heap of the test JVM.
+ */
+public class ReceivedMessageStore implements Iterable<String>, Closeable {
+    /**
+     * The logger used in logging information, warnings, errors and etc.
+     */
+    private static Logger log = Logger.getLogger(ReceivedMessageStore.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Whether message contents are stored instead of their digests.
+     */
+    private final boolean keepContents;
+
+    /**
+     * Number of entries kept in memory before entries are spilled to the file.
+     */
+    private final int maximumEntriesInMemory;
+
+    /**
+     * The first entries, up to the maximum number of entries in memory.
+     */
+    private final List<String> entriesInMemory = new ArrayList<String>();
+
+    /**
+     * The file further entries are appended to, created when the first entry is spilled.
+     */
+    private File spillFile;
+
+    /**
+     * The stream entries are appended to the spill file through, null while the file is closed.
+     */
+    private DataOutputStream spillOutputStream;
+
+    private long spilledEntryCount = 0L;
+
+    /**
+     * Creates a store.
+     *
+     * @param keepContents           true to store message contents, false to store their digests.
+     * @param maximumEntriesInMemory The number of entries kept in memory before entries are spilled to a file.
+     */
+    public ReceivedMessageStore(boolean keepContents, int maximumEntriesInMemory) {
+        this.keepContents = keepContents;
+        this.maximumEntriesInMemory = maximumEntriesInMemory;
+    }
+
+    /**
+     * Computes the digest stored for a message content.
+     *
+     * @param content The message content.
+     * @return The SHA-256 digest of the UTF-8 encoded content as a hexadecimal string.
+     */
+    public static String digest(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(UTF_8));
+            char[] hexDigest = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hexDigest[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+                hexDigest[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+            }
+            return new String(hexDigest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        }
+    }
+
+    /**
+     * Adds the content of a received message.
+     *
+     * @param content The message content.
+     * @throws IOException Thrown when the entry cannot be written to the spill file.
+     */
+    public void add(String content) throws IOException {
+        String entry = keepContents ? content : digest(content);
+        synchronized (this) {
+            if (entriesInMemory.size() < maximumEntriesInMemory) {
+                entriesInMemory.add(entry);
+                return;
+            }
+            if (null == spillOutputStream) {
+                if (null == spillFile) {
+                    spillFile = File.createTempFile("andes-received-messages", ".bin");
+                    spillFile.deleteOnExit();
+                    log.info("Spilling received messages to " + spillFile.getAbsolutePath());
+                }
+                spillOutputStream = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(spillFile, true)));
+            }
+            byte[] bytes = entry.getBytes(UTF_8);
+            spillOutputStream.writeInt(bytes.length);
+            spillOutputStream.write(bytes);
+            spilledEntryCount++;
+        }
+    }
+
+    /**
+     * Gets the number of stored entries.
+     *
+     * @return The number of entries.
+     */
+    public synchronized long size() {
+        return entriesInMemory.size() + spilledEntryCount;
+    }
+
+    /**
+     * Gets whether message contents are stored instead of their digests.
+     *
+     * @return true if contents are stored, false if digests are stored.
+     */
+    public boolean isKeepContents() {
+        return keepContents;
+    }
+
+    /**
+     * Iterates the entries stored so far in the order they were added, reading spilled entries from the file in
+     * batches as they are reached. The file is only open while a batch is read, so that an iterator which is not
+     * iterated to the end does not leave it open.
+     *
+     * @return The iterator of the entries.
+     */
+    @Override
+    public synchronized Iterator<String> iterator() {
+        if (null != spillOutputStream) {
+            try {
+                spillOutputStream.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException("Error flushing received messages to " + spillFile, e);
+            }
+        }
+        return new EntryIterator(entriesInMemory.size(), spilledEntryCount);
+    }
+
+    /**
+     * Reads all stored entries into a list.
+     *
+     * @return The entries.
+     */
+    public List<String> toList() {
+        List<String> entries = new ArrayList<String>();
+        for (String entry : this) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Closes the spill file, which is reopened if further entries are added. The file is deleted when the JVM exits.
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (null != spillOutputStream) {
+            spillOutputStream.close();
+            spillOutputStream = null;
+        }
+    }
+
+    /**
+     * Iterates a snapshot of the entries, those in memory first.
+     */
+    private class EntryIterator implements Iterator<String> {
+        private final int entryCountInMemory;
+
+        private final long spilledEntryCount;
+
+        private int nextEntryIndexInMemory = 0;
+
+        private long readSpilledEntryCount = 0L;
+
+        /**
+         * The position in the spill file of the next batch of entries.
+         */
+        private long spillFilePosition = 0L;
+
+        /**
+         * The batch of spilled entries read last, which are returned before the next batch is read.
+         */
+        private final List<String> spilledEntries = new ArrayList<String>();
+
+        private int nextSpilledEntryIndex = 0;
+
+        private EntryIterator(int entryCountInMemory, long spilledEntryCount) {
+            this.entryCountInMemory = entryCountInMemory;
+            this.spilledEntryCount = spilledEntryCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextEntryIndexInMemory < entryCountInMemory || nextSpilledEntryIndex < spilledEntries.size()
+                   || readSpilledEntryCount < spilledEntryCount;
+        }
+
+        @Override
+        public String next() {
+            if (nextEntryIndexInMemory < entryCountInMemory) {
+                // The list may grow while it is iterated
+                synchronized (ReceivedMessageStore.this) {
+                    return entriesInMemory.get(nextEntryIndexInMemory++);
+                }
+            }
+            if (nextSpilledEntryIndex == spilledEntries.size()) {
+                if (readSpilledEntryCount >= spilledEntryCount) {
+                    throw new NoSuchElementException();
+                }
+                readSpilledEntries();
+            }
+            return spilledEntries.get(nextSpilledEntryIndex++);
+        }
+
+        /**
+         * Reads the next batch of spilled entries, as many as are kept in memory, closing the file afterwards.
+         */
+        private void readSpilledEntries() {
+            spilledEntries.clear();
+            nextSpilledEntryIndex = 0;
+            long batchSize = Math.min(Math.max(1, maximumEntriesInMemory), spilledEntryCount - readSpilledEntryCount);
+            try {
+                FileInputStream fileInputStream = new FileInputStream(spillFile);
+                try {
+                    fileInputStream.getChannel().position(spillFilePosition);
+                    DataInputStream spillInputStream = new DataInputStream(new BufferedInputStream(fileInputStream));
+                    for (long i = 0; i < batchSize; i++) {
+                        byte[] bytes = new byte[spillInputStream.readInt()];
+                        spillInputStream.readFully(bytes);
+                        spilledEntries.add(new String(bytes, UTF_8));
+                        spillFilePosition += 4 + bytes.length;
+                        readSpilledEntryCount++;
+                    }
+                } finally {
+                    fileInputStream.close();
+                }
+            } catch (EOFException e) {
+                throw new IllegalStateException("Received messages are missing in " + spillFile, e);
+            } catch (IOException e) {
+                throw new IllegalStateException("Error reading received messages from " + spillFile, e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Received messages cannot be removed");
+        }
+    }
+}
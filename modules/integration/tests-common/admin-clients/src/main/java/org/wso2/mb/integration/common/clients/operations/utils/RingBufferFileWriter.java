@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes lines to a file from any number of threads without blocking them on disk I/O. Lines are copied into the
+ * preallocated entries of a ring buffer, claimed by an atomic counter, and a single background thread drains the
+ * entries in claim order into a large buffered file writer, which is flushed periodically and on request.
+ * <p>
+ * Short lines are copied into character buffers owned by the entries, so that writing them allocates nothing once the
+ * buffers have grown to the line length. Longer lines, such as large message contents, are referenced instead. Writers
+ * are only held back when the ring buffer is full, until the background thread catches up.
+ * <p>
+ * The background thread backs off while there is nothing to write, and stops once the writer is closed. Every line
+ * written before {@link #close()} is written to the file, and lines written afterwards are refused.
+ */
+public class RingBufferFileWriter implements Closeable {
+    /**
+     * The logger used in logging information, warnings, errors and etc.
+     */
+    private static Logger log = Logger.getLogger(RingBufferFileWriter.class);
+
+    /**
+     * Number of entries in the ring buffer. A power of two.
+     */
+    private static final int CAPACITY = 8192;
+
+    /**
+     * Lines up to this length are copied into the entries.
+     */
+    private static final int MAX_COPIED_LINE_LENGTH = 1024;
+
+    /**
+     * Size of the buffer of the file writer.
+     */
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Interval at which written lines are flushed to the file.
+     */
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Time the background thread and held back writers wait before checking the ring buffer again.
+     */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Longest time the background thread waits while there is nothing to write. Held back writers wake it up.
+     */
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Bit of {@link #claimedSequence} set when the writer is closed, so that claiming a sequence and closing the
+     * writer are ordered by the same atomic variable.
+     */
+    private static final long CLOSED_BIT = Long.MIN_VALUE;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * An entry of the ring buffer.
+     */
+    private static class Entry {
+        /**
+         * Sequence of the line held by the entry. Written last by the writing thread, so that the line is visible to
+         * the background thread once the sequence is.
+         */
+        private volatile long sequence = -1;
+
+        private char[] chars;
+
+        private int length;
+
+        /**
+         * A line which is too long to be copied, null otherwise.
+         */
+        private String text;
+    }
+
+    private final String filePath;
+
+    private final Writer writer;
+
+    private final Entry[] entries = new Entry[CAPACITY];
+
+    /**
+     * Sequence of the next line to be written, along with {@link #CLOSED_BIT}.
+     */
+    private final AtomicLong claimedSequence = new AtomicLong();
+
+    /**
+     * Number of lines written to the file writer by the background thread.
+     */
+    private volatile long drainedSequence;
+
+    /**
+     * Number of lines flushed to the file.
+     */
+    private volatile long flushedSequence;
+
+    /**
+     * Number of lines which are requested to be flushed to the file.
+     */
+    private final AtomicLong flushRequestSequence = new AtomicLong();
+
+    /**
+     * Error which stopped the background thread, null while it is running.
+     */
+    private volatile IOException failure;
+
+    private final Thread drainer;
+
+    /**
+     * Creates a writer which writes to a new or truncated file.
+     *
+     * @param filePath The path of the file.
+     * @throws IOException Thrown when the file cannot be opened.
+     */
+    public RingBufferFileWriter(String filePath) throws IOException {
+        this(filePath, false);
+    }
+
+    /**
+     * Creates a writer which writes to a new file, or to an existing file which is either truncated or appended to.
+     *
+     * @param filePath The path of the file.
+     * @param append   true to append lines to an existing file, false to truncate it.
+     * @throws IOException Thrown when the file cannot be opened.
+     */
+    public RingBufferFileWriter(String filePath, boolean append) throws IOException {
+        this.filePath = filePath;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filePath, append)),
+                                         WRITE_BUFFER_SIZE);
+        for (int i = 0; i < CAPACITY; i++) {
+            entries[i] = new Entry();
+        }
+        drainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "RingBufferFileWriter-" + filePath);
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Writes a line.
+     *
+     * @param line The line without a line separator.
+     * @throws IOException Thrown when writing to the file has failed.
+     */
+    public void writeLine(String line) throws IOException {
+        long sequence = claim();
+        Entry entry = entries[(int) sequence & (CAPACITY - 1)];
+        if (line.length() <= MAX_COPIED_LINE_LENGTH) {
+            ensureCapacity(entry, line.length());
+            line.getChars(0, line.length(), entry.chars, 0);
+            entry.length = line.length();
+        } else {
+            entry.text = line;
+        }
+        entry.sequence = sequence;
+    }
+
+    /**
+     * Writes a line held in a buffer, which can be reused once the method returns.
+     *
+     * @param content The buffer holding the line without a line separator.
+     * @param length  Number of characters of the line in the buffer.
+     * @throws IOException Thrown when writing to the file has failed.
+     */
+    public void writeLine(char[] content, int length) throws IOException {
+        long sequence = claim();
+        Entry entry = entries[(int) sequence & (CAPACITY - 1)];
+        if (length <= MAX_COPIED_LINE_LENGTH) {
+            ensureCapacity(entry, length);
+            System.arraycopy(content, 0, entry.chars, 0, length);
+            entry.length = length;
+        } else {
+            entry.text = new String(content, 0, length);
+        }
+        entry.sequence = sequence;
+    }
+
+    /**
+     * Claims the next sequence, waiting for the background thread to drain its entry if the ring buffer is full.
+     * Every claimed sequence must be published by setting the sequence of its entry, as the background thread
+     * drains the entries in sequence order. No sequence is claimed once the writer is closed.
+     */
+    private long claim() throws IOException {
+        checkFailure();
+        long sequence;
+        do {
+            sequence = claimedSequence.get();
+            if (0 != (sequence & CLOSED_BIT)) {
+                throw new IOException("Writer of " + filePath + " is closed");
+            }
+        } while (!claimedSequence.compareAndSet(sequence, sequence + 1));
+        while (sequence - drainedSequence >= CAPACITY) {
+            checkFailure();
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return sequence;
+    }
+
+    private static void ensureCapacity(Entry entry, int length) {
+        if (null == entry.chars || entry.chars.length < length) {
+            entry.chars = new char[Math.max(length, 64)];
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (null != failure) {
+            throw new IOException("Writing to " + filePath + " has failed", failure);
+        }
+    }
+
+    /**
+     * Flushes all lines written before this call to the file, waiting until they are flushed.
+     *
+     * @throws IOException Thrown when writing to the file has failed.
+     */
+    public void flush() throws IOException {
+        long target = claimedSequence.get() & ~CLOSED_BIT;
+        long requested = flushRequestSequence.get();
+        while (requested < target && !flushRequestSequence.compareAndSet(requested, target)) {
+            requested = flushRequestSequence.get();
+        }
+        LockSupport.unpark(drainer);
+        while (flushedSequence < target && drainer.isAlive()) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Flushes all written lines and closes the file. Lines being written concurrently are either written to the file
+     * before it is closed or refused.
+     *
+     * @throws IOException Thrown when writing to the file has failed.
+     */
+    @Override
+    public void close() throws IOException {
+        long sequence = claimedSequence.get();
+        while (0 == (sequence & CLOSED_BIT) && !claimedSequence.compareAndSet(sequence, sequence | CLOSED_BIT)) {
+            sequence = claimedSequence.get();
+        }
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    /**
+     * Drains the ring buffer into the file writer until the writer is closed.
+     */
+    private void drain() {
+        long sequence = 0;
+        long lastFlushTime = System.nanoTime();
+        long idleParkNanos = PARK_NANOS;
+        try {
+            while (true) {
+                Entry entry = entries[(int) sequence & (CAPACITY - 1)];
+                if (entry.sequence == sequence) {
+                    if (null != entry.text) {
+                        writer.write(entry.text);
+                        entry.text = null;
+                    } else {
+                        writer.write(entry.chars, 0, entry.length);
+                    }
+                    writer.write(LINE_SEPARATOR);
+                    sequence++;
+                    drainedSequence = sequence;
+                    idleParkNanos = PARK_NANOS;
+                    long flushRequest = flushRequestSequence.get();
+                    if (flushRequest > flushedSequence && sequence >= flushRequest) {
+                        writer.flush();
+                        flushedSequence = sequence;
+                        lastFlushTime = System.nanoTime();
+                    }
+                    continue;
+                }
+
+                // Nothing left to write for now
+                long now = System.nanoTime();
+                if (sequence > flushedSequence
+                    && (flushRequestSequence.get() > flushedSequence || now - lastFlushTime >= FLUSH_INTERVAL_NANOS)) {
+                    writer.flush();
+                    flushedSequence = sequence;
+                    lastFlushTime = now;
+                } else if (claimedSequence.get() == (sequence | CLOSED_BIT)) {
+                    // Closed, and every line claimed before is written
+                    writer.close();
+                    flushedSequence = sequence;
+                    return;
+                } else {
+                    LockSupport.parkNanos(idleParkNanos);
+                    idleParkNanos = Math.min(idleParkNanos * 2, MAX_IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error while writing to " + filePath, e);
+            failure = e;
+            try {
+                writer.close();
+            } catch (IOException ignore) {
+                // The failure is already recorded
+            }
+        }
+    }
+}
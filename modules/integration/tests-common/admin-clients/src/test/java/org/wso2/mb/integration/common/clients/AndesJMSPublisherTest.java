@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+
+import javax.jms.Connection;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests committing the transactions of a transactional {@link AndesJMSPublisher}.
+ */
+public class AndesJMSPublisherTest {
+
+    @Test
+    public void testIdleTransactionIsCommittedWhenIntervalElapses() throws Exception {
+        AndesJMSPublisherClientConfiguration config = createTransactionalConfiguration(2);
+        config.setTransactionIntervalInMillis(50L);
+        config.setRunningDelay(500L);
+        List<String> events = publish(config);
+
+        // The first message is committed while waiting to send the second, and the second one when stopping
+        Assert.assertEquals(events, Arrays.asList("send", "commit", "send", "commit", "close"));
+    }
+
+    @Test
+    public void testOpenTransactionIsCommittedWhenStopping() throws Exception {
+        List<String> events = publish(createTransactionalConfiguration(3));
+
+        Assert.assertEquals(events, Arrays.asList("send", "send", "send", "commit", "close"));
+    }
+
+    private static AndesJMSPublisherClientConfiguration createTransactionalConfiguration(long messageCount)
+            throws Exception {
+        AndesJMSPublisherClientConfiguration config =
+                new AndesJMSPublisherClientConfiguration(ExchangeType.QUEUE, "transactionalQueue");
+        config.setNumberOfMessagesToSend(messageCount);
+        config.setTransactionalSession(true);
+        config.setTransactionBatchSize(100);
+        return config;
+    }
+
+    /**
+     * Publishes with a configuration through a session which records the messages sent, commits and closing.
+     */
+    private static List<String> publish(AndesJMSPublisherClientConfiguration config) throws Exception {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final TextMessage message = createProxy(TextMessage.class, events, null);
+        final MessageProducer sender = createProxy(MessageProducer.class, events, null);
+        Session session = createProxy(Session.class, events, new Object[]{message, sender});
+        Connection connection = createProxy(Connection.class, events, new Object[]{session});
+
+        AndesJMSPublisher publisher = new AndesJMSPublisher(config, false);
+        publisher.setConnection(connection);
+        publisher.setSession(session);
+        publisher.setSender(sender);
+        publisher.run();
+        return events;
+    }
+
+    /**
+     * Creates a JMS object recording sends, commits and closing of the session, returning one of the given results
+     * matching the return type of other methods, or else the default value of the return type.
+     */
+    private static <T> T createProxy(final Class<T> type, final List<String> events, final Object[] results) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (MessageProducer.class == type && "send".equals(method.getName())) {
+                    events.add("send");
+                } else if (Session.class == type && ("commit".equals(method.getName())
+                                                     || "close".equals(method.getName()))) {
+                    events.add(method.getName());
+                }
+                Class<?> returnType = method.getReturnType();
+                if (null != results) {
+                    for (Object result : results) {
+                        if (returnType.isInstance(result)) {
+                            return result;
+                        }
+                    }
+                }
+                if (boolean.class == returnType) {
+                    return Boolean.FALSE;
+                } else if (int.class == returnType) {
+                    return 0;
+                } else if (long.class == returnType) {
+                    return 0L;
+                }
+                return null;
+            }
+        }));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.loaddriver;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests running load scenarios on agents of the same JVM.
+ */
+public class LoadCoordinatorTest {
+    private static final int AGENT_COUNT = 2;
+
+    private final List<LoadAgent> agents = new ArrayList<LoadAgent>();
+
+    private LoadCoordinator coordinator;
+
+    @BeforeMethod
+    public void startAgents() throws IOException {
+        List<InetSocketAddress> agentAddresses = new ArrayList<InetSocketAddress>();
+        for (int i = 0; i < AGENT_COUNT; i++) {
+            final LoadAgent agent = new LoadAgent(0);
+            agents.add(agent);
+            agentAddresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), agent.getPort()));
+            Thread agentThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        agent.serve();
+                    } catch (IOException e) {
+                        // The agent is closed by the test
+                    }
+                }
+            });
+            agentThread.setDaemon(true);
+            agentThread.start();
+        }
+        coordinator = new LoadCoordinator(agentAddresses);
+    }
+
+    @AfterMethod
+    public void stopAgents() throws IOException {
+        coordinator.close();
+        for (LoadAgent agent : agents) {
+            agent.close();
+        }
+        agents.clear();
+    }
+
+    @Test
+    public void testScenarioRunsAfterAllAgentsFailedToPrepare() throws Exception {
+        // Consumers cannot be created without a broker
+        LoadScenario failingScenario = new LoadScenario();
+        failingScenario.addConsumers(new AndesJMSConsumerClientConfiguration(ExchangeType.QUEUE, "loadQueue"), 1);
+        try {
+            coordinator.run(failingScenario);
+            Assert.fail("Preparing consumers without a broker succeeded");
+        } catch (AndesClientException e) {
+            // Expected from every agent
+        }
+
+        // The responses of all agents were read, so that the next scenario runs on the same connections
+        LoadScenario emptyScenario = new LoadScenario();
+        emptyScenario.setStartDelayInMillis(0L);
+        LoadReport report = coordinator.run(emptyScenario);
+
+        Assert.assertEquals(report.getAgentCount(), AGENT_COUNT);
+        Assert.assertEquals(report.getSentMessageCount(), 0L);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.loaddriver;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.JMSHeaderPropertyType;
+import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.LatencyHistogram;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+
+/**
+ * Tests the classes a {@link LoadObjectInputStream} deserializes.
+ */
+public class LoadObjectInputStreamTest {
+
+    @Test
+    public void testScenarioIsDeserialized() throws Exception {
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(ExchangeType.QUEUE, "loadQueue");
+        publisherConfig.setJMSHeaderProperty("count", 10L, JMSHeaderPropertyType.LONG);
+        publisherConfig.setJMSHeaderProperty("name", "load", JMSHeaderPropertyType.STRING);
+        LoadScenario scenario = new LoadScenario();
+        scenario.addConsumers(new AndesJMSConsumerClientConfiguration(ExchangeType.QUEUE, "loadQueue"), 2);
+        scenario.addPublishers(publisherConfig, 3);
+
+        LoadScenario deserializedScenario = (LoadScenario) deserialize(scenario);
+
+        Assert.assertEquals(deserializedScenario.getThreadCounts(), scenario.getThreadCounts());
+        AndesJMSPublisherClientConfiguration deserializedPublisherConfig =
+                (AndesJMSPublisherClientConfiguration) deserializedScenario.getClientConfigurations().get(1);
+        Assert.assertEquals(deserializedPublisherConfig.getExchangeType(), ExchangeType.QUEUE);
+        Assert.assertEquals(deserializedPublisherConfig.getJMSHeaderProperties().get(0).getValue(), 10L);
+    }
+
+    @Test
+    public void testReportIsDeserialized() throws Exception {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        latencyHistogram.recordValue(1000L);
+        LoadReport report = new LoadReport(1, 5L, 4L, 100L, latencyHistogram, new LatencyHistogram(),
+                                           new LatencyHistogram(), new LatencyHistogram());
+
+        LoadReport deserializedReport = (LoadReport) deserialize(report);
+
+        Assert.assertEquals(deserializedReport.getReceivedMessageCount(), 4L);
+        Assert.assertEquals(deserializedReport.getLatencyHistogram().getTotalCount(), 1L);
+    }
+
+    @Test(expectedExceptions = InvalidClassException.class)
+    public void testOtherClassesAreRejected() throws Exception {
+        deserialize(new File("load"));
+    }
+
+    @Test(expectedExceptions = InvalidClassException.class)
+    public void testOtherClassesInClientObjectsAreRejected() throws Exception {
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(ExchangeType.QUEUE, "loadQueue");
+        publisherConfig.setJMSHeaderProperty("map", new HashMap<String, String>(), JMSHeaderPropertyType.OBJECT);
+        deserialize(publisherConfig);
+    }
+
+    private static Object deserialize(Object object) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return new LoadObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.mqtt.callback;
+
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests counting and saving the messages of a {@link CallbackHandler}.
+ */
+public class CallbackHandlerTest {
+
+    @Test
+    public void testMessagesAreCountedWithoutSaving() throws Exception {
+        CallbackHandler callbackHandler = new CallbackHandler();
+        callbackHandler.messageArrived("topic", new MqttMessage("first".getBytes()));
+        callbackHandler.messageArrived("topic", null);
+        callbackHandler.deliveryComplete(null);
+
+        Assert.assertEquals(callbackHandler.getReceivedMessageCount(), 1);
+        Assert.assertEquals(callbackHandler.getSentMessageCount(), 1);
+        Assert.assertTrue(callbackHandler.getReceivedMessages().isEmpty());
+    }
+
+    @Test
+    public void testMessagesAreSavedInOrder() throws Exception {
+        CallbackHandler callbackHandler = new CallbackHandler(true, 3);
+        MqttMessage first = new MqttMessage("first".getBytes());
+        MqttMessage second = new MqttMessage("second".getBytes());
+        callbackHandler.messageArrived("first/topic", first);
+        callbackHandler.messageArrived("second/topic", second);
+
+        List<MqttMessage> receivedMessages = callbackHandler.getReceivedMessages();
+        Assert.assertEquals(receivedMessages.size(), 2);
+        Assert.assertSame(receivedMessages.get(0), first);
+        Assert.assertSame(receivedMessages.get(1), second);
+        Assert.assertEquals(callbackHandler.getLastTopicReceived(), "second/topic");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = ".*capacity.*")
+    public void testGettingMessagesFailsWhenCaptureCapacityIsExceeded() throws Exception {
+        CallbackHandler callbackHandler = new CallbackHandler(true, 2);
+        for (int i = 0; i < 3; i++) {
+            callbackHandler.messageArrived("topic", new MqttMessage(("message " + i).getBytes()));
+        }
+
+        Assert.assertEquals(callbackHandler.getReceivedMessageCount(), 3);
+        callbackHandler.getReceivedMessages();
+    }
+
+    @Test
+    public void testMessagesArrivingConcurrentlyAreAllCountedAndSaved() throws Exception {
+        final int threadCount = 4;
+        final int messagesPerThread = 1000;
+        final CallbackHandler callbackHandler = new CallbackHandler(true, threadCount * messagesPerThread);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int j = 0; j < messagesPerThread; j++) {
+                            callbackHandler.messageArrived("topic", new MqttMessage(new byte[0]));
+                            callbackHandler.deliveryComplete(null);
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(callbackHandler.getReceivedMessageCount(), threadCount * messagesPerThread);
+        Assert.assertEquals(callbackHandler.getSentMessageCount(), threadCount * messagesPerThread);
+        Assert.assertEquals(callbackHandler.getReceivedMessages().size(), threadCount * messagesPerThread);
+    }
+}
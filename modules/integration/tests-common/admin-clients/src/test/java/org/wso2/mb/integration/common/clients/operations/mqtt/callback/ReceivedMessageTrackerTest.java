@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.mqtt.callback;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests waiting for received messages with a {@link ReceivedMessageTracker}.
+ */
+public class ReceivedMessageTrackerTest {
+
+    @Test
+    public void testWaitCompletesWhenAwaitedMessageArrives() throws Exception {
+        final ReceivedMessageTracker tracker = new ReceivedMessageTracker();
+        final int messageCount = 1000;
+        Thread receivingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < messageCount; i++) {
+                    tracker.messageReceived();
+                }
+            }
+        });
+        receivingThread.start();
+
+        Assert.assertTrue(tracker.awaitMessageCount(messageCount, 10L, TimeUnit.SECONDS));
+        receivingThread.join();
+        Assert.assertEquals(tracker.getReceivedMessageCount(), messageCount);
+        Assert.assertEquals(tracker.getCompletedMessageCount(), messageCount);
+        Assert.assertTrue(tracker.getFirstMessageReceivedTime() <= tracker.getCompletionTime());
+        Assert.assertTrue(tracker.getCompletionTime() <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void testWaitCompletesForMessagesReceivedBefore() throws Exception {
+        ReceivedMessageTracker tracker = new ReceivedMessageTracker();
+        tracker.messageReceived();
+        tracker.messageReceived();
+
+        Assert.assertTrue(tracker.awaitMessageCount(1, 0L, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(tracker.getCompletedMessageCount(), 2);
+        Assert.assertEquals(tracker.getCompletionTime(), tracker.getLastMessageReceivedTime());
+    }
+
+    @Test
+    public void testWaitTimesOutWithoutAwaitedMessage() throws Exception {
+        ReceivedMessageTracker tracker = new ReceivedMessageTracker();
+        tracker.messageReceived();
+
+        Assert.assertFalse(tracker.awaitMessageCount(2, 50L, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(tracker.getCompletionTime(), -1L);
+        Assert.assertEquals(tracker.getCompletedMessageCount(), 0);
+
+        // Arrivals after the wait timed out do not complete it
+        tracker.messageReceived();
+        Assert.assertEquals(tracker.getCompletionTime(), -1L);
+    }
+
+    @Test
+    public void testIdleWaitLastsUntilMessagesStop() throws Exception {
+        final ReceivedMessageTracker tracker = new ReceivedMessageTracker();
+        Thread receivingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 5; i++) {
+                        tracker.messageReceived();
+                        Thread.sleep(40L);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        long startTime = System.currentTimeMillis();
+        receivingThread.start();
+
+        tracker.awaitIdle(100L);
+
+        receivingThread.join();
+        Assert.assertEquals(tracker.getCompletedMessageCount(), 5);
+        Assert.assertEquals(tracker.getCompletionTime(), tracker.getLastMessageReceivedTime());
+        Assert.assertTrue(tracker.getLastMessageReceivedTime() + 100L <= System.currentTimeMillis());
+        Assert.assertTrue(startTime + 260L <= System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests evaluating files of received messages with an {@link AndesClientOutputParser}.
+ */
+public class AndesClientOutputParserTest {
+
+    @Test
+    public void testMessagesInOrderAreEvaluated() throws IOException {
+        AndesClientOutputParser parser = new AndesClientOutputParser(writeReceivedMessages(0, 1, 2, 1500));
+
+        Assert.assertFalse(parser.checkIfMessagesAreInOrder());
+        Assert.assertEquals(parser.numberDuplicatedMessages(), 0L);
+        Assert.assertTrue(parser.getDuplicatedMessages().isEmpty());
+
+        parser = new AndesClientOutputParser(writeReceivedMessages(0, 1, 2, 3));
+        Assert.assertTrue(parser.checkIfMessagesAreInOrder());
+    }
+
+    @Test
+    public void testDuplicatedMessagesAreCounted() throws IOException {
+        AndesClientOutputParser parser = new AndesClientOutputParser(writeReceivedMessages(0, 1, 1, 2, 1, 1234));
+
+        Assert.assertEquals(parser.numberDuplicatedMessages(), 2L);
+        Map<Long, Integer> duplicatedMessages = parser.getDuplicatedMessages();
+        Assert.assertEquals(duplicatedMessages, Collections.singletonMap(1L, 3));
+    }
+
+    @Test
+    public void testRedeliveriesOfFirstMessageAreFound() throws IOException {
+        AndesClientOutputParser parser = new AndesClientOutputParser(writeReceivedMessages(0, 1, 0, 1));
+
+        Assert.assertTrue(parser.transactedOperations(0L));
+        Assert.assertTrue(parser.transactedOperations(2L));
+        Assert.assertFalse(parser.transactedOperations(3L));
+    }
+
+    @Test
+    public void testRolledBackBatchesAreEvaluated() throws IOException {
+        String preservingFilePath = writeReceivedMessages(0, 1, 0, 1, 0, 1);
+        String breakingFilePath = writeReceivedMessages(0, 1, 1, 0);
+
+        Assert.assertTrue(new AndesClientOutputParser(preservingFilePath, 2L)
+                                  .checkIfTransactedRollbackPreservesOrder(2L));
+        Assert.assertFalse(new AndesClientOutputParser(breakingFilePath, 2L)
+                                   .checkIfTransactedRollbackPreservesOrder(2L));
+        // Parsed again for another number of messages per rollback
+        Assert.assertFalse(new AndesClientOutputParser(breakingFilePath).checkIfTransactedRollbackPreservesOrder(2L));
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*line 2")
+    public void testLineWithoutMessageIdentifierIsRejected() throws IOException {
+        File file = File.createTempFile("received-messages", ".txt");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(MessageFormat.format(AndesClientConstants.PUBLISH_MESSAGE_FORMAT, 0, 1) + "\n");
+            writer.write("Received an unexpected message\n");
+        } finally {
+            writer.close();
+        }
+        new AndesClientOutputParser(file.getAbsolutePath());
+    }
+
+    @Test(expectedExceptions = FileNotFoundException.class)
+    public void testMissingFileIsRejected() throws IOException {
+        new AndesClientOutputParser(new File("missing-received-messages.txt").getAbsolutePath());
+    }
+
+    /**
+     * Writes received messages of identifiers to a file as consumers do, the last one without a line break.
+     */
+    private static String writeReceivedMessages(long... messageIdentifiers) throws IOException {
+        File file = File.createTempFile("received-messages", ".txt");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            for (int i = 0; i < messageIdentifiers.length; i++) {
+                // Formatted with grouping separators for identifiers of 1000 and more
+                writer.write(MessageFormat.format(AndesClientConstants.PUBLISH_MESSAGE_FORMAT,
+                                                  messageIdentifiers[i], 1));
+                if (i < messageIdentifiers.length - 1) {
+                    writer.write('\n');
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        return file.getAbsolutePath();
+    }
+}
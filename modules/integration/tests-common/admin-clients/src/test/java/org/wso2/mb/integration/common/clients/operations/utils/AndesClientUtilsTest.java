@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the file writers shared by clients in {@link AndesClientUtils}.
+ */
+public class AndesClientUtilsTest {
+
+    private static final String STATISTICS_HEADER =
+            "TIMESTAMP,CONSUMER_TPS,AVERAGE_LATENCY,,TIMESTAMP,PUBLISHER_TPS";
+
+    private String filePath;
+
+    @BeforeMethod
+    public void createFile() throws IOException {
+        filePath = File.createTempFile("clients", ".txt").getAbsolutePath();
+    }
+
+    @AfterMethod
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(new File(filePath).toPath());
+    }
+
+    @Test
+    public void testWriterIsClosedByLastClient() throws Exception {
+        AndesClientUtils.initializeReceivedMessagesPrintWriter(filePath);
+        AndesClientUtils.acquireFileWriter(filePath);
+        AndesClientUtils.acquireFileWriter(filePath);
+        AndesClientUtils.writeReceivedMessagesToFile("first", filePath);
+
+        AndesClientUtils.releaseFileWriter(filePath);
+        Assert.assertTrue(AndesClientUtils.isFileWriterOpen(filePath));
+        AndesClientUtils.writeReceivedMessagesToFile("second", filePath);
+
+        AndesClientUtils.releaseFileWriter(filePath);
+        Assert.assertFalse(AndesClientUtils.isFileWriterOpen(filePath));
+        Assert.assertEquals(readLines(), Arrays.asList("first", "second"));
+    }
+
+    @Test
+    public void testInitializingDoesNotTruncateFileInUse() throws Exception {
+        AndesClientUtils.initializeReceivedMessagesPrintWriter(filePath);
+        AndesClientUtils.acquireFileWriter(filePath);
+        AndesClientUtils.writeReceivedMessagesToFile("first", filePath);
+
+        AndesClientUtils.initializeReceivedMessagesPrintWriter(filePath);
+        AndesClientUtils.acquireFileWriter(filePath);
+        AndesClientUtils.writeReceivedMessagesToFile("second", filePath);
+        AndesClientUtils.releaseFileWriter(filePath);
+        AndesClientUtils.releaseFileWriter(filePath);
+
+        Assert.assertEquals(readLines(), Arrays.asList("first", "second"));
+    }
+
+    @Test
+    public void testFileIsAppendedUntilInitialized() throws Exception {
+        AndesClientUtils.acquireStatisticsFileWriter(filePath);
+        AndesClientUtils.writeStatisticsToFile("first", filePath);
+        AndesClientUtils.releaseFileWriter(filePath);
+
+        // Written after the last client stopped, and by the next client
+        AndesClientUtils.writeStatisticsToFile("second".toCharArray(), 6, filePath);
+        AndesClientUtils.acquireStatisticsFileWriter(filePath);
+        AndesClientUtils.writeStatisticsToFile("third", filePath);
+        AndesClientUtils.releaseFileWriter(filePath);
+        Assert.assertEquals(readLines(), Arrays.asList(STATISTICS_HEADER, "first", "second", "third"));
+
+        AndesClientUtils.initializeStatisticsPrintWriter(filePath);
+        Assert.assertEquals(readLines(), Arrays.asList(STATISTICS_HEADER));
+    }
+
+    private List<String> readLines() throws IOException {
+        return Files.readAllLines(new File(filePath).toPath(), Charset.defaultCharset());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import javax.jms.Message;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests measuring the latency of messages with a {@link ClientClock}.
+ */
+public class ClientClockTest {
+
+    @AfterMethod
+    public void resetClockOffset() {
+        ClientClock.setClockOffsetInMillis(0L);
+    }
+
+    @Test
+    public void testNanoTimeOfSameJVM() throws Exception {
+        long sendNanoTime = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+        Message message = createMessage(sendNanoTime, ClientClock.JVM_ID, 0L, 0L);
+
+        long latency = ClientClock.getLatencyInNanos(message, System.currentTimeMillis());
+        Assert.assertTrue(latency >= TimeUnit.MILLISECONDS.toNanos(5), "Latency " + latency);
+        Assert.assertTrue(latency < TimeUnit.SECONDS.toNanos(5), "Latency " + latency);
+    }
+
+    @Test
+    public void testSendTimeOfOtherJVM() throws Exception {
+        // The clock of this JVM is 1000 ms ahead of the coordinator clock by which the send time is stamped
+        ClientClock.setClockOffsetInMillis(1000L);
+        Message message = createMessage(System.nanoTime(), ClientClock.JVM_ID + 1, 5000L, 0L);
+
+        Assert.assertEquals(ClientClock.getLatencyInNanos(message, 6020L), TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void testJMSTimestampWithoutSendTime() throws Exception {
+        Message message = createMessage(null, null, null, 5000L);
+
+        Assert.assertEquals(ClientClock.getLatencyInNanos(message, 5030L), TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void testCurrentTimeCorrectedByOffset() {
+        ClientClock.setClockOffsetInMillis(TimeUnit.HOURS.toMillis(1));
+        long expectedTime = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+
+        Assert.assertTrue(Math.abs(ClientClock.currentTimeMillis() - expectedTime) < 1000L);
+    }
+
+    /**
+     * Creates a message with the given send time properties, each left unset if null.
+     */
+    private static Message createMessage(Long sendNanoTime, Long jvmID, Long sendTime, final long jmsTimestamp) {
+        final Map<String, Long> properties = new HashMap<String, Long>();
+        if (null != sendNanoTime) {
+            properties.put(AndesClientConstants.ANDES_CLIENT_SEND_NANO_TIME_PROPERTY, sendNanoTime);
+        }
+        if (null != jvmID) {
+            properties.put(AndesClientConstants.ANDES_CLIENT_SEND_JVM_ID_PROPERTY, jvmID);
+        }
+        if (null != sendTime) {
+            properties.put(AndesClientConstants.ANDES_CLIENT_SEND_TIME_PROPERTY, sendTime);
+        }
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("propertyExists".equals(method.getName())) {
+                            return properties.containsKey((String) args[0]);
+                        } else if ("getLongProperty".equals(method.getName())) {
+                            return properties.get((String) args[0]);
+                        } else if ("getJMSTimestamp".equals(method.getName())) {
+                            return jmsTimestamp;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
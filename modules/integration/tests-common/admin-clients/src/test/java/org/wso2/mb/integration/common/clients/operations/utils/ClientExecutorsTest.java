@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSConsumerClientConfiguration;
+import org.wso2.mb.integration.common.clients.configurations.AndesJMSPublisherClientConfiguration;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the executors of publishers and consumers provided by {@link ClientExecutors}.
+ */
+public class ClientExecutorsTest {
+
+    @Test
+    public void testPublishersShareThreadPoolBySize() throws Exception {
+        AndesJMSPublisherClientConfiguration first = new AndesJMSPublisherClientConfiguration(ExchangeType.QUEUE, "q");
+        first.setClientThreadPoolSize(2);
+        AndesJMSPublisherClientConfiguration second =
+                new AndesJMSPublisherClientConfiguration(ExchangeType.TOPIC, "t");
+        second.setClientThreadPoolSize(2);
+        AndesJMSPublisherClientConfiguration other = new AndesJMSPublisherClientConfiguration(ExchangeType.QUEUE, "q");
+        other.setClientThreadPoolSize(3);
+
+        Assert.assertSame(ClientExecutors.getExecutor(first), ClientExecutors.getExecutor(second));
+        Assert.assertNotSame(ClientExecutors.getExecutor(first), ClientExecutors.getExecutor(other));
+        Assert.assertTrue(ClientExecutors.isThreadPoolShared(first));
+    }
+
+    @Test
+    public void testConsumersDoNotTakePoolThreads() throws Exception {
+        AndesJMSPublisherClientConfiguration publisherConfig =
+                new AndesJMSPublisherClientConfiguration(ExchangeType.QUEUE, "q");
+        publisherConfig.setClientThreadPoolSize(1);
+        AndesJMSConsumerClientConfiguration consumerConfig =
+                new AndesJMSConsumerClientConfiguration(ExchangeType.QUEUE, "q");
+        consumerConfig.setClientThreadPoolSize(1);
+
+        // A publisher holds the only pool thread
+        final CountDownLatch publisherDone = new CountDownLatch(1);
+        ClientExecutors.getExecutor(publisherConfig).execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    publisherDone.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        try {
+            final CountDownLatch consumerRun = new CountDownLatch(1);
+            ClientExecutors.getExecutor(consumerConfig).execute(new Runnable() {
+                @Override
+                public void run() {
+                    consumerRun.countDown();
+                }
+            });
+            Assert.assertTrue(consumerRun.await(10, TimeUnit.SECONDS));
+            Assert.assertTrue(ClientExecutors.isThreadPoolShared(consumerConfig));
+        } finally {
+            publisherDone.countDown();
+        }
+    }
+
+    @Test
+    public void testConfiguredExecutorTakesPrecedence() throws Exception {
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        };
+        AndesJMSConsumerClientConfiguration config = new AndesJMSConsumerClientConfiguration(ExchangeType.QUEUE, "q");
+        config.setClientThreadPoolSize(4);
+        config.setClientExecutor(executor);
+
+        Assert.assertSame(ClientExecutors.getExecutor(config), executor);
+        Assert.assertFalse(ClientExecutors.isThreadPoolShared(config));
+    }
+}
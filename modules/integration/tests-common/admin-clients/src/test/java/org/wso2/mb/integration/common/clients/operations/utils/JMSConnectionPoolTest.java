@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.jms.Connection;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests sharing connections and looked up objects through a {@link JMSConnectionPool}.
+ */
+public class JMSConnectionPoolTest {
+
+    @Test
+    public void testConnectionsAreHandedOutInTurnAndClosedWhenReleased() throws Exception {
+        AtomicInteger closedCount = new AtomicInteger();
+        QueueConnectionFactory connectionFactory = createConnectionFactory(closedCount);
+        JMSConnectionPool pool = new JMSConnectionPool(2, ExchangeType.QUEUE);
+
+        Connection first = pool.acquire(connectionFactory);
+        Connection second = pool.acquire(connectionFactory);
+        Connection third = pool.acquire(connectionFactory);
+        Assert.assertNotSame(first, second);
+        Assert.assertSame(third, first);
+        Assert.assertEquals(pool.getOpenConnectionCount(), 2);
+
+        pool.release(first);
+        Assert.assertEquals(closedCount.get(), 0);
+        pool.release(third);
+        Assert.assertEquals(closedCount.get(), 1);
+        pool.release(second);
+        Assert.assertEquals(closedCount.get(), 2);
+        Assert.assertEquals(pool.getOpenConnectionCount(), 0);
+    }
+
+    @Test
+    public void testLookedUpObjectsAreShared() {
+        JMSConnectionPool pool = new JMSConnectionPool(1, ExchangeType.TOPIC);
+        Object first = new Object();
+
+        Assert.assertNull(pool.getLookedUpObject("topic"));
+        Assert.assertSame(pool.putLookedUpObjectIfAbsent("topic", first), first);
+        Assert.assertSame(pool.putLookedUpObjectIfAbsent("topic", new Object()), first);
+        Assert.assertSame(pool.getLookedUpObject("topic"), first);
+        Assert.assertNull(pool.getLookedUpObject("other"));
+    }
+
+    /**
+     * Creates a factory of connections which count how many of them are closed.
+     */
+    private static QueueConnectionFactory createConnectionFactory(final AtomicInteger closedCount) {
+        final InvocationHandler connectionHandler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("close".equals(method.getName())) {
+                    closedCount.incrementAndGet();
+                } else if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                } else if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                return null;
+            }
+        };
+        return (QueueConnectionFactory) Proxy.newProxyInstance(QueueConnectionFactory.class.getClassLoader(),
+                new Class<?>[]{QueueConnectionFactory.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("createQueueConnection".equals(method.getName())) {
+                            return Proxy.newProxyInstance(QueueConnection.class.getClassLoader(),
+                                    new Class<?>[]{QueueConnection.class}, connectionHandler);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests the base64 encoding of the compressed histograms written by {@link LatencyHistogramLogWriter}.
+ */
+public class LatencyHistogramLogWriterTest {
+
+    /**
+     * Encodes the test vectors of RFC 4648, covering every amount of padding.
+     */
+    @Test
+    public void testEncodeBase64() {
+        String[][] vectors = {{"", ""}, {"f", "Zg=="}, {"fo", "Zm8="}, {"foo", "Zm9v"}, {"foob", "Zm9vYg=="},
+                              {"fooba", "Zm9vYmE="}, {"foobar", "Zm9vYmFy"}};
+        for (String[] vector : vectors) {
+            Assert.assertEquals(LatencyHistogramLogWriter.encodeBase64(vector[0].getBytes(StandardCharsets.US_ASCII)),
+                    vector[1], "Unexpected encoding of '" + vector[0] + "'");
+        }
+    }
+
+    /**
+     * Encodes bytes with the high bit set, which must not be sign extended.
+     */
+    @Test
+    public void testEncodeBase64OfNegativeBytes() {
+        Assert.assertEquals(LatencyHistogramLogWriter.encodeBase64(new byte[]{(byte) 0xFF, (byte) 0xFE, (byte) 0xFD}),
+                "//79");
+        Assert.assertEquals(LatencyHistogramLogWriter.encodeBase64(new byte[]{(byte) 0xFB, (byte) 0xFF}), "+/8=");
+    }
+}
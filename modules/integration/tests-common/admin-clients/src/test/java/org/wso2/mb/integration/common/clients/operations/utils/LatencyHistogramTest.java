@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Inflater;
+
+/**
+ * Tests recording and reading a {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getTotalCount(), 0);
+        Assert.assertEquals(histogram.getMinValue(), 0);
+        Assert.assertEquals(histogram.getMaxValue(), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(99D), 0);
+        Assert.assertEquals(histogram.getMean(), 0D);
+    }
+
+    @Test
+    public void testPercentilesWithinTwoSignificantDigits() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.recordValue(value * 1000);
+        }
+
+        Assert.assertEquals(histogram.getTotalCount(), 10000);
+        Assert.assertEquals(histogram.getMinValue(), 1000);
+        assertEquivalent(histogram.getMaxValue(), 10000000);
+        assertEquivalent(histogram.getValueAtPercentile(50D), 5000000);
+        assertEquivalent(histogram.getValueAtPercentile(99D), 9900000);
+        assertEquivalent(histogram.getValueAtPercentile(99.9D), 9990000);
+        assertEquivalent((long) histogram.getMean(), 5000500);
+    }
+
+    @Test
+    public void testValuesOutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordValue(-5);
+        histogram.recordValue(Long.MAX_VALUE);
+
+        Assert.assertEquals(histogram.getMinValue(), 0);
+        assertEquivalent(histogram.getMaxValue(), 3600L * 1000 * 1000 * 1000);
+    }
+
+    @Test
+    public void testCoordinatedOmissionCorrection() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordValueWithExpectedInterval(1000, 100);
+
+        // The latencies of the messages held back are 900, 800 down to 100
+        Assert.assertEquals(histogram.getTotalCount(), 10);
+        Assert.assertEquals(histogram.getMinValue(), 100);
+        assertEquivalent(histogram.getMaxValue(), 1000);
+
+        histogram.reset();
+        histogram.recordValueWithExpectedInterval(1000, 0);
+        Assert.assertEquals(histogram.getTotalCount(), 1);
+    }
+
+    @Test
+    public void testAddAndCopy() {
+        LatencyHistogram first = new LatencyHistogram();
+        first.recordValue(10);
+        first.setTimeStamps(2000, 3000);
+        LatencyHistogram second = new LatencyHistogram();
+        second.recordValue(20);
+        second.recordValue(1000000);
+        second.setTimeStamps(1000, 2500);
+
+        LatencyHistogram copy = first.copy();
+        copy.add(second);
+
+        Assert.assertEquals(copy.getTotalCount(), 3);
+        Assert.assertEquals(copy.getMinValue(), 10);
+        assertEquivalent(copy.getMaxValue(), 1000000);
+        Assert.assertEquals(copy.getStartTimeStamp(), 1000);
+        Assert.assertEquals(copy.getEndTimeStamp(), 3000);
+        // The copied and added histograms are unchanged
+        Assert.assertEquals(first.getTotalCount(), 1);
+        Assert.assertEquals(second.getTotalCount(), 2);
+
+        second.recordValue(30);
+        Assert.assertEquals(copy.getTotalCount(), 3);
+    }
+
+    @Test
+    public void testCompressedEncodingHeader() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordValue(1);
+        histogram.recordValue(1000);
+        byte[] compressed = histogram.encodeCompressed();
+
+        ByteBuffer buffer = ByteBuffer.wrap(compressed);
+        Assert.assertEquals(buffer.getInt(), 0x1c849304 | 0x10);
+        int compressedLength = buffer.getInt();
+        Assert.assertEquals(compressedLength, compressed.length - 8);
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed, 8, compressedLength);
+        byte[] encoded = new byte[1024];
+        int encodedLength = inflater.inflate(encoded);
+        Assert.assertTrue(inflater.finished());
+        inflater.end();
+        ByteBuffer header = ByteBuffer.wrap(encoded, 0, encodedLength);
+        Assert.assertEquals(header.getInt(0), 0x1c849303 | 0x10);
+        Assert.assertEquals(header.getInt(4), encodedLength - 40);
+        Assert.assertEquals(header.getInt(12), 2);
+        Assert.assertEquals(header.getLong(24), 3600L * 1000 * 1000 * 1000);
+    }
+
+    /**
+     * Asserts that a value read from a histogram is equivalent to a recorded value, within two significant digits.
+     */
+    private static void assertEquivalent(long actual, long expected) {
+        Assert.assertTrue(Math.abs(actual - expected) <= expected / 100, actual + " is not equivalent to " + expected);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests adding, finding and releasing identifiers of a {@link MessageIdentifierBitmap}.
+ */
+public class MessageIdentifierBitmapTest {
+
+    @Test
+    public void testIdentifiersAreAddedOnce() {
+        MessageIdentifierBitmap bitmap = new MessageIdentifierBitmap();
+
+        Assert.assertEquals(bitmap.getMaximum(), -1L);
+        Assert.assertTrue(bitmap.add(0L));
+        Assert.assertTrue(bitmap.add(63L));
+        Assert.assertTrue(bitmap.add(64L));
+        Assert.assertFalse(bitmap.add(63L));
+        Assert.assertEquals(bitmap.getCardinality(), 3L);
+        Assert.assertEquals(bitmap.getMaximum(), 64L);
+        Assert.assertTrue(bitmap.contains(63L));
+        Assert.assertFalse(bitmap.contains(62L));
+        Assert.assertFalse(bitmap.contains(65L));
+        Assert.assertFalse(bitmap.contains(-1L));
+    }
+
+    @Test
+    public void testIdentifiersBeyondInitialPagesAreAdded() {
+        MessageIdentifierBitmap bitmap = new MessageIdentifierBitmap();
+        long identifier = 100L << 16;
+
+        Assert.assertTrue(bitmap.add(identifier));
+        Assert.assertTrue(bitmap.contains(identifier));
+        Assert.assertFalse(bitmap.contains(identifier - 1L));
+        Assert.assertEquals(bitmap.getMaximum(), identifier);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeIdentifierIsRejected() {
+        new MessageIdentifierBitmap().add(-1L);
+    }
+
+    @Test
+    public void testNextIdentifierSkipsEmptyWordsAndPages() {
+        MessageIdentifierBitmap bitmap = new MessageIdentifierBitmap();
+        bitmap.add(5L);
+        bitmap.add(200L);
+        bitmap.add(3L << 16);
+
+        Assert.assertEquals(bitmap.nextIdentifier(-10L), 5L);
+        Assert.assertEquals(bitmap.nextIdentifier(5L), 5L);
+        Assert.assertEquals(bitmap.nextIdentifier(6L), 200L);
+        Assert.assertEquals(bitmap.nextIdentifier(201L), 3L << 16);
+        Assert.assertEquals(bitmap.nextIdentifier((3L << 16) + 1L), -1L);
+    }
+
+    @Test
+    public void testReleasedPagesAreRemoved() {
+        MessageIdentifierBitmap bitmap = new MessageIdentifierBitmap();
+        bitmap.add(1L);
+        bitmap.add(2L);
+        bitmap.add(1L << 16);
+
+        // Only whole pages below the identifier are released
+        bitmap.releaseBelow((1L << 16) + 5L);
+
+        Assert.assertEquals(bitmap.getCardinality(), 1L);
+        Assert.assertFalse(bitmap.contains(1L));
+        Assert.assertTrue(bitmap.contains(1L << 16));
+        Assert.assertEquals(bitmap.nextIdentifier(0L), 1L << 16);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests detecting duplicates, gaps and reorderings with a {@link MessageSequenceTracker}.
+ */
+public class MessageSequenceTrackerTest {
+
+    @Test
+    public void testMessagesInSequenceOfSeveralPublishers() {
+        MessageSequenceTracker tracker = new MessageSequenceTracker();
+        for (long sequence = 0; sequence < 100000L; sequence++) {
+            tracker.recordMessage(1L, sequence, false);
+            tracker.recordMessage(2L, sequence, false);
+        }
+
+        Assert.assertTrue(tracker.isInSequence());
+        Assert.assertEquals(tracker.getPublisherCount(), 2);
+        Assert.assertEquals(tracker.getMissingMessageCount(), 0L);
+    }
+
+    @Test
+    public void testGapIsFilledByReorderedMessages() {
+        MessageSequenceTracker tracker = new MessageSequenceTracker();
+        tracker.recordMessage(1L, 0L, false);
+        tracker.recordMessage(1L, 3L, false);
+
+        Assert.assertEquals(tracker.getGapCount(), 1L);
+        Assert.assertEquals(tracker.getMissingMessageCount(), 2L);
+
+        tracker.recordMessage(1L, 2L, false);
+        tracker.recordMessage(1L, 1L, false);
+        tracker.recordMessage(1L, 4L, false);
+
+        Assert.assertEquals(tracker.getReorderCount(), 2L);
+        Assert.assertEquals(tracker.getMissingMessageCount(), 0L);
+        Assert.assertFalse(tracker.isInSequence());
+    }
+
+    @Test
+    public void testDuplicatesAreSeparatedFromRedeliveries() {
+        MessageSequenceTracker tracker = new MessageSequenceTracker();
+        tracker.recordMessage(1L, 0L, false);
+        tracker.recordMessage(1L, 2L, false);
+        // Received again below and above the sequence up to which all messages are received
+        tracker.recordMessage(1L, 0L, true);
+        tracker.recordMessage(1L, 2L, false);
+
+        Assert.assertEquals(tracker.getRedeliveryCount(), 1L);
+        Assert.assertEquals(tracker.getDuplicateCount(), 1L);
+        Assert.assertEquals(tracker.getMissingMessageCount(), 1L);
+    }
+
+    @Test
+    public void testMessagesReceivedAheadAcrossPagesAreReleased() {
+        MessageSequenceTracker tracker = new MessageSequenceTracker();
+        long sequenceCount = 3L << 16;
+        // All messages but the second are received ahead of it
+        tracker.recordMessage(1L, 0L, false);
+        for (long sequence = 2L; sequence < sequenceCount; sequence++) {
+            tracker.recordMessage(1L, sequence, false);
+        }
+        Assert.assertEquals(tracker.getMissingMessageCount(), 1L);
+        tracker.recordMessage(1L, 1L, false);
+        tracker.recordMessage(1L, sequenceCount, false);
+
+        Assert.assertEquals(tracker.getMissingMessageCount(), 0L);
+        Assert.assertEquals(tracker.getGapCount(), 1L);
+        Assert.assertEquals(tracker.getReorderCount(), 1L);
+        tracker.recordMessage(1L, 5L, false);
+        Assert.assertEquals(tracker.getDuplicateCount(), 1L);
+    }
+}
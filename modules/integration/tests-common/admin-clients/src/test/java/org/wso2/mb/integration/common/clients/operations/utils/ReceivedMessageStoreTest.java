@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tests storing received messages in memory and in a spill file.
+ */
+public class ReceivedMessageStoreTest {
+
+    @Test
+    public void testDigestsAreStoredUnlessContentsAreKept() throws Exception {
+        ReceivedMessageStore store = new ReceivedMessageStore(false, 10);
+        store.add("message");
+
+        Assert.assertEquals(store.toList(), Arrays.asList(ReceivedMessageStore.digest("message")));
+        Assert.assertEquals(ReceivedMessageStore.digest("message"),
+                            "ab530a13e45914982b79f9b7e3fba994cfd1f3fb22f71cea1afbf02b460c6d1d");
+        store.close();
+    }
+
+    @Test
+    public void testEntriesAreReadBackInOrderFromSpillFile() throws Exception {
+        ReceivedMessageStore store = new ReceivedMessageStore(true, 3);
+        List<String> contents = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            contents.add("message " + i + " \u00e9");
+            store.add(contents.get(i));
+        }
+
+        Assert.assertEquals(store.size(), 10L);
+        Assert.assertEquals(store.toList(), contents);
+        // Iterating again reads the spill file from the start
+        Assert.assertEquals(store.toList(), contents);
+        store.close();
+    }
+
+    @Test
+    public void testEntriesAddedWhileIteratingAreNotIterated() throws Exception {
+        ReceivedMessageStore store = new ReceivedMessageStore(true, 1);
+        store.add("first");
+        store.add("second");
+        Iterator<String> iterator = store.iterator();
+        store.add("third");
+
+        Assert.assertEquals(iterator.next(), "first");
+        Assert.assertEquals(iterator.next(), "second");
+        Assert.assertFalse(iterator.hasNext());
+        store.close();
+    }
+
+    @Test
+    public void testIterationContinuesAfterFurtherEntriesAreSpilled() throws Exception {
+        ReceivedMessageStore store = new ReceivedMessageStore(true, 2);
+        for (int i = 0; i < 6; i++) {
+            store.add("message " + i);
+        }
+        // Spilled entries are read in batches, between which the file is closed and written to
+        Iterator<String> iterator = store.iterator();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(iterator.next(), "message " + i);
+        }
+        store.add("message 6");
+
+        Assert.assertEquals(iterator.next(), "message 3");
+        Assert.assertEquals(store.toList().size(), 7);
+        store.close();
+    }
+
+    @Test
+    public void testEntriesAreSpilledWithoutEntriesInMemory() throws Exception {
+        ReceivedMessageStore store = new ReceivedMessageStore(true, 0);
+        store.add("first");
+        store.add("second");
+
+        Assert.assertEquals(store.toList(), Arrays.asList("first", "second"));
+        store.close();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.integration.common.clients.operations.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests writing lines through a {@link RingBufferFileWriter}.
+ */
+public class RingBufferFileWriterTest {
+
+    private File file;
+
+    @BeforeMethod
+    public void createFile() throws IOException {
+        file = File.createTempFile("ring-buffer", ".txt");
+    }
+
+    @AfterMethod
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void testLinesAreWrittenInOrder() throws Exception {
+        char[] longLine = new char[5000];
+        Arrays.fill(longLine, 'x');
+        char[] buffer = "buffered line and more".toCharArray();
+
+        RingBufferFileWriter writer = new RingBufferFileWriter(file.getAbsolutePath());
+        writer.writeLine("first");
+        writer.writeLine(buffer, "buffered line".length());
+        writer.writeLine(new String(longLine));
+        writer.writeLine(longLine, 2000);
+        writer.close();
+
+        Assert.assertEquals(readLines(), Arrays.asList("first", "buffered line", new String(longLine),
+                                                       new String(longLine, 0, 2000)));
+    }
+
+    @Test
+    public void testFlushWritesLinesToFile() throws Exception {
+        RingBufferFileWriter writer = new RingBufferFileWriter(file.getAbsolutePath());
+        try {
+            writer.writeLine("flushed");
+            writer.flush();
+            Assert.assertEquals(readLines(), Arrays.asList("flushed"));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        RingBufferFileWriter writer = new RingBufferFileWriter(file.getAbsolutePath());
+        writer.writeLine("first");
+        writer.close();
+        writer = new RingBufferFileWriter(file.getAbsolutePath(), true);
+        writer.writeLine("second");
+        writer.close();
+        writer = new RingBufferFileWriter(file.getAbsolutePath());
+        writer.writeLine("third");
+        writer.close();
+
+        Assert.assertEquals(readLines(), Arrays.asList("third"));
+    }
+
+    @Test
+    public void testLinesOfManyThreadsExceedingCapacity() throws Exception {
+        final int threadCount = 4;
+        final int lineCount = 20000;
+        final RingBufferFileWriter writer = new RingBufferFileWriter(file.getAbsolutePath());
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            final int threadIndex = i;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int line = 0; line < lineCount; line++) {
+                            writer.writeLine(threadIndex + "," + line);
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.close();
+
+        Assert.assertEquals(failures, new ArrayList<Throwable>());
+        int[] nextLines = new int[threadCount];
+        List<String> lines = readLines();
+        Assert.assertEquals(lines.size(), threadCount * lineCount);
+        for (String line : lines) {
+            String[] fields = line.split(",");
+            int threadIndex = Integer.parseInt(fields[0]);
+            Assert.assertEquals(Integer.parseInt(fields[1]), nextLines[threadIndex], "Line of thread " + threadIndex);
+            nextLines[threadIndex]++;
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".* is closed")
+    public void testWriteAfterClose() throws Exception {
+        RingBufferFileWriter writer = new RingBufferFileWriter(file.getAbsolutePath());
+        writer.close();
+        writer.writeLine("refused");
+    }
+
+    @Test
+    public void testCloseWhileWriting() throws Exception {
+        final int threadCount = 4;
+        final RingBufferFileWriter writer = new RingBufferFileWriter(file.getAbsolutePath());
+        final AtomicLong acceptedLineCount = new AtomicLong();
+        final CountDownLatch writing = new CountDownLatch(threadCount);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writing.countDown();
+                    try {
+                        while (true) {
+                            writer.writeLine("line");
+                            acceptedLineCount.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        // Closed
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        writing.await();
+        Thread.sleep(50);
+        writer.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Every line accepted before the writer was closed is in the file
+        Assert.assertEquals(readLines().size(), acceptedLineCount.get());
+        writer.close();
+    }
+
+    private List<String> readLines() throws IOException {
+        return Files.readAllLines(file.toPath(), Charset.defaultCharset());
+    }
+}
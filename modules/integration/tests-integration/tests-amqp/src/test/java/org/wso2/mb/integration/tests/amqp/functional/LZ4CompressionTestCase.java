@@ -35,6 +35,7 @@ import org.wso2.mb.integration.common.clients.exceptions.AndesClientException;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
 import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.ReceivedMessageStore;
 import org.wso2.mb.integration.common.utils.backend.ConfigurationEditor;
 import org.wso2.mb.integration.common.utils.backend.MBIntegrationBaseTest;
 
@@ -146,7 +147,8 @@ public class LZ4CompressionTestCase extends MBIntegrationBaseTest {
         // Evaluating
         Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
         Assert.assertEquals(consumerClient.getReceivedMessageCount(), EXPECTED_COUNT, "Message receiving failed.");
-        Assert.assertEquals(receivedMessage.get(0), inputContentAsString, "Message content has been modified");
+        Assert.assertEquals(receivedMessage.get(0), ReceivedMessageStore.digest(inputContentAsString),
+                            "Message content has been modified");
     }
 
 
@@ -199,7 +201,8 @@ public class LZ4CompressionTestCase extends MBIntegrationBaseTest {
         // Evaluating
         Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
         Assert.assertEquals(consumerClient.getReceivedMessageCount(), EXPECTED_COUNT, "Message receiving failed.");
-        Assert.assertEquals(receivedMessage.get(0), inputContentAsString, "Message content has been modified.");
+        Assert.assertEquals(receivedMessage.get(0), ReceivedMessageStore.digest(inputContentAsString),
+                            "Message content has been modified.");
     }
 
 
@@ -253,7 +256,8 @@ public class LZ4CompressionTestCase extends MBIntegrationBaseTest {
         // Evaluating
         Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
         Assert.assertEquals(consumerClient.getReceivedMessageCount(), EXPECTED_COUNT, "Message receiving failed.");
-        Assert.assertEquals(receivedMessage.get(0), inputContentAsString, "Message content has been modified.");
+        Assert.assertEquals(receivedMessage.get(0), ReceivedMessageStore.digest(inputContentAsString),
+                            "Message content has been modified.");
     }
 
     /**
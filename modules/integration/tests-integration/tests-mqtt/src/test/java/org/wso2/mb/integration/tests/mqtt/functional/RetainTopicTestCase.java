@@ -226,8 +226,8 @@ public class RetainTopicTestCase extends MBIntegrationBaseTest {
         mqttClientEngine1.createSubscriberConnection(topic, QualityOfService.MOST_ONCE, noOfSubscribers,
                                                     saveMessages, ClientMode.BLOCKING, automationContext);
 
-        // wait until messages received by subscriber.
-        mqttClientEngine1.waitUntilExpectedNumberOfMessagesReceived(0,20000L);
+        // wait for a while to see whether a retained message is received by subscriber.
+        mqttClientEngine1.waitUntilAllMessageReceived(2000L);
 
         // shut down all clients.
         mqttClientEngine1.shutdown();
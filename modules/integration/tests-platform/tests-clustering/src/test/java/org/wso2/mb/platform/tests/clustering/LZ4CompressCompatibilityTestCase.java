@@ -36,6 +36,7 @@ import org.wso2.mb.integration.common.clients.operations.clients.AndesAdminClien
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientConstants;
 import org.wso2.mb.integration.common.clients.operations.utils.AndesClientUtils;
 import org.wso2.mb.integration.common.clients.operations.utils.ExchangeType;
+import org.wso2.mb.integration.common.clients.operations.utils.ReceivedMessageStore;
 import org.wso2.mb.platform.common.utils.MBPlatformBaseTest;
 import org.wso2.mb.platform.common.utils.exceptions.DataAccessUtilException;
 import org.xml.sax.SAXException;
@@ -157,7 +158,8 @@ public class LZ4CompressCompatibilityTestCase extends MBPlatformBaseTest {
         // Evaluating
         Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
         Assert.assertEquals(consumerClient.getReceivedMessageCount(), EXPECTED_COUNT, "Message receiving failed.");
-        Assert.assertEquals(receivedMessage.get(0), inputContentAsString, "Message content has been modified");
+        Assert.assertEquals(receivedMessage.get(0), ReceivedMessageStore.digest(inputContentAsString),
+                            "Message content has been modified");
 
         // Checking the 2nd way: opposite of the 1st way
 
@@ -195,7 +197,8 @@ public class LZ4CompressCompatibilityTestCase extends MBPlatformBaseTest {
         // Evaluating
         Assert.assertEquals(publisherClient.getSentMessageCount(), SEND_COUNT, "Message sending failed.");
         Assert.assertEquals(consumerClient.getReceivedMessageCount(), EXPECTED_COUNT, "Message receiving failed.");
-        Assert.assertEquals(receivedMessage.get(0), inputContentAsString, "Message content has been modified");
+        Assert.assertEquals(receivedMessage.get(0), ReceivedMessageStore.digest(inputContentAsString),
+                            "Message content has been modified");
     }
 
     /**
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the migration of a whole store by {@link DBConnector} against an embedded H2 database, which is seeded
+ * again before each iteration since the migration modifies it. Each iteration migrates the store once, in a single
+ * thread, in the given mode:
+ * <ul>
+ * <li>single - tables are read and updated in a single pass</li>
+ * <li>batched - tables are read and updated in batches of {@link #BATCH_SIZE} rows</li>
+ * <li>pushdown - queue names are converted by update statements executed within the database</li>
+ * </ul>
+ * MB_SLOT_MESSAGE_ID is seeded with "rowCount" rows, MB_SLOT with a tenth of them, and a queue, binding, queue
+ * mapping and last assigned id is seeded for every thousand rows. Larger stores are measured with e.g.
+ * -p rowCount=50000000, which needs a few gigabytes of disk in the temporary directory and a large heap for the
+ * single pass mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DBConnectorBenchmark {
+
+    private static final int BATCH_SIZE = 10000;
+
+    private static final int ROWS_PER_QUEUE = 1000;
+
+    private static final int MIN_QUEUE_COUNT = 10;
+
+    private static final String SCHEMA = "DROP ALL OBJECTS;"
+            + "CREATE TABLE MB_EXCHANGE (EXCHANGE_NAME VARCHAR(512) PRIMARY KEY, EXCHANGE_DATA VARCHAR(2048));"
+            + "CREATE TABLE MB_QUEUE (QUEUE_NAME VARCHAR(512) PRIMARY KEY, QUEUE_DATA VARCHAR(2048));"
+            + "CREATE TABLE MB_BINDING (EXCHANGE_NAME VARCHAR(512) NOT NULL, QUEUE_NAME VARCHAR(512) NOT NULL,"
+            + " BINDING_DETAILS VARCHAR(2048), FOREIGN KEY (EXCHANGE_NAME) REFERENCES MB_EXCHANGE (EXCHANGE_NAME),"
+            + " FOREIGN KEY (QUEUE_NAME) REFERENCES MB_QUEUE (QUEUE_NAME) ON DELETE CASCADE);"
+            + "CREATE TABLE MB_QUEUE_MAPPING (QUEUE_ID INT AUTO_INCREMENT PRIMARY KEY,"
+            + " QUEUE_NAME VARCHAR(512) NOT NULL UNIQUE);"
+            + "CREATE TABLE MB_SLOT (SLOT_ID BIGINT AUTO_INCREMENT PRIMARY KEY, START_MESSAGE_ID BIGINT NOT NULL,"
+            + " END_MESSAGE_ID BIGINT NOT NULL, STORAGE_QUEUE_NAME VARCHAR(512) NOT NULL, SLOT_STATE TINYINT DEFAULT 1,"
+            + " ASSIGNED_NODE_ID VARCHAR(512), ASSIGNED_QUEUE_NAME VARCHAR(512));"
+            + "CREATE TABLE MB_SLOT_MESSAGE_ID (QUEUE_NAME VARCHAR(512) NOT NULL, MESSAGE_ID BIGINT NOT NULL,"
+            + " PRIMARY KEY (QUEUE_NAME, MESSAGE_ID));"
+            + "CREATE TABLE MB_QUEUE_TO_LAST_ASSIGNED_ID (QUEUE_NAME VARCHAR(512) PRIMARY KEY, MESSAGE_ID BIGINT);"
+            + "INSERT INTO MB_EXCHANGE VALUES ('amq.direct', 'exchangeName=amq.direct,type=direct,autoDelete=false');";
+
+    @Param({"1000", "100000"})
+    public long rowCount;
+
+    @Param({"single", "batched", "pushdown"})
+    public String mode;
+
+    private File databaseDirectory;
+
+    private DBConnector connector;
+
+    private final Modifier modifier = new Modifier();
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, ClassNotFoundException {
+        databaseDirectory = Files.createTempDirectory("migration-benchmark").toFile();
+        Properties properties = new Properties();
+        properties.setProperty("driverclassname", "org.h2.Driver");
+        properties.setProperty("dburl", "jdbc:h2:" + new File(databaseDirectory, "store").getAbsolutePath());
+        properties.setProperty("dbuser", "sa");
+        properties.setProperty("dbpassword", "");
+        properties.setProperty("batchsize", "batched".equals(mode) ? Integer.toString(BATCH_SIZE) : "0");
+        properties.setProperty("pushdown", Boolean.toString("pushdown".equals(mode)));
+        connector = new DBConnector(properties);
+    }
+
+    @Setup(Level.Iteration)
+    public void seedDatabase() throws SQLException {
+        long queueCount = Math.max(MIN_QUEUE_COUNT, rowCount / ROWS_PER_QUEUE);
+        String queueName = queueName("X - 1");
+        String referencedQueueName = queueName("MOD(X, " + queueCount + ")");
+        try (Connection conn = connector.getConnection();
+             Statement statement = conn.createStatement()) {
+            statement.execute(SCHEMA);
+            statement.execute("INSERT INTO MB_QUEUE SELECT " + queueName + ", 'queueName=' || " + queueName
+                              + " || ',queueOwner=admin,isExclusive=false' FROM SYSTEM_RANGE(1, " + queueCount + ")");
+            statement.execute("INSERT INTO MB_BINDING SELECT 'amq.direct', " + queueName
+                              + ", 'exchangeName&amq.direct|queueName=' || " + queueName
+                              + " || ',queueOwner=admin|routingKey&' || " + queueName
+                              + " FROM SYSTEM_RANGE(1, " + queueCount + ")");
+            statement.execute("INSERT INTO MB_QUEUE_MAPPING (QUEUE_NAME) SELECT " + queueName
+                              + " FROM SYSTEM_RANGE(1, " + queueCount + ")");
+            statement.execute("INSERT INTO MB_QUEUE_TO_LAST_ASSIGNED_ID SELECT " + queueName
+                              + ", X * 100 FROM SYSTEM_RANGE(1, " + queueCount + ")");
+            statement.execute("INSERT INTO MB_SLOT (START_MESSAGE_ID, END_MESSAGE_ID, STORAGE_QUEUE_NAME) SELECT"
+                              + " X * 10, X * 10 + 9, " + referencedQueueName
+                              + " FROM SYSTEM_RANGE(1, " + Math.max(1, rowCount / 10) + ")");
+            statement.execute("INSERT INTO MB_SLOT_MESSAGE_ID SELECT " + referencedQueueName + ", X"
+                              + " FROM SYSTEM_RANGE(1, " + rowCount + ")");
+        }
+    }
+
+    /**
+     * Name of the queue of an index, half of the queues having capital letters.
+     */
+    private static String queueName(String index) {
+        return "CASE MOD(" + index + ", 2) WHEN 0 THEN 'Order_Queue_' ELSE 'order_queue_' END || (" + index + ")";
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() {
+        connector.close();
+        File[] files = databaseDirectory.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        databaseDirectory.delete();
+    }
+
+    /**
+     * Converts the bindings to the format of WSO2MB 3.2.0 and the queue names of queues and bindings to lowercase.
+     */
+    @Benchmark
+    public void migrateQueuesAndBindings() throws SQLException, MigrationException {
+        List<Binding> bindings = connector.readBindings();
+        for (Binding binding : bindings) {
+            binding.setBindingDetails(modifier.modifyBinding(binding.getBindingDetails()));
+        }
+        connector.updateBindings(bindings);
+        connector.updateQueueNamesInQueuesAndBindings();
+    }
+
+    /**
+     * Converts the queue names of the tables which only reference queues by name to lowercase.
+     */
+    @Benchmark
+    public void migrateQueueNameTables() throws SQLException {
+        if ("pushdown".equals(mode)) {
+            for (QueueNameTable table : QueueNameTable.values()) {
+                connector.updateQueueNamesInDatabase(new TablePartition(table));
+            }
+        } else if ("batched".equals(mode)) {
+            DBConnector.BatchListener listener = new DBConnector.BatchListener() {
+                @Override
+                public void batchCommitted(TablePartition partition, Object[] lastKey, int rowCount) {
+                }
+            };
+            for (QueueNameTable table : QueueNameTable.values()) {
+                for (TablePartition partition : connector.getPartitions(table, 1)) {
+                    connector.updateQueueNamesInBatches(partition, null, listener);
+                }
+            }
+        } else {
+            connector.updateQueueNamesInSlots();
+            connector.updateQueueNamesInQueueMappings();
+            connector.updateQueueNamesInSlotMessageIds();
+            connector.updateQueueNamesInQueueToLastAssignedIds();
+        }
+    }
+}
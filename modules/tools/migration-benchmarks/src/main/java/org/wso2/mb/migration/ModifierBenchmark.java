@@ -0,0 +1,154 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the cost per row of the conversions {@link Modifier} applies to binding details and queue data. Each
+ * invocation converts the next of a set of generated rows, half of which have queue names with capital letters and a
+ * quarter of which have a binding key other than the queue name.
+ * <p>
+ * The rows are generated with 1024 rows, which stay in the CPU caches and give the cost of the conversion alone,
+ * and with 1048576 rows, about the number of bindings of a large store. Those do not fit in the caches, so that the
+ * cost of reading rows from memory and of collecting the garbage of the converted strings is included as in a
+ * migration.
+ * <p>
+ * {@link #lowerCaseBindingDetailsRegex()} is the regular expression based conversion used before binding details
+ * were parsed, kept as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModifierBenchmark {
+
+    /**
+     * Number of generated rows, a power of two so that the next row is found by masking the row counter.
+     */
+    @Param({"1024", "1048576"})
+    private int rowCount;
+
+    private final Modifier modifier = new Modifier();
+
+    private String[] queueNames;
+
+    /**
+     * Binding details in the format of WSO2MB 3.1.0.
+     */
+    private String[] bindingInfos;
+
+    /**
+     * Binding details in the format of WSO2MB 3.2.0.
+     */
+    private String[] bindingDetails;
+
+    private String[] queueData;
+
+    private int row;
+
+    @Setup
+    public void generateRows() {
+        if (0 != (rowCount & (rowCount - 1))) {
+            throw new IllegalArgumentException("Row count must be a power of two : " + rowCount);
+        }
+        queueNames = new String[rowCount];
+        bindingInfos = new String[rowCount];
+        bindingDetails = new String[rowCount];
+        queueData = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            queueNames[i] = ((i % 2 == 0) ? "OrderQueue_" : "order_queue_") + i;
+            String bindingKey = (i % 4 == 1) ? "Orders.Route_" + i : queueNames[i];
+            bindingInfos[i] = "exchangeName&amq.direct|queueName=" + queueNames[i] + ",queueOwner=admin|routingKey&"
+                              + bindingKey;
+            bindingDetails[i] = "boundMessageRouter=amq.direct,boundQueueName=" + queueNames[i]
+                                + ",bindingKey=" + bindingKey;
+            queueData[i] = "queueName=" + queueNames[i] + ",queueOwner=admin,isExclusive=false";
+        }
+    }
+
+    private int nextRow() {
+        return row++ & (rowCount - 1);
+    }
+
+    @Benchmark
+    public String modifyBinding() throws MigrationException {
+        return modifier.modifyBinding(bindingInfos[nextRow()]);
+    }
+
+    @Benchmark
+    public String createBindingDetails() {
+        return modifier.createBindingDetails(queueNames[nextRow()], "amq.dlc");
+    }
+
+    @Benchmark
+    public String lowerCaseBindingDetails() {
+        int i = nextRow();
+        return modifier.lowerCaseBindingDetails(bindingDetails[i], queueNames[i]);
+    }
+
+    @Benchmark
+    public String lowerCaseBindingDetailsRegex() {
+        int i = nextRow();
+        return regexLowerCase(bindingDetails[i], queueNames[i]);
+    }
+
+    @Benchmark
+    public String lowerCaseQueueData() {
+        int i = nextRow();
+        return modifier.lowerCaseQueueData(queueData[i], queueNames[i]);
+    }
+
+    /**
+     * The conversion done by the migration tool before binding details were parsed.
+     */
+    private static String regexLowerCase(String bindingData, String queueName) {
+        if (!queueName.equals(queueName.toLowerCase())) {
+            String newQueueName = queueName.toLowerCase();
+            bindingData = bindingData.replaceAll("queueName=" + queueName, "queueName=" + newQueueName);
+            bindingData = bindingData.replaceAll("boundQueueName=" + queueName, "boundQueueName=" + newQueueName);
+        }
+        Pattern pattern = Pattern.compile("bindingKey=.*");
+        Matcher matcher = pattern.matcher(bindingData);
+        if (matcher.find()) {
+            String bindingKey = matcher.group(0).split("=")[1];
+            if (!bindingKey.equals(bindingKey.toLowerCase())) {
+                bindingData = bindingData.replaceAll("bindingKey=" + bindingKey,
+                        "bindingKey=" + bindingKey.toLowerCase());
+            }
+        }
+        return bindingData;
+    }
+}
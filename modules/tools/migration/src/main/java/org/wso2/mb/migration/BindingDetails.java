@@ -0,0 +1,162 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsed form of details strings such as binding details
+ * "boundMessageRouter=amq.direct,boundQueueName=queue_name,bindingKey=routing_key" and queue data, which are lists
+ * of comma separated name=value fields. Fields keep their order, so that {@link #toString()} gives back the parsed
+ * string unless a value was changed.
+ * <p>
+ * A part without '=' is treated as a continuation of the previous value, so that values may contain commas. The
+ * binding key is the last field of binding details and its value is everything after "bindingKey=", so that keys
+ * containing both ',' and '=' are not split into further fields.
+ */
+class BindingDetails {
+
+    static final String BOUND_MESSAGE_ROUTER = "boundMessageRouter";
+    static final String BOUND_QUEUE_NAME = "boundQueueName";
+    static final String BINDING_KEY = "bindingKey";
+    static final String QUEUE_NAME = "queueName";
+
+    private static final char FIELD_SEPARATOR = ',';
+    private static final char VALUE_SEPARATOR = '=';
+
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Values of the fields, null for a leading part without '='.
+     */
+    private final List<String> values = new ArrayList<>();
+
+    private BindingDetails() {
+    }
+
+    /**
+     * Creates binding details in the format of WSO2MB 3.2.0.
+     *
+     * @param messageRouter the message router the queue is bound to
+     * @param queueName     the bound queue
+     * @param bindingKey    the binding key
+     */
+    BindingDetails(String messageRouter, String queueName, String bindingKey) {
+        set(BOUND_MESSAGE_ROUTER, messageRouter);
+        set(BOUND_QUEUE_NAME, queueName);
+        set(BINDING_KEY, bindingKey);
+    }
+
+    /**
+     * Parses a details string in a single pass.
+     *
+     * @param details the details string
+     * @return parsed details
+     */
+    static BindingDetails parse(String details) {
+        BindingDetails bindingDetails = new BindingDetails();
+        int length = details.length();
+        int start = 0;
+        while (start <= length) {
+            int end = details.indexOf(FIELD_SEPARATOR, start);
+            if (end < 0) {
+                end = length;
+            }
+            int separator = details.indexOf(VALUE_SEPARATOR, start);
+            int last = bindingDetails.names.size() - 1;
+            if (separator >= 0 && separator < end) {
+                String name = details.substring(start, separator);
+                bindingDetails.names.add(name);
+                if (BINDING_KEY.equals(name)) {
+                    bindingDetails.values.add(details.substring(separator + 1));
+                    break;
+                }
+                bindingDetails.values.add(details.substring(separator + 1, end));
+            } else if (last >= 0 && null != bindingDetails.values.get(last)) {
+                bindingDetails.values.set(last,
+                        bindingDetails.values.get(last) + FIELD_SEPARATOR + details.substring(start, end));
+            } else {
+                bindingDetails.names.add(details.substring(start, end));
+                bindingDetails.values.add(null);
+            }
+            start = end + 1;
+        }
+        return bindingDetails;
+    }
+
+    /**
+     * Gets the value of a field.
+     *
+     * @param name name of the field
+     * @return value of the first field with the name, or null if there is no such field
+     */
+    String get(String name) {
+        int index = names.indexOf(name);
+        return (index < 0) ? null : values.get(index);
+    }
+
+    /**
+     * Sets the value of a field, adding the field to the end if it does not exist.
+     *
+     * @param name  name of the field
+     * @param value new value
+     */
+    void set(String name, String value) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            names.add(name);
+            values.add(value);
+        } else {
+            values.set(index, value);
+        }
+    }
+
+    /**
+     * Replaces the value of a field if it equals the given value.
+     *
+     * @param name     name of the field
+     * @param oldValue value to be replaced
+     * @param newValue replacement
+     * @return true if the value was replaced
+     */
+    boolean replace(String name, String oldValue, String newValue) {
+        int index = names.indexOf(name);
+        if (index >= 0 && oldValue.equals(values.get(index))) {
+            values.set(index, newValue);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder details = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                details.append(FIELD_SEPARATOR);
+            }
+            details.append(names.get(i));
+            if (null != values.get(i)) {
+                details.append(VALUE_SEPARATOR).append(values.get(i));
+            }
+        }
+        return details.toString();
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small pool of database connections shared by all steps of the migration. Closing a connection obtained from the
+ * pool returns it to the pool instead of closing the physical connection. Each pooled connection also caches the
+ * statements prepared on it, so that closing a prepared statement keeps it open for the next time the same query is
+ * prepared on that connection.
+ */
+class ConnectionPool {
+
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class);
+
+    /**
+     * Maximum time to wait for a connection to be returned to the pool.
+     */
+    private static final long CONNECTION_WAIT_SECONDS = 300;
+
+    private final String url;
+
+    /**
+     * Properties passed to the JDBC driver when opening connections, including the user and the password.
+     */
+    private final Properties connectionProperties;
+
+    private final int maxSize;
+
+    private final int statementCacheSize;
+
+    private final BlockingQueue<PooledConnection> idleConnections = new LinkedBlockingQueue<>();
+
+    private final List<PooledConnection> connections = new ArrayList<>();
+
+    /**
+     * Creates a pool. Connections are opened when they are first needed.
+     *
+     * @param url                  JDBC URL of the database
+     * @param connectionProperties properties passed to the JDBC driver
+     * @param maxSize              maximum number of open connections
+     * @param statementCacheSize   maximum number of statements cached per connection
+     */
+    ConnectionPool(String url, Properties connectionProperties, int maxSize, int statementCacheSize) {
+        this.url = url;
+        this.connectionProperties = connectionProperties;
+        this.maxSize = maxSize;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no connection is idle and the pool is not full.
+     * Otherwise waits until another connection is returned.
+     *
+     * @return connection which is returned to the pool when closed
+     * @throws SQLException if a connection cannot be opened or no connection was returned in time
+     */
+    Connection getConnection() throws SQLException {
+        PooledConnection pooledConnection = idleConnections.poll();
+        if (null == pooledConnection) {
+            pooledConnection = openConnection();
+        }
+        if (null == pooledConnection) {
+            try {
+                pooledConnection = idleConnections.poll(CONNECTION_WAIT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (null == pooledConnection) {
+                throw new SQLException("Timed out waiting for a database connection. All " + maxSize
+                                       + " connections are in use");
+            }
+        }
+        return pooledConnection.lease();
+    }
+
+    /**
+     * Closes all connections of the pool.
+     */
+    synchronized void close() {
+        for (PooledConnection pooledConnection : connections) {
+            pooledConnection.closePhysicalConnection();
+        }
+        connections.clear();
+        idleConnections.clear();
+    }
+
+    private synchronized PooledConnection openConnection() throws SQLException {
+        if (connections.size() >= maxSize) {
+            return null;
+        }
+        PooledConnection pooledConnection =
+                new PooledConnection(DriverManager.getConnection(url, connectionProperties));
+        connections.add(pooledConnection);
+        return pooledConnection;
+    }
+
+    private synchronized void discard(PooledConnection pooledConnection) {
+        connections.remove(pooledConnection);
+        pooledConnection.closePhysicalConnection();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A physical connection along with the statements cached for it.
+     */
+    private final class PooledConnection {
+
+        private final Connection connection;
+
+        /**
+         * Cached statements by query, the least recently used first.
+         */
+        private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+
+        /**
+         * Returns a cached statement for the query, preparing it if it is not cached. A statement which is in use is
+         * not shared, instead a statement which is closed as usual is returned.
+         */
+        PreparedStatement prepareStatement(String query) throws SQLException {
+            CachedStatement cachedStatement = statements.get(query);
+            if (null != cachedStatement && cachedStatement.inUse) {
+                return connection.prepareStatement(query);
+            }
+            if (null == cachedStatement) {
+                cachedStatement = new CachedStatement(connection.prepareStatement(query));
+                statements.put(query, cachedStatement);
+                evictStatements();
+            }
+            cachedStatement.inUse = true;
+            return cachedStatement.proxy;
+        }
+
+        private void evictStatements() {
+            Iterator<CachedStatement> iterator = statements.values().iterator();
+            while (statements.size() > statementCacheSize && iterator.hasNext()) {
+                CachedStatement cachedStatement = iterator.next();
+                if (!cachedStatement.inUse) {
+                    iterator.remove();
+                    cachedStatement.closeQuietly();
+                }
+            }
+        }
+
+        /**
+         * Resets the connection and returns it to the pool, or discards it if it cannot be reset.
+         */
+        void release() {
+            try {
+                for (CachedStatement cachedStatement : statements.values()) {
+                    cachedStatement.release();
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                idleConnections.add(this);
+            } catch (SQLException e) {
+                logger.warn("Discarding database connection which could not be reset", e);
+                discard(this);
+            }
+        }
+
+        void closePhysicalConnection() {
+            for (CachedStatement cachedStatement : statements.values()) {
+                cachedStatement.closeQuietly();
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Error while closing database connection", e);
+            }
+        }
+    }
+
+    /**
+     * A single use of a pooled connection, which ends when the connection is closed.
+     */
+    private final class Lease implements InvocationHandler {
+
+        private final PooledConnection pooledConnection;
+
+        private boolean closed;
+
+        Lease(PooledConnection pooledConnection) {
+            this.pooledConnection = pooledConnection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("close".equals(methodName)) {
+                if (!closed) {
+                    closed = true;
+                    pooledConnection.release();
+                }
+                return null;
+            } else if ("isClosed".equals(methodName)) {
+                return closed || pooledConnection.connection.isClosed();
+            } else if (closed) {
+                throw new SQLException("Connection is closed");
+            } else if ("prepareStatement".equals(methodName) && 1 == args.length) {
+                return pooledConnection.prepareStatement((String) args[0]);
+            }
+            return ConnectionPool.invoke(pooledConnection.connection, method, args);
+        }
+    }
+
+    /**
+     * A prepared statement kept open after it is closed, until it is evicted from the cache.
+     */
+    private static final class CachedStatement implements InvocationHandler {
+
+        private final PreparedStatement statement;
+
+        private final PreparedStatement proxy;
+
+        /**
+         * Fetch size the statement was prepared with, restored when the statement is released.
+         */
+        private final int defaultFetchSize;
+
+        private boolean inUse;
+
+        CachedStatement(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.defaultFetchSize = statement.getFetchSize();
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("close".equals(methodName)) {
+                release();
+                return null;
+            } else if ("isClosed".equals(methodName)) {
+                return !inUse || statement.isClosed();
+            }
+            return ConnectionPool.invoke(statement, method, args);
+        }
+
+        /**
+         * Clears the state left by the previous user of the statement, including the fetch size and the maximum
+         * number of rows, so that the next user of the same query gets a statement as if it was newly prepared.
+         */
+        void release() throws SQLException {
+            if (inUse) {
+                inUse = false;
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.setMaxRows(0);
+                statement.setFetchSize(defaultFetchSize);
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.warn("Error while closing cached statement", e);
+            }
+        }
+    }
+}
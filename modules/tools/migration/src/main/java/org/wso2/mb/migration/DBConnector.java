@@ -18,16 +18,21 @@
 
 package org.wso2.mb.migration;
 
+import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 import org.apache.log4j.Logger;
 
 /**
@@ -44,31 +49,58 @@ class DBConnector {
     private String PASSWORD;
 
     /**
-     * String constants representing tables to be modified.
+     * Maximum number of rows read and committed at once when tables are migrated in batches. Zero or less reads and
+     * updates each table in a single pass.
      */
-    private static final String MB_BINDING = "MB_BINDING";
-    private static final String MB_QUEUE = "MB_QUEUE";
-    private static final String MB_EXCHANGE = "MB_EXCHANGE";
-    private static final String MB_QUEUE_MAPPING = "MB_QUEUE_MAPPING";
-    private static final String MB_SLOT_MESSAGE_ID = "MB_SLOT_MESSAGE_ID";
-    private static final String MB_SLOT = "MB_SLOT";
-    private static final String MB_QUEUE_TO_LAST_ASSIGNED_ID = "MB_QUEUE_TO_LAST_ASSIGNED_ID";
+    private final int batchSize;
+
+    /**
+     * Number of rows the JDBC driver is asked to fetch from the database cursor in a single round trip.
+     */
+    private final int fetchSize;
+
+    /**
+     * Dialect of the database, or null if the database is not known.
+     */
+    private final SqlDialect dialect;
+
+    /**
+     * Whether queue names are converted to lowercase by the database itself instead of reading rows into the tool.
+     */
+    private final boolean pushdownEnabled;
 
     /**
-     * String constants representing patterns used in MB_BINDING table for queue name.
+     * Pool of connections shared by all steps of the migration.
      */
-    private static final String QUEUE_NAME_PATTERN = "queueName=%s";
+    private final ConnectionPool connectionPool;
+
+    private final Modifier modifier = new Modifier();
 
     /**
-    *  String constants representing patterns used in MB_BINDING table for bound queue name.
-    */
-    private static final String BOUND_QUEUE_NAME_PATTERN = "boundQueueName=%s";
+     * Prefix of configuration properties which are passed on to the JDBC driver.
+     */
+    private static final String DRIVER_PROPERTY_PREFIX = "db.";
 
     /**
-    *  String constants representing patterns used in MB_BINDING table for binding key.
-    */
-    private static final String BINDING_KEY_PATTERN = "bindingKey=%s";
+     * Maximum number of prepared statements cached for each pooled connection.
+     */
+    private static final int STATEMENT_CACHE_SIZE = 64;
 
+    /**
+     * Number of rows read at once when scanning a table while migrating in a single pass.
+     */
+    private static final int SCAN_PAGE_SIZE = 10000;
+
+    /**
+     * String constants representing tables to be modified.
+     */
+    private static final String MB_BINDING = "MB_BINDING";
+    private static final String MB_QUEUE = "MB_QUEUE";
+    private static final String MB_EXCHANGE = "MB_EXCHANGE";
+    private static final String MB_QUEUE_MAPPING = "MB_QUEUE_MAPPING";
+    private static final String MB_SLOT_MESSAGE_ID = "MB_SLOT_MESSAGE_ID";
+    private static final String MB_SLOT = "MB_SLOT";
+    private static final String MB_QUEUE_TO_LAST_ASSIGNED_ID = "MB_QUEUE_TO_LAST_ASSIGNED_ID";
 
     /**
      * String constants representing table columns.
@@ -92,7 +124,25 @@ class DBConnector {
     private static final String GET_SLOTS = "SELECT * FROM " + MB_SLOT;
     private static final String GET_MB_QUEUE_TO_LAST_ASSIGNED_IDS = "SELECT * FROM " + MB_QUEUE_TO_LAST_ASSIGNED_ID;
 
+    /**
+     * Queries reading bindings page by page ordered by the queue name. Bindings are updated by queue name and a queue
+     * name is not unique in MB_BINDING, hence a page always holds all bindings of the queues it reads.
+     */
+    private static final String[] BINDING_KEY_COLUMNS = {QUEUE_NAME};
+    private static final String BINDING_ORDER_BY = " ORDER BY " + QUEUE_NAME + ", " + EXCHANGE_NAME;
+    private static final String GET_BINDINGS_FIRST_PAGE = GET_BINDINGS + BINDING_ORDER_BY;
+    private static final String GET_BINDINGS_NEXT_PAGE = GET_BINDINGS
+                                                + " WHERE " + KeysetPagination.afterKeyCondition(BINDING_KEY_COLUMNS)
+                                                + BINDING_ORDER_BY;
+    private static final String GET_BINDINGS_OF_QUEUE = GET_BINDINGS + " WHERE " + QUEUE_NAME + " = ?"
+                                                + BINDING_ORDER_BY;
 
+    /**
+     * Queries reading and removing changes recorded by an online migration.
+     */
+    private static final String GET_CHANGES = "SELECT CHANGE_ID, TABLE_NAME, QUEUE_NAME, ROW_ID FROM "
+                                                + SqlDialect.CHANGE_LOG + " ORDER BY CHANGE_ID";
+    private static final String DELETE_CHANGE = "DELETE FROM " + SqlDialect.CHANGE_LOG + " WHERE CHANGE_ID = ?";
 
     /**
      * Queries related to updating queues.
@@ -138,6 +188,20 @@ class DBConnector {
 
     private static final Logger logger = Logger.getLogger(DBConnector.class);
 
+    /**
+     * Listener notified each time a batch of a partition is committed.
+     */
+    interface BatchListener {
+
+        /**
+         * Invoked after a batch of a partition is committed.
+         *
+         * @param partition the partition
+         * @param lastKey   key of the last row of the batch
+         * @param rowCount  number of rows read in the batch
+         */
+        void batchCommitted(TablePartition partition, Object[] lastKey, int rowCount);
+    }
 
 
 
@@ -147,16 +211,74 @@ class DBConnector {
         DB_URL = properties.getProperty("dburl");
         USER = properties.getProperty("dbuser");
         PASSWORD = properties.getProperty("dbpassword");
+
+        // Properties prefixed with "db." are passed on to the JDBC driver, e.g. db.rewriteBatchedStatements=true
+        Properties connectionProperties = new Properties();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(DRIVER_PROPERTY_PREFIX)) {
+                connectionProperties.setProperty(name.substring(DRIVER_PROPERTY_PREFIX.length()),
+                        properties.getProperty(name).trim());
+            }
+        }
+        if (null != USER) {
+            connectionProperties.setProperty("user", USER);
+        }
+        if (null != PASSWORD) {
+            connectionProperties.setProperty("password", PASSWORD);
+        }
+        int threadCount = Integer.parseInt(properties.getProperty("threads", "1").trim());
+        int poolSize = Integer.parseInt(properties.getProperty("poolsize", Integer.toString(threadCount + 1)).trim());
+        connectionPool = new ConnectionPool(DB_URL, connectionProperties, Math.max(1, poolSize),
+                STATEMENT_CACHE_SIZE);
+
+        batchSize = Integer.parseInt(properties.getProperty("batchsize", "0").trim());
+        fetchSize = Integer.parseInt(properties.getProperty("fetchsize", "1000").trim());
+        dialect = SqlDialect.fromUrl(DB_URL);
+        boolean pushdown = Boolean.parseBoolean(properties.getProperty("pushdown", "false").trim());
+        if (pushdown && null == dialect) {
+            logger.warn("Database of " + DB_URL + " is not known. Queue names will be converted by the tool.");
+        }
+        pushdownEnabled = pushdown && null != dialect;
+    }
+
+    /**
+     * Checks whether queue names should be converted to lowercase by the database itself.
+     *
+     * @return true if pushdown is configured and the database is known
+     */
+    boolean isPushdownEnabled() {
+        return pushdownEnabled;
+    }
+
+    /**
+     * Checks whether tables should be read and updated in bounded batches instead of in a single pass.
+     *
+     * @return true if a positive batch size is configured
+     */
+    boolean isBatchingEnabled() {
+        return batchSize > 0;
+    }
+
+    int getBatchSize() {
+        return batchSize;
     }
 
     /**
-     * Retrieves the connection object initialized by the provided properties.
+     * Retrieves a connection from the connection pool initialized by the provided properties. Closing the
+     * connection returns it to the pool, and statements prepared on it are cached for later use.
      *
      * @return the connection object
      * @throws SQLException when a database error occurs
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, USER, PASSWORD);
+        return connectionPool.getConnection();
+    }
+
+    /**
+     * Closes all pooled connections.
+     */
+    void close() {
+        connectionPool.close();
     }
 
     /**
@@ -220,6 +342,58 @@ class DBConnector {
         return bindings;
     }
 
+    /**
+     * Retrieve a page of bindings ordered by queue name and exchange name. The page is extended past the limit with
+     * the remaining bindings of its last queue, so that the bindings of a queue are never split between pages.
+     *
+     * @param lastBinding the last binding of the previous page, or null to read the first page
+     * @param limit       number of bindings to read, extended to the end of the last queue read
+     * @return a list of bindings, fewer than limit only for the last page
+     * @throws SQLException if a database error occurs when closing the connection
+     */
+    List<Binding> readBindings(Binding lastBinding, int limit) throws SQLException {
+        List<Binding> bindings = new ArrayList<>(limit);
+
+        try (Connection conn = getConnection()) {
+            try (PreparedStatement preparedStatement = conn.prepareStatement(
+                    null == lastBinding ? GET_BINDINGS_FIRST_PAGE : GET_BINDINGS_NEXT_PAGE)) {
+
+                if (null != lastBinding) {
+                    KeysetPagination.setAfterKeyParameters(preparedStatement, 1,
+                            new Object[]{lastBinding.getQueueName()});
+                }
+                preparedStatement.setMaxRows(limit);
+                preparedStatement.setFetchSize(Math.min(limit, fetchSize));
+                readBindings(preparedStatement, bindings);
+            }
+
+            if (bindings.size() == limit) {
+                // Replace the bindings read of the last queue with all of its bindings
+                String lastQueueName = bindings.get(bindings.size() - 1).getQueueName();
+                while (!bindings.isEmpty() && lastQueueName.equals(bindings.get(bindings.size() - 1).getQueueName())) {
+                    bindings.remove(bindings.size() - 1);
+                }
+                try (PreparedStatement preparedStatement = conn.prepareStatement(GET_BINDINGS_OF_QUEUE)) {
+                    preparedStatement.setString(1, lastQueueName);
+                    preparedStatement.setMaxRows(0);
+                    preparedStatement.setFetchSize(fetchSize);
+                    readBindings(preparedStatement, bindings);
+                }
+            }
+        }
+        return bindings;
+    }
+
+    private static void readBindings(PreparedStatement preparedStatement, List<Binding> bindings)
+            throws SQLException {
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                bindings.add(new Binding(resultSet.getString(EXCHANGE_NAME), resultSet.getString(QUEUE_NAME),
+                        resultSet.getString(BINDING_DETAILS)));
+            }
+        }
+    }
+
     /**
      * Retrieves all the DLC queues from the database. There could be multiple DLC queues if tenants were present.
      *
@@ -263,57 +437,54 @@ class DBConnector {
     /**
      * Make queue names of MB_QUEUE table all simple letters. Before that read and delete
      * all entries in MB_BINDING to get rid of foreign key constraints. Then update
-     * MB_BINDING table as well with modified queue names.
+     * MB_BINDING table as well with modified queue names. All changes are made in a single
+     * transaction so that bindings are never lost if the migration stops halfway.
      *
      * @throws SQLException in case of executing updates
      */
     void updateQueueNamesInQueuesAndBindings() throws SQLException {
 
-        try (Connection conn = getConnection();
-             PreparedStatement getBindingsStatement = conn.prepareStatement(GET_BINDINGS);
-             ResultSet bindingsResultSet = getBindingsStatement.executeQuery();
-             PreparedStatement removeBindingsStatement = conn.prepareStatement(DELETE_ALL_BINDINGS);
-             PreparedStatement getQueuesPreparedStatement = conn.prepareStatement(GET_QUEUES);
-             PreparedStatement updatePreparedStatement =  conn.prepareStatement(UPDATE_QUEUE);
-             PreparedStatement addBindingsStatement = conn.prepareStatement(INSERT_BINDING);
-             ResultSet getQueuesResultSet = getQueuesPreparedStatement.executeQuery()) {
-
-
-            //delete all bindings to get rid of constraints
-            removeBindingsStatement.executeUpdate();
-            updateQueueNamesInQueues(updatePreparedStatement, getQueuesResultSet);
-
-            while (bindingsResultSet.next()) {
-                String queueName = bindingsResultSet.getString(QUEUE_NAME);
-                String bindingData = bindingsResultSet.getString(BINDING_DETAILS);
-                if (queueNameHasCapitals(queueName)) {
-                    String newQueueName = queueName.toLowerCase();
-                    bindingData = bindingData.replaceAll(generateQueueNameString(queueName),
-                            generateQueueNameString(newQueueName));
-                    bindingData = bindingData.replaceAll(generateBoundQueueNameDataString(queueName),
-                            generateBoundQueueNameDataString(newQueueName));
-                    queueName = newQueueName;
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement getBindingsStatement = conn.prepareStatement(GET_BINDINGS);
+                 PreparedStatement removeBindingsStatement = conn.prepareStatement(DELETE_ALL_BINDINGS);
+                 PreparedStatement getQueuesPreparedStatement = conn.prepareStatement(GET_QUEUES);
+                 PreparedStatement updatePreparedStatement = conn.prepareStatement(UPDATE_QUEUE);
+                 PreparedStatement addBindingsStatement = conn.prepareStatement(INSERT_BINDING)) {
+
+                List<Binding> bindings = new ArrayList<>();
+                try (ResultSet bindingsResultSet = getBindingsStatement.executeQuery()) {
+                    while (bindingsResultSet.next()) {
+                        bindings.add(new Binding(bindingsResultSet.getString(EXCHANGE_NAME),
+                                bindingsResultSet.getString(QUEUE_NAME),
+                                bindingsResultSet.getString(BINDING_DETAILS)));
+                    }
                 }
 
-                Pattern pattern = Pattern.compile("bindingKey=.*");
-                Matcher matcher = pattern.matcher(bindingData);
-
-                if (matcher.find()) {
-                    String bindingKey = matcher.group(0).split("=")[1];
+                //delete all bindings to get rid of constraints
+                removeBindingsStatement.executeUpdate();
+                try (ResultSet getQueuesResultSet = getQueuesPreparedStatement.executeQuery()) {
+                    updateQueueNamesInQueues(updatePreparedStatement, getQueuesResultSet);
+                }
 
-                    if(bindingKeyHasCapitals(bindingKey)) {
-                        String newBindingKey = bindingKey.toLowerCase();
-                        bindingData = bindingData.replaceAll(generateBindingKeyDataString(bindingKey),
-                                generateBindingKeyDataString(newBindingKey));
+                for (Binding binding : bindings) {
+                    String queueName = binding.getQueueName();
+                    String bindingData = modifier.lowerCaseBindingDetails(binding.getBindingDetails(), queueName);
+                    if (queueNameHasCapitals(queueName)) {
+                        queueName = queueName.toLowerCase();
                     }
+                    addBindingsStatement.setString(1, binding.getMessageRouter());
+                    addBindingsStatement.setString(2, queueName);
+                    addBindingsStatement.setString(3, bindingData);
+                    addBindingsStatement.addBatch();
                 }
-                addBindingsStatement.setString(1, bindingsResultSet.getString(EXCHANGE_NAME));
-                addBindingsStatement.setString(2, queueName);
-                addBindingsStatement.setString(3, bindingData);
-                addBindingsStatement.addBatch();
-            }
-            addBindingsStatement.executeBatch();
+                addBindingsStatement.executeBatch();
+                conn.commit();
 
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         }
     }
 
@@ -329,8 +500,7 @@ class DBConnector {
             if (queueNameHasCapitals(queueName)) {
                 String newQueueName = queueName.toLowerCase();
                 String queueData = resultSet.getString(QUEUE_DATA);
-                String newQueueData = queueData.replaceAll(generateQueueNameString(queueName),
-                        generateQueueNameString(newQueueName));
+                String newQueueData = modifier.lowerCaseQueueData(queueData, queueName);
 
                 updateStatement.setString(1, newQueueName);
                 updateStatement.setString(2, newQueueData);
@@ -340,33 +510,6 @@ class DBConnector {
         }
     }
 
-    /**
-     * Generate new queue name to put into database.
-     * @param queueName Name of queue
-     * @return generated data string
-     */
-    private String generateQueueNameString(String queueName) {
-        return String.format(QUEUE_NAME_PATTERN, queueName);
-    }
-
-    /**
-     * Generate new queue name to put into database.
-     * @param bindingKey Name of binding key
-     * @return generated data string
-     */
-    private String generateBindingKeyDataString(String bindingKey) {
-        return String.format(BINDING_KEY_PATTERN, bindingKey);
-    }
-
-    /**
-     * Generate new queue name to put into database.
-     * @param queueName Name of bound queue
-     * @return generated data string
-     */
-    private String generateBoundQueueNameDataString(String queueName) {
-        return String.format(BOUND_QUEUE_NAME_PATTERN, queueName);
-    }
-
     /**
      * Make all queue names in MB_SLOT table all simple
      *
@@ -470,25 +613,891 @@ class DBConnector {
         }
     }
 
+    /**
+     * Split a table into partitions which can be migrated independently of each other. Tables grouped by queue name
+     * are first partitioned by queue name, skipping queues which are already in lowercase. Tables with a range column
+     * are then split into at most the given number of ranges, each of at least batch size values.
+     *
+     * @param table     the table to be partitioned
+     * @param maxRanges maximum number of ranges each queue or the whole table is split into
+     * @return partitions covering all rows of the table that may have to be updated
+     * @throws SQLException when a database error occurs
+     */
+    List<TablePartition> getPartitions(QueueNameTable table, int maxRanges) throws SQLException {
+
+        List<TablePartition> partitions = new ArrayList<>();
+        if (null == table.getRangeColumn()) {
+            partitions.add(new TablePartition(table));
+            return partitions;
+        }
+
+        try (Connection conn = getConnection()) {
+            if (table.isGroupedByQueueName()) {
+                List<String> queueNames = new ArrayList<>();
+                try (PreparedStatement preparedStatement = conn.prepareStatement(table.getDistinctQueueNamesQuery());
+                     ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        String queueName = resultSet.getString(1);
+                        if (queueNameHasCapitals(queueName)) {
+                            queueNames.add(queueName);
+                        }
+                    }
+                }
+                for (String queueName : queueNames) {
+                    addRangePartitions(conn, table, table.getQueueNameColumn() + " = ?",
+                            new Object[]{queueName}, "queue " + queueName + ", ", maxRanges, batchSize, partitions);
+                }
+            } else {
+                addRangePartitions(conn, table, null, new Object[0], "", maxRanges, batchSize, partitions);
+            }
+        }
+        return partitions;
+    }
 
     /**
-     * Check if string has any uppercase letter
+     * Split the rows of a table matching a condition into ranges of the range column of the table.
      *
-     * @param queueName Name of queue
-     * @return true if has any upper case letter
+     * @param conn        the connection to be used
+     * @param table       the table to be partitioned
+     * @param condition   condition selecting the rows to be split, or null to split the whole table
+     * @param parameters  values of the parameters of the condition
+     * @param description description of the rows selected by the condition
+     * @param maxRanges   maximum number of ranges
+     * @param rangeSize   minimum number of values of each range
+     * @param partitions  list the created partitions are added to
+     * @throws SQLException when a database error occurs
      */
-    private boolean queueNameHasCapitals(String queueName) {
-        return !queueName.equals(queueName.toLowerCase());
+    private void addRangePartitions(Connection conn, QueueNameTable table, String condition, Object[] parameters,
+                                    String description, int maxRanges, int rangeSize,
+                                    List<TablePartition> partitions) throws SQLException {
+
+        long min;
+        long max;
+        try (PreparedStatement preparedStatement = conn.prepareStatement(table.getRangeQuery(condition))) {
+            for (int i = 0; i < parameters.length; i++) {
+                preparedStatement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                min = resultSet.getLong(1);
+                if (resultSet.wasNull()) {
+                    // No rows to be migrated
+                    return;
+                }
+                max = resultSet.getLong(2);
+            }
+        }
+
+        String rangeColumn = table.getRangeColumn();
+        String rangeCondition = (null == condition ? "" : condition + " AND ")
+                                + rangeColumn + " >= ? AND " + rangeColumn + " <= ?";
+        long valueCount = max - min + 1;
+        long rangeCount = Math.max(1, Math.min(maxRanges, valueCount / Math.max(1, rangeSize)));
+        long valuesPerRange = (valueCount + rangeCount - 1) / rangeCount;
+
+        for (long lower = min; lower <= max && lower >= min; lower += valuesPerRange) {
+            long upper = Math.min(max, lower + valuesPerRange - 1);
+            Object[] rangeParameters = Arrays.copyOf(parameters, parameters.length + 2);
+            rangeParameters[parameters.length] = lower;
+            rangeParameters[parameters.length + 1] = upper;
+            partitions.add(new TablePartition(table, partitions.size(), rangeCondition, rangeParameters,
+                    description + rangeColumn + " " + lower + " to " + upper));
+        }
+    }
+
+    /**
+     * Make queue names of a partition of a table all simple using a single update statement executed by the database,
+     * so that no rows are transferred to the tool. Queue names are compared case sensitively in the database, even
+     * if the collation of the column is case insensitive.
+     *
+     * @param partition the partition to be updated
+     * @return number of updated rows
+     * @throws SQLException in case of executing update
+     */
+    int updateQueueNamesInDatabase(TablePartition partition) throws SQLException {
+        int updateCount;
+        try (Connection conn = getConnection();
+             PreparedStatement updateStatement = conn.prepareStatement(
+                     partition.getTable().getLowerCaseUpdateQuery(dialect, partition.getCondition()))) {
+            Object[] parameters = partition.getParameters();
+            for (int i = 0; i < parameters.length; i++) {
+                updateStatement.setObject(i + 1, parameters[i]);
+            }
+            updateCount = updateStatement.executeUpdate();
+        }
+        logger.info("Converted " + updateCount + " queue names into lowercase in " + partition);
+        return updateCount;
+    }
+
+    /**
+     * Count the rows of a partition.
+     *
+     * @param partition the partition
+     * @return number of rows in the partition
+     * @throws SQLException when a database error occurs
+     */
+    long countRows(TablePartition partition) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(
+                     partition.getTable().getCountQuery(partition.getCondition()))) {
+            Object[] parameters = partition.getParameters();
+            for (int i = 0; i < parameters.length; i++) {
+                preparedStatement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Make queue names of a partition of a table all simple without loading the partition into memory. The rows of
+     * the partition are read in pages of at most batch size rows ordered by the key of the table, where each page
+     * continues after the last key of the previous one and is fetched through a cursor of fetch size rows. Updates
+     * of each page are sent as a single batch and committed before the next page is read, hence neither memory nor
+     * locks grow with the table size.
+     *
+     * @param partition     the partition to be updated
+     * @param startAfterKey key after which the partition is read, or null to read the whole partition
+     * @param listener      listener notified after each committed batch
+     * @throws SQLException in case of executing updates
+     */
+    void updateQueueNamesInBatches(TablePartition partition, Object[] startAfterKey, BatchListener listener)
+            throws SQLException {
+
+        QueueNameTable table = partition.getTable();
+        String[] keyColumns = table.getKeyColumns();
+        Object[] partitionParameters = partition.getParameters();
+        int updatedColumnCount = table.getUpdatedColumns().length;
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement firstPageStatement = conn.prepareStatement(
+                         table.getPageQuery(partition.getCondition(), false));
+                 PreparedStatement nextPageStatement = conn.prepareStatement(
+                         table.getPageQuery(partition.getCondition(), true));
+                 PreparedStatement updateStatement = conn.prepareStatement(table.getUpdateQuery())) {
+
+                Object[] lastKey = startAfterKey;
+                int rowCount;
+                do {
+                    PreparedStatement pageStatement = (null == lastKey) ? firstPageStatement : nextPageStatement;
+                    int index = 1;
+                    for (Object parameter : partitionParameters) {
+                        pageStatement.setObject(index++, parameter);
+                    }
+                    if (null != lastKey) {
+                        KeysetPagination.setAfterKeyParameters(pageStatement, index, lastKey);
+                    }
+                    pageStatement.setMaxRows(batchSize);
+                    pageStatement.setFetchSize(Math.min(batchSize, fetchSize));
+
+                    rowCount = 0;
+                    int updateCount = 0;
+                    try (ResultSet resultSet = pageStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            rowCount++;
+                            lastKey = KeysetPagination.readKey(resultSet, keyColumns);
+                            String queueName = resultSet.getString(QueueNameTable.QUEUE_NAME_LABEL);
+                            if (queueNameHasCapitals(queueName)) {
+                                String newQueueName = queueName.toLowerCase();
+                                index = 1;
+                                for (int i = 0; i < updatedColumnCount; i++) {
+                                    updateStatement.setString(index++, newQueueName);
+                                }
+                                for (Object keyValue : lastKey) {
+                                    updateStatement.setObject(index++, keyValue);
+                                }
+                                updateStatement.addBatch();
+                                updateCount++;
+                            }
+                        }
+                    }
+                    if (updateCount > 0) {
+                        updateStatement.executeBatch();
+                    }
+                    conn.commit();
+                    if (rowCount > 0) {
+                        listener.batchCommitted(partition, lastKey, rowCount);
+                    }
+                } while (rowCount == batchSize);
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        logger.info("Converted queue names into lowercase in " + partition);
+    }
+
+    /**
+     * Checks whether tables can be migrated online, which requires triggers recording the changes made by the broker
+     * while the tables are copied.
+     *
+     * @return true if all statements of an online migration are supported for the database
+     */
+    boolean isOnlineMigrationSupported() {
+        return null != dialect && dialect.isOnlineMigrationSupported();
+    }
+
+    /**
+     * Prepare an online migration of the queue name tables. Creates the change log table and an empty shadow table
+     * for each table, and then triggers recording the key of each row changed in the tables, so that changes made
+     * while the tables are copied can be applied to the shadow tables afterwards. Shadow tables and the change log
+     * left by an earlier attempt are emptied.
+     *
+     * @throws SQLException when a database error occurs, or if a shadow table does not exist and cannot be created
+     *                      for the database
+     */
+    void prepareOnlineMigration() throws SQLException {
+        try (Connection conn = getConnection()) {
+            if (tableExists(conn, SqlDialect.CHANGE_LOG)) {
+                execute(conn, "DELETE FROM " + SqlDialect.CHANGE_LOG);
+            } else {
+                execute(conn, dialect.createChangeLogTable());
+            }
+            for (QueueNameTable table : QueueNameTable.values()) {
+                String shadowTable = table.getShadowTableName();
+                execute(conn, dialect.dropChangeCaptureTriggers(table.getTableName(), table.getTriggerName()));
+                if (tableExists(conn, shadowTable)) {
+                    execute(conn, "TRUNCATE TABLE " + shadowTable);
+                } else if (null != dialect.createShadowTable(table.getTableName(), shadowTable)) {
+                    execute(conn, dialect.createShadowTable(table.getTableName(), shadowTable));
+                } else {
+                    throw new SQLException("Table " + shadowTable + " does not exist. Create it with the same "
+                                           + "definition as " + table.getTableName() + " before migrating online.");
+                }
+                execute(conn, dialect.createChangeCaptureTriggers(table.getTableName(), table.getTriggerName(),
+                        table.getChangeLogQueueNameColumn(), table.getRangeColumn()));
+            }
+        }
+        logger.info("Created shadow tables and change capture triggers for the online migration");
+    }
+
+    /**
+     * Split a table into partitions to be copied to its shadow table. Tables with a range column are split into
+     * ranges of about the given number of values, so that each copy statement is short even on a live database.
+     *
+     * @param table     the table
+     * @param rangeSize number of values of the range column in each partition
+     * @return partitions covering all rows of the table
+     * @throws SQLException when a database error occurs
+     */
+    List<TablePartition> getCopyPartitions(QueueNameTable table, int rangeSize) throws SQLException {
+        List<TablePartition> partitions = new ArrayList<>();
+        if (null == table.getRangeColumn()) {
+            partitions.add(new TablePartition(table));
+            return partitions;
+        }
+        try (Connection conn = getConnection()) {
+            addRangePartitions(conn, table, null, new Object[0], "", Integer.MAX_VALUE, rangeSize, partitions);
+        }
+        return partitions;
+    }
+
+    /**
+     * Copy a partition of a table to its shadow table within the database, converting queue names to lowercase.
+     *
+     * @param partition the partition
+     * @return number of copied rows
+     * @throws SQLException when a database error occurs
+     */
+    int copyPartition(TablePartition partition) throws SQLException {
+        QueueNameTable table = partition.getTable();
+        try (Connection conn = getConnection()) {
+            String copyQuery = table.getCopyQuery(dialect, getColumns(conn, table.getTableName(), false),
+                    partition.getCondition());
+            boolean identityInsert = setIdentityInsert(conn, table, true);
+            try (PreparedStatement copyStatement = conn.prepareStatement(copyQuery)) {
+                Object[] parameters = partition.getParameters();
+                for (int i = 0; i < parameters.length; i++) {
+                    copyStatement.setObject(i + 1, parameters[i]);
+                }
+                return copyStatement.executeUpdate();
+            } finally {
+                if (identityInsert) {
+                    setIdentityInsert(conn, table, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply the oldest changes recorded in the change log to the shadow tables. The rows of each changed key are
+     * deleted from the shadow table and copied again from the source table, so applying a change more than once
+     * gives the same result. Applied changes are removed from the change log in the same transaction.
+     *
+     * @param limit maximum number of changes to be applied
+     * @return number of applied changes
+     * @throws SQLException when a database error occurs
+     */
+    int applyChanges(int limit) throws SQLException {
+        List<Long> changeIds = new ArrayList<>();
+        Map<QueueNameTable, Set<List<Object>>> changedKeys = new EnumMap<>(QueueNameTable.class);
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement preparedStatement = conn.prepareStatement(GET_CHANGES)) {
+                    preparedStatement.setMaxRows(limit);
+                    preparedStatement.setFetchSize(Math.min(limit, fetchSize));
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            changeIds.add(resultSet.getLong(1));
+                            QueueNameTable table = getQueueNameTable(resultSet.getString(2));
+                            String queueName = resultSet.getString(3);
+                            long rowId = resultSet.getLong(4);
+                            Object[] key = readChangedKey(table, queueName, resultSet.wasNull() ? null : rowId);
+                            if (!changedKeys.containsKey(table)) {
+                                changedKeys.put(table, new LinkedHashSet<List<Object>>());
+                            }
+                            changedKeys.get(table).add(Arrays.asList(key));
+                        }
+                    }
+                }
+                for (Map.Entry<QueueNameTable, Set<List<Object>>> entry : changedKeys.entrySet()) {
+                    applyChanges(conn, entry.getKey(), entry.getValue());
+                }
+                try (PreparedStatement deleteStatement = conn.prepareStatement(DELETE_CHANGE)) {
+                    for (Long changeId : changeIds) {
+                        deleteStatement.setLong(1, changeId);
+                        deleteStatement.addBatch();
+                    }
+                    if (!changeIds.isEmpty()) {
+                        deleteStatement.executeBatch();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return changeIds.size();
+    }
+
+    /**
+     * Count the changes recorded in the change log which are not yet applied.
+     *
+     * @return number of pending changes
+     * @throws SQLException when a database error occurs
+     */
+    long countPendingChanges() throws SQLException {
+        return countRows(SqlDialect.CHANGE_LOG);
+    }
+
+    /**
+     * Drop the triggers recording changes of the queue name tables.
+     *
+     * @throws SQLException when a database error occurs
+     */
+    void dropChangeCapture() throws SQLException {
+        try (Connection conn = getConnection()) {
+            for (QueueNameTable table : QueueNameTable.values()) {
+                execute(conn, dialect.dropChangeCaptureTriggers(table.getTableName(), table.getTriggerName()));
+            }
+        }
+    }
+
+    /**
+     * Replace each queue name table with its shadow table by renaming the tables. The original tables are kept
+     * under their old table names. All tables are renamed atomically on MySQL, MSSQL and PostgreSQL, while on Oracle
+     * each rename is committed on its own. Sequences owned by columns of the original tables are handed over to the shadow
+     * tables, so that they are not dropped along with the original tables. The change log is dropped afterwards.
+     *
+     * @throws SQLException when a database error occurs
+     */
+    void replaceTablesWithShadowTables() throws SQLException {
+        List<String[]> renames = new ArrayList<>();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (QueueNameTable table : QueueNameTable.values()) {
+                    transferSequences(conn, table);
+                    renames.add(new String[]{table.getTableName(), table.getOldTableName()});
+                    renames.add(new String[]{table.getShadowTableName(), table.getTableName()});
+                }
+                execute(conn, dialect.renameTables(renames));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            conn.setAutoCommit(true);
+            execute(conn, "DROP TABLE " + SqlDialect.CHANGE_LOG);
+        }
+        logger.info("Replaced queue name tables with migrated shadow tables");
+    }
+
+    /**
+     * Apply changes of a table to its shadow table. Deletes are sent as a batch followed by a batch of copies, which
+     * is correct since each key appears only once.
+     */
+    private void applyChanges(Connection conn, QueueNameTable table, Set<List<Object>> keys) throws SQLException {
+        String queueNameColumn = table.getQueueNameColumn();
+        String[] keyColumns = table.getKeyColumns();
+        String copyQuery = table.getCopyQuery(dialect, getColumns(conn, table.getTableName(), false),
+                table.getKeyCondition());
+        boolean identityInsert = setIdentityInsert(conn, table, true);
+
+        try (PreparedStatement deleteStatement = conn.prepareStatement(
+                     "DELETE FROM " + table.getShadowTableName() + " WHERE " + table.getKeyCondition());
+             PreparedStatement copyStatement = conn.prepareStatement(copyQuery)) {
+            for (List<Object> key : keys) {
+                for (int i = 0; i < keyColumns.length; i++) {
+                    Object value = key.get(i);
+                    // Queue names of the shadow table are already in lowercase
+                    deleteStatement.setObject(i + 1, keyColumns[i].equals(queueNameColumn)
+                            ? ((String) value).toLowerCase() : value);
+                    copyStatement.setObject(i + 1, value);
+                }
+                deleteStatement.addBatch();
+                copyStatement.addBatch();
+            }
+            deleteStatement.executeBatch();
+            copyStatement.executeBatch();
+        } finally {
+            if (identityInsert) {
+                setIdentityInsert(conn, table, false);
+            }
+        }
+    }
+
+    /**
+     * Reads the key of a changed row from a change log entry. The key of each queue name table consists of the queue
+     * name column, the range column or both.
+     */
+    private Object[] readChangedKey(QueueNameTable table, String queueName, Long rowId) {
+        String[] keyColumns = table.getKeyColumns();
+        Object[] key = new Object[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            key[i] = keyColumns[i].equals(table.getQueueNameColumn()) ? queueName : rowId;
+        }
+        return key;
+    }
+
+    private QueueNameTable getQueueNameTable(String tableName) throws SQLException {
+        for (QueueNameTable table : QueueNameTable.values()) {
+            if (table.getTableName().equalsIgnoreCase(tableName)) {
+                return table;
+            }
+        }
+        throw new SQLException("Unknown table " + tableName + " in " + SqlDialect.CHANGE_LOG);
+    }
+
+    /**
+     * Allows explicit values to be inserted into the identity column of the shadow table of a table, if the
+     * database requires it.
+     *
+     * @return true if a statement was executed
+     */
+    private boolean setIdentityInsert(Connection conn, QueueNameTable table, boolean enabled) throws SQLException {
+        String statement = dialect.setIdentityInsert(table.getShadowTableName(), enabled);
+        if (null == statement || getColumns(conn, table.getTableName(), true).isEmpty()) {
+            return false;
+        }
+        execute(conn, statement);
+        return true;
+    }
+
+    /**
+     * Makes the columns of the shadow table of a table the owners of the sequences owned by the columns of the table.
+     */
+    private void transferSequences(Connection conn, QueueNameTable table) throws SQLException {
+        String sequenceQuery = dialect.getSerialSequenceQuery();
+        if (null == sequenceQuery) {
+            return;
+        }
+        for (String column : getColumns(conn, table.getTableName(), true)) {
+            String sequence;
+            try (PreparedStatement preparedStatement = conn.prepareStatement(sequenceQuery)) {
+                preparedStatement.setString(1, table.getTableName());
+                preparedStatement.setString(2, column);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    resultSet.next();
+                    sequence = resultSet.getString(1);
+                }
+            }
+            if (null != sequence) {
+                execute(conn, dialect.transferSequence(sequence, table.getShadowTableName(), column));
+            }
+        }
+    }
+
+    /**
+     * Reads the column names of a table.
+     *
+     * @param conn         the connection to be used
+     * @param tableName    the table
+     * @param identityOnly whether only auto increment columns are read
+     * @return column names in the order of the table
+     * @throws SQLException when a database error occurs
+     */
+    private List<String> getColumns(Connection conn, String tableName, boolean identityOnly) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement preparedStatement = conn.prepareStatement(
+                     "SELECT * FROM " + tableName + " WHERE 1 = 0");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (!identityOnly || metaData.isAutoIncrement(i)) {
+                    columns.add(metaData.getColumnName(i));
+                }
+            }
+        }
+        return columns;
+    }
+
+    private boolean tableExists(Connection conn, String tableName) {
+        try (PreparedStatement preparedStatement = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM " + tableName + " WHERE 1 = 0");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            return resultSet.next();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void execute(Connection conn, String sql) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private void execute(Connection conn, List<String> statements) throws SQLException {
+        for (String sql : statements) {
+            execute(conn, sql);
+        }
+    }
+
+    /**
+     * Export a table to a store archive. The table is read in a single pass, fetching "fetchsize" rows at a time,
+     * hence only that many rows are held in memory.
+     *
+     * @param tableName the table to be exported
+     * @param writer    the archive the table is written to
+     * @return number of exported rows
+     * @throws SQLException when a database error occurs
+     * @throws IOException  when the archive cannot be written
+     */
+    long exportTable(String tableName, StoreArchive.Writer writer) throws SQLException, IOException {
+        try (Connection conn = getConnection()) {
+            // PostgreSQL only fetches rows in batches within a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = conn.prepareStatement("SELECT * FROM " + tableName)) {
+                preparedStatement.setFetchSize(fetchSize);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    ResultSetMetaData metaData = resultSet.getMetaData();
+                    String[] columns = new String[metaData.getColumnCount()];
+                    byte[] types = new byte[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        columns[i] = metaData.getColumnName(i + 1);
+                        types[i] = StoreArchive.getType(metaData.getColumnType(i + 1));
+                    }
+                    writer.startTable(tableName, columns, types);
+                    Object[] values = new Object[columns.length];
+                    long rowCount = 0;
+                    while (resultSet.next()) {
+                        for (int i = 0; i < columns.length; i++) {
+                            values[i] = readArchiveValue(resultSet, i + 1, types[i]);
+                        }
+                        writer.writeRow(values);
+                        rowCount++;
+                    }
+                    writer.endTable();
+                    return rowCount;
+                }
+            }
+        }
+    }
+
+    /**
+     * Import the rows of the current table of a store archive into the table of the same name. Rows are inserted in
+     * JDBC batches which are committed one by one, so that the transactions stay small. Drivers send batches fastest
+     * when they rewrite them into multi-row inserts, e.g. with db.rewriteBatchedStatements=true for MySQL and
+     * db.reWriteBatchedInserts=true for PostgreSQL. Identity columns keep the archived values and generate values
+     * following them afterwards.
+     *
+     * @param tableName the table to be imported
+     * @param reader    the archive, positioned at the table
+     * @param batchSize number of rows inserted and committed at once
+     * @return number of imported rows
+     * @throws SQLException when a database error occurs
+     * @throws IOException  when the archive cannot be read
+     */
+    long importTable(String tableName, StoreArchive.Reader reader, int batchSize) throws SQLException, IOException {
+        String[] columns = reader.getColumns();
+        byte[] types = reader.getTypes();
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder parameters = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            columnList.append(i > 0 ? ", " : "").append(columns[i]);
+            parameters.append(i > 0 ? ", ?" : "?");
+        }
+        String insert = "INSERT INTO " + tableName + " (" + columnList + ") VALUES (" + parameters + ")";
+
+        try (Connection conn = getConnection()) {
+            List<String> identityColumns = getColumns(conn, tableName, true);
+            String identityInsert = (null == dialect || identityColumns.isEmpty())
+                                    ? null : dialect.setIdentityInsert(tableName, true);
+            if (null != identityInsert) {
+                execute(conn, identityInsert);
+            }
+            long rowCount = 0;
+            try {
+                conn.setAutoCommit(false);
+                try (PreparedStatement preparedStatement = conn.prepareStatement(insert)) {
+                    Object[] values;
+                    while (null != (values = reader.readRow())) {
+                        for (int i = 0; i < columns.length; i++) {
+                            bindArchiveValue(preparedStatement, i + 1, types[i], values[i]);
+                        }
+                        preparedStatement.addBatch();
+                        if (++rowCount % batchSize == 0) {
+                            preparedStatement.executeBatch();
+                            conn.commit();
+                        }
+                    }
+                    preparedStatement.executeBatch();
+                    conn.commit();
+                }
+                conn.setAutoCommit(true);
+            } finally {
+                if (null != identityInsert) {
+                    execute(conn, dialect.setIdentityInsert(tableName, false));
+                }
+            }
+            for (String column : identityColumns) {
+                restartIdentity(conn, tableName, column);
+            }
+            return rowCount;
+        }
+    }
+
+    /**
+     * Makes an identity column generate values following the largest value of the column.
+     */
+    private void restartIdentity(Connection conn, String tableName, String column) throws SQLException {
+        if (null == dialect) {
+            return;
+        }
+        long nextValue;
+        try (PreparedStatement preparedStatement = conn.prepareStatement(
+                     "SELECT MAX(" + column + ") FROM " + tableName);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            nextValue = resultSet.getLong(1) + 1;
+        }
+        String statement = dialect.restartIdentity(tableName, column, nextValue);
+        if (null != statement) {
+            execute(conn, statement);
+        }
+    }
+
+    private static Object readArchiveValue(ResultSet resultSet, int column, byte type) throws SQLException {
+        Object value;
+        switch (type) {
+            case StoreArchive.LONG:
+                value = resultSet.getLong(column);
+                break;
+            case StoreArchive.INT:
+                value = resultSet.getInt(column);
+                break;
+            case StoreArchive.BYTES:
+                return resultSet.getBytes(column);
+            default:
+                return resultSet.getString(column);
+        }
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static void bindArchiveValue(PreparedStatement preparedStatement, int index, byte type, Object value)
+            throws SQLException {
+        if (null == value) {
+            preparedStatement.setNull(index, StoreArchive.getSqlType(type));
+            return;
+        }
+        switch (type) {
+            case StoreArchive.LONG:
+                preparedStatement.setLong(index, (Long) value);
+                break;
+            case StoreArchive.INT:
+                preparedStatement.setInt(index, (Integer) value);
+                break;
+            case StoreArchive.BYTES:
+                preparedStatement.setBytes(index, (byte[]) value);
+                break;
+            default:
+                preparedStatement.setString(index, (String) value);
+        }
+    }
+
+    /**
+     * Scan the queue names of a table without modifying it, counting the rows whose queue name would be converted to
+     * lowercase. The table is read in pages ordered by its key as done when migrating in batches, hence only a page
+     * of rows is held in memory at a time.
+     * <p>
+     * When only a sample of the table is read, the sample is the first rows in key order, in which queue names with
+     * capital letters sort first. The rows which would change are then counted exactly by the database instead of
+     * being extrapolated from the sample, unless the database is not known.
+     *
+     * @param table   the table to be scanned
+     * @param maxRows maximum number of rows to be scanned, zero or less to scan the whole table
+     * @return statistics of the scan
+     * @throws SQLException when a database error occurs
+     */
+    TableScan scanQueueNames(QueueNameTable table, long maxRows) throws SQLException {
+        TableScan scan = new TableScan(table.getTableName(), countRows(new TablePartition(table)));
+        String[] keyColumns = table.getKeyColumns();
+        int pageSize = getScanPageSize(maxRows);
+        long start = System.nanoTime();
+
+        try (Connection conn = getConnection();
+             PreparedStatement firstPageStatement = conn.prepareStatement(table.getPageQuery(null, false));
+             PreparedStatement nextPageStatement = conn.prepareStatement(table.getPageQuery(null, true))) {
+
+            Object[] lastKey = null;
+            int rowCount;
+            do {
+                PreparedStatement pageStatement = (null == lastKey) ? firstPageStatement : nextPageStatement;
+                if (null != lastKey) {
+                    KeysetPagination.setAfterKeyParameters(pageStatement, 1, lastKey);
+                }
+                pageStatement.setMaxRows((int) Math.min(pageSize, getRemainingRows(scan, maxRows)));
+                pageStatement.setFetchSize(Math.min(pageSize, fetchSize));
+
+                rowCount = 0;
+                try (ResultSet resultSet = pageStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        rowCount++;
+                        lastKey = KeysetPagination.readKey(resultSet, keyColumns);
+                        String queueName = resultSet.getString(QueueNameTable.QUEUE_NAME_LABEL);
+                        Object[] values = Arrays.copyOf(lastKey, lastKey.length + 1);
+                        values[lastKey.length] = queueName;
+                        scan.rowScanned(values, queueNameHasCapitals(queueName));
+                    }
+                }
+            } while (rowCount == pageSize && getRemainingRows(scan, maxRows) > 0);
+        }
+        scan.setScanNanos(System.nanoTime() - start);
+
+        if (scan.getScannedRows() < scan.getRowCount() && null != dialect) {
+            try (Connection conn = getConnection();
+                 PreparedStatement countStatement = conn.prepareStatement(
+                         table.getCountQuery(table.getCapitalizedCondition(dialect)));
+                 ResultSet resultSet = countStatement.executeQuery()) {
+                resultSet.next();
+                scan.setCountedChangedRows(resultSet.getLong(1));
+            }
+        }
+        return scan;
+    }
+
+    /**
+     * Scan MB_BINDING without modifying it, counting the bindings which would be changed either by converting the
+     * binding details to the format of WSO2MB 3.2.0 or by converting queue names to lowercase.
+     *
+     * @param maxRows maximum number of rows to be scanned, zero or less to scan the whole table
+     * @return statistics of the scan
+     * @throws SQLException when a database error occurs
+     */
+    TableScan scanBindings(long maxRows) throws SQLException {
+        TableScan scan = new TableScan(MB_BINDING, countRows(MB_BINDING));
+        int pageSize = getScanPageSize(maxRows);
+        long start = System.nanoTime();
+
+        Binding lastBinding = null;
+        List<Binding> bindings;
+        do {
+            bindings = readBindings(lastBinding, (int) Math.min(pageSize, getRemainingRows(scan, maxRows)));
+            for (Binding binding : bindings) {
+                String queueName = binding.getQueueName();
+                String bindingDetails = binding.getBindingDetails();
+                String newBindingDetails;
+                try {
+                    newBindingDetails = modifier.modifyBinding(bindingDetails);
+                } catch (MigrationException e) {
+                    // Bindings which cannot be recognized are left as they are by the migration
+                    newBindingDetails = bindingDetails;
+                }
+                newBindingDetails = modifier.lowerCaseBindingDetails(newBindingDetails, queueName);
+                scan.rowScanned(new Object[]{binding.getMessageRouter(), queueName, bindingDetails},
+                        queueNameHasCapitals(queueName) || !newBindingDetails.equals(bindingDetails));
+            }
+            if (!bindings.isEmpty()) {
+                lastBinding = bindings.get(bindings.size() - 1);
+            }
+        } while (bindings.size() >= pageSize && getRemainingRows(scan, maxRows) > 0);
+        scan.setScanNanos(System.nanoTime() - start);
+        return scan;
+    }
+
+    /**
+     * Scan MB_QUEUE without modifying it, counting the queues whose name would be converted to lowercase.
+     *
+     * @param maxRows maximum number of rows to be scanned, zero or less to scan the whole table
+     * @return statistics of the scan
+     * @throws SQLException when a database error occurs
+     */
+    TableScan scanQueues(long maxRows) throws SQLException {
+        TableScan scan = new TableScan(MB_QUEUE, countRows(MB_QUEUE));
+        long start = System.nanoTime();
+
+        try (Connection conn = getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(GET_QUEUES)) {
+            if (maxRows > 0) {
+                preparedStatement.setMaxRows((int) Math.min(Integer.MAX_VALUE, maxRows));
+            }
+            preparedStatement.setFetchSize(fetchSize);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    String queueName = resultSet.getString(QUEUE_NAME);
+                    scan.rowScanned(new Object[]{queueName, resultSet.getString(QUEUE_DATA)},
+                            queueNameHasCapitals(queueName));
+                }
+            }
+        }
+        scan.setScanNanos(System.nanoTime() - start);
+        return scan;
+    }
+
+    /**
+     * Count the rows of a table.
+     *
+     * @param tableName name of the table
+     * @return number of rows in the table
+     * @throws SQLException when a database error occurs
+     */
+    long countRows(String tableName) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement("SELECT COUNT(*) FROM " + tableName);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Number of rows read at once by a scan, which is the batch size when migrating in batches.
+     */
+    private int getScanPageSize(long maxRows) {
+        int pageSize = isBatchingEnabled() ? batchSize : SCAN_PAGE_SIZE;
+        return (maxRows > 0) ? (int) Math.min(pageSize, maxRows) : pageSize;
+    }
+
+    private static long getRemainingRows(TableScan scan, long maxRows) {
+        return (maxRows > 0) ? maxRows - scan.getScannedRows() : Long.MAX_VALUE;
     }
 
     /**
      * Check if string has any uppercase letter
      *
-     * @param bindingKey Binding key of queue
+     * @param queueName Name of queue
      * @return true if has any upper case letter
      */
-    private boolean bindingKeyHasCapitals(String bindingKey) {
-        return !bindingKey.equals(bindingKey.toLowerCase());
+    private boolean queueNameHasCapitals(String queueName) {
+        return !queueName.equals(queueName.toLowerCase());
     }
 
 }
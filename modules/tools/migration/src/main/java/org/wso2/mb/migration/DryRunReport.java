@@ -0,0 +1,163 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.apache.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Report of a dry run of the migration. Lists the number of rows of each table the migration would change, and
+ * estimates the run time and the peak heap usage of the migration with the current configuration from the scans of
+ * the tables.
+ * <p>
+ * Run time is extrapolated from the time taken to read the rows during the scans. Writes cannot be measured by a
+ * read only scan, hence an update of a row is assumed to take as long as reading {@link #UPDATE_COST_FACTOR} rows.
+ * Peak memory assumes that JDBC drivers hold a whole page, or a whole table when migrating in a single pass, in
+ * memory, which is the case for MySQL unless cursor fetch is enabled.
+ */
+class DryRunReport {
+
+    private static final Logger logger = Logger.getLogger(DryRunReport.class);
+
+    /**
+     * Assumed cost of updating, inserting or deleting a row relative to reading it.
+     */
+    private static final int UPDATE_COST_FACTOR = 4;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+    private final TableScan bindings;
+
+    private final TableScan queues;
+
+    private final Map<QueueNameTable, TableScan> tables = new EnumMap<>(QueueNameTable.class);
+
+    private final int dlcQueueCount;
+
+    DryRunReport(TableScan bindings, TableScan queues, int dlcQueueCount) {
+        this.bindings = bindings;
+        this.queues = queues;
+        this.dlcQueueCount = dlcQueueCount;
+    }
+
+    void addTable(QueueNameTable table, TableScan scan) {
+        tables.put(table, scan);
+    }
+
+    /**
+     * Logs the report.
+     *
+     * @param batchSize   configured batch size, zero or less when migrating in a single pass
+     * @param threadCount number of workers migrating tables in parallel when migrating in batches
+     * @param pushdown    whether queue names are converted to lowercase within the database
+     */
+    void log(int batchSize, int threadCount, boolean pushdown) {
+        logger.info("Dry run of the migration. No rows were modified.");
+        logger.info(bindings.toString());
+        logger.info(queues.toString());
+        for (TableScan scan : tables.values()) {
+            logger.info(scan.toString());
+        }
+        logger.info("DLC bindings to be added: " + dlcQueueCount);
+
+        boolean batching = batchSize > 0;
+        long runTimeMillis = estimateRunTimeNanos(batching, threadCount, pushdown) / NANOS_PER_MILLI;
+        long peakBytes = estimatePeakBytes(batching, batchSize, threadCount, pushdown);
+        long maxHeapBytes = Runtime.getRuntime().maxMemory();
+
+        String settings = batching ? "batchsize=" + batchSize + ", threads=" + threadCount : "batchsize=0";
+        logger.info("Estimated run time with " + settings + ", pushdown=" + pushdown + ": "
+                    + MigrationProgress.formatDuration(runTimeMillis));
+        logger.info("Estimated peak memory: " + toMegabytes(peakBytes) + " MB, maximum heap size is "
+                    + toMegabytes(maxHeapBytes) + " MB");
+        if (peakBytes > maxHeapBytes) {
+            logger.warn("The migration may run out of memory with the current settings. Set a lower batchsize or "
+                        + "threads, or increase the maximum heap size of the tool with -Xmx.");
+        }
+    }
+
+    /**
+     * Estimates the run time of the migration. Bindings are first converted in a step of their own. Queues and
+     * bindings are then converted along with the other tables, in parallel when migrating in batches, where tables
+     * with a range column are shared among workers.
+     */
+    private long estimateRunTimeNanos(boolean batching, int threadCount, boolean pushdown) {
+        // Bindings are read and updated to the format of WSO2MB 3.2.0
+        double bindingsStep = bindings.getRowCount() * bindings.getNanosPerRow() * (1 + UPDATE_COST_FACTOR);
+
+        // Bindings are read, deleted and inserted again, and queues with capital letters are updated
+        double queuesAndBindingsStep = bindings.getRowCount() * bindings.getNanosPerRow() * (1 + 2 * UPDATE_COST_FACTOR)
+                                       + queues.getRowCount() * queues.getNanosPerRow()
+                                       + queues.getChangedRows() * queues.getNanosPerRow() * UPDATE_COST_FACTOR;
+
+        double totalTime = queuesAndBindingsStep;
+        double longestUnsplitTime = queuesAndBindingsStep;
+        for (Map.Entry<QueueNameTable, TableScan> entry : tables.entrySet()) {
+            TableScan scan = entry.getValue();
+            double updateTime = scan.getChangedRows() * scan.getNanosPerRow() * UPDATE_COST_FACTOR;
+            double time = pushdown ? updateTime : scan.getRowCount() * scan.getNanosPerRow() + updateTime;
+            totalTime += time;
+            if (null == entry.getKey().getRangeColumn()) {
+                longestUnsplitTime = Math.max(longestUnsplitTime, time);
+            }
+        }
+        if (batching) {
+            totalTime = Math.max(longestUnsplitTime, totalTime / threadCount);
+        }
+        return (long) (bindingsStep + totalTime);
+    }
+
+    /**
+     * Estimates the peak heap usage of the migration. Rows which are updated are held twice, once as read and once in
+     * the pending batch of updates.
+     */
+    private long estimatePeakBytes(boolean batching, int batchSize, int threadCount, boolean pushdown) {
+        long allBindingBytes = 2 * bindings.getRowCount() * bindings.getAverageRowBytes();
+        long queueBytes = 2 * queues.getRowCount() * queues.getAverageRowBytes();
+
+        if (batching) {
+            long bindingsStep = 2L * Math.min(batchSize, bindings.getRowCount()) * bindings.getAverageRowBytes();
+            long largestPage = 0;
+            for (TableScan scan : tables.values()) {
+                largestPage = Math.max(largestPage, 2 * Math.min(batchSize, scan.getRowCount())
+                                                    * scan.getAverageRowBytes());
+            }
+            // The queues and bindings are converted by a worker while the other workers convert pages of tables
+            long parallelSteps = allBindingBytes + queueBytes + (pushdown ? 0 : threadCount * largestPage);
+            return Math.max(bindingsStep, parallelSteps);
+        }
+
+        long peakBytes = allBindingBytes + queueBytes;
+        if (!pushdown) {
+            for (TableScan scan : tables.values()) {
+                peakBytes = Math.max(peakBytes, (scan.getRowCount() + scan.getChangedRows())
+                                                * scan.getAverageRowBytes());
+            }
+        }
+        return peakBytes;
+    }
+
+    private static long toMegabytes(long bytes) {
+        return (bytes + BYTES_PER_MEGABYTE - 1) / BYTES_PER_MEGABYTE;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Builds the SQL fragments needed to read a table page by page ordered by its key columns. Each page continues
+ * after the last key of the previous page instead of using an offset, hence reading a page costs the same no matter
+ * how far into the table it is. The page size itself is limited through {@link PreparedStatement#setMaxRows(int)}
+ * so that the same queries work on every database.
+ */
+final class KeysetPagination {
+
+    private KeysetPagination() {
+    }
+
+    /**
+     * Creates the condition matching all rows ordered after a given key. For key columns (A, B) the condition is
+     * "(A > ?) OR (A = ? AND B > ?)".
+     *
+     * @param keyColumns the key columns in the order the table is read
+     * @return condition to be used in a where clause
+     */
+    static String afterKeyCondition(String[] keyColumns) {
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append("(");
+            for (int j = 0; j < i; j++) {
+                condition.append(keyColumns[j]).append(" = ? AND ");
+            }
+            condition.append(keyColumns[i]).append(" > ?)");
+        }
+        return condition.append(")").toString();
+    }
+
+    /**
+     * Creates the order by clause for the given key columns.
+     *
+     * @param keyColumns the key columns in the order the table is read
+     * @return order by clause
+     */
+    static String orderBy(String[] keyColumns) {
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0) {
+                orderBy.append(", ");
+            }
+            orderBy.append(keyColumns[i]);
+        }
+        return orderBy.toString();
+    }
+
+    /**
+     * Sets the parameters of a condition created by {@link #afterKeyCondition(String[])}.
+     *
+     * @param statement  statement containing the condition
+     * @param index      index of the first parameter of the condition
+     * @param lastKey    the last key read from the previous page
+     * @return index of the parameter following the condition
+     * @throws SQLException when a database error occurs
+     */
+    static int setAfterKeyParameters(PreparedStatement statement, int index, Object[] lastKey) throws SQLException {
+        for (int i = 0; i < lastKey.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                statement.setObject(index++, lastKey[j]);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Reads the key of the current row of a result set.
+     *
+     * @param resultSet  result set positioned on a row
+     * @param keyColumns the key columns of the table
+     * @return key values of the row
+     * @throws SQLException when a database error occurs
+     */
+    static Object[] readKey(ResultSet resultSet, String[] keyColumns) throws SQLException {
+        Object[] key = new Object[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            key[i] = resultSet.getObject(keyColumns[i]);
+        }
+        return key;
+    }
+}
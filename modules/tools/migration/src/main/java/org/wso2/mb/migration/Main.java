@@ -20,28 +20,65 @@ package org.wso2.mb.migration;
 
 import org.apache.log4j.Logger;
 
+import java.io.File;
 import java.io.IOException;
 
 public class Main {
 
     private static final Logger logger = Logger.getLogger(Main.class);
 
+    /**
+     * Argument which scans the database without modifying it.
+     */
+    private static final String DRY_RUN = "dryrun";
+
+    /**
+     * Argument which migrates the database while the broker is running.
+     */
+    private static final String ONLINE = "online";
+
+    /**
+     * Arguments which export the broker store to a file and import it from a file.
+     */
+    private static final String EXPORT = "export";
+    private static final String IMPORT = "import";
+
     public static void main(String[] args) {
 
 
+        Processor processor = null;
         try {
 
             //Create new processor to read, modify and write data into the database
-            Processor processor = new Processor();
+            processor = new Processor();
+
+            //Only report the changes the migration would make when run with the dryrun argument
+            if (args.length > 0 && DRY_RUN.equals(args[0])) {
+                processor.dryRun();
+                return;
+            }
 
-            //Create DLC message router since it was not present in WSO2MB 3.1.0
-            processor.creteDlcMessageRouter();
+            //Migrate while the broker is running when run with the online argument
+            if (args.length > 0 && ONLINE.equals(args[0])) {
+                processor.migrateOnline();
+                logger.info("Migration completed successfully");
+                return;
+            }
 
-            //Modify bindings since the format of the binding details string is different in WSO2MB 3.1.0 and WSO2MB 3.2.0
-            processor.modifyBindings();
+            //Export the broker store to, or import it from, the file given after the export or import argument
+            if (args.length > 0 && (EXPORT.equals(args[0]) || IMPORT.equals(args[0]))) {
+                if (args.length < 2) {
+                    logger.error("The archive file is not given. Run the tool with " + args[0] + " <file>");
+                } else if (EXPORT.equals(args[0])) {
+                    processor.exportStore(new File(args[1]));
+                } else {
+                    processor.importStore(new File(args[1]));
+                }
+                return;
+            }
 
-            //Modify data in multiple tables making queue name references all simple.
-            processor.makeQueueNamesAllSimple();
+            //Create the DLC message router, modify bindings and make queue name references all simple
+            processor.migrate();
 
             logger.info("Migration completed successfully");
 
@@ -49,6 +86,10 @@ public class Main {
             logger.error("Could not initiate the migration", e);
         } catch (MigrationException e) {
             logger.error("Error during migration. Migration will not proceed", e);
+        } finally {
+            if (null != processor) {
+                processor.close();
+            }
         }
 
     }
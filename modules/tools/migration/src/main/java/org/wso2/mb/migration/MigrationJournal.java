@@ -0,0 +1,359 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Journal recording the progress of a migration in a local file, so that a migration which stopped halfway resumes
+ * where it stopped when the tool is run again. The journal records completed steps, the partitions each large table
+ * was split into and the last key committed for each partition. The journal also records the database URL and user of
+ * the store being migrated, and refuses to resume a migration of a different store. It is deleted once the migration
+ * completes, so that running the tool again migrates from the start.
+ * <p>
+ * Progress of a partition is written at most once every {@link #SAVE_INTERVAL_MILLIS} milliseconds. Resuming from an
+ * older key is safe since rows which were already migrated are skipped.
+ */
+class MigrationJournal {
+
+    private static final Logger logger = Logger.getLogger(MigrationJournal.class);
+
+    /**
+     * Minimum interval between two writes of the journal caused by progress of partitions.
+     */
+    private static final long SAVE_INTERVAL_MILLIS = 1000;
+
+    private static final String STEP_PREFIX = "step.";
+    private static final String PLAN_PREFIX = "plan.";
+    private static final String PROGRESS_PREFIX = "progress.";
+    private static final String COMPLETED = "completed";
+    private static final String STORE_URL = "store.url";
+    private static final String STORE_USER = "store.user";
+
+    /**
+     * Separator of values in an encoded key or parameter list.
+     */
+    private static final String VALUE_SEPARATOR = ",";
+
+    /**
+     * The file the journal is stored in.
+     */
+    private final File file;
+
+    private final Properties entries = new Properties();
+
+    /**
+     * Database URL and user of the store being migrated.
+     */
+    private final String storeUrl;
+    private final String storeUser;
+
+    private long lastSaveTime;
+
+    /**
+     * Opens the journal stored in the given file. An empty journal is created if the file does not exist.
+     *
+     * @param file      the journal file
+     * @param storeUrl  database URL of the store being migrated
+     * @param storeUser database user of the store being migrated, which determines the schema on some databases
+     * @throws IOException in case of error while reading the file
+     */
+    MigrationJournal(File file, String storeUrl, String storeUser) throws IOException {
+        this.file = file;
+        this.storeUrl = String.valueOf(storeUrl);
+        this.storeUser = String.valueOf(storeUser);
+        if (file.exists()) {
+            try (InputStream inputStream = new FileInputStream(file)) {
+                entries.load(inputStream);
+            }
+        }
+        if (!hasProgress()) {
+            entries.setProperty(STORE_URL, this.storeUrl);
+            entries.setProperty(STORE_USER, this.storeUser);
+        }
+    }
+
+    /**
+     * Checks whether the journal records any progress of an earlier run.
+     *
+     * @return true if the journal records a completed step, a partition plan or the progress of a partition
+     */
+    synchronized boolean hasProgress() {
+        for (String key : entries.stringPropertyNames()) {
+            if (key.startsWith(STEP_PREFIX) || key.startsWith(PLAN_PREFIX) || key.startsWith(PROGRESS_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that the progress recorded in the journal belongs to the store being migrated. Resuming from the
+     * progress of another store would skip steps which were never run against this one.
+     *
+     * @throws MigrationException if the journal records progress of a different store
+     */
+    synchronized void verifyStore() throws MigrationException {
+        String recordedUrl = entries.getProperty(STORE_URL);
+        String recordedUser = entries.getProperty(STORE_USER);
+        if (!storeUrl.equals(recordedUrl) || !storeUser.equals(recordedUser)) {
+            throw new MigrationException("Migration journal " + file + " records the migration of " + recordedUser
+                                         + " at " + recordedUrl + " rather than " + storeUser + " at " + storeUrl
+                                         + ". Delete the journal or configure another journalfile to migrate this "
+                                         + "store");
+        }
+    }
+
+    /**
+     * Deletes the journal once all steps of the migration are committed, so that running the tool again does not
+     * skip them.
+     *
+     * @throws IOException in case of error while deleting the journal file
+     */
+    synchronized void finish() throws IOException {
+        Files.deleteIfExists(file.toPath());
+        entries.clear();
+        entries.setProperty(STORE_URL, storeUrl);
+        entries.setProperty(STORE_USER, storeUser);
+    }
+
+    synchronized boolean isStepCompleted(String step) {
+        return COMPLETED.equals(entries.getProperty(STEP_PREFIX + step));
+    }
+
+    synchronized void completeStep(String step) throws IOException {
+        entries.setProperty(STEP_PREFIX + step, COMPLETED);
+        save();
+    }
+
+    /**
+     * Reads the key recorded for a step which was partially completed.
+     *
+     * @param step the step
+     * @return the recorded key, or null if no key was recorded
+     */
+    synchronized Object[] getStepKey(String step) {
+        String key = entries.getProperty(STEP_PREFIX + step + ".lastKey");
+        return (null == key) ? null : decodeValues(key);
+    }
+
+    synchronized void recordStepKey(String step, Object[] lastKey) throws IOException {
+        entries.setProperty(STEP_PREFIX + step + ".lastKey", encodeValues(lastKey));
+        save();
+    }
+
+    /**
+     * Reads the partitions recorded for a table.
+     *
+     * @param table the table
+     * @return the recorded partitions, or null if the table was not partitioned yet
+     */
+    synchronized List<TablePartition> getPartitions(QueueNameTable table) {
+        String prefix = PLAN_PREFIX + table.getTableName() + ".";
+        String count = entries.getProperty(prefix + "count");
+        if (null == count) {
+            return null;
+        }
+        List<TablePartition> partitions = new ArrayList<>();
+        for (int i = 0; i < Integer.parseInt(count); i++) {
+            String condition = entries.getProperty(prefix + i + ".condition");
+            partitions.add(new TablePartition(table, i, condition.isEmpty() ? null : condition,
+                    decodeValues(entries.getProperty(prefix + i + ".parameters")),
+                    entries.getProperty(prefix + i + ".description")));
+        }
+        return partitions;
+    }
+
+    /**
+     * Records the partitions a table was split into, so that the same partitions are used when the migration is
+     * resumed, no matter how the table changed in between.
+     *
+     * @param table      the table
+     * @param partitions partitions of the table
+     * @param rowCounts  number of rows in each partition
+     * @throws IOException in case of error while writing the journal
+     */
+    synchronized void recordPartitions(QueueNameTable table, List<TablePartition> partitions, long[] rowCounts)
+            throws IOException {
+        String prefix = PLAN_PREFIX + table.getTableName() + ".";
+        for (TablePartition partition : partitions) {
+            String partitionPrefix = prefix + partition.getId() + ".";
+            String condition = partition.getCondition();
+            entries.setProperty(partitionPrefix + "condition", null == condition ? "" : condition);
+            entries.setProperty(partitionPrefix + "parameters", encodeValues(partition.getParameters()));
+            entries.setProperty(partitionPrefix + "description", partition.getDescription());
+            entries.setProperty(partitionPrefix + "rows", Long.toString(rowCounts[partition.getId()]));
+        }
+        entries.setProperty(prefix + "count", Integer.toString(partitions.size()));
+        save();
+    }
+
+    synchronized long getRowCount(TablePartition partition) {
+        return Long.parseLong(entries.getProperty(getPlanPrefix(partition) + "rows", "0"));
+    }
+
+    synchronized boolean isCompleted(TablePartition partition) {
+        return COMPLETED.equals(entries.getProperty(getProgressPrefix(partition) + "state"));
+    }
+
+    /**
+     * Reads the last key committed for a partition.
+     *
+     * @param partition the partition
+     * @return the last committed key, or null if no batch of the partition was committed
+     */
+    synchronized Object[] getLastKey(TablePartition partition) {
+        String key = entries.getProperty(getProgressPrefix(partition) + "lastKey");
+        return (null == key) ? null : decodeValues(key);
+    }
+
+    /**
+     * Reads the number of rows of a partition that were processed by earlier runs.
+     *
+     * @param partition the partition
+     * @return number of processed rows
+     */
+    synchronized long getProcessedRowCount(TablePartition partition) {
+        return Long.parseLong(entries.getProperty(getProgressPrefix(partition) + "processedRows", "0"));
+    }
+
+    /**
+     * Records a committed batch of a partition. The journal is written only if it was not written within the save
+     * interval. Failing to write the journal only causes a resumed migration to read more rows again, hence errors
+     * are logged and otherwise ignored.
+     *
+     * @param partition     the partition
+     * @param lastKey       last key of the committed batch
+     * @param processedRows number of rows of the partition processed so far
+     */
+    synchronized void recordProgress(TablePartition partition, Object[] lastKey, long processedRows) {
+        String prefix = getProgressPrefix(partition);
+        entries.setProperty(prefix + "lastKey", encodeValues(lastKey));
+        entries.setProperty(prefix + "processedRows", Long.toString(processedRows));
+        if (System.currentTimeMillis() - lastSaveTime >= SAVE_INTERVAL_MILLIS) {
+            try {
+                save();
+            } catch (IOException e) {
+                logger.warn("Error while writing migration journal " + file, e);
+            }
+        }
+    }
+
+    synchronized void completePartition(TablePartition partition) throws IOException {
+        entries.setProperty(getProgressPrefix(partition) + "state", COMPLETED);
+        save();
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    private String getPlanPrefix(TablePartition partition) {
+        return PLAN_PREFIX + partition.getTable().getTableName() + "." + partition.getId() + ".";
+    }
+
+    private String getProgressPrefix(TablePartition partition) {
+        return PROGRESS_PREFIX + partition.getTable().getTableName() + "." + partition.getId() + ".";
+    }
+
+    /**
+     * Writes the journal to a temporary file which then replaces the journal file, so that a crash while writing
+     * never leaves a truncated journal behind.
+     *
+     * @throws IOException in case of error while writing the journal
+     */
+    private void save() throws IOException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            entries.store(outputStream, "WSO2 MB migration progress. Delete this file to start the migration over.");
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        lastSaveTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Encodes key or parameter values, keeping their types so that they can be bound to statements again.
+     *
+     * @param values values of type String, a Number or null
+     * @return encoded values
+     */
+    private static String encodeValues(Object[] values) {
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                encoded.append(VALUE_SEPARATOR);
+            }
+            Object value = values[i];
+            if (null == value) {
+                encoded.append("N");
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+                encoded.append("L:").append(value);
+            } else if (value instanceof Number) {
+                encoded.append("D:").append(new BigDecimal(value.toString()).toPlainString());
+            } else {
+                try {
+                    encoded.append("S:").append(URLEncoder.encode(value.toString(), "UTF-8"));
+                } catch (UnsupportedEncodingException e) {
+                    throw new IllegalStateException("UTF-8 is not supported", e);
+                }
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static Object[] decodeValues(String encoded) {
+        if (encoded.isEmpty()) {
+            return new Object[0];
+        }
+        String[] parts = encoded.split(VALUE_SEPARATOR);
+        Object[] values = new Object[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            if (part.startsWith("L:")) {
+                values[i] = Long.valueOf(part.substring(2));
+            } else if (part.startsWith("D:")) {
+                values[i] = new BigDecimal(part.substring(2));
+            } else if (part.startsWith("S:")) {
+                try {
+                    values[i] = URLDecoder.decode(part.substring(2), "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    throw new IllegalStateException("UTF-8 is not supported", e);
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the number of rows processed for each {@link QueueNameTable} and periodically logs the throughput and the
+ * estimated time remaining for each table.
+ */
+class MigrationProgress {
+
+    private static final Logger logger = Logger.getLogger(MigrationProgress.class);
+
+    /**
+     * Minimum interval between two progress lines of the same table.
+     */
+    private static final long REPORT_INTERVAL_MILLIS = 10000;
+
+    private final long[] totalRows = new long[QueueNameTable.values().length];
+
+    /**
+     * Rows processed by earlier runs, which do not count towards the throughput of this run.
+     */
+    private final long[] resumedRows = new long[QueueNameTable.values().length];
+
+    private final long[] processedRows = new long[QueueNameTable.values().length];
+
+    private final long[] startTimes = new long[QueueNameTable.values().length];
+
+    private final long[] lastReportTimes = new long[QueueNameTable.values().length];
+
+    /**
+     * Sets the number of rows of a table.
+     *
+     * @param table       the table
+     * @param rowCount    number of rows to be processed in the table
+     * @param resumedRows number of those rows already processed by earlier runs
+     */
+    synchronized void init(QueueNameTable table, long rowCount, long resumedRows) {
+        int index = table.ordinal();
+        totalRows[index] = rowCount;
+        this.resumedRows[index] = resumedRows;
+        processedRows[index] = resumedRows;
+    }
+
+    /**
+     * Starts measuring the throughput of a table, unless it was already started.
+     *
+     * @param table the table
+     */
+    synchronized void start(QueueNameTable table) {
+        int index = table.ordinal();
+        if (0 == startTimes[index]) {
+            startTimes[index] = System.currentTimeMillis();
+            lastReportTimes[index] = startTimes[index];
+        }
+    }
+
+    /**
+     * Adds processed rows of a table and logs the progress of the table if it was not logged within the report
+     * interval.
+     *
+     * @param table the table
+     * @param rows  number of rows processed
+     */
+    synchronized void rowsProcessed(QueueNameTable table, long rows) {
+        int index = table.ordinal();
+        processedRows[index] += rows;
+        long now = System.currentTimeMillis();
+        if (now - lastReportTimes[index] >= REPORT_INTERVAL_MILLIS) {
+            lastReportTimes[index] = now;
+            logger.info(describe(table, now));
+        }
+    }
+
+    /**
+     * Logs the final throughput of a completed table.
+     *
+     * @param table the table
+     */
+    synchronized void completed(QueueNameTable table) {
+        long now = System.currentTimeMillis();
+        logger.info(describe(table, now) + ", completed in " + formatDuration(now - startTimes[table.ordinal()]));
+    }
+
+    private String describe(QueueNameTable table, long now) {
+        int index = table.ordinal();
+        long processed = processedRows[index];
+        long total = Math.max(totalRows[index], processed);
+        long elapsedMillis = Math.max(1, now - startTimes[index]);
+        long rowsPerSecond = (processed - resumedRows[index]) * 1000 / elapsedMillis;
+
+        StringBuilder line = new StringBuilder(table.getTableName()).append(": ")
+                .append(processed).append("/").append(total).append(" rows");
+        if (total > 0) {
+            line.append(" (").append(processed * 100 / total).append("%)");
+        }
+        line.append(", ").append(rowsPerSecond).append(" rows/s");
+        if (processed < total) {
+            line.append(", ETA ");
+            line.append(rowsPerSecond > 0 ? formatDuration((total - processed) * 1000 / rowsPerSecond) : "unknown");
+        }
+        return line.toString();
+    }
+
+    static String formatDuration(long millis) {
+        long hours = TimeUnit.MILLISECONDS.toHours(millis);
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(millis) % 60;
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(millis) % 60;
+        return String.format("%02d:%02d:%02d", hours, minutes, seconds);
+    }
+}
@@ -50,8 +50,7 @@ class Modifier {
             String[] boundQueueInfo = parts[1].split(",");
             boundQueueName = boundQueueInfo[0].split("=")[1];
             bindingKey = parts[2].split("&")[1];
-            return "boundMessageRouter=" + boundMessageRouter + ",boundQueueName=" + boundQueueName
-                   + ",bindingKey=" + bindingKey;
+            return new BindingDetails(boundMessageRouter, boundQueueName, bindingKey).toString();
         } else {
             throw new MigrationException("Binding cannot be null");
         }
@@ -66,8 +65,47 @@ class Modifier {
      * @return modified queue info
      */
     String createBindingDetails(String queueName, String routerName) {
-        return "boundMessageRouter=" + routerName + ",boundQueueName=" + queueName
-               + ",bindingKey=" + queueName;
+        return new BindingDetails(routerName, queueName, queueName).toString();
+    }
+
+    /**
+     * Makes the queue name and the binding key of binding details all simple letters. Fields referring to the
+     * queue are changed only if their value is exactly the given queue name.
+     *
+     * @param bindingDetails binding details of a binding of the queue
+     * @param queueName      the bound queue
+     * @return modified binding details, or the given binding details if nothing was changed
+     */
+    String lowerCaseBindingDetails(String bindingDetails, String queueName) {
+        BindingDetails details = BindingDetails.parse(bindingDetails);
+        boolean modified = false;
+        String newQueueName = queueName.toLowerCase();
+        if (!newQueueName.equals(queueName)) {
+            modified = details.replace(BindingDetails.QUEUE_NAME, queueName, newQueueName);
+            modified |= details.replace(BindingDetails.BOUND_QUEUE_NAME, queueName, newQueueName);
+        }
+        String bindingKey = details.get(BindingDetails.BINDING_KEY);
+        if (null != bindingKey && !bindingKey.equals(bindingKey.toLowerCase())) {
+            modified |= details.replace(BindingDetails.BINDING_KEY, bindingKey, bindingKey.toLowerCase());
+        }
+        return modified ? details.toString() : bindingDetails;
+    }
+
+    /**
+     * Makes the queue name within queue data all simple letters.
+     *
+     * @param queueData data of the queue as stored in MB_QUEUE
+     * @param queueName the queue
+     * @return modified queue data, or the given queue data if nothing was changed
+     */
+    String lowerCaseQueueData(String queueData, String queueName) {
+        BindingDetails details = BindingDetails.parse(queueData);
+        String newQueueName = queueName.toLowerCase();
+        if (!newQueueName.equals(queueName)
+            && details.replace(BindingDetails.QUEUE_NAME, queueName, newQueueName)) {
+            return details.toString();
+        }
+        return queueData;
     }
 
     /**
@@ -20,13 +20,24 @@ package org.wso2.mb.migration;
 
 import org.apache.log4j.Logger;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Processor is responsible for reading all the data, modifying them as necessary and storing them back into the
@@ -46,11 +57,55 @@ public class Processor {
      */
     private Modifier modifier;
 
+    /**
+     * Number of workers migrating tables in parallel when tables are migrated in batches.
+     */
+    private final int threadCount;
+
+    /**
+     * Journal recording the progress of the migration so that it can be resumed.
+     */
+    private final MigrationJournal journal;
+
+    /**
+     * Maximum number of rows of each table scanned by a dry run, zero or less to scan whole tables.
+     */
+    private final long dryRunSampleSize;
+
+    /**
+     * Tracks the throughput of the migration of each table.
+     */
+    private final MigrationProgress progress = new MigrationProgress();
+
     /**
      * String constant representing the name of the DLC message router.
      */
     private final String DLC_MESSAGE_ROUTER = "amq.dlc";
 
+    /**
+     * String constants representing the steps of the migration recorded in the journal.
+     */
+    private static final String DLC_MESSAGE_ROUTER_STEP = "dlcMessageRouter";
+    private static final String BINDINGS_STEP = "bindings";
+    private static final String DLC_BINDINGS_STEP = "dlcBindings";
+    private static final String QUEUES_AND_BINDINGS_STEP = "queuesAndBindings";
+
+    /**
+     * Number of rows copied or changes applied at once by an online migration, and number of rows imported at once,
+     * when no batch size is configured.
+     */
+    private static final int DEFAULT_COPY_BATCH_SIZE = 1000;
+
+    /**
+     * Time to wait before polling the change log again once all recorded changes are applied.
+     */
+    private static final long CATCH_UP_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Minimum interval between two log lines reporting the number of changes waiting to be applied.
+     */
+    private static final long CATCH_UP_REPORT_INTERVAL_MILLIS = 10000;
+
     /**
      * Initializes the processor with properties given in config.properties file.
      *
@@ -58,15 +113,78 @@ public class Processor {
      * @throws ClassNotFoundException in case of error while reading file
      */
     public Processor() throws IOException, ClassNotFoundException {
+        this(loadConfiguration());
+    }
+
+    /**
+     * Initializes the processor with the given properties.
+     *
+     * @param prop properties as given in config.properties file
+     * @throws IOException in case of error while reading the migration journal
+     * @throws ClassNotFoundException in case the database driver class is not found
+     */
+    Processor(Properties prop) throws IOException, ClassNotFoundException {
+        connector = new DBConnector(prop);
+        modifier = new Modifier();
+        threadCount = Math.max(1, Integer.parseInt(prop.getProperty("threads", "1").trim()));
+        dryRunSampleSize = Long.parseLong(prop.getProperty("dryrunsample", "0").trim());
+        journal = new MigrationJournal(new File(prop.getProperty("journalfile", "conf/migration-journal.properties")),
+                prop.getProperty("dburl"), prop.getProperty("dbuser"));
+        if (journal.hasProgress()) {
+            logger.info("Resuming migration recorded in " + journal.getFile());
+        }
+    }
 
+    private static Properties loadConfiguration() throws IOException {
         Properties prop = new Properties();
         // load the properties file
         File configFile = new File("conf/config.properties");
-        FileReader reader = new FileReader(configFile);
-        prop.load(reader);
-        connector = new DBConnector(prop);
-        modifier = new Modifier();
+        try (FileReader reader = new FileReader(configFile)) {
+            prop.load(reader);
+        }
+        return prop;
+    }
+
+    /**
+     * Releases the database connections used by the processor.
+     */
+    void close() {
+        connector.close();
+    }
+
+    /**
+     * Migrates the store from WSO2MB 3.1.0 to WSO2MB 3.2.0, resuming from the journal if an earlier run stopped
+     * halfway. The journal is deleted once all steps are committed.
+     *
+     * @throws MigrationException in case of error while migrating, or if the journal belongs to another store
+     */
+    void migrate() throws MigrationException {
+        journal.verifyStore();
+
+        //Create DLC message router since it was not present in WSO2MB 3.1.0
+        creteDlcMessageRouter();
+
+        //Modify bindings since the format of the binding details string is different in WSO2MB 3.1.0 and WSO2MB 3.2.0
+        modifyBindings();
+
+        //Modify data in multiple tables making queue name references all simple.
+        makeQueueNamesAllSimple();
+
+        finishJournal();
+    }
 
+    /**
+     * Deletes the journal after all steps of the migration are committed.
+     *
+     * @throws MigrationException in case of error while deleting the journal
+     */
+    private void finishJournal() throws MigrationException {
+        try {
+            journal.finish();
+        } catch (IOException e) {
+            throw new MigrationException("Migration completed but the migration journal " + journal.getFile()
+                                         + " could not be deleted. Delete it before migrating another store", e);
+        }
     }
 
     /**
@@ -95,12 +213,19 @@ public class Processor {
      * @throws MigrationException in case of error while write message router
      */
     void creteDlcMessageRouter() throws MigrationException {
+        if (journal.isStepCompleted(DLC_MESSAGE_ROUTER_STEP)) {
+            logger.info("DLC message router was already created");
+            return;
+        }
         try {
             connector.writeMessageRouter(DLC_MESSAGE_ROUTER, modifier.createExchangeDetails(DLC_MESSAGE_ROUTER,
                     "DLC", "false"));
+            journal.completeStep(DLC_MESSAGE_ROUTER_STEP);
             logger.info("DLC message router created");
         } catch (SQLException e) {
             throw new MigrationException("Error while creating message router", e);
+        } catch (IOException e) {
+            throw new MigrationException("Error while writing migration journal", e);
         }
     }
 
@@ -113,39 +238,464 @@ public class Processor {
     void modifyBindings() throws MigrationException {
 
         try {
-            List<Binding> bindings = connector.readBindings();
-            for (Binding binding : bindings) {
-                try {
-                    binding.setBindingDetails(modifier.modifyBinding(binding.getBindingDetails()));
-                    logger.info("Modified binding information in database");
-                } catch (MigrationException e) {
-                    logger.error("Error modifying binding for queue: " + binding.getQueueName() + ". Incorrect "
-                            + "binding info format: " + binding.getBindingDetails(), e);
+            if (!journal.isStepCompleted(BINDINGS_STEP)) {
+                if (connector.isBatchingEnabled()) {
+                    int batchSize = connector.getBatchSize();
+                    Object[] lastKey = journal.getStepKey(BINDINGS_STEP);
+                    Binding lastBinding = (null == lastKey) ? null
+                            : new Binding((String) lastKey[1], (String) lastKey[0], null);
+                    List<Binding> bindings;
+                    do {
+                        bindings = connector.readBindings(lastBinding, batchSize);
+                        modifyBindings(bindings);
+                        connector.updateBindings(bindings);
+                        if (!bindings.isEmpty()) {
+                            lastBinding = bindings.get(bindings.size() - 1);
+                            journal.recordStepKey(BINDINGS_STEP,
+                                    new Object[]{lastBinding.getQueueName(), lastBinding.getMessageRouter()});
+                        }
+                    } while (bindings.size() >= batchSize);
+                } else {
+                    List<Binding> bindings = connector.readBindings();
+                    modifyBindings(bindings);
+                    connector.updateBindings(bindings);
                 }
+                journal.completeStep(BINDINGS_STEP);
+            }
+            if (!journal.isStepCompleted(DLC_BINDINGS_STEP)) {
+                addDlcBindings();
+                journal.completeStep(DLC_BINDINGS_STEP);
             }
-            connector.updateBindings(bindings);
-            addDlcBindings();
 
         } catch (SQLException e) {
             throw new MigrationException("Error while modifying bindings in the database", e);
+        } catch (IOException e) {
+            throw new MigrationException("Error while writing migration journal", e);
+        }
+    }
+
+    /**
+     * Modifies the given bindings from the format in WSO2MB 3.1.0 to WSO2MB 3.2.0. Bindings which cannot be
+     * recognized are logged and left as they are.
+     *
+     * @param bindings bindings to be modified
+     */
+    private void modifyBindings(List<Binding> bindings) {
+        for (Binding binding : bindings) {
+            try {
+                binding.setBindingDetails(modifier.modifyBinding(binding.getBindingDetails()));
+                logger.info("Modified binding information in database");
+            } catch (MigrationException e) {
+                logger.error("Error modifying binding for queue: " + binding.getQueueName() + ". Incorrect "
+                        + "binding info format: " + binding.getBindingDetails(), e);
+            }
         }
     }
 
     /**
-     * Read data of tables and modify data making all queue name references all simple.
+     * Read data of tables and modify data making all queue name references all simple. When tables are migrated in
+     * batches, the tables are migrated in parallel by a pool of workers, each using its own connection. Large tables
+     * are split into partitions so that several workers share the work of a single table. Progress of each partition
+     * is recorded in the journal, so that a migration which stopped halfway continues from the last recorded key.
      *
      * @throws MigrationException in case of error while converting queue names to lowercase
      */
     void makeQueueNamesAllSimple() throws MigrationException {
         try {
-            connector.updateQueueNamesInQueuesAndBindings();
-            connector.updateQueueNamesInSlots();
-            connector.updateQueueNamesInQueueMappings();
-            connector.updateQueueNamesInSlotMessageIds();
-            connector.updateQueueNamesInQueueToLastAssignedIds();
+            if (connector.isBatchingEnabled()) {
+                List<Callable<Void>> tasks = new ArrayList<>();
+                if (!journal.isStepCompleted(QUEUES_AND_BINDINGS_STEP)) {
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() throws SQLException, IOException {
+                            connector.updateQueueNamesInQueuesAndBindings();
+                            journal.completeStep(QUEUES_AND_BINDINGS_STEP);
+                            return null;
+                        }
+                    });
+                }
+                for (QueueNameTable table : QueueNameTable.values()) {
+                    addPartitionTasks(table, tasks);
+                }
+                runInParallel(tasks);
+            } else {
+                runStep(QUEUES_AND_BINDINGS_STEP, new Callable<Void>() {
+                    @Override
+                    public Void call() throws SQLException {
+                        connector.updateQueueNamesInQueuesAndBindings();
+                        return null;
+                    }
+                });
+                if (connector.isPushdownEnabled()) {
+                    for (final QueueNameTable table : QueueNameTable.values()) {
+                        runStep(table.getTableName(), new Callable<Void>() {
+                            @Override
+                            public Void call() throws SQLException {
+                                connector.updateQueueNamesInDatabase(new TablePartition(table));
+                                return null;
+                            }
+                        });
+                    }
+                } else {
+                    runStep(QueueNameTable.SLOT.getTableName(), new Callable<Void>() {
+                        @Override
+                        public Void call() throws SQLException {
+                            connector.updateQueueNamesInSlots();
+                            return null;
+                        }
+                    });
+                    runStep(QueueNameTable.QUEUE_MAPPING.getTableName(), new Callable<Void>() {
+                        @Override
+                        public Void call() throws SQLException {
+                            connector.updateQueueNamesInQueueMappings();
+                            return null;
+                        }
+                    });
+                    runStep(QueueNameTable.SLOT_MESSAGE_ID.getTableName(), new Callable<Void>() {
+                        @Override
+                        public Void call() throws SQLException {
+                            connector.updateQueueNamesInSlotMessageIds();
+                            return null;
+                        }
+                    });
+                    runStep(QueueNameTable.QUEUE_TO_LAST_ASSIGNED_ID.getTableName(), new Callable<Void>() {
+                        @Override
+                        public Void call() throws SQLException {
+                            connector.updateQueueNamesInQueueToLastAssignedIds();
+                            return null;
+                        }
+                    });
+                }
+            }
             logger.info("Converted queue names into lowercase");
         } catch (SQLException e) {
             throw new MigrationException("Error while converting queue names to lowercase", e);
+        } catch (IOException e) {
+            throw new MigrationException("Error while writing migration journal", e);
+        }
+    }
+
+    /**
+     * Migrates the database while the broker is running, so that the broker only has to be stopped for the cut over.
+     * The queue name tables are copied in batches to shadow tables, converting queue names on the way, while triggers
+     * record the keys of rows the broker changes. Recorded changes are applied to the shadow tables until the
+     * operator stops the broker and presses Enter. The remaining changes are then applied, the shadow tables replace
+     * the original tables, and the small queue, binding and message router tables are migrated in place.
+     *
+     * @throws MigrationException in case of error while migrating
+     */
+    void migrateOnline() throws MigrationException {
+        if (!connector.isOnlineMigrationSupported()) {
+            throw new MigrationException("Online migration is supported for MySQL, MSSQL, Oracle and PostgreSQL only");
+        }
+        journal.verifyStore();
+        final int batchSize = connector.isBatchingEnabled() ? connector.getBatchSize() : DEFAULT_COPY_BATCH_SIZE;
+        try {
+            connector.prepareOnlineMigration();
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (final QueueNameTable table : QueueNameTable.values()) {
+                final List<TablePartition> partitions = connector.getCopyPartitions(table, batchSize);
+                progress.init(table, connector.countRows(new TablePartition(table)), 0);
+                final AtomicInteger remainingPartitionCount = new AtomicInteger(partitions.size());
+                for (final TablePartition partition : partitions) {
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() throws SQLException {
+                            progress.start(table);
+                            progress.rowsProcessed(table, connector.copyPartition(partition));
+                            if (remainingPartitionCount.decrementAndGet() == 0) {
+                                progress.completed(table);
+                            }
+                            return null;
+                        }
+                    });
+                }
+            }
+            runInParallel(tasks);
+
+            final AtomicBoolean cutOverRequested = new AtomicBoolean();
+            Thread operatorInput = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)).readLine();
+                    } catch (IOException e) {
+                        logger.warn("Error while reading from the console", e);
+                    }
+                    cutOverRequested.set(true);
+                }
+            });
+            operatorInput.setDaemon(true);
+            operatorInput.start();
+            logger.info("Tables are copied. Changes made by the broker are being applied. Stop the broker and press "
+                        + "Enter to cut over.");
+
+            long lastReportTime = System.currentTimeMillis();
+            while (!cutOverRequested.get()) {
+                if (connector.applyChanges(batchSize) < batchSize) {
+                    Thread.sleep(CATCH_UP_INTERVAL_MILLIS);
+                }
+                if (System.currentTimeMillis() - lastReportTime >= CATCH_UP_REPORT_INTERVAL_MILLIS) {
+                    lastReportTime = System.currentTimeMillis();
+                    logger.info(connector.countPendingChanges() + " changes waiting to be applied");
+                }
+            }
+
+            logger.info("Cutting over to the migrated tables");
+            applyAllChanges(batchSize);
+            connector.dropChangeCapture();
+            // Changes committed while the triggers were dropped
+            applyAllChanges(batchSize);
+            connector.replaceTablesWithShadowTables();
+        } catch (SQLException e) {
+            throw new MigrationException("Error during online migration of queue name tables", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while applying changes made by the broker", e);
+        }
+
+        creteDlcMessageRouter();
+        modifyBindings();
+        runStep(QUEUES_AND_BINDINGS_STEP, new Callable<Void>() {
+            @Override
+            public Void call() throws SQLException {
+                connector.updateQueueNamesInQueuesAndBindings();
+                return null;
+            }
+        });
+        StringBuilder oldTables = new StringBuilder();
+        for (QueueNameTable table : QueueNameTable.values()) {
+            oldTables.append(oldTables.length() > 0 ? ", " : "").append(table.getOldTableName());
+        }
+        finishJournal();
+        logger.info("Online migration completed. The original tables are kept as " + oldTables
+                    + " and can be dropped once the broker is verified.");
+    }
+
+    /**
+     * Applies changes recorded in the change log until the change log is empty.
+     *
+     * @param batchSize number of changes applied at once
+     * @throws SQLException when a database error occurs
+     */
+    private void applyAllChanges(int batchSize) throws SQLException {
+        long appliedChanges = 0;
+        int batchChanges;
+        do {
+            batchChanges = connector.applyChanges(batchSize);
+            appliedChanges += batchChanges;
+        } while (batchChanges > 0);
+        logger.info("Applied " + appliedChanges + " remaining changes");
+    }
+
+    /**
+     * Exports the tables of the broker store to a compressed archive file, which {@link #importStore(File)} loads
+     * into an empty store of any supported database. Tables are read in a single pass each, hence the broker should
+     * be stopped to export a consistent store.
+     *
+     * @param file the archive file to be written
+     * @throws MigrationException in case of error while exporting
+     */
+    void exportStore(File file) throws MigrationException {
+        try (StoreArchive.Writer writer = new StoreArchive.Writer(file)) {
+            for (String table : StoreArchive.TABLES) {
+                long start = System.currentTimeMillis();
+                long rowCount = connector.exportTable(table, writer);
+                logger.info("Exported " + rowCount + " rows of " + table + " in "
+                            + MigrationProgress.formatDuration(System.currentTimeMillis() - start));
+            }
+            writer.finish();
+        } catch (SQLException e) {
+            throw new MigrationException("Error while exporting the broker store", e);
+        } catch (IOException e) {
+            throw new MigrationException("Error while writing " + file, e);
+        }
+        logger.info("Exported the broker store to " + file);
+    }
+
+    /**
+     * Imports the tables of an archive written by {@link #exportStore(File)}. The tables have to exist and be empty,
+     * as created by the database scripts of the broker.
+     *
+     * @param file the archive file to be read
+     * @throws MigrationException in case of error while importing
+     */
+    void importStore(File file) throws MigrationException {
+        int batchSize = connector.isBatchingEnabled() ? connector.getBatchSize() : DEFAULT_COPY_BATCH_SIZE;
+        try (StoreArchive.Reader reader = new StoreArchive.Reader(file)) {
+            String table;
+            while (null != (table = reader.nextTable())) {
+                if (!StoreArchive.TABLES.contains(table)) {
+                    throw new MigrationException("Unknown table " + table + " in " + file);
+                }
+                if (connector.countRows(table) > 0) {
+                    throw new MigrationException("Table " + table + " is not empty. Import into a new broker store");
+                }
+                long start = System.currentTimeMillis();
+                long rowCount = connector.importTable(table, reader, batchSize);
+                logger.info("Imported " + rowCount + " rows of " + table + " in "
+                            + MigrationProgress.formatDuration(System.currentTimeMillis() - start));
+            }
+        } catch (SQLException e) {
+            throw new MigrationException("Error while importing the broker store", e);
+        } catch (IOException e) {
+            throw new MigrationException("Error while reading " + file, e);
+        }
+        logger.info("Imported the broker store from " + file);
+    }
+
+    /**
+     * Scans the tables modified by the migration without modifying them and logs a report of the rows that would be
+     * changed, along with the estimated run time and peak memory of the migration with the current configuration.
+     * Tables are scanned page by page, hence the dry run can be run against a live database or a replica.
+     *
+     * @throws MigrationException in case of error while scanning the tables
+     */
+    void dryRun() throws MigrationException {
+        try {
+            logger.info("Scanning tables for a dry run of the migration");
+            DryRunReport report = new DryRunReport(connector.scanBindings(dryRunSampleSize),
+                    connector.scanQueues(dryRunSampleSize), connector.readDlcQueues().size());
+            for (QueueNameTable table : QueueNameTable.values()) {
+                report.addTable(table, connector.scanQueueNames(table, dryRunSampleSize));
+            }
+            report.log(connector.getBatchSize(), threadCount, connector.isPushdownEnabled());
+        } catch (SQLException e) {
+            throw new MigrationException("Error while scanning tables for a dry run", e);
+        }
+    }
+
+    /**
+     * Runs a step of the migration unless the journal records it as completed, and records it as completed after.
+     *
+     * @param step name of the step
+     * @param task the step to be run
+     * @throws MigrationException if the step fails
+     */
+    private void runStep(String step, Callable<Void> task) throws MigrationException {
+        if (journal.isStepCompleted(step)) {
+            logger.info("Skipping completed migration step " + step);
+            return;
+        }
+        try {
+            task.call();
+            journal.completeStep(step);
+        } catch (Exception e) {
+            throw new MigrationException("Error in migration step " + step, e);
+        }
+    }
+
+    /**
+     * Adds a task for each partition of a table which is not yet completed. Partitions are read from the journal if
+     * the table was partitioned by an earlier run, otherwise the table is partitioned and the partitions are recorded
+     * in the journal along with their row counts.
+     *
+     * @param table the table
+     * @param tasks list the tasks are added to
+     * @throws SQLException when a database error occurs
+     * @throws IOException  in case of error while writing the journal
+     */
+    private void addPartitionTasks(final QueueNameTable table, List<Callable<Void>> tasks)
+            throws SQLException, IOException {
+
+        List<TablePartition> partitions = journal.getPartitions(table);
+        if (null == partitions) {
+            partitions = connector.getPartitions(table, threadCount);
+            long[] rowCounts = new long[partitions.size()];
+            for (TablePartition partition : partitions) {
+                rowCounts[partition.getId()] = connector.countRows(partition);
+            }
+            journal.recordPartitions(table, partitions, rowCounts);
+        }
+
+        long rowCount = 0;
+        long processedRowCount = 0;
+        List<TablePartition> remainingPartitions = new ArrayList<>();
+        for (TablePartition partition : partitions) {
+            rowCount += journal.getRowCount(partition);
+            if (journal.isCompleted(partition)) {
+                processedRowCount += journal.getRowCount(partition);
+            } else {
+                processedRowCount += journal.getProcessedRowCount(partition);
+                remainingPartitions.add(partition);
+            }
+        }
+        if (remainingPartitions.isEmpty()) {
+            logger.info("No rows left to migrate in " + table.getTableName());
+            return;
+        }
+
+        progress.init(table, rowCount, processedRowCount);
+        final AtomicInteger remainingPartitionCount = new AtomicInteger(remainingPartitions.size());
+        for (final TablePartition partition : remainingPartitions) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws SQLException, IOException {
+                    progress.start(table);
+                    migratePartition(partition);
+                    if (remainingPartitionCount.decrementAndGet() == 0) {
+                        progress.completed(table);
+                    }
+                    return null;
+                }
+            });
+        }
+    }
+
+    /**
+     * Migrates a partition continuing from the last key recorded in the journal, recording the progress of each
+     * committed batch. When pushdown is enabled the partition is instead migrated by a single update statement
+     * executed within the database.
+     *
+     * @param partition the partition
+     * @throws SQLException when a database error occurs
+     * @throws IOException  in case of error while writing the journal
+     */
+    private void migratePartition(TablePartition partition) throws SQLException, IOException {
+        final long[] processedRowCount = {journal.getProcessedRowCount(partition)};
+        if (connector.isPushdownEnabled()) {
+            connector.updateQueueNamesInDatabase(partition);
+            progress.rowsProcessed(partition.getTable(), journal.getRowCount(partition) - processedRowCount[0]);
+            journal.completePartition(partition);
+            return;
+        }
+        connector.updateQueueNamesInBatches(partition, journal.getLastKey(partition),
+                new DBConnector.BatchListener() {
+                    @Override
+                    public void batchCommitted(TablePartition partition, Object[] lastKey, int rowCount) {
+                        processedRowCount[0] += rowCount;
+                        journal.recordProgress(partition, lastKey, processedRowCount[0]);
+                        progress.rowsProcessed(partition.getTable(), rowCount);
+                    }
+                });
+        journal.completePartition(partition);
+    }
+
+    /**
+     * Runs the given tasks using a pool of thread count workers and waits until all of them complete. Remaining tasks
+     * are cancelled as soon as one of the tasks fails.
+     *
+     * @param tasks tasks to be run
+     * @throws MigrationException if a task fails or the wait is interrupted
+     */
+    private void runInParallel(List<Callable<Void>> tasks) throws MigrationException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, Math.max(1, tasks.size())));
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+            for (Callable<Void> task : tasks) {
+                completionService.submit(task);
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                completionService.take().get();
+            }
+        } catch (ExecutionException e) {
+            throw new MigrationException("Error while converting queue names to lowercase", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while converting queue names to lowercase", e);
+        } finally {
+            executor.shutdownNow();
         }
     }
 }
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tables which only reference queues by name, and whose queue name columns are simply converted to lowercase during
+ * the migration. Each table is described by the column the queue name is read from, the columns the lowercase queue
+ * name is written to and the columns uniquely identifying a row, which are also used to read the table in order.
+ * <p>
+ * Large tables additionally name a numeric key column whose value range is split among workers, and may be grouped
+ * by the queue name so that the rows of queues which are already in lowercase are never read.
+ */
+enum QueueNameTable {
+
+    SLOT("MB_SLOT", "STORAGE_QUEUE_NAME",
+            new String[]{"STORAGE_QUEUE_NAME", "ASSIGNED_QUEUE_NAME"},
+            new String[]{"SLOT_ID"}, "SLOT_ID", false),
+
+    QUEUE_MAPPING("MB_QUEUE_MAPPING", "QUEUE_NAME",
+            new String[]{"QUEUE_NAME"},
+            new String[]{"QUEUE_NAME"}, null, false),
+
+    SLOT_MESSAGE_ID("MB_SLOT_MESSAGE_ID", "QUEUE_NAME",
+            new String[]{"QUEUE_NAME"},
+            new String[]{"QUEUE_NAME", "MESSAGE_ID"}, "MESSAGE_ID", true),
+
+    QUEUE_TO_LAST_ASSIGNED_ID("MB_QUEUE_TO_LAST_ASSIGNED_ID", "QUEUE_NAME",
+            new String[]{"QUEUE_NAME"},
+            new String[]{"QUEUE_NAME"}, null, false);
+
+    /**
+     * Label of the queue name column in the result of the page queries, since the queue name column can also be
+     * one of the key columns.
+     */
+    static final String QUEUE_NAME_LABEL = "MIGRATED_QUEUE_NAME";
+
+    private final String tableName;
+
+    private final String queueNameColumn;
+
+    private final String[] updatedColumns;
+
+    private final String[] keyColumns;
+
+    /**
+     * Numeric key column used to split the table into ranges, or null if the table is small enough to be migrated
+     * as a whole.
+     */
+    private final String rangeColumn;
+
+    /**
+     * Whether the table is partitioned by the queue name before being split into ranges.
+     */
+    private final boolean groupedByQueueName;
+
+    QueueNameTable(String tableName, String queueNameColumn, String[] updatedColumns, String[] keyColumns,
+                   String rangeColumn, boolean groupedByQueueName) {
+        this.tableName = tableName;
+        this.queueNameColumn = queueNameColumn;
+        this.updatedColumns = updatedColumns;
+        this.keyColumns = keyColumns;
+        this.rangeColumn = rangeColumn;
+        this.groupedByQueueName = groupedByQueueName;
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    String getQueueNameColumn() {
+        return queueNameColumn;
+    }
+
+    String[] getUpdatedColumns() {
+        return updatedColumns;
+    }
+
+    String[] getKeyColumns() {
+        return keyColumns;
+    }
+
+    String getRangeColumn() {
+        return rangeColumn;
+    }
+
+    boolean isGroupedByQueueName() {
+        return groupedByQueueName;
+    }
+
+    /**
+     * Query reading a page of the rows matching a partition condition. When the page continues after a given key the
+     * parameters of the key condition follow the parameters of the partition condition and are set through
+     * {@link KeysetPagination#setAfterKeyParameters(java.sql.PreparedStatement, int, Object[])}.
+     *
+     * @param partitionCondition condition selecting the rows to be read, or null to read the whole table
+     * @param afterKey           whether the page continues after a given key
+     * @return select query ordered by the key columns
+     */
+    String getPageQuery(String partitionCondition, boolean afterKey) {
+        StringBuilder query = new StringBuilder(getSelectClause());
+        if (null != partitionCondition) {
+            query.append(" WHERE ").append(partitionCondition);
+        }
+        if (afterKey) {
+            query.append(null == partitionCondition ? " WHERE " : " AND ")
+                    .append(KeysetPagination.afterKeyCondition(keyColumns));
+        }
+        return query.append(KeysetPagination.orderBy(keyColumns)).toString();
+    }
+
+    /**
+     * Query reading the distinct queue names of the table.
+     *
+     * @return select query
+     */
+    String getDistinctQueueNamesQuery() {
+        return "SELECT DISTINCT " + queueNameColumn + " FROM " + tableName;
+    }
+
+    /**
+     * Query counting the rows matching a condition.
+     *
+     * @param condition condition selecting the rows, or null for the whole table
+     * @return select query
+     */
+    String getCountQuery(String condition) {
+        return "SELECT COUNT(*) FROM " + tableName + (null == condition ? "" : " WHERE " + condition);
+    }
+
+    /**
+     * Query reading the lowest and the highest value of the range column among the rows matching a condition.
+     *
+     * @param condition condition selecting the rows, or null for the whole table
+     * @return select query
+     */
+    String getRangeQuery(String condition) {
+        return "SELECT MIN(" + rangeColumn + "), MAX(" + rangeColumn + ") FROM " + tableName
+               + (null == condition ? "" : " WHERE " + condition);
+    }
+
+    /**
+     * Query updating the queue name of a single row. The new queue name is set once for each updated column,
+     * followed by the key of the row.
+     *
+     * @return update query
+     */
+    String getUpdateQuery() {
+        StringBuilder query = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+        for (int i = 0; i < updatedColumns.length; i++) {
+            if (i > 0) {
+                query.append(" , ");
+            }
+            query.append(updatedColumns[i]).append(" =?");
+        }
+        return query.append(" WHERE ").append(getKeyCondition()).toString();
+    }
+
+    /**
+     * Condition selecting a single row by its key, with the values of the key columns as parameters.
+     *
+     * @return the condition
+     */
+    String getKeyCondition() {
+        StringBuilder condition = new StringBuilder();
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0) {
+                condition.append(" AND ");
+            }
+            condition.append(keyColumns[i]).append(" =?");
+        }
+        return condition.toString();
+    }
+
+    /**
+     * Query copying the rows matching a condition to the shadow table of an online migration, converting queue
+     * names to lowercase as done when the table is migrated in place.
+     *
+     * @param dialect   dialect of the database
+     * @param columns   all columns of the table
+     * @param condition condition selecting the rows, or null to copy the whole table
+     * @return insert query
+     */
+    String getCopyQuery(SqlDialect dialect, List<String> columns, String condition) {
+        String lowerCaseQueueName = "LOWER(" + queueNameColumn + ")";
+        StringBuilder insert = new StringBuilder("INSERT INTO ").append(getShadowTableName()).append(" (");
+        StringBuilder select = new StringBuilder(") SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i);
+            String separator = (i > 0) ? ", " : "";
+            insert.append(separator).append(column);
+            select.append(separator);
+            if (column.equalsIgnoreCase(queueNameColumn)) {
+                select.append(lowerCaseQueueName);
+            } else if (isUpdatedColumn(column)) {
+                // Other queue name columns are overwritten only for queue names having capital letters
+                select.append("CASE WHEN ").append(dialect.caseSensitiveNotEquals(queueNameColumn, lowerCaseQueueName))
+                        .append(" THEN ").append(lowerCaseQueueName).append(" ELSE ").append(column).append(" END");
+            } else {
+                select.append(column);
+            }
+        }
+        select.append(" FROM ").append(tableName);
+        if (null != condition) {
+            select.append(" WHERE ").append(condition);
+        }
+        return insert.append(select).toString();
+    }
+
+    /**
+     * Name of the table the rows are copied to by an online migration. Names are kept within 30 characters, the
+     * limit of older Oracle versions.
+     *
+     * @return name of the shadow table
+     */
+    String getShadowTableName() {
+        return "MIG_" + getShortName();
+    }
+
+    /**
+     * Name the table is renamed to when an online migration replaces it with its shadow table.
+     *
+     * @return name of the original table after the migration
+     */
+    String getOldTableName() {
+        return "OLD_" + getShortName();
+    }
+
+    /**
+     * Name of the trigger recording changes of the table during an online migration.
+     *
+     * @return name of the trigger
+     */
+    String getTriggerName() {
+        return "TRG_" + getShortName();
+    }
+
+    /**
+     * Queue name column of the key recorded in the change log, which is null if the queue name is not part of the
+     * key of the table.
+     *
+     * @return the column or null
+     */
+    String getChangeLogQueueNameColumn() {
+        return Arrays.asList(keyColumns).contains(queueNameColumn) ? queueNameColumn : null;
+    }
+
+    private String getShortName() {
+        return tableName.substring(tableName.indexOf('_') + 1);
+    }
+
+    private boolean isUpdatedColumn(String column) {
+        for (String updatedColumn : updatedColumns) {
+            if (updatedColumn.equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Query converting the queue names of all rows matching a condition to lowercase within the database. Only rows
+     * whose queue name has capital letters are updated.
+     *
+     * @param dialect   dialect of the database
+     * @param condition condition selecting the rows, or null for the whole table
+     * @return update query
+     */
+    String getLowerCaseUpdateQuery(SqlDialect dialect, String condition) {
+        String lowerCaseQueueName = "LOWER(" + queueNameColumn + ")";
+        StringBuilder query = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+        for (int i = 0; i < updatedColumns.length; i++) {
+            if (i > 0) {
+                query.append(" , ");
+            }
+            query.append(updatedColumns[i]).append(" = ").append(lowerCaseQueueName);
+        }
+        query.append(" WHERE ").append(getCapitalizedCondition(dialect));
+        if (null != condition) {
+            query.append(" AND ").append(condition);
+        }
+        return query.toString();
+    }
+
+    /**
+     * Condition selecting the rows whose queue name has capital letters, which are the rows changed by the migration.
+     *
+     * @param dialect dialect of the database
+     * @return the condition
+     */
+    String getCapitalizedCondition(SqlDialect dialect) {
+        return dialect.caseSensitiveNotEquals(queueNameColumn, "LOWER(" + queueNameColumn + ")");
+    }
+
+    private String getSelectClause() {
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (String keyColumn : keyColumns) {
+            select.append(keyColumn).append(", ");
+        }
+        return select.append(queueNameColumn).append(" AS ").append(QUEUE_NAME_LABEL)
+                .append(" FROM ").append(tableName).toString();
+    }
+}
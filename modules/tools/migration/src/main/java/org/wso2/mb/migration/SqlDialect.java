@@ -0,0 +1,384 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Databases supported by WSO2 MB, as listed in master-datasources.xml, along with the SQL which differs among them.
+ */
+enum SqlDialect {
+
+    H2("jdbc:h2:") {
+        @Override
+        String restartIdentity(String table, String column, long nextValue) {
+            return "ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + nextValue;
+        }
+    },
+
+    MYSQL("jdbc:mysql:") {
+        @Override
+        String caseSensitiveNotEquals(String column, String expression) {
+            // Default collations of MySQL are case insensitive
+            return "BINARY " + column + " <> " + expression;
+        }
+
+        @Override
+        String createChangeLogTable() {
+            return "CREATE TABLE " + CHANGE_LOG + " (CHANGE_ID BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                   + " TABLE_NAME VARCHAR(64) NOT NULL, QUEUE_NAME VARCHAR(512), ROW_ID BIGINT)";
+        }
+
+        @Override
+        String createShadowTable(String table, String shadowTable) {
+            return "CREATE TABLE " + shadowTable + " LIKE " + table;
+        }
+
+        @Override
+        String restartIdentity(String table, String column, long nextValue) {
+            return "ALTER TABLE " + table + " AUTO_INCREMENT = " + nextValue;
+        }
+
+        @Override
+        List<String> createChangeCaptureTriggers(String table, String trigger, String queueColumn,
+                                                 String rowIdColumn) {
+            String prefix = "CREATE TRIGGER " + trigger;
+            String body = " ON " + table + " FOR EACH ROW " + CHANGE_LOG_INSERT + "VALUES ";
+            String oldRow = "(" + changeLogValues(table, "OLD.", queueColumn, rowIdColumn) + ")";
+            String newRow = "(" + changeLogValues(table, "NEW.", queueColumn, rowIdColumn) + ")";
+            return Arrays.asList(prefix + "_I AFTER INSERT" + body + newRow,
+                    prefix + "_U AFTER UPDATE" + body + oldRow + ", " + newRow,
+                    prefix + "_D AFTER DELETE" + body + oldRow);
+        }
+
+        @Override
+        List<String> dropChangeCaptureTriggers(String table, String trigger) {
+            return Arrays.asList("DROP TRIGGER IF EXISTS " + trigger + "_I", "DROP TRIGGER IF EXISTS " + trigger + "_U",
+                    "DROP TRIGGER IF EXISTS " + trigger + "_D");
+        }
+
+        @Override
+        List<String> renameTables(List<String[]> renames) {
+            // A single statement renames all tables atomically
+            StringBuilder statement = new StringBuilder("RENAME TABLE ");
+            for (int i = 0; i < renames.size(); i++) {
+                statement.append(i > 0 ? ", " : "").append(renames.get(i)[0]).append(" TO ").append(renames.get(i)[1]);
+            }
+            return Collections.singletonList(statement.toString());
+        }
+    },
+
+    MSSQL("jdbc:sqlserver:", "jdbc:jtds:sqlserver:") {
+        @Override
+        String caseSensitiveNotEquals(String column, String expression) {
+            // Default collations of SQL Server are case insensitive
+            return column + " COLLATE Latin1_General_BIN <> " + expression;
+        }
+
+        @Override
+        String createChangeLogTable() {
+            return "CREATE TABLE " + CHANGE_LOG + " (CHANGE_ID BIGINT IDENTITY(1,1) PRIMARY KEY,"
+                   + " TABLE_NAME VARCHAR(64) NOT NULL, QUEUE_NAME VARCHAR(512), ROW_ID BIGINT)";
+        }
+
+        @Override
+        List<String> createChangeCaptureTriggers(String table, String trigger, String queueColumn,
+                                                 String rowIdColumn) {
+            // Triggers of SQL Server fire once per statement, with the changed rows in the deleted and inserted tables
+            String values = changeLogValues(table, "", queueColumn, rowIdColumn);
+            return Collections.singletonList("CREATE TRIGGER " + trigger + " ON " + table
+                    + " AFTER INSERT, UPDATE, DELETE AS BEGIN SET NOCOUNT ON; " + CHANGE_LOG_INSERT
+                    + "SELECT " + values + " FROM deleted UNION ALL SELECT " + values + " FROM inserted; END");
+        }
+
+        @Override
+        List<String> dropChangeCaptureTriggers(String table, String trigger) {
+            return Collections.singletonList("IF OBJECT_ID('" + trigger + "', 'TR') IS NOT NULL DROP TRIGGER "
+                                             + trigger);
+        }
+
+        @Override
+        List<String> renameTables(List<String[]> renames) {
+            List<String> statements = new ArrayList<>();
+            for (String[] rename : renames) {
+                statements.add("EXEC sp_rename '" + rename[0] + "', '" + rename[1] + "'");
+            }
+            return statements;
+        }
+
+        @Override
+        String setIdentityInsert(String table, boolean enabled) {
+            return "SET IDENTITY_INSERT " + table + (enabled ? " ON" : " OFF");
+        }
+    },
+
+    ORACLE("jdbc:oracle:") {
+        @Override
+        String createChangeLogTable() {
+            // Identity columns require Oracle 12c or later
+            return "CREATE TABLE " + CHANGE_LOG + " (CHANGE_ID NUMBER(19) GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                   + " TABLE_NAME VARCHAR2(64) NOT NULL, QUEUE_NAME VARCHAR2(512), ROW_ID NUMBER(19))";
+        }
+
+        @Override
+        List<String> createChangeCaptureTriggers(String table, String trigger, String queueColumn,
+                                                 String rowIdColumn) {
+            return Collections.singletonList("CREATE OR REPLACE TRIGGER " + trigger
+                    + " AFTER INSERT OR UPDATE OR DELETE ON " + table + " FOR EACH ROW BEGIN"
+                    + " IF NOT INSERTING THEN " + CHANGE_LOG_INSERT
+                    + "VALUES (" + changeLogValues(table, ":OLD.", queueColumn, rowIdColumn) + "); END IF;"
+                    + " IF NOT DELETING THEN " + CHANGE_LOG_INSERT
+                    + "VALUES (" + changeLogValues(table, ":NEW.", queueColumn, rowIdColumn) + "); END IF; END;");
+        }
+
+        @Override
+        List<String> dropChangeCaptureTriggers(String table, String trigger) {
+            // ORA-04080 is raised if the trigger does not exist
+            return Collections.singletonList("BEGIN EXECUTE IMMEDIATE 'DROP TRIGGER " + trigger + "';"
+                    + " EXCEPTION WHEN OTHERS THEN IF SQLCODE != -4080 THEN RAISE; END IF; END;");
+        }
+    },
+
+    POSTGRESQL("jdbc:postgresql:") {
+        @Override
+        String createChangeLogTable() {
+            return "CREATE TABLE " + CHANGE_LOG + " (CHANGE_ID BIGSERIAL PRIMARY KEY,"
+                   + " TABLE_NAME VARCHAR(64) NOT NULL, QUEUE_NAME VARCHAR(512), ROW_ID BIGINT)";
+        }
+
+        @Override
+        String createShadowTable(String table, String shadowTable) {
+            return "CREATE TABLE " + shadowTable + " (LIKE " + table + " INCLUDING ALL)";
+        }
+
+        @Override
+        List<String> createChangeCaptureTriggers(String table, String trigger, String queueColumn,
+                                                 String rowIdColumn) {
+            return Arrays.asList("CREATE OR REPLACE FUNCTION " + trigger + "_FN() RETURNS TRIGGER AS $$ BEGIN"
+                    + " IF TG_OP <> 'INSERT' THEN " + CHANGE_LOG_INSERT
+                    + "VALUES (" + changeLogValues(table, "OLD.", queueColumn, rowIdColumn) + "); END IF;"
+                    + " IF TG_OP <> 'DELETE' THEN " + CHANGE_LOG_INSERT
+                    + "VALUES (" + changeLogValues(table, "NEW.", queueColumn, rowIdColumn) + "); END IF;"
+                    + " RETURN NULL; END; $$ LANGUAGE plpgsql",
+                    "CREATE TRIGGER " + trigger + " AFTER INSERT OR UPDATE OR DELETE ON " + table
+                    + " FOR EACH ROW EXECUTE PROCEDURE " + trigger + "_FN()");
+        }
+
+        @Override
+        List<String> dropChangeCaptureTriggers(String table, String trigger) {
+            return Arrays.asList("DROP TRIGGER IF EXISTS " + trigger + " ON " + table,
+                    "DROP FUNCTION IF EXISTS " + trigger + "_FN()");
+        }
+
+        @Override
+        String getSerialSequenceQuery() {
+            return "SELECT pg_get_serial_sequence(?, ?)";
+        }
+
+        @Override
+        String transferSequence(String sequence, String table, String column) {
+            return "ALTER SEQUENCE " + sequence + " OWNED BY " + table + "." + column;
+        }
+
+        @Override
+        String restartIdentity(String table, String column, long nextValue) {
+            return "SELECT setval(pg_get_serial_sequence('" + table + "', '" + column + "'), " + nextValue + ", false)";
+        }
+    };
+
+    /**
+     * Table recording the keys of rows changed in the source tables of an online migration.
+     */
+    static final String CHANGE_LOG = "MB_MIGRATION_CHANGELOG";
+
+    private static final String CHANGE_LOG_INSERT = "INSERT INTO " + CHANGE_LOG + " (TABLE_NAME, QUEUE_NAME, ROW_ID) ";
+
+    /**
+     * Prefixes of JDBC URLs of the database.
+     */
+    private final String[] urlPrefixes;
+
+    SqlDialect(String... urlPrefixes) {
+        this.urlPrefixes = urlPrefixes;
+    }
+
+    /**
+     * Creates a condition comparing a column with an expression, taking the case of letters into account.
+     *
+     * @param column     the column
+     * @param expression the expression the column is compared with
+     * @return condition which is true if the column differs from the expression
+     */
+    String caseSensitiveNotEquals(String column, String expression) {
+        return column + " <> " + expression;
+    }
+
+    /**
+     * Creates the statement creating the change log table of an online migration.
+     *
+     * @return create statement, or null if online migration is not supported for the database
+     */
+    String createChangeLogTable() {
+        return null;
+    }
+
+    /**
+     * Creates the statement creating an empty copy of a table, including its indexes.
+     *
+     * @param table       the table to be copied
+     * @param shadowTable the copy
+     * @return create statement, or null if the copy has to be created by a database administrator
+     */
+    String createShadowTable(String table, String shadowTable) {
+        return null;
+    }
+
+    /**
+     * Creates the statements creating triggers which record the key of each inserted, updated or deleted row of a
+     * table in the change log. Updates record both the old and the new key.
+     *
+     * @param table       the table
+     * @param trigger     name of the trigger, used as the prefix of names when several triggers are needed
+     * @param queueColumn queue name column of the key, or null if the key has no queue name
+     * @param rowIdColumn numeric column of the key, or null if the key has no numeric column
+     * @return create statements, or null if change capture is not supported for the database
+     */
+    List<String> createChangeCaptureTriggers(String table, String trigger, String queueColumn, String rowIdColumn) {
+        return null;
+    }
+
+    /**
+     * Creates the statements dropping the triggers created by {@link #createChangeCaptureTriggers}, if they exist.
+     *
+     * @param table   the table
+     * @param trigger name of the trigger
+     * @return drop statements, or null if change capture is not supported for the database
+     */
+    List<String> dropChangeCaptureTriggers(String table, String trigger) {
+        return null;
+    }
+
+    /**
+     * Checks whether all statements needed by an online migration are available for the database, so that an online
+     * migration is refused before any work is done rather than failing halfway.
+     *
+     * @return true if the change log, change capture triggers and, where columns own sequences, the hand over of
+     * sequences are supported
+     */
+    boolean isOnlineMigrationSupported() {
+        return null != createChangeLogTable()
+               && null != createChangeCaptureTriggers(CHANGE_LOG, "TRG", "QUEUE_NAME", "ROW_ID")
+               && null != dropChangeCaptureTriggers(CHANGE_LOG, "TRG")
+               && (null == getSerialSequenceQuery() || null != transferSequence("SEQ", CHANGE_LOG, "ROW_ID"));
+    }
+
+    /**
+     * Creates the statements renaming tables. The statements are executed in a single transaction, which makes the
+     * renames atomic on databases with transactional DDL, such as MSSQL and PostgreSQL. Oracle commits each rename on
+     * its own, hence while a table is renamed to its old name and before its shadow table is renamed, the table does
+     * not exist. The broker must stay stopped until all tables are renamed, and tables renamed before a failed rename
+     * have to be renamed back by hand.
+     *
+     * @param renames pairs of the current and the new name of each table
+     * @return rename statements, executed in the given order
+     */
+    List<String> renameTables(List<String[]> renames) {
+        List<String> statements = new ArrayList<>();
+        for (String[] rename : renames) {
+            statements.add("ALTER TABLE " + rename[0] + " RENAME TO " + rename[1]);
+        }
+        return statements;
+    }
+
+    /**
+     * Creates the statement allowing explicit values to be inserted into the identity column of a table.
+     *
+     * @param table   the table
+     * @param enabled whether explicit values are allowed
+     * @return the statement, or null if explicit values are always allowed
+     */
+    String setIdentityInsert(String table, boolean enabled) {
+        return null;
+    }
+
+    /**
+     * Query reading the name of the sequence owned by a column, with the table and the column as parameters.
+     *
+     * @return select query, or null if columns do not own sequences
+     */
+    String getSerialSequenceQuery() {
+        return null;
+    }
+
+    /**
+     * Creates the statement making a column the owner of a sequence.
+     *
+     * @param sequence the sequence
+     * @param table    table of the new owner
+     * @param column   the new owner
+     * @return alter statement, or null if sequences are not owned by columns in the database
+     */
+    String transferSequence(String sequence, String table, String column) {
+        return null;
+    }
+
+    /**
+     * Creates the statement making the identity column of a table generate values starting from a given value, once
+     * rows with explicit values were inserted.
+     *
+     * @param table     the table
+     * @param column    the identity column
+     * @param nextValue the next value to be generated
+     * @return the statement, or null if the database moves past inserted values by itself or uses sequences which
+     * are not bound to the column
+     */
+    String restartIdentity(String table, String column, long nextValue) {
+        return null;
+    }
+
+    /**
+     * Values of a change log row, read from the columns of a changed row.
+     */
+    private static String changeLogValues(String table, String rowPrefix, String queueColumn, String rowIdColumn) {
+        return "'" + table + "', " + (null == queueColumn ? "NULL" : rowPrefix + queueColumn) + ", "
+               + (null == rowIdColumn ? "NULL" : rowPrefix + rowIdColumn);
+    }
+
+    /**
+     * Finds the dialect of the database a JDBC URL refers to.
+     *
+     * @param url JDBC URL
+     * @return the dialect, or null if the database is not known
+     */
+    static SqlDialect fromUrl(String url) {
+        if (null != url) {
+            for (SqlDialect dialect : values()) {
+                for (String urlPrefix : dialect.urlPrefixes) {
+                    if (url.startsWith(urlPrefix)) {
+                        return dialect;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Database independent, gzip compressed binary archive of the tables of a broker store, used to move a store between
+ * databases of different vendors.
+ * <p>
+ * The archive starts with a magic number and a format version. Each table follows as its name, its column names and
+ * the type of each column, then its rows, each row marked by a byte and each value preceded by a byte telling
+ * whether it is null. Numbers are written in binary, strings and byte arrays are prefixed by their length. The
+ * archive ends with an end marker in place of a table, which is written only once all tables are written, so that
+ * an archive of a failed export is rejected as incomplete when it is read.
+ */
+class StoreArchive {
+
+    /**
+     * Tables of the store in archive order, which is also an order satisfying the foreign keys among them.
+     */
+    static final List<String> TABLES = Arrays.asList("MB_EXCHANGE", "MB_QUEUE", "MB_BINDING", "MB_QUEUE_MAPPING",
+            "MB_QUEUE_TO_LAST_ASSIGNED_ID", "MB_SLOT", "MB_SLOT_MESSAGE_ID", "MB_METADATA", "MB_CONTENT");
+
+    /**
+     * Types of column values.
+     */
+    static final byte LONG = 1;
+    static final byte INT = 2;
+    static final byte STRING = 3;
+    static final byte BYTES = 4;
+
+    /**
+     * "MBSA", identifying store archives.
+     */
+    private static final int MAGIC = 0x4D425341;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte END_OF_ARCHIVE = 0;
+    private static final byte TABLE = 1;
+    private static final byte END_OF_TABLE = 0;
+    private static final byte ROW = 1;
+    private static final byte NULL_VALUE = 0;
+    private static final byte VALUE = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private StoreArchive() {
+    }
+
+    /**
+     * Finds the archive type of a column.
+     *
+     * @param sqlType type of the column as given by {@link java.sql.ResultSetMetaData#getColumnType(int)}
+     * @return archive type of the column
+     */
+    static byte getType(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                // Oracle reports integer columns as NUMERIC
+                return LONG;
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return INT;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return BYTES;
+            default:
+                return STRING;
+        }
+    }
+
+    /**
+     * Finds the SQL type used to bind a null value of a column of an archive type.
+     *
+     * @param type archive type of the column
+     * @return SQL type from {@link Types}
+     */
+    static int getSqlType(byte type) {
+        switch (type) {
+            case LONG:
+                return Types.BIGINT;
+            case INT:
+                return Types.INTEGER;
+            case BYTES:
+                return Types.VARBINARY;
+            default:
+                return Types.VARCHAR;
+        }
+    }
+
+    /**
+     * Writes tables to an archive file.
+     */
+    static class Writer implements Closeable {
+
+        private final DataOutputStream output;
+
+        private byte[] types;
+
+        Writer(File file) throws IOException {
+            output = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+        }
+
+        /**
+         * Starts a table. Rows written after this belong to the table.
+         *
+         * @param tableName name of the table
+         * @param columns   column names
+         * @param types     archive types of the columns
+         * @throws IOException when the archive cannot be written
+         */
+        void startTable(String tableName, String[] columns, byte[] types) throws IOException {
+            this.types = types;
+            output.writeByte(TABLE);
+            output.writeUTF(tableName);
+            output.writeShort(columns.length);
+            for (int i = 0; i < columns.length; i++) {
+                output.writeUTF(columns[i]);
+                output.writeByte(types[i]);
+            }
+        }
+
+        /**
+         * Writes a row of the current table.
+         *
+         * @param values values of the row in column order, of the Java type matching the type of each column
+         * @throws IOException when the archive cannot be written
+         */
+        void writeRow(Object[] values) throws IOException {
+            output.writeByte(ROW);
+            for (int i = 0; i < values.length; i++) {
+                if (null == values[i]) {
+                    output.writeByte(NULL_VALUE);
+                    continue;
+                }
+                output.writeByte(VALUE);
+                switch (types[i]) {
+                    case LONG:
+                        output.writeLong((Long) values[i]);
+                        break;
+                    case INT:
+                        output.writeInt((Integer) values[i]);
+                        break;
+                    case BYTES:
+                        writeBytes((byte[]) values[i]);
+                        break;
+                    default:
+                        // writeUTF is limited to 64 KB, which details strings may exceed
+                        writeBytes(((String) values[i]).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        void endTable() throws IOException {
+            output.writeByte(END_OF_TABLE);
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+
+        /**
+         * Ends the archive. Call once all tables are written, before closing the writer. An archive closed without
+         * being finished is incomplete and is rejected by {@link Reader}.
+         *
+         * @throws IOException when the archive cannot be written
+         */
+        void finish() throws IOException {
+            output.writeByte(END_OF_ARCHIVE);
+            output.flush();
+        }
+
+        /**
+         * Closes the file, without ending the archive unless {@link #finish()} was called.
+         *
+         * @throws IOException when the archive cannot be written
+         */
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+
+    /**
+     * Reads tables from an archive file.
+     */
+    static class Reader implements Closeable {
+
+        private final DataInputStream input;
+
+        private final File file;
+
+        private String[] columns;
+
+        private byte[] types;
+
+        Reader(File file) throws IOException {
+            this.file = file;
+            input = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+            try {
+                if (input.readInt() != MAGIC) {
+                    throw new IOException(file + " is not a store archive");
+                }
+                int version = input.readInt();
+                if (version != FORMAT_VERSION) {
+                    throw new IOException("Unsupported store archive version " + version + " of " + file);
+                }
+            } catch (IOException e) {
+                input.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Moves to the next table. All rows of the current table must have been read.
+         *
+         * @return name of the next table, or null at the end of the archive
+         * @throws IOException when the archive cannot be read
+         */
+        String nextTable() throws IOException {
+            if (readMarker() == END_OF_ARCHIVE) {
+                return null;
+            }
+            String tableName = input.readUTF();
+            int columnCount = input.readUnsignedShort();
+            columns = new String[columnCount];
+            types = new byte[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columns[i] = input.readUTF();
+                types[i] = input.readByte();
+            }
+            return tableName;
+        }
+
+        String[] getColumns() {
+            return columns;
+        }
+
+        byte[] getTypes() {
+            return types;
+        }
+
+        /**
+         * Reads the next row of the current table.
+         *
+         * @return values of the row in column order, or null after the last row of the table
+         * @throws IOException when the archive cannot be read
+         */
+        Object[] readRow() throws IOException {
+            if (readMarker() == END_OF_TABLE) {
+                return null;
+            }
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                if (input.readByte() == NULL_VALUE) {
+                    continue;
+                }
+                switch (types[i]) {
+                    case LONG:
+                        values[i] = input.readLong();
+                        break;
+                    case INT:
+                        values[i] = input.readInt();
+                        break;
+                    case BYTES:
+                        values[i] = readBytes();
+                        break;
+                    case STRING:
+                        values[i] = new String(readBytes(), StandardCharsets.UTF_8);
+                        break;
+                    default:
+                        throw new IOException("Unknown type " + types[i] + " of column " + columns[i]);
+                }
+            }
+            return values;
+        }
+
+        /**
+         * Reads the marker of the next table or row, failing with a clear message if the archive ends without its end
+         * marker, as it does when the export which wrote it failed.
+         */
+        private byte readMarker() throws IOException {
+            try {
+                return input.readByte();
+            } catch (EOFException e) {
+                throw new IOException("Store archive " + file + " is incomplete. The export which wrote it did not "
+                                      + "complete", e);
+            }
+        }
+
+        private byte[] readBytes() throws IOException {
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            return bytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
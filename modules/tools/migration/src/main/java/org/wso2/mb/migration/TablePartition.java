@@ -0,0 +1,88 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+/**
+ * Class to represent a part of a {@link QueueNameTable} which is migrated independently of the other parts of the
+ * table. A partition is a condition on the key columns of the table, such as a range of slot ids.
+ */
+class TablePartition {
+
+    /**
+     * The table this partition belongs to.
+     */
+    private final QueueNameTable table;
+
+    /**
+     * Index of the partition among the partitions of the table.
+     */
+    private final int id;
+
+    /**
+     * Condition selecting the rows of the partition, or null if the partition covers the whole table.
+     */
+    private final String condition;
+
+    /**
+     * Values of the parameters of the condition.
+     */
+    private final Object[] parameters;
+
+    /**
+     * Human readable description of the rows covered by the partition.
+     */
+    private final String description;
+
+    TablePartition(QueueNameTable table) {
+        this(table, 0, null, new Object[0], "all rows");
+    }
+
+    TablePartition(QueueNameTable table, int id, String condition, Object[] parameters, String description) {
+        this.table = table;
+        this.id = id;
+        this.condition = condition;
+        this.parameters = parameters;
+        this.description = description;
+    }
+
+    QueueNameTable getTable() {
+        return table;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    String getCondition() {
+        return condition;
+    }
+
+    Object[] getParameters() {
+        return parameters;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return table.getTableName() + " (" + description + ")";
+    }
+}
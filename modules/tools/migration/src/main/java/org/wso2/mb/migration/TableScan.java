@@ -0,0 +1,165 @@
+/*
+ * Copyright (c)2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+/**
+ * Statistics of a read only scan of a table made by a dry run of the migration. When only a sample of the table is
+ * scanned, the number of rows that would change is either counted by the database or estimated by extrapolating the
+ * sample to the whole table. The sample is the first rows of the table in key order, hence an estimate can be far off
+ * when the rows which would change are not spread evenly over the key range.
+ */
+class TableScan {
+
+    /**
+     * Approximate size of the header of an object and of a reference to it on the heap.
+     */
+    private static final int OBJECT_OVERHEAD_BYTES = 24;
+
+    private final String tableName;
+
+    /**
+     * Number of rows in the table.
+     */
+    private final long rowCount;
+
+    private long scannedRows;
+
+    private long changedRows;
+
+    /**
+     * Number of rows of the whole table which would change as counted by the database, -1 if not counted.
+     */
+    private long countedChangedRows = -1;
+
+    private long scannedBytes;
+
+    private long scanNanos;
+
+    TableScan(String tableName, long rowCount) {
+        this.tableName = tableName;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Records a scanned row.
+     *
+     * @param values  values of the row read by the migration
+     * @param changed whether the migration would change the row
+     */
+    void rowScanned(Object[] values, boolean changed) {
+        scannedRows++;
+        if (changed) {
+            changedRows++;
+        }
+        scannedBytes += OBJECT_OVERHEAD_BYTES;
+        for (Object value : values) {
+            scannedBytes += estimateSize(value);
+        }
+    }
+
+    void setCountedChangedRows(long countedChangedRows) {
+        this.countedChangedRows = countedChangedRows;
+    }
+
+    void setScanNanos(long scanNanos) {
+        this.scanNanos = scanNanos;
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    long getRowCount() {
+        return Math.max(rowCount, scannedRows);
+    }
+
+    long getScannedRows() {
+        return scannedRows;
+    }
+
+    /**
+     * Checks whether the number of changed rows is an estimate extrapolated from a sample.
+     *
+     * @return true if only a sample was scanned and the changed rows were not counted by the database
+     */
+    boolean isChangedRowsEstimated() {
+        return scannedRows < rowCount && countedChangedRows < 0;
+    }
+
+    long getScanNanos() {
+        return scanNanos;
+    }
+
+    /**
+     * Number of rows of the table the migration would change. If only a sample of the table was scanned and the
+     * changed rows were not counted by the database, the number is extrapolated from the scanned rows.
+     *
+     * @return number of changed rows
+     */
+    long getChangedRows() {
+        if (countedChangedRows >= 0) {
+            return countedChangedRows;
+        }
+        if (0 == scannedRows || scannedRows >= rowCount) {
+            return changedRows;
+        }
+        return Math.round((double) changedRows * rowCount / scannedRows);
+    }
+
+    /**
+     * Average time taken to read a row from the database.
+     *
+     * @return nanoseconds per row, or zero if no rows were scanned
+     */
+    double getNanosPerRow() {
+        return (0 == scannedRows) ? 0 : (double) scanNanos / scannedRows;
+    }
+
+    /**
+     * Average heap size of a row held by the migration.
+     *
+     * @return bytes per row, or zero if no rows were scanned
+     */
+    long getAverageRowBytes() {
+        return (0 == scannedRows) ? 0 : scannedBytes / scannedRows;
+    }
+
+    private static long estimateSize(Object value) {
+        if (value instanceof String) {
+            // Two bytes per character, the worst case for strings on the heap
+            return OBJECT_OVERHEAD_BYTES * 2 + 2L * ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return OBJECT_OVERHEAD_BYTES + ((byte[]) value).length;
+        }
+        return OBJECT_OVERHEAD_BYTES;
+    }
+
+    @Override
+    public String toString() {
+        long rowsPerSecond = (0 == scanNanos) ? 0 : scannedRows * 1000000000L / scanNanos;
+        String sample = "";
+        if (isChangedRowsEstimated()) {
+            sample = " (estimate extrapolated from the first " + scannedRows + " rows in key order)";
+        } else if (scannedRows < rowCount) {
+            sample = " (counted by the database, rates measured on the first " + scannedRows + " rows)";
+        }
+        return tableName + ": " + getRowCount() + " rows, " + getChangedRows() + " would change" + sample
+               + ", read at " + rowsPerSecond + " rows/s, " + getAverageRowBytes() + " bytes/row";
+    }
+}
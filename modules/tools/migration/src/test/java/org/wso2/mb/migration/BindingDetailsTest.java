@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests parsing binding details and queue data with {@link BindingDetails} and rewriting them with
+ * {@link Modifier}.
+ */
+public class BindingDetailsTest {
+
+    @Test
+    public void testFieldsAreParsedAndWrittenBackUnchanged() {
+        String details = "boundMessageRouter=amq.direct,boundQueueName=Queue,bindingKey=Queue";
+        BindingDetails bindingDetails = BindingDetails.parse(details);
+
+        Assert.assertEquals(bindingDetails.get(BindingDetails.BOUND_MESSAGE_ROUTER), "amq.direct");
+        Assert.assertEquals(bindingDetails.get(BindingDetails.BOUND_QUEUE_NAME), "Queue");
+        Assert.assertEquals(bindingDetails.get(BindingDetails.BINDING_KEY), "Queue");
+        Assert.assertEquals(bindingDetails.toString(), details);
+    }
+
+    @Test
+    public void testValueWithCommaContinuesPreviousField() {
+        BindingDetails bindingDetails = BindingDetails.parse("queueName=Queue,a,b,owner=admin");
+
+        Assert.assertEquals(bindingDetails.get(BindingDetails.QUEUE_NAME), "Queue,a,b");
+        Assert.assertEquals(bindingDetails.get("owner"), "admin");
+    }
+
+    @Test
+    public void testBindingKeyIsTakenToTheEnd() {
+        String details = "boundMessageRouter=amq.topic,boundQueueName=Queue,bindingKey=Sports.A,x=Y";
+        BindingDetails bindingDetails = BindingDetails.parse(details);
+
+        Assert.assertEquals(bindingDetails.get(BindingDetails.BINDING_KEY), "Sports.A,x=Y");
+        Assert.assertNull(bindingDetails.get("x"));
+        Assert.assertEquals(bindingDetails.toString(), details);
+    }
+
+    @Test
+    public void testBindingKeyWithCommaAndEqualsIsLowerCasedWhole() {
+        Modifier modifier = new Modifier();
+
+        Assert.assertEquals(modifier.lowerCaseBindingDetails(
+                "boundMessageRouter=amq.topic,boundQueueName=Queue,bindingKey=Queue.A,x=Y", "Queue"),
+                "boundMessageRouter=amq.topic,boundQueueName=queue,bindingKey=queue.a,x=y");
+    }
+
+    @Test
+    public void testQueueNameIsLowerCasedOnlyWhenExactlyTheQueue() {
+        Modifier modifier = new Modifier();
+
+        Assert.assertEquals(modifier.lowerCaseQueueData("queueName=Queue,owner=Admin", "Queue"),
+                "queueName=queue,owner=Admin");
+        Assert.assertEquals(modifier.lowerCaseQueueData("queueName=Queue.A", "Queue"), "queueName=Queue.A");
+    }
+}
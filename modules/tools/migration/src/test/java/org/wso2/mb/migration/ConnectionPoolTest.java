@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Properties;
+
+/**
+ * Tests reusing connections and statements of a {@link ConnectionPool}.
+ */
+public class ConnectionPoolTest {
+
+    private static final String QUERY = "SELECT X FROM SYSTEM_RANGE(1, 10)";
+
+    private TestStore store;
+
+    private ConnectionPool pool;
+
+    @BeforeMethod
+    public void createPool() throws Exception {
+        store = new TestStore();
+        Properties storeProperties = store.getProperties();
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("user", storeProperties.getProperty("dbuser"));
+        connectionProperties.setProperty("password", storeProperties.getProperty("dbpassword"));
+        pool = new ConnectionPool(storeProperties.getProperty("dburl"), connectionProperties, 1, 4);
+    }
+
+    @AfterMethod
+    public void closePool() throws Exception {
+        pool.close();
+        store.close();
+    }
+
+    @Test
+    public void testStatementIsReusedWithoutSettingsOfPreviousUse() throws Exception {
+        PreparedStatement firstStatement;
+        int defaultFetchSize;
+        try (Connection connection = pool.getConnection()) {
+            firstStatement = connection.prepareStatement(QUERY);
+            defaultFetchSize = firstStatement.getFetchSize();
+            firstStatement.setFetchSize(defaultFetchSize + 7);
+            firstStatement.setMaxRows(2);
+            try (ResultSet resultSet = firstStatement.executeQuery()) {
+                Assert.assertEquals(countRows(resultSet), 2);
+            }
+            firstStatement.close();
+        }
+
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(QUERY)) {
+            Assert.assertSame(statement, firstStatement, "Cached statement was not reused");
+            Assert.assertEquals(statement.getFetchSize(), defaultFetchSize);
+            Assert.assertEquals(statement.getMaxRows(), 0);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                Assert.assertEquals(countRows(resultSet), 10);
+            }
+        }
+    }
+
+    @Test
+    public void testStatementInUseIsNotShared() throws Exception {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(QUERY);
+             PreparedStatement otherStatement = connection.prepareStatement(QUERY)) {
+            Assert.assertNotSame(otherStatement, statement);
+        }
+    }
+
+    private static int countRows(ResultSet resultSet) throws Exception {
+        int rowCount = 0;
+        while (resultSet.next()) {
+            rowCount++;
+        }
+        return rowCount;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests reading and updating an H2 broker store through {@link DBConnector}.
+ */
+public class DBConnectorTest {
+
+    private TestStore store;
+
+    private DBConnector connector;
+
+    @BeforeMethod
+    public void createStore() throws Exception {
+        store = new TestStore();
+    }
+
+    @AfterMethod
+    public void closeStore() throws Exception {
+        if (null != connector) {
+            connector.close();
+            connector = null;
+        }
+        store.close();
+    }
+
+    /**
+     * Bindings sharing a queue and an exchange must all be read even when they would be split between two pages.
+     */
+    @Test
+    public void testReadBindingsInPagesDoesNotSkipBindingsOfTheSameQueue() throws Exception {
+        store.addQueues(Arrays.asList("a", "B", "c"), 0);
+        for (int i = 0; i < 4; i++) {
+            store.execute("INSERT INTO MB_BINDING VALUES ('amq.topic', 'B', 'exchangeName&amq.topic"
+                          + "|queueName=B|routingKey&topic" + i + "')");
+        }
+        connector = store.createConnector("batchsize", "2");
+
+        Set<String> readBindings = new HashSet<>();
+        Binding lastBinding = null;
+        List<Binding> bindings;
+        int pageCount = 0;
+        do {
+            bindings = connector.readBindings(lastBinding, 2);
+            for (Binding binding : bindings) {
+                Assert.assertTrue(readBindings.add(binding.getQueueName() + "|" + binding.getBindingDetails()),
+                        "Binding read twice " + binding.getBindingDetails());
+            }
+            if (!bindings.isEmpty()) {
+                lastBinding = bindings.get(bindings.size() - 1);
+            }
+            pageCount++;
+        } while (bindings.size() >= 2);
+
+        Assert.assertEquals(readBindings.size(), 7, "Bindings read " + readBindings);
+        Assert.assertTrue(pageCount > 1, "Bindings were not read in pages");
+    }
+
+    @Test
+    public void testUpdateQueueNamesInBatches() throws Exception {
+        store.addQueues(Arrays.asList("lower", "Upper", "MIXED_Case"), 25);
+        connector = store.createConnector("batchsize", "7");
+
+        final List<Integer> batchRowCounts = new ArrayList<>();
+        DBConnector.BatchListener listener = new DBConnector.BatchListener() {
+            @Override
+            public void batchCommitted(TablePartition partition, Object[] lastKey, int rowCount) {
+                batchRowCounts.add(rowCount);
+            }
+        };
+        for (QueueNameTable table : QueueNameTable.values()) {
+            for (TablePartition partition : connector.getPartitions(table, 2)) {
+                connector.updateQueueNamesInBatches(partition, null, listener);
+            }
+        }
+
+        Assert.assertEquals(store.countCapitalized("MB_SLOT_MESSAGE_ID", "QUEUE_NAME"), 0);
+        Assert.assertEquals(store.countCapitalized("MB_SLOT", "STORAGE_QUEUE_NAME"), 0);
+        Assert.assertEquals(store.countCapitalized("MB_SLOT", "ASSIGNED_QUEUE_NAME"), 0);
+        Assert.assertEquals(store.countCapitalized("MB_QUEUE_MAPPING", "QUEUE_NAME"), 0);
+        Assert.assertEquals(store.countCapitalized("MB_QUEUE_TO_LAST_ASSIGNED_ID", "QUEUE_NAME"), 0);
+        Assert.assertEquals(store.queryLong("SELECT COUNT(*) FROM MB_SLOT_MESSAGE_ID"), 75);
+        for (int rowCount : batchRowCounts) {
+            Assert.assertTrue(rowCount <= 7, "Batch of " + rowCount + " rows");
+        }
+    }
+
+    /**
+     * Queue names with capital letters sort first, hence a sample of the first rows in key order would overestimate
+     * the rows to be changed.
+     */
+    @Test
+    public void testScanQueueNamesCountsChangedRowsOfSample() throws Exception {
+        store.addQueues(Arrays.asList("Upper", "lower1", "lower2", "lower3"), 50);
+        connector = store.createConnector();
+
+        TableScan scan = connector.scanQueueNames(QueueNameTable.SLOT_MESSAGE_ID, 20);
+
+        Assert.assertEquals(scan.getScannedRows(), 20);
+        Assert.assertEquals(scan.getRowCount(), 200);
+        Assert.assertEquals(scan.getChangedRows(), 50);
+        Assert.assertFalse(scan.isChangedRowsEstimated());
+        Assert.assertTrue(scan.toString().contains("counted by the database"), scan.toString());
+    }
+
+    @Test
+    public void testScanQueueNamesOfWholeTable() throws Exception {
+        store.addQueues(Arrays.asList("Upper", "lower"), 50);
+        connector = store.createConnector();
+
+        TableScan scan = connector.scanQueueNames(QueueNameTable.SLOT_MESSAGE_ID, 0);
+
+        Assert.assertEquals(scan.getScannedRows(), 100);
+        Assert.assertEquals(scan.getChangedRows(), 50);
+        Assert.assertFalse(scan.isChangedRowsEstimated());
+    }
+}
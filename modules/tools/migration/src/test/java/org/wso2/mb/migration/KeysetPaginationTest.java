@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the SQL fragments built by {@link KeysetPagination}.
+ */
+public class KeysetPaginationTest {
+
+    @Test
+    public void testAfterKeyConditionOfSingleColumn() {
+        Assert.assertEquals(KeysetPagination.afterKeyCondition(new String[]{"A"}), "((A > ?))");
+    }
+
+    @Test
+    public void testAfterKeyConditionOfCompositeKey() {
+        Assert.assertEquals(KeysetPagination.afterKeyCondition(new String[]{"A", "B", "C"}),
+                "((A > ?) OR (A = ? AND B > ?) OR (A = ? AND B = ? AND C > ?))");
+    }
+
+    @Test
+    public void testOrderBy() {
+        Assert.assertEquals(KeysetPagination.orderBy(new String[]{"A", "B"}), " ORDER BY A, B");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Tests recording and resuming the progress of a migration with {@link MigrationJournal}.
+ */
+public class MigrationJournalTest {
+
+    private static final String URL = "jdbc:h2:mem:journal";
+
+    private static final String USER = "sa";
+
+    private File file;
+
+    @BeforeMethod
+    public void createFile() throws IOException {
+        file = File.createTempFile("migration-journal", ".properties");
+        Files.delete(file.toPath());
+    }
+
+    @AfterMethod
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void testProgressIsResumedFromFile() throws Exception {
+        TablePartition partition = new TablePartition(QueueNameTable.SLOT_MESSAGE_ID, 1, "QUEUE_NAME >= ?",
+                new Object[]{"a,b"}, "queues from a,b");
+        MigrationJournal journal = new MigrationJournal(file, URL, USER);
+        Assert.assertFalse(journal.hasProgress());
+        journal.completeStep("bindings");
+        journal.recordPartitions(QueueNameTable.SLOT_MESSAGE_ID,
+                Arrays.asList(new TablePartition(QueueNameTable.SLOT_MESSAGE_ID, 0, null, new Object[0],
+                        "all rows"), partition), new long[]{10, 20});
+        journal.recordStepKey("dlcBindings", new Object[]{"Queue,1", 5L, null});
+        journal.completePartition(partition);
+
+        MigrationJournal resumed = new MigrationJournal(file, URL, USER);
+        Assert.assertTrue(resumed.hasProgress());
+        resumed.verifyStore();
+        Assert.assertTrue(resumed.isStepCompleted("bindings"));
+        Assert.assertFalse(resumed.isStepCompleted("dlcBindings"));
+        Assert.assertEquals(resumed.getStepKey("dlcBindings"), new Object[]{"Queue,1", 5L, null});
+        Assert.assertEquals(resumed.getPartitions(QueueNameTable.SLOT_MESSAGE_ID).size(), 2);
+        Assert.assertEquals(resumed.getRowCount(partition), 20);
+        Assert.assertTrue(resumed.isCompleted(partition));
+    }
+
+    @Test(expectedExceptions = MigrationException.class,
+          expectedExceptionsMessageRegExp = ".*records the migration of sa at jdbc:h2:mem:journal.*")
+    public void testProgressOfAnotherStoreIsRefused() throws Exception {
+        new MigrationJournal(file, URL, USER).completeStep("bindings");
+        new MigrationJournal(file, "jdbc:h2:mem:other", USER).verifyStore();
+    }
+
+    @Test(expectedExceptions = MigrationException.class)
+    public void testProgressOfAnotherUserIsRefused() throws Exception {
+        new MigrationJournal(file, URL, USER).completeStep("bindings");
+        new MigrationJournal(file, URL, "admin").verifyStore();
+    }
+
+    @Test
+    public void testEmptyJournalAcceptsAnyStore() throws Exception {
+        new MigrationJournal(file, URL, USER).verifyStore();
+        new MigrationJournal(file, "jdbc:h2:mem:other", "admin").verifyStore();
+    }
+
+    @Test
+    public void testFinishDeletesJournal() throws Exception {
+        MigrationJournal journal = new MigrationJournal(file, URL, USER);
+        journal.completeStep("bindings");
+        Assert.assertTrue(file.exists());
+
+        journal.finish();
+
+        Assert.assertFalse(file.exists());
+        Assert.assertFalse(journal.isStepCompleted("bindings"));
+        MigrationJournal next = new MigrationJournal(file, "jdbc:h2:mem:other", USER);
+        Assert.assertFalse(next.hasProgress());
+        next.verifyStore();
+    }
+}
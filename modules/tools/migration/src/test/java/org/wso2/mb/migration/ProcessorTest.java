@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Tests migrating an H2 broker store with {@link Processor}.
+ */
+public class ProcessorTest {
+
+    private TestStore store;
+
+    private File journalFile;
+
+    @BeforeMethod
+    public void createStore() throws Exception {
+        store = new TestStore();
+        store.addQueues(Arrays.asList("lower", "Upper", "DeadLetterChannel"), 30);
+        journalFile = File.createTempFile("migration-journal", ".properties");
+        Files.delete(journalFile.toPath());
+    }
+
+    @AfterMethod
+    public void closeStore() throws Exception {
+        store.close();
+        Files.deleteIfExists(journalFile.toPath());
+    }
+
+    private Processor createProcessor(TestStore store, String... settings) throws IOException, ClassNotFoundException {
+        Properties properties = store.getProperties();
+        properties.setProperty("journalfile", journalFile.getPath());
+        for (int i = 0; i < settings.length; i += 2) {
+            properties.setProperty(settings[i], settings[i + 1]);
+        }
+        return new Processor(properties);
+    }
+
+    private void assertMigrated(TestStore store) throws Exception {
+        Assert.assertEquals(store.countCapitalized("MB_QUEUE", "QUEUE_NAME"), 0);
+        Assert.assertEquals(store.countCapitalized("MB_SLOT_MESSAGE_ID", "QUEUE_NAME"), 0);
+        Assert.assertEquals(store.countCapitalized("MB_SLOT", "STORAGE_QUEUE_NAME"), 0);
+        Assert.assertEquals(store.countCapitalized("MB_QUEUE_MAPPING", "QUEUE_NAME"), 0);
+        Assert.assertEquals(store.countCapitalized("MB_QUEUE_TO_LAST_ASSIGNED_ID", "QUEUE_NAME"), 0);
+        Assert.assertEquals(store.queryLong("SELECT COUNT(*) FROM MB_EXCHANGE WHERE EXCHANGE_NAME = 'amq.dlc'"), 1);
+        Assert.assertEquals(store.queryLong("SELECT COUNT(*) FROM MB_BINDING WHERE BINDING_DETAILS LIKE "
+                                            + "'%boundQueueName=upper%'"), 1);
+    }
+
+    @Test
+    public void testMigrateDeletesJournal() throws Exception {
+        Processor processor = createProcessor(store);
+        try {
+            processor.migrate();
+        } finally {
+            processor.close();
+        }
+
+        assertMigrated(store);
+        Assert.assertFalse(journalFile.exists(), "Journal was not deleted after the migration");
+    }
+
+    @Test
+    public void testMigrateInBatchesDeletesJournal() throws Exception {
+        Processor processor = createProcessor(store, "batchsize", "7", "threads", "2");
+        try {
+            processor.migrate();
+        } finally {
+            processor.close();
+        }
+
+        assertMigrated(store);
+        Assert.assertFalse(journalFile.exists(), "Journal was not deleted after the migration");
+    }
+
+    @Test
+    public void testMigrateWithPushdown() throws Exception {
+        Processor processor = createProcessor(store, "pushdown", "true");
+        try {
+            processor.migrate();
+        } finally {
+            processor.close();
+        }
+
+        assertMigrated(store);
+        Assert.assertEquals(store.countCapitalized("MB_SLOT", "ASSIGNED_QUEUE_NAME"), 0);
+    }
+
+    @Test
+    public void testMigrateInBatchesWithPushdown() throws Exception {
+        Processor processor = createProcessor(store, "pushdown", "true", "batchsize", "7", "threads", "2");
+        try {
+            processor.migrate();
+        } finally {
+            processor.close();
+        }
+
+        assertMigrated(store);
+        Assert.assertEquals(store.countCapitalized("MB_SLOT", "ASSIGNED_QUEUE_NAME"), 0);
+    }
+
+    /**
+     * A journal left behind by a migration of another store must not cause steps to be skipped.
+     */
+    @Test
+    public void testMigrateRefusesJournalOfAnotherStore() throws Exception {
+        try (TestStore otherStore = new TestStore()) {
+            MigrationJournal journal = new MigrationJournal(journalFile, otherStore.getProperties().getProperty("dburl"),
+                    "sa");
+            journal.completeStep("bindings");
+
+            Processor processor = createProcessor(store);
+            try {
+                processor.migrate();
+                Assert.fail("Migrated with the journal of another store");
+            } catch (MigrationException e) {
+                Assert.assertTrue(e.getMessage().contains(journalFile.getPath()), e.getMessage());
+            } finally {
+                processor.close();
+            }
+        }
+        Assert.assertEquals(store.countCapitalized("MB_SLOT_MESSAGE_ID", "QUEUE_NAME"), 60);
+        Assert.assertTrue(journalFile.exists());
+    }
+
+    /**
+     * Online migration is not supported for H2, which has to be detected before anything is changed.
+     */
+    @Test
+    public void testUnsupportedOnlineMigrationIsRefusedUpFront() throws Exception {
+        Processor processor = createProcessor(store);
+        try {
+            processor.migrateOnline();
+            Assert.fail("Migrated online on H2");
+        } catch (MigrationException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Online migration is supported for"), e.getMessage());
+        } finally {
+            processor.close();
+        }
+        Assert.assertEquals(store.queryLong("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE "
+                                            + "'MIG_%' OR TABLE_NAME = '" + SqlDialect.CHANGE_LOG + "'"), 0);
+    }
+
+    @Test
+    public void testExportAndImportStore() throws Exception {
+        store.execute("INSERT INTO MB_METADATA VALUES (1, 1, -1, X'0102')");
+        store.execute("INSERT INTO MB_CONTENT VALUES (1, 0, X'030405')");
+        File archive = File.createTempFile("store", ".mbsa");
+        try (TestStore targetStore = new TestStore()) {
+            targetStore.execute("DELETE FROM MB_EXCHANGE");
+
+            Processor processor = createProcessor(store);
+            try {
+                processor.exportStore(archive);
+            } finally {
+                processor.close();
+            }
+            Processor targetProcessor = createProcessor(targetStore);
+            try {
+                targetProcessor.importStore(archive);
+            } finally {
+                targetProcessor.close();
+            }
+
+            for (String table : StoreArchive.TABLES) {
+                Assert.assertEquals(targetStore.queryLong("SELECT COUNT(*) FROM " + table),
+                        store.queryLong("SELECT COUNT(*) FROM " + table), table);
+            }
+            Assert.assertEquals(targetStore.queryStrings("SELECT QUEUE_NAME FROM MB_QUEUE ORDER BY QUEUE_NAME"),
+                    store.queryStrings("SELECT QUEUE_NAME FROM MB_QUEUE ORDER BY QUEUE_NAME"));
+            Assert.assertEquals(targetStore.queryStrings("SELECT RAWTOHEX(MESSAGE_CONTENT) FROM MB_CONTENT"),
+                    Arrays.asList("030405"));
+        } finally {
+            Files.deleteIfExists(archive.toPath());
+        }
+    }
+}
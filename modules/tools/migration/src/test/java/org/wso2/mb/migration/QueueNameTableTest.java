@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the SQL built by {@link QueueNameTable} for each {@link SqlDialect}.
+ */
+public class QueueNameTableTest {
+
+    @Test
+    public void testLowerCaseUpdateQueryComparesCaseSensitively() {
+        Assert.assertEquals(QueueNameTable.QUEUE_MAPPING.getLowerCaseUpdateQuery(SqlDialect.H2, null),
+                "UPDATE MB_QUEUE_MAPPING SET QUEUE_NAME = LOWER(QUEUE_NAME) WHERE QUEUE_NAME <> LOWER(QUEUE_NAME)");
+        Assert.assertEquals(QueueNameTable.QUEUE_MAPPING.getLowerCaseUpdateQuery(SqlDialect.POSTGRESQL, null),
+                "UPDATE MB_QUEUE_MAPPING SET QUEUE_NAME = LOWER(QUEUE_NAME) WHERE QUEUE_NAME <> LOWER(QUEUE_NAME)");
+        Assert.assertEquals(QueueNameTable.QUEUE_MAPPING.getLowerCaseUpdateQuery(SqlDialect.ORACLE, null),
+                "UPDATE MB_QUEUE_MAPPING SET QUEUE_NAME = LOWER(QUEUE_NAME) WHERE QUEUE_NAME <> LOWER(QUEUE_NAME)");
+        Assert.assertEquals(QueueNameTable.QUEUE_MAPPING.getLowerCaseUpdateQuery(SqlDialect.MYSQL, null),
+                "UPDATE MB_QUEUE_MAPPING SET QUEUE_NAME = LOWER(QUEUE_NAME)"
+                + " WHERE BINARY QUEUE_NAME <> LOWER(QUEUE_NAME)");
+        Assert.assertEquals(QueueNameTable.QUEUE_MAPPING.getLowerCaseUpdateQuery(SqlDialect.MSSQL, null),
+                "UPDATE MB_QUEUE_MAPPING SET QUEUE_NAME = LOWER(QUEUE_NAME)"
+                + " WHERE QUEUE_NAME COLLATE Latin1_General_BIN <> LOWER(QUEUE_NAME)");
+    }
+
+    @Test
+    public void testLowerCaseUpdateQueryOfPartition() {
+        Assert.assertEquals(QueueNameTable.SLOT.getLowerCaseUpdateQuery(SqlDialect.MYSQL, "SLOT_ID BETWEEN ? AND ?"),
+                "UPDATE MB_SLOT SET STORAGE_QUEUE_NAME = LOWER(STORAGE_QUEUE_NAME) , ASSIGNED_QUEUE_NAME ="
+                + " LOWER(STORAGE_QUEUE_NAME) WHERE BINARY STORAGE_QUEUE_NAME <> LOWER(STORAGE_QUEUE_NAME)"
+                + " AND SLOT_ID BETWEEN ? AND ?");
+    }
+
+    @Test
+    public void testDialectFromUrl() {
+        Assert.assertEquals(SqlDialect.fromUrl("jdbc:mysql://localhost/wso2_mb"), SqlDialect.MYSQL);
+        Assert.assertEquals(SqlDialect.fromUrl("jdbc:jtds:sqlserver://localhost/wso2_mb"), SqlDialect.MSSQL);
+        Assert.assertEquals(SqlDialect.fromUrl("jdbc:oracle:thin:@localhost:1521/wso2_mb"), SqlDialect.ORACLE);
+        Assert.assertNull(SqlDialect.fromUrl("jdbc:db2://localhost/wso2_mb"));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the SQL of online migrations built by each {@link SqlDialect}.
+ */
+public class SqlDialectTest {
+
+    private static final List<String[]> RENAMES = Arrays.asList(new String[]{"MB_SLOT", "OLD_SLOT"},
+            new String[]{"MIG_SLOT", "MB_SLOT"});
+
+    @Test
+    public void testOnlineMigrationSupport() {
+        Assert.assertFalse(SqlDialect.H2.isOnlineMigrationSupported());
+        Assert.assertTrue(SqlDialect.MYSQL.isOnlineMigrationSupported());
+        Assert.assertTrue(SqlDialect.MSSQL.isOnlineMigrationSupported());
+        Assert.assertTrue(SqlDialect.ORACLE.isOnlineMigrationSupported());
+        Assert.assertTrue(SqlDialect.POSTGRESQL.isOnlineMigrationSupported());
+    }
+
+    @Test
+    public void testUnsupportedStatementsAreNull() {
+        Assert.assertNull(SqlDialect.H2.createChangeCaptureTriggers("MB_SLOT", "TRG_SLOT", null, "SLOT_ID"));
+        Assert.assertNull(SqlDialect.H2.dropChangeCaptureTriggers("MB_SLOT", "TRG_SLOT"));
+        Assert.assertNull(SqlDialect.MYSQL.transferSequence("SEQ", "MIG_SLOT", "SLOT_ID"));
+    }
+
+    @Test
+    public void testMySqlRenamesTablesInSingleStatement() {
+        Assert.assertEquals(SqlDialect.MYSQL.renameTables(RENAMES),
+                Collections.singletonList("RENAME TABLE MB_SLOT TO OLD_SLOT, MIG_SLOT TO MB_SLOT"));
+    }
+
+    @Test
+    public void testRenamesOfOtherDatabases() {
+        Assert.assertEquals(SqlDialect.ORACLE.renameTables(RENAMES), Arrays.asList(
+                "ALTER TABLE MB_SLOT RENAME TO OLD_SLOT", "ALTER TABLE MIG_SLOT RENAME TO MB_SLOT"));
+        Assert.assertEquals(SqlDialect.MSSQL.renameTables(RENAMES), Arrays.asList(
+                "EXEC sp_rename 'MB_SLOT', 'OLD_SLOT'", "EXEC sp_rename 'MIG_SLOT', 'MB_SLOT'"));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests writing and reading a {@link StoreArchive}.
+ */
+public class StoreArchiveTest {
+
+    private static final String[] COLUMNS = {"ID", "COUNT", "NAME", "CONTENT"};
+
+    private static final byte[] TYPES = {StoreArchive.LONG, StoreArchive.INT, StoreArchive.STRING,
+                                         StoreArchive.BYTES};
+
+    private File file;
+
+    @BeforeMethod
+    public void createFile() throws IOException {
+        file = File.createTempFile("store", ".mbsa");
+    }
+
+    @AfterMethod
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        char[] longName = new char[70000];
+        Arrays.fill(longName, 'é');
+        Object[] firstRow = {1L, 2, "queue", new byte[]{1, 2, 3}};
+        Object[] secondRow = {Long.MAX_VALUE, null, new String(longName), null};
+
+        try (StoreArchive.Writer writer = new StoreArchive.Writer(file)) {
+            writer.startTable("MB_CONTENT", COLUMNS, TYPES);
+            writer.writeRow(firstRow);
+            writer.writeRow(secondRow);
+            writer.endTable();
+            writer.startTable("MB_QUEUE", new String[0], new byte[0]);
+            writer.endTable();
+            writer.finish();
+        }
+
+        try (StoreArchive.Reader reader = new StoreArchive.Reader(file)) {
+            Assert.assertEquals(reader.nextTable(), "MB_CONTENT");
+            Assert.assertEquals(reader.getColumns(), COLUMNS);
+            Assert.assertEquals(reader.getTypes(), TYPES);
+            assertRow(reader.readRow(), firstRow);
+            assertRow(reader.readRow(), secondRow);
+            Assert.assertNull(reader.readRow());
+            Assert.assertEquals(reader.nextTable(), "MB_QUEUE");
+            Assert.assertNull(reader.readRow());
+            Assert.assertNull(reader.nextTable());
+        }
+    }
+
+    /**
+     * An archive closed without being finished, as by a failed export, must not be read as a complete store.
+     */
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".* is incomplete.*")
+    public void testUnfinishedArchiveIsRejected() throws Exception {
+        try (StoreArchive.Writer writer = new StoreArchive.Writer(file)) {
+            writer.startTable("MB_CONTENT", COLUMNS, TYPES);
+            writer.writeRow(new Object[]{1L, 2, "queue", new byte[0]});
+            writer.endTable();
+        }
+
+        try (StoreArchive.Reader reader = new StoreArchive.Reader(file)) {
+            Assert.assertEquals(reader.nextTable(), "MB_CONTENT");
+            Assert.assertNotNull(reader.readRow());
+            Assert.assertNull(reader.readRow());
+            reader.nextTable();
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".* is not a store archive")
+    public void testOtherFileIsRejected() throws Exception {
+        try (GZIPOutputStream output = new GZIPOutputStream(new FileOutputStream(file))) {
+            output.write(new byte[]{0, 1, 2, 3, 4, 5, 6, 7});
+        }
+        new StoreArchive.Reader(file).close();
+    }
+
+    private static void assertRow(Object[] actual, Object[] expected) {
+        Assert.assertEquals(actual.length, expected.length);
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] instanceof byte[]) {
+                Assert.assertEquals((byte[]) actual[i], (byte[]) expected[i]);
+            } else {
+                Assert.assertEquals(actual[i], expected[i], COLUMNS[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the statistics of dry run scans kept by {@link TableScan}.
+ */
+public class TableScanTest {
+
+    @Test
+    public void testChangedRowsAreExtrapolatedFromSample() {
+        TableScan scan = scan(1000, 10, 3);
+
+        Assert.assertEquals(scan.getChangedRows(), 300);
+        Assert.assertTrue(scan.isChangedRowsEstimated());
+        Assert.assertTrue(scan.toString().contains("estimate extrapolated from the first 10 rows"), scan.toString());
+    }
+
+    @Test
+    public void testCountedChangedRowsAreNotExtrapolated() {
+        TableScan scan = scan(1000, 10, 3);
+        scan.setCountedChangedRows(4);
+
+        Assert.assertEquals(scan.getChangedRows(), 4);
+        Assert.assertFalse(scan.isChangedRowsEstimated());
+    }
+
+    @Test
+    public void testChangedRowsOfWholeTable() {
+        TableScan scan = scan(10, 10, 3);
+
+        Assert.assertEquals(scan.getChangedRows(), 3);
+        Assert.assertFalse(scan.isChangedRowsEstimated());
+        Assert.assertFalse(scan.toString().contains("("), scan.toString());
+    }
+
+    private static TableScan scan(long rowCount, int scannedRows, int changedRows) {
+        TableScan scan = new TableScan("MB_QUEUE", rowCount);
+        for (int i = 0; i < scannedRows; i++) {
+            scan.rowScanned(new Object[]{"queue" + i}, i < changedRows);
+        }
+        return scan;
+    }
+}
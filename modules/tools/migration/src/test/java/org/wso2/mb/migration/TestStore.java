@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.mb.migration;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory H2 broker store with the tables of WSO2MB 3.1.0 which are modified by the migration, used by the tests
+ * of the migration tool. Each store is a separate database which is dropped when the store is closed.
+ */
+class TestStore implements AutoCloseable {
+
+    private static final AtomicInteger storeCount = new AtomicInteger();
+
+    private static final String SCHEMA = "CREATE TABLE MB_EXCHANGE (EXCHANGE_NAME VARCHAR(512) PRIMARY KEY,"
+            + " EXCHANGE_DATA VARCHAR(2048));"
+            + "CREATE TABLE MB_QUEUE (QUEUE_NAME VARCHAR(512) PRIMARY KEY, QUEUE_DATA VARCHAR(2048));"
+            + "CREATE TABLE MB_BINDING (EXCHANGE_NAME VARCHAR(512) NOT NULL, QUEUE_NAME VARCHAR(512) NOT NULL,"
+            + " BINDING_DETAILS VARCHAR(2048), FOREIGN KEY (EXCHANGE_NAME) REFERENCES MB_EXCHANGE (EXCHANGE_NAME),"
+            + " FOREIGN KEY (QUEUE_NAME) REFERENCES MB_QUEUE (QUEUE_NAME) ON DELETE CASCADE);"
+            + "CREATE TABLE MB_QUEUE_MAPPING (QUEUE_ID INT AUTO_INCREMENT PRIMARY KEY,"
+            + " QUEUE_NAME VARCHAR(512) NOT NULL UNIQUE);"
+            + "CREATE TABLE MB_SLOT (SLOT_ID BIGINT AUTO_INCREMENT PRIMARY KEY, START_MESSAGE_ID BIGINT NOT NULL,"
+            + " END_MESSAGE_ID BIGINT NOT NULL, STORAGE_QUEUE_NAME VARCHAR(512) NOT NULL, SLOT_STATE TINYINT DEFAULT 1,"
+            + " ASSIGNED_NODE_ID VARCHAR(512), ASSIGNED_QUEUE_NAME VARCHAR(512));"
+            + "CREATE TABLE MB_SLOT_MESSAGE_ID (QUEUE_NAME VARCHAR(512) NOT NULL, MESSAGE_ID BIGINT NOT NULL,"
+            + " PRIMARY KEY (QUEUE_NAME, MESSAGE_ID));"
+            + "CREATE TABLE MB_QUEUE_TO_LAST_ASSIGNED_ID (QUEUE_NAME VARCHAR(512) PRIMARY KEY, MESSAGE_ID BIGINT);"
+            + "CREATE TABLE MB_METADATA (MESSAGE_ID BIGINT PRIMARY KEY, QUEUE_ID INT NOT NULL,"
+            + " DLC_QUEUE_ID INT NOT NULL, MESSAGE_METADATA BINARY);"
+            + "CREATE TABLE MB_CONTENT (MESSAGE_ID BIGINT, CONTENT_OFFSET INT, MESSAGE_CONTENT BINARY NOT NULL,"
+            + " PRIMARY KEY (MESSAGE_ID, CONTENT_OFFSET));"
+            + "INSERT INTO MB_EXCHANGE VALUES ('amq.direct', 'exchangeName=amq.direct,type=direct,autoDelete=false');"
+            + "INSERT INTO MB_EXCHANGE VALUES ('amq.topic', 'exchangeName=amq.topic,type=topic,autoDelete=false');";
+
+    private final String url;
+
+    /**
+     * Keeps the in-memory database open for as long as the store is open.
+     */
+    private final Connection connection;
+
+    TestStore() throws SQLException {
+        url = "jdbc:h2:mem:migration" + storeCount.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        connection = DriverManager.getConnection(url, "sa", "");
+        execute(SCHEMA);
+    }
+
+    /**
+     * Gets the configuration of the migration tool for the store.
+     *
+     * @return properties as read from config.properties
+     */
+    Properties getProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("driverclassname", "org.h2.Driver");
+        properties.setProperty("dburl", url);
+        properties.setProperty("dbuser", "sa");
+        properties.setProperty("dbpassword", "");
+        return properties;
+    }
+
+    /**
+     * Creates a connector for the store.
+     *
+     * @param settings further configuration of the tool as key and value pairs
+     * @return the connector
+     */
+    DBConnector createConnector(String... settings) throws ClassNotFoundException {
+        Properties properties = getProperties();
+        for (int i = 0; i < settings.length; i += 2) {
+            properties.setProperty(settings[i], settings[i + 1]);
+        }
+        return new DBConnector(properties);
+    }
+
+    /**
+     * Adds queues along with their binding to amq.direct, queue mapping, last assigned id and messages.
+     *
+     * @param queueNames   names of the queues
+     * @param messageCount number of messages of each queue in MB_SLOT_MESSAGE_ID and ten times fewer slots
+     */
+    void addQueues(List<String> queueNames, int messageCount) throws SQLException {
+        for (String queueName : queueNames) {
+            execute("INSERT INTO MB_QUEUE VALUES ('" + queueName + "', 'queueName=" + queueName
+                    + ",queueOwner=admin,isExclusive=false,isDurable=true')");
+            execute("INSERT INTO MB_BINDING VALUES ('amq.direct', '" + queueName + "', 'exchangeName&amq.direct"
+                    + "|queueName=" + queueName + ",queueOwner=admin,isExclusive=false,isDurable=true|routingKey&"
+                    + queueName + "')");
+            execute("INSERT INTO MB_QUEUE_MAPPING (QUEUE_NAME) VALUES ('" + queueName + "')");
+            execute("INSERT INTO MB_QUEUE_TO_LAST_ASSIGNED_ID VALUES ('" + queueName + "', " + messageCount + ")");
+            execute("INSERT INTO MB_SLOT_MESSAGE_ID SELECT '" + queueName + "', X FROM SYSTEM_RANGE(1, "
+                    + messageCount + ")");
+            execute("INSERT INTO MB_SLOT (START_MESSAGE_ID, END_MESSAGE_ID, STORAGE_QUEUE_NAME, ASSIGNED_QUEUE_NAME)"
+                    + " SELECT X * 10, X * 10 + 9, '" + queueName + "', '" + queueName + "' FROM SYSTEM_RANGE(1, "
+                    + Math.max(1, messageCount / 10) + ")");
+        }
+    }
+
+    void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    long queryLong(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    List<String> queryStrings(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                values.add(resultSet.getString(1));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Counts the rows of a table whose column has capital letters.
+     */
+    long countCapitalized(String table, String column) throws SQLException {
+        return queryLong("SELECT COUNT(*) FROM " + table + " WHERE " + column + " <> LOWER(" + column + ")");
+    }
+
+    /**
+     * Drops the database, closing the connections of connectors to it.
+     */
+    @Override
+    public void close() throws SQLException {
+        execute("SHUTDOWN");
+        connection.close();
+    }
+}